@@ -0,0 +1,210 @@
+package org.rapidoid.index;
+
+/*
+ * #%L
+ * rapidoid-annotation-index
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.*;
+
+/**
+ * Generates an index of the annotated classes at compile time, which is used instead of scanning the classpath at
+ * runtime (see <code>org.rapidoid.scan.AnnotationIndex</code>). All the annotations that are retained in the class
+ * files are indexed, since those are the ones found by the classpath scanner.
+ * <p>
+ * On incremental compilation, the existing index is updated: the entries of the recompiled classes are replaced and
+ * the entries of the classes that no longer exist are removed.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+@SupportedAnnotationTypes("*")
+public class AnnotationIndexProcessor extends AbstractProcessor {
+
+	// must be the same as org.rapidoid.scan.AnnotationIndex.LOCATION
+	static final String LOCATION = "META-INF/rapidoid/annotated.idx";
+
+	private final Map<String, Set<String>> index = new TreeMap<String, Set<String>>();
+
+	private final Set<String> compiled = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			writeIndex();
+			return false;
+		}
+
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			addCompiled(type);
+		}
+
+		for (TypeElement annotation : annotations) {
+			if (isRetained(annotation)) {
+				for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+
+					// inherited annotations aren't in the class file of the sub-class, so they aren't indexed
+					if (isType(element) && isDirectlyAnnotated(element, annotation)) {
+						add(annotation.getQualifiedName().toString(), binaryName((TypeElement) element));
+					}
+				}
+			}
+		}
+
+		// the processor doesn't claim the annotations, so the other processors can handle them, too
+		return false;
+	}
+
+	private void addCompiled(TypeElement type) {
+		compiled.add(binaryName(type));
+
+		for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+			addCompiled(nested);
+		}
+	}
+
+	private static boolean isRetained(TypeElement annotation) {
+		Retention retention = annotation.getAnnotation(Retention.class);
+
+		// the default retention is CLASS
+		return retention == null || retention.value() != RetentionPolicy.SOURCE;
+	}
+
+	private static boolean isType(Element element) {
+		return element.getKind().isClass() || element.getKind().isInterface();
+	}
+
+	private static boolean isDirectlyAnnotated(Element element, TypeElement annotation) {
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (mirror.getAnnotationType().asElement().equals(annotation)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private String binaryName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString();
+	}
+
+	private void add(String annotation, String clsName) {
+		Set<String> classes = index.get(annotation);
+
+		if (classes == null) {
+			classes = new TreeSet<String>();
+			index.put(annotation, classes);
+		}
+
+		classes.add(clsName);
+	}
+
+	private void writeIndex() {
+		try {
+			mergeExistingIndex();
+
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", LOCATION);
+			Writer out = new OutputStreamWriter(file.openOutputStream(), "UTF-8");
+
+			try {
+				out.write("# Index of the annotated classes, generated by rapidoid-annotation-index\n");
+
+				for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+					out.write(entry.getKey());
+					out.write('=');
+					out.write(join(entry.getValue()));
+					out.write('\n');
+				}
+
+			} finally {
+				out.close();
+			}
+
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write the annotation index: " + e);
+		}
+	}
+
+	private void mergeExistingIndex() {
+		Properties existing = new Properties();
+
+		try {
+			FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", LOCATION);
+			InputStream in = file.openInputStream();
+
+			try {
+				existing.load(in);
+			} finally {
+				in.close();
+			}
+
+		} catch (IOException e) {
+			return; // no index from a previous compilation
+		}
+
+		Elements elements = processingEnv.getElementUtils();
+
+		for (String annotation : existing.stringPropertyNames()) {
+			for (String clsName : existing.getProperty(annotation).split(",")) {
+				clsName = clsName.trim();
+
+				if (!clsName.isEmpty() && !compiled.contains(clsName)
+					&& elements.getTypeElement(clsName.replace('$', '.')) != null) {
+					add(annotation, clsName);
+				}
+			}
+		}
+	}
+
+	private static String join(Set<String> items) {
+		StringBuilder sb = new StringBuilder();
+
+		for (String item : items) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+
+			sb.append(item);
+		}
+
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,67 @@
+package org.rapidoid.index;
+
+/*
+ * #%L
+ * rapidoid-annotation-index
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Controller;
+import org.rapidoid.annotation.Service;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+import org.rapidoid.log.LogLevel;
+import org.rapidoid.scan.AnnotationIndex;
+import org.rapidoid.scan.ClasspathScanner;
+import org.rapidoid.scan.Scan;
+import org.rapidoid.util.Msc;
+
+/**
+ * Compares the time to find the annotated classes (on the whole classpath) with and without the annotation index.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AnnotationIndexPerfTest {
+
+	public static void main(String[] args) {
+		Log.setLogLevel(LogLevel.WARN);
+
+		for (int round = 0; round < 3; round++) {
+			AnnotationIndex.enabled(false);
+
+			Msc.benchmark("classpath scan", 10, new Runnable() {
+				@Override
+				public void run() {
+					ClasspathScanner.reset();
+					Scan.annotated(Controller.class, Service.class).getAll();
+				}
+			});
+
+			AnnotationIndex.enabled(true);
+
+			Msc.benchmark("annotation index", 10000, new Runnable() {
+				@Override
+				public void run() {
+					ClasspathScanner.reset();
+					Scan.annotated(Controller.class, Service.class).getAll();
+				}
+			});
+		}
+	}
+
+}
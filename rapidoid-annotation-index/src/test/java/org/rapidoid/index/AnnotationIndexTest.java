@@ -0,0 +1,120 @@
+package org.rapidoid.index;
+
+/*
+ * #%L
+ * rapidoid-annotation-index
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.annotation.Annotation;
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Controller;
+import org.rapidoid.annotation.Service;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.io.IO;
+import org.rapidoid.scan.AnnotationIndex;
+import org.rapidoid.scan.ClasspathScanner;
+import org.rapidoid.scan.ClasspathUtil;
+import org.rapidoid.scan.Scan;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.util.List;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AnnotationIndexTest extends TestCommons {
+
+	@Test
+	public void testGeneratedIndex() {
+		String index = IO.load(AnnotationIndexProcessor.LOCATION);
+		notNull(index);
+
+		isTrue(index.contains("org.rapidoid.annotation.Controller=org.rapidoid.index.IndexedCtrl,org.rapidoid.index.IndexedCtrl$NestedCtrl\n"));
+		isTrue(index.contains("org.rapidoid.annotation.Service=org.rapidoid.index.IndexedService\n"));
+	}
+
+	@Test
+	public void testScanWithIndex() {
+		ClasspathScanner.reset();
+
+		List<String> controllers = Scan.annotated(Controller.class).in("org.rapidoid.index").getAll();
+		eq(U.set(controllers), U.set("org.rapidoid.index.IndexedCtrl", "org.rapidoid.index.IndexedCtrl$NestedCtrl"));
+
+		List<String> services = Scan.annotated(Controller.class, Service.class).in("org.rapidoid").matching(".*Service").getAll();
+		eq(services, U.list("org.rapidoid.index.IndexedService"));
+
+		isTrue(Scan.annotated(Controller.class).in("com.example").getAll().isEmpty());
+	}
+
+	@Test
+	public void testSameResultsAsScanning() {
+		ClasspathScanner.reset();
+
+		List<String> indexed = Scan.annotated(Controller.class, Service.class).in("org.rapidoid.index").getAll();
+
+		AnnotationIndex.enabled(false);
+
+		try {
+			List<String> scanned = Scan.annotated(Controller.class, Service.class).in("org.rapidoid.index").getAll();
+			eq(U.set(indexed), U.set(scanned));
+
+		} finally {
+			AnnotationIndex.enabled(true);
+		}
+	}
+
+	@Test
+	public void testIndexedAndNotIndexedRoots() throws Exception {
+		File root = new File(createTempDir("not-indexed"));
+
+		// a classpath root without an index, e.g. compiled without the annotation processor
+		writeAnnotatedClass(root, "org.rapidoid.index.NotIndexedCtrl", Controller.class);
+
+		ClasspathUtil.getClasspath().add(root.getAbsolutePath());
+		ClasspathScanner.reset();
+
+		try {
+			List<String> controllers = Scan.annotated(Controller.class).in("org.rapidoid.index").getAll();
+
+			eq(U.set(controllers), U.set("org.rapidoid.index.IndexedCtrl", "org.rapidoid.index.IndexedCtrl$NestedCtrl",
+				"org.rapidoid.index.NotIndexedCtrl"));
+
+		} finally {
+			ClasspathUtil.getClasspath().remove(root.getAbsolutePath());
+			ClasspathScanner.reset();
+		}
+	}
+
+	private static void writeAnnotatedClass(File root, String className, Class<?> annotation) throws Exception {
+		CtClass cls = new ClassPool(true).makeClass(className);
+		ClassFile classFile = cls.getClassFile();
+
+		AnnotationsAttribute attr = new AnnotationsAttribute(classFile.getConstPool(), AnnotationsAttribute.visibleTag);
+		attr.addAnnotation(new Annotation(annotation.getName(), classFile.getConstPool()));
+		classFile.addAttribute(attr);
+
+		cls.writeFile(root.getAbsolutePath());
+	}
+
+}
@@ -0,0 +1,36 @@
+package org.rapidoid.index;
+
+/*
+ * #%L
+ * rapidoid-annotation-index
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Controller;
+import org.rapidoid.annotation.Since;
+
+@Controller
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class IndexedCtrl {
+
+	@Controller
+	public static class NestedCtrl {
+	}
+
+}
@@ -11,7 +11,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 /*
@@ -42,6 +44,8 @@ public interface Buf {
 
 	byte get(int position);
 
+	long getLong(int position);
+
 	void put(int position, byte value);
 
 	void append(byte value);
@@ -54,6 +58,8 @@ public interface Buf {
 
 	int append(ReadableByteChannel channel) throws IOException;
 
+	int append(ScatteringByteChannel channel, int maxUnits) throws IOException;
+
 	int append(String s);
 
 	void append(byte[] bytes);
@@ -66,6 +72,10 @@ public interface Buf {
 
 	int writeTo(WritableByteChannel channel) throws IOException;
 
+	int gatherTo(GatheringByteChannel channel) throws IOException;
+
+	int writeTo(WritableByteChannel channel, int length) throws IOException;
+
 	int writeTo(ByteBuffer buffer);
 
 	void deleteBefore(int position);
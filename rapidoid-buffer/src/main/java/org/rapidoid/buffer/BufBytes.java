@@ -40,6 +40,11 @@ public class BufBytes extends RapidoidThing implements Bytes {
 		return buf.get(position);
 	}
 
+	@Override
+	public long getLong(int position) {
+		return buf.getLong(position);
+	}
+
 	@Override
 	public int limit() {
 		return buf.limit();
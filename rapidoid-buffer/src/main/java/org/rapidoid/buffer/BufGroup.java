@@ -3,8 +3,8 @@ package org.rapidoid.buffer;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
-import org.rapidoid.pool.Pool;
 import org.rapidoid.pool.Pools;
+import org.rapidoid.pool.ThreadConfinedPool;
 
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
@@ -37,27 +37,38 @@ public class BufGroup extends RapidoidThing {
 
 	private final int capacity;
 
-	private final Pool<ByteBuffer> pool;
+	private final ThreadConfinedPool<ByteBuffer> pool;
 
 	private final boolean synchronizedBuffers;
 
-	public BufGroup(int factor, boolean synchronizedBuffers) {
+	public BufGroup(int factor, boolean synchronizedBuffers, int lowWatermark, int highWatermark) {
 		this.synchronizedBuffers = synchronizedBuffers;
 		this.factor = factor;
 		this.capacity = (int) Math.pow(2, factor);
 
-		pool = Pools.create("buffers", new Callable<ByteBuffer>() {
+		pool = Pools.confined("buffers", new Callable<ByteBuffer>() {
 			@Override
 			public ByteBuffer call() {
 				return ByteBuffer.allocateDirect(capacity);
 			}
-		}, 1000);
+		}, lowWatermark, highWatermark);
+	}
+
+	public BufGroup(int factor, boolean synchronizedBuffers) {
+		this(factor, synchronizedBuffers, 100, 1000);
 	}
 
 	public BufGroup(int factor) {
 		this(factor, true);
 	}
 
+	/**
+	 * Assigns the thread that will use the buffer pool without synchronization (e.g. the I/O worker thread).
+	 */
+	public void ownedBy(Thread owner) {
+		pool.ownedBy(owner);
+	}
+
 	public Buf newBuf(String name) {
 		Buf buf = new MultiBuf(pool, factor, name);
 
@@ -86,6 +97,14 @@ public class BufGroup extends RapidoidThing {
 		return pool.objectsCreated();
 	}
 
+	public int inUse() {
+		return pool.inUse();
+	}
+
+	public long trimmed() {
+		return pool.trimmed();
+	}
+
 	public void clear() {
 		pool.clear();
 	}
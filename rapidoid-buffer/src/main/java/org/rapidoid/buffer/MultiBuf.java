@@ -19,7 +19,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 /*
@@ -131,6 +133,33 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 		return buf.get(position & addrMask);
 	}
 
+	@Override
+	public long getLong(int position) {
+		assert invariant(false);
+		assert position >= 0;
+
+		validatePos(position, 8);
+
+		int pos = position + shrinkN;
+		int addr = pos & addrMask;
+
+		if (addr + 8 <= singleCap) {
+			ByteBuffer buf = bufs[pos >> factor];
+			assert buf != null;
+
+			return buf.getLong(addr);
+		}
+
+		// the bytes span two buffers
+		long value = 0;
+
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (get(position + i) & 0xFF);
+		}
+
+		return value;
+	}
+
 	private void validatePos(int pos, int space) {
 		if (pos < 0) {
 			throw U.rte("Invalid position: " + pos);
@@ -245,6 +274,75 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 		return totalRead;
 	}
 
+	/**
+	 * Reads data from the channel and appends it to the buffer, using scattering reads into (up to) <code>maxUnits</code>
+	 * segments at once. The reserved segments that weren't filled are returned to the pool after the read, so a single
+	 * read can never hold more than <code>maxUnits</code> segments from the pool.
+	 * <p>
+	 * Precondition: received event that the channel has data to be read.
+	 */
+	@Override
+	public int append(ScatteringByteChannel channel, int maxUnits) throws IOException {
+		assert invariant(true);
+		U.must(maxUnits > 0, "The max units must be positive!");
+
+		int totalRead = 0;
+
+		try {
+
+			boolean done;
+
+			// precondition: the channel has data
+
+			do {
+				int from = reserveUnits(maxUnits);
+
+				int space = 0;
+				for (int i = from; i < bufN; i++) {
+					space += bufs[i].remaining();
+				}
+				assert space > 0;
+
+				long read = channel.read(bufs, from, bufN - from);
+				if (read >= 0) {
+					totalRead += read;
+				} else {
+					// end of stream (e.g. the other end closed the connection)
+					removeEmptyBuffers();
+					sizeChanged();
+
+					assert invariant(true);
+					return -1;
+				}
+
+				// if the buffers weren't filled -> no data is available in channel
+				done = read < space;
+
+				removeEmptyBuffers();
+			} while (!done);
+
+		} finally {
+			removeEmptyBuffers();
+			sizeChanged();
+			assert invariant(true);
+		}
+
+		return totalRead;
+	}
+
+	/**
+	 * Ensures there are <code>maxUnits</code> writable segments at the end, returns the index of the first one.
+	 */
+	private int reserveUnits(int maxUnits) {
+		int from = bufN > 0 && last().hasRemaining() ? bufN - 1 : bufN;
+
+		while (bufN - from < maxUnits) {
+			expandUnit();
+		}
+
+		return from;
+	}
+
 	@Override
 	public void append(ByteBuffer src) {
 		assert invariant(true);
@@ -419,6 +517,33 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 
 	@Override
 	public int writeTo(WritableByteChannel channel) throws IOException {
+		if (bufN > 1 && channel instanceof GatheringByteChannel) {
+			return gatherTo((GatheringByteChannel) channel);
+		}
+
+		return writeEachTo(channel);
+	}
+
+	/**
+	 * Writes only the first <code>length</code> bytes of the buffer to the channel (e.g. the data that precedes a file
+	 * transfer). The written data is not removed from the buffer.
+	 */
+	@Override
+	public int writeTo(WritableByteChannel channel, int length) throws IOException {
+		assert invariant(true);
+		U.must(length <= _size(), "Cannot write more than the buffer size!");
+
+		if (length == 0) {
+			return 0;
+		}
+
+		int wrote = writeTo(TO_CHANNEL, 0, length, null, channel, null, 0);
+
+		assert invariant(true);
+		return wrote;
+	}
+
+	private int writeEachTo(WritableByteChannel channel) throws IOException {
 		assert invariant(true);
 
 		int wrote = writeTo(TO_CHANNEL, 0, _size(), null, channel, null, 0);
@@ -428,6 +553,63 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 		return wrote;
 	}
 
+	/**
+	 * Writes all the buffer segments to the channel with a single gathering write (if possible), instead of writing
+	 * them one by one. The written data is not removed from the buffer.
+	 */
+	@Override
+	public int gatherTo(GatheringByteChannel channel) throws IOException {
+		if (bufN <= 1) {
+			// a plain write is cheaper for a single segment
+			return writeEachTo(channel);
+		}
+
+		assert invariant(true);
+
+		int size = _size();
+
+		ByteBuffer last = last();
+		int lastPos = last.position();
+		int lastLimit = last.limit();
+
+		// expose the readable part of each segment
+		for (int i = 0; i < bufN - 1; i++) {
+			bufs[i].position(0);
+		}
+
+		last.limit(lastPos);
+		last.position(0);
+
+		bufs[0].position(shrinkN);
+
+		long total = 0;
+
+		try {
+			while (total < size) {
+				long wrote = channel.write(bufs, 0, bufN);
+				if (wrote <= 0) {
+					break;
+				}
+				total += wrote;
+			}
+
+		} finally {
+			// restore buf positions
+			for (int i = 0; i < bufN - 1; i++) {
+				bufs[i].limit(singleCap);
+				bufs[i].position(singleCap);
+			}
+
+			last.limit(lastLimit);
+			last.position(lastPos);
+		}
+
+		assert U.must(total <= size, "Incorrect write to channel!");
+
+		assert invariant(true);
+		return (int) total;
+	}
+
 	@Override
 	public int writeTo(ByteBuffer buffer) {
 		assert invariant(true);
@@ -641,6 +823,12 @@ public class MultiBuf extends OutputStream implements Buf, Constants {
 		}
 	}
 
+	private void removeEmptyBuffers() {
+		while (bufN > 0 && last().position() == 0) {
+			removeLastBuf();
+		}
+	}
+
 	private void removeLastBufferIfEmpty() {
 		if (bufN > 0) {
 			if (last().position() == 0) {
@@ -11,7 +11,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
 import java.nio.channels.WritableByteChannel;
 
 /*
@@ -49,6 +51,11 @@ public class SynchronizedBuf extends OutputStream implements Buf {
 		return buf.get(position);
 	}
 
+	@Override
+	public synchronized long getLong(int position) {
+		return buf.getLong(position);
+	}
+
 	@Override
 	public synchronized void put(int position, byte value) {
 		buf.put(position, value);
@@ -79,6 +86,11 @@ public class SynchronizedBuf extends OutputStream implements Buf {
 		return buf.append(channel);
 	}
 
+	@Override
+	public synchronized int append(ScatteringByteChannel channel, int maxUnits) throws IOException {
+		return buf.append(channel, maxUnits);
+	}
+
 	@Override
 	public synchronized int append(String s) {
 		return buf.append(s);
@@ -104,6 +116,16 @@ public class SynchronizedBuf extends OutputStream implements Buf {
 		return buf.writeTo(channel);
 	}
 
+	@Override
+	public synchronized int gatherTo(GatheringByteChannel channel) throws IOException {
+		return buf.gatherTo(channel);
+	}
+
+	@Override
+	public synchronized int writeTo(WritableByteChannel channel, int length) throws IOException {
+		return buf.writeTo(channel, length);
+	}
+
 	@Override
 	public synchronized int writeTo(ByteBuffer buffer) {
 		return buf.writeTo(buffer);
@@ -39,6 +39,11 @@ public class ByteArrayBytes extends RapidoidThing implements Bytes {
 		return bytes[position];
 	}
 
+	@Override
+	public long getLong(int position) {
+		return BytesUtil.getLong(this, position);
+	}
+
 	@Override
 	public int limit() {
 		return bytes.length;
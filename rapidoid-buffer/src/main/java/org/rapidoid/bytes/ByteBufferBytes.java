@@ -44,6 +44,11 @@ public class ByteBufferBytes extends RapidoidThing implements Bytes {
 		return buf.get(position);
 	}
 
+	@Override
+	public long getLong(int position) {
+		return buf.getLong(position);
+	}
+
 	@Override
 	public int limit() {
 		return buf.limit();
@@ -29,6 +29,11 @@ public interface Bytes {
 
 	byte get(int position);
 
+	/**
+	 * Returns the 8 bytes starting at the specified position, as a big-endian <code>long</code>.
+	 */
+	long getLong(int position);
+
 	int limit();
 
 }
@@ -40,6 +40,10 @@ public class BytesUtil extends RapidoidThing implements Constants {
 
 	private static final boolean[] URI_ALLOWED_CHARACTER = new boolean[128];
 
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
 	static {
 		for (int ch = 0; ch < 128; ch++) {
 			if (ch >= 'a' && ch <= 'z') {
@@ -63,103 +67,74 @@ public class BytesUtil extends RapidoidThing implements Constants {
 	}
 
 	public static int parseLines(Bytes bytes, BufRanges lines, IntWrap res, int start, int limit, byte end1, byte end2) {
-		byte b0 = 0, b1 = 0, b2 = 0, b3 = 0;
-		int ret = -1;
 		res.value = NOT_FOUND;
 
-		int i;
 		int from = start;
-		for (i = start; i < limit; i++) {
-			b0 = b1;
-			b1 = b2;
-			b2 = b3;
-			b3 = bytes.get(i);
+		int i = start;
 
-			if (b3 == LF) {
-				int len;
+		while ((i = scan(bytes, i, limit - 1, LF)) >= 0) {
+			byte b2 = byteAt(bytes, start, i - 1);
+			int len;
 
-				if (b2 == CR) {
-					len = i - from - 1;
-					if (b0 == end1 && b1 == end2 && len > 0) {
-						res.value = lines.count;
-					}
-				} else {
-					len = i - from;
-					if (b1 == end1 && b2 == end2 && len > 0) {
-						res.value = lines.count;
-					}
+			if (b2 == CR) {
+				len = i - from - 1;
+				if (byteAt(bytes, start, i - 3) == end1 && byteAt(bytes, start, i - 2) == end2 && len > 0) {
+					res.value = lines.count;
 				}
-
-				if (len == 0) {
-					ret = i + 1;
-					break;
+			} else {
+				len = i - from;
+				if (byteAt(bytes, start, i - 2) == end1 && b2 == end2 && len > 0) {
+					res.value = lines.count;
 				}
+			}
 
-				lines.add(from, len);
-				from = i + 1;
+			if (len == 0) {
+				return i + 1;
 			}
+
+			lines.add(from, len);
+			from = ++i;
 		}
 
-		return ret;
+		return -1;
 	}
 
 	public static int parseLines(Bytes bytes, BufRanges lines, int start, int limit) {
-		byte b0 = 0, b1 = 0;
-		int ret = -1;
-
-		int i;
 		int from = start;
-		for (i = start; i < limit; i++) {
-			b0 = b1;
-			b1 = bytes.get(i);
+		int i = start;
 
-			if (b1 == LF) {
-				int len;
+		while ((i = scan(bytes, i, limit - 1, LF)) >= 0) {
+			int len = byteAt(bytes, start, i - 1) == CR ? i - from - 1 : i - from;
 
-				if (b0 == CR) {
-					len = i - from - 1;
-				} else {
-					len = i - from;
-				}
-
-				if (len == 0) {
-					ret = i + 1;
-					break;
-				}
-
-				lines.add(from, len);
-				from = i + 1;
+			if (len == 0) {
+				return i + 1;
 			}
+
+			lines.add(from, len);
+			from = ++i;
 		}
 
-		return ret;
+		return -1;
 	}
 
 	public static int parseLine(Bytes bytes, BufRange line, int start, int limit) {
-		byte b0 = 0, b1 = 0;
-		int ret = -1;
+		int i = scan(bytes, start, limit - 1, LF);
 
-		int i;
-		for (i = start; i < limit; i++) {
-			b0 = b1;
-			b1 = bytes.get(i);
-
-			if (b1 == LF) {
-				int len;
+		if (i < 0) {
+			return -1;
+		}
 
-				if (b0 == CR) {
-					len = i - start - 1;
-				} else {
-					len = i - start;
-				}
+		int len = byteAt(bytes, start, i - 1) == CR ? i - start - 1 : i - start;
+		line.set(start, len);
 
-				line.set(start, len);
-				ret = i + 1;
-				break;
-			}
-		}
+		return i + 1;
+	}
 
-		return ret;
+	/**
+	 * Returns the byte at the specified position, or <code>0</code> if it is before the start of the scanned bytes.
+	 */
+	private static byte byteAt(Bytes bytes, int start, int position) {
+		return position >= start ? bytes.get(position) : 0;
 	}
 
 	public static BufRange getByPrefix(Bytes bytes, BufRanges ranges, byte[] prefix, boolean caseSensitive) {
@@ -183,8 +158,26 @@ public class BytesUtil extends RapidoidThing implements Constants {
 		return byteArr;
 	}
 
+	/**
+	 * Scans 8 bytes at a time (SWAR), and the rest of the bytes one by one.
+	 */
 	public static int scan(Bytes bytes, int from, int to, byte value) {
-		for (int i = from; i <= to; i++) {
+		int i = from;
+
+		// the words are read only within the limit, as some callers scan beyond it (expecting to find the value before)
+		int lastWord = Math.min(to, bytes.limit() - 1) - 7;
+
+		long pattern = ONES * (value & 0xFF);
+
+		for (; i <= lastWord; i += 8) {
+			long found = zeroBytes(bytes.getLong(i) ^ pattern);
+
+			if (found != 0) {
+				return i + (Long.numberOfLeadingZeros(found) >>> 3);
+			}
+		}
+
+		for (; i <= to; i++) {
 			if (bytes.get(i) == value) {
 				return i;
 			}
@@ -193,6 +186,24 @@ public class BytesUtil extends RapidoidThing implements Constants {
 		return -1;
 	}
 
+	/**
+	 * Returns a word with the highest bit set in each byte that is zero in the specified word (without false positives,
+	 * as there is no carry between the bytes).
+	 */
+	private static long zeroBytes(long word) {
+		return ~(((word & LOW_BITS) + LOW_BITS) | word | LOW_BITS);
+	}
+
+	public static long getLong(Bytes bytes, int position) {
+		long value = 0;
+
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (bytes.get(position + i) & 0xFF);
+		}
+
+		return value;
+	}
+
 	public static int scanNoCase(Bytes bytes, int from, int to, byte value) {
 		for (int i = from; i <= to; i++) {
 			byte b = bytes.get(i);
@@ -446,12 +457,12 @@ public class BytesUtil extends RapidoidThing implements Constants {
 
 		boolean matchedPrefix = prefix == searchPrefix;
 
-		for (int i = p; i <= toPos; i++) {
-			if (bytes.get(i) == separator) {
-				result.setInterval(fromPos, i);
-				int nextPos = i + 1;
-				return matchedPrefix ? -nextPos : nextPos;
-			}
+		int i = scan(bytes, p, toPos, separator);
+
+		if (i >= 0) {
+			result.setInterval(fromPos, i);
+			int nextPos = i + 1;
+			return matchedPrefix ? -nextPos : nextPos;
 		}
 
 		result.reset();
@@ -532,18 +543,17 @@ public class BytesUtil extends RapidoidThing implements Constants {
 
 		boolean matchedPrefix = prefix == searchPrefix;
 
-		for (int i = p; i <= toPos; i++) {
-			if (bytes.get(i) == LF) {
-
-				if (bytes.get(i - 1) == CR) {
-					result.setInterval(fromPos, i - 1);
-				} else {
-					result.setInterval(fromPos, i);
-				}
+		int i = scan(bytes, p, toPos, LF);
 
-				int nextPos = i + 1;
-				return matchedPrefix ? -nextPos : nextPos;
+		if (i >= 0) {
+			if (bytes.get(i - 1) == CR) {
+				result.setInterval(fromPos, i - 1);
+			} else {
+				result.setInterval(fromPos, i);
 			}
+
+			int nextPos = i + 1;
+			return matchedPrefix ? -nextPos : nextPos;
 		}
 
 		result.reset();
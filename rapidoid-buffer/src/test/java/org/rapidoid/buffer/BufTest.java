@@ -31,6 +31,10 @@ import org.rapidoid.data.BufRanges;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Constants;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+
 @Authors("Nikolche Mihajlovski")
 @Since("2.0.0")
 public class BufTest extends BufferTestCommons implements Constants {
@@ -421,6 +425,74 @@ public class BufTest extends BufferTestCommons implements Constants {
 		}
 	}
 
+	@Test
+	public void testGatherTo() {
+		BufGroup bufs = new BufGroup(4);
+
+		for (int len = 0; len < 200; len++) {
+			for (int skip = 0; skip <= len; skip += 7) {
+				String s = Rnd.rndStr(len);
+
+				Buf buf = bufs.newBuf();
+				buf.append(s);
+				buf.deleteBefore(skip);
+
+				CountingChannel channel = new CountingChannel(1 + Rnd.rnd(50), true);
+
+				int total = 0;
+				while (buf.size() > 0) {
+					int wrote = gather(buf, channel);
+					total += wrote;
+					buf.deleteBefore(wrote);
+				}
+
+				eq(total, len - skip);
+				eq(channel.data(), s.substring(skip));
+			}
+		}
+	}
+
+	@Test
+	public void testScatteringRead() throws IOException {
+		BufGroup bufs = new BufGroup(4);
+
+		for (int maxUnits = 1; maxUnits <= 5; maxUnits++) {
+			Pipe pipe = Pipe.open();
+			pipe.source().configureBlocking(false);
+
+			Buf buf = bufs.newBuf();
+			String expected = "";
+
+			for (int i = 0; i < 300; i++) {
+				String s = Rnd.rndStr(Rnd.rnd(100));
+				expected += s;
+
+				pipe.sink().write(ByteBuffer.wrap(s.getBytes()));
+
+				int read = buf.append(pipe.source(), maxUnits);
+
+				eq(read, s.length());
+				eq(buf.size(), expected.length());
+			}
+
+			eq(buf.data(), expected);
+
+			pipe.sink().close();
+			eq(buf.append(pipe.source(), maxUnits), -1);
+			eq(buf.data(), expected);
+
+			pipe.source().close();
+		}
+	}
+
+	private int gather(Buf buf, CountingChannel channel) {
+		try {
+			return buf.gatherTo(channel);
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+	}
+
 	private void checkMatch(Buf buf, int start, int limit, String match, int... positions) {
 		for (int pos : positions) {
 			int p = BytesUtil.find(buf.bytes(), start, limit, match.getBytes(), true);
@@ -23,8 +23,11 @@ package org.rapidoid.buffer;
 import org.junit.Test;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.bytes.Bytes;
 import org.rapidoid.bytes.BytesUtil;
+import org.rapidoid.commons.Str;
 import org.rapidoid.data.BufRange;
+import org.rapidoid.data.BufRanges;
 
 @Authors("Nikolche Mihajlovski")
 @Since("4.1.0")
@@ -81,6 +84,45 @@ public class BytesUtilTest extends BufferTestCommons {
 		isFalse(isValid("\ng"));
 	}
 
+	@Test
+	public void testScanAcrossSegments() {
+		String text = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+		// 16-byte segments, so the 8-byte words are often split between two segments
+		Buf buf = new BufGroup(4).from(text, "scan");
+		Bytes bytes = buf.bytes();
+
+		for (int from = 0; from < text.length(); from++) {
+			for (int to = from; to < text.length(); to++) {
+				for (char ch : "a7Zp\u00ff".toCharArray()) {
+					int expected = text.indexOf(ch, from);
+					eq(BytesUtil.scan(bytes, from, to, (byte) ch), expected <= to ? expected : -1);
+				}
+			}
+		}
+
+		for (int pos = 0; pos <= text.length() - 8; pos++) {
+			eq(bytes.getLong(pos), BytesUtil.getLong(BytesUtil.from(text), pos));
+		}
+	}
+
+	@Test
+	public void testParseLinesAcrossSegments() {
+		String head = "GET / HTTP/1.1\r\nHost: localhost\r\nCookie: " + Str.mul("abc=123; ", 10) + "\nX: y\r\n\r\nBODY";
+
+		Buf buf = new BufGroup(4).from(head, "lines");
+		BufRanges lines = new BufRanges(10);
+
+		int pos = BytesUtil.parseLines(buf.bytes(), lines, 0, buf.size());
+
+		eq(pos, head.indexOf("BODY"));
+		eq(lines.count, 4);
+		eq(head, lines.ranges[0], "GET / HTTP/1.1");
+		eq(head, lines.ranges[1], "Host: localhost");
+		eq(head, lines.ranges[2], "Cookie: " + Str.mul("abc=123; ", 10));
+		eq(head, lines.ranges[3], "X: y");
+	}
+
 	private boolean isValid(String uri) {
 		Buf buf = buf(uri);
 		BufRange uriRange = BufRange.fromTo(0, buf.size());
@@ -0,0 +1,109 @@
+package org.rapidoid.buffer;
+
+/*
+ * #%L
+ * rapidoid-buffer
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+/**
+ * Simulates a socket channel: counts the write calls (syscalls) and accepts at most <code>maxPerWrite</code> bytes
+ * per call, like a socket with a limited send buffer.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class CountingChannel implements GatheringByteChannel {
+
+	private final int maxPerWrite;
+
+	private final ByteArrayOutputStream out;
+
+	public long writes;
+
+	public long bytes;
+
+	public CountingChannel(int maxPerWrite, boolean keepData) {
+		this.maxPerWrite = maxPerWrite;
+		this.out = keepData ? new ByteArrayOutputStream() : null;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length) {
+		writes++;
+
+		int space = maxPerWrite;
+		long total = 0;
+
+		for (int i = offset; i < offset + length && space > 0; i++) {
+			total += consume(srcs[i], space);
+			space = maxPerWrite - (int) total;
+		}
+
+		bytes += total;
+		return total;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs) {
+		return write(srcs, 0, srcs.length);
+	}
+
+	@Override
+	public int write(ByteBuffer src) {
+		writes++;
+
+		int total = consume(src, maxPerWrite);
+
+		bytes += total;
+		return total;
+	}
+
+	private int consume(ByteBuffer src, int space) {
+		int n = Math.min(src.remaining(), space);
+
+		if (out != null) {
+			for (int i = 0; i < n; i++) {
+				out.write(src.get());
+			}
+		} else {
+			src.position(src.position() + n);
+		}
+
+		return n;
+	}
+
+	public String data() {
+		return new String(out.toByteArray());
+	}
+
+	@Override
+	public boolean isOpen() {
+		return true;
+	}
+
+	@Override
+	public void close() {
+	}
+
+}
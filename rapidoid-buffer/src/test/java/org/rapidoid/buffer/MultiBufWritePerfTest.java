@@ -0,0 +1,167 @@
+package org.rapidoid.buffer;
+
+/*
+ * #%L
+ * rapidoid-buffer
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compares the per-segment channel writes with the gathering writes of a MultiBuf (16 KB segments, like the server),
+ * writing to a loopback socket that is drained by another thread.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class MultiBufWritePerfTest {
+
+	private static final BufGroup BUFS = new BufGroup(14, false);
+
+	private static long writeCalls;
+
+	public static void main(String[] args) throws IOException {
+		final SocketChannel socket = connectToSink();
+
+		// counts the write calls (syscalls) on the socket
+		GatheringByteChannel gathering = new GatheringByteChannel() {
+			@Override
+			public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+				writeCalls++;
+				return socket.write(srcs, offset, length);
+			}
+
+			@Override
+			public long write(ByteBuffer[] srcs) throws IOException {
+				return write(srcs, 0, srcs.length);
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				writeCalls++;
+				return socket.write(src);
+			}
+
+			@Override
+			public boolean isOpen() {
+				return socket.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				socket.close();
+			}
+		};
+
+		int[] sizes = {1024, 64 * 1024, 1024 * 1024};
+
+		for (int round = 0; round < 5; round++) {
+			for (int size : sizes) {
+				int count = 2000000000 / size / 10;
+
+				bench(gathering, size, count, false);
+				bench(gathering, size, count, true);
+			}
+		}
+
+		socket.close();
+	}
+
+	private static void bench(final GatheringByteChannel channel, int size, int count, final boolean gather) {
+		final Buf buf = BUFS.newBuf();
+		buf.append(new byte[size]);
+
+		// hides the gathering capability of the channel
+		final WritableByteChannel plain = new WritableByteChannel() {
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				return channel.write(src);
+			}
+
+			@Override
+			public boolean isOpen() {
+				return true;
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+
+		String name = (gather ? "gather " : "per-segment ") + size / 1024 + " KB";
+
+		writeCalls = 0;
+
+		Msc.benchmark(name, count, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					int wrote = gather ? buf.gatherTo(channel) : buf.writeTo(plain);
+					U.must(wrote == buf.size());
+				} catch (IOException e) {
+					throw U.rte(e);
+				}
+			}
+		});
+
+		System.out.println(String.format("  %s: %.1f write calls per response", name, writeCalls * 1.0 / count));
+
+		buf.clear();
+	}
+
+	private static SocketChannel connectToSink() throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress("localhost", 0));
+
+		SocketChannel client = SocketChannel.open(new InetSocketAddress("localhost", server.socket().getLocalPort()));
+		client.socket().setSendBufferSize(4 * 1024 * 1024);
+
+		final SocketChannel sink = server.accept();
+		server.close();
+
+		Thread drain = new Thread() {
+			@Override
+			public void run() {
+				ByteBuffer dest = ByteBuffer.allocateDirect(1024 * 1024);
+				try {
+					while (sink.read(dest) >= 0) {
+						dest.clear();
+					}
+				} catch (IOException e) {
+					// the socket was closed
+				}
+			}
+		};
+
+		drain.setDaemon(true);
+		drain.start();
+
+		return client;
+	}
+
+}
@@ -20,6 +20,7 @@ package org.netnix;
 import keywhiz.hkdf.Hkdf;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.LRUCache;
 import org.rapidoid.crypto.Crypto;
 import org.rapidoid.u.U;
 
@@ -42,6 +43,33 @@ public class AES {
 	private static final String HMAC_SHA_256 = "HmacSHA256";
 	private static final String AES_CTR_NO_PADDING = "AES/CTR/NoPadding";
 
+	private static final IvParameterSpec ZERO_IV = new IvParameterSpec(new byte[16]);
+
+	private static final int DERIVED_KEYS_CAPACITY = 1000;
+
+	// the keys derived for decryption, by secret, salt and length
+	private static final LRUCache<DerivedKeyId, SecretKeySpec> DERIVED_KEYS =
+		new LRUCache<DerivedKeyId, SecretKeySpec>(DERIVED_KEYS_CAPACITY, DERIVED_KEYS_CAPACITY, 0);
+
+	// the Cipher and Mac instances are expensive to look up, so they are reused (re-initialized) per thread
+	private static final ThreadLocal<Cipher> CIPHER = new ThreadLocal<Cipher>() {
+		@Override
+		protected Cipher initialValue() {
+			return Crypto.cipher(AES_CTR_NO_PADDING);
+		}
+	};
+
+	private static final ThreadLocal<Mac> MAC = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				return Mac.getInstance(HMAC_SHA_256);
+			} catch (NoSuchAlgorithmException e) {
+				throw U.rte("Cannot find crypto algorithm: " + HMAC_SHA_256);
+			}
+		}
+	};
+
 	public static final int AES_KEY_LENGTH = calcAESKeyLength();
 
 	private static int calcAESKeyLength() {
@@ -74,15 +102,15 @@ public class AES {
 		byte[] aesKey = hkdf(secret, aesSalt, AES_KEY_LENGTH);
 		SecretKeySpec aesKeySpec = new SecretKeySpec(aesKey, "AES");
 
-		Cipher cipher = Cipher.getInstance(AES_CTR_NO_PADDING);
-		cipher.init(Cipher.ENCRYPT_MODE, aesKeySpec, new IvParameterSpec(new byte[16]));
+		Cipher cipher = CIPHER.get();
+		cipher.init(Cipher.ENCRYPT_MODE, aesKeySpec, ZERO_IV);
 		byte[] encrypted = cipher.doFinal(data);
 
 		byte[] hmacSalt = Crypto.randomSalt();
 		byte[] hmacKey = hkdf(secret, hmacSalt, 160);
 		SecretKeySpec hmacKeySpec = new SecretKeySpec(hmacKey, HMAC_SHA_256);
 
-		Mac m = Mac.getInstance(HMAC_SHA_256);
+		Mac m = MAC.get();
 		m.init(hmacKeySpec);
 		byte[] hmac = m.doFinal(encrypted);
 
@@ -103,19 +131,17 @@ public class AES {
 		byte[] encrypted = Arrays.copyOfRange(data, 40, data.length - 32);
 		byte[] hmac = Arrays.copyOfRange(data, data.length - 32, data.length);
 
-		byte[] hmacKey = hkdf(secret, hmacSalt, 160);
-		SecretKeySpec hmacKeySpec = new SecretKeySpec(hmacKey, HMAC_SHA_256);
+		SecretKeySpec hmacKeySpec = derivedKey(secret, hmacSalt, 160, HMAC_SHA_256);
 
-		Mac m = Mac.getInstance(HMAC_SHA_256);
+		Mac m = MAC.get();
 		m.init(hmacKeySpec);
 		byte[] expectedHmac = m.doFinal(encrypted);
 
 		if (MessageDigest.isEqual(hmac, expectedHmac)) {
-			byte[] decrKey = hkdf(secret, aesSalt, AES_KEY_LENGTH);
-			SecretKeySpec dekrKeySpec = new SecretKeySpec(decrKey, "AES");
+			SecretKeySpec dekrKeySpec = derivedKey(secret, aesSalt, AES_KEY_LENGTH, "AES");
 
-			Cipher cipher = Cipher.getInstance(AES_CTR_NO_PADDING);
-			cipher.init(Cipher.DECRYPT_MODE, dekrKeySpec, new IvParameterSpec(new byte[16]));
+			Cipher cipher = CIPHER.get();
+			cipher.init(Cipher.DECRYPT_MODE, dekrKeySpec, ZERO_IV);
 			return cipher.doFinal(encrypted);
 
 		} else {
@@ -128,4 +154,53 @@ public class AES {
 		return HKDF.expand(key, salt, bitLength / 8);
 	}
 
+	/**
+	 * Derives the key for decryption, or reuses the key derived for the same secret and salt, as the same data (e.g.
+	 * a token) is usually decrypted many times. The keys for encryption are always derived from new random salts.
+	 */
+	private static SecretKeySpec derivedKey(byte[] secret, byte[] salt, int bitLength, String algorithm) {
+		DerivedKeyId id = new DerivedKeyId(secret, salt, bitLength);
+		SecretKeySpec key = DERIVED_KEYS.get(id);
+
+		if (key == null) {
+			key = new SecretKeySpec(hkdf(secret, salt, bitLength), algorithm);
+			DERIVED_KEYS.put(id, key, 1);
+		}
+
+		return key;
+	}
+
+	private static class DerivedKeyId {
+
+		private final byte[] secret;
+
+		private final byte[] salt;
+
+		private final int bitLength;
+
+		private final int hash;
+
+		DerivedKeyId(byte[] secret, byte[] salt, int bitLength) {
+			this.secret = secret;
+			this.salt = salt;
+			this.bitLength = bitLength;
+			this.hash = 31 * (31 * Arrays.hashCode(salt) + bitLength) + Arrays.hashCode(secret);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof DerivedKeyId)) return false;
+
+			DerivedKeyId that = (DerivedKeyId) o;
+
+			return bitLength == that.bitLength && Arrays.equals(salt, that.salt) && Arrays.equals(secret, that.secret);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
 }
\ No newline at end of file
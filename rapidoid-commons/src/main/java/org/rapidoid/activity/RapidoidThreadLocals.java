@@ -51,8 +51,6 @@ public class RapidoidThreadLocals extends RapidoidThing {
 
 	private final ByteArrayOutputStream pageRenderingStream = new ByteArrayOutputStream();
 
-	private final ByteArrayOutputStream templateRenderingStream = new ByteArrayOutputStream();
-
 	public Object renderContext;
 
 	public ByteArrayOutputStream jsonRenderingStream() {
@@ -65,9 +63,4 @@ public class RapidoidThreadLocals extends RapidoidThing {
 		return pageRenderingStream;
 	}
 
-	public ByteArrayOutputStream templateRenderingStream() {
-		templateRenderingStream.reset();
-		return templateRenderingStream;
-	}
-
 }
@@ -0,0 +1,38 @@
+package org.rapidoid.beany;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Implemented by the generated classes, which access the bean properties (selected by index) directly, without
+ * reflection.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public interface BeanAccessor {
+
+	Object get(Object target, int index);
+
+	void set(Object target, int index, Object value);
+
+}
@@ -0,0 +1,251 @@
+package org.rapidoid.beany;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cls.Cls;
+import org.rapidoid.collection.Coll;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Generates one {@link BeanAccessor} class per bean type, with direct getter/setter calls and field access, switched
+ * by property index. The generated class is defined in the package (and class loader) of the bean type, so it can
+ * also access the package-private members. The properties that can't be accessed directly (and all properties, if
+ * the generation fails) are still accessed through reflection.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+class BeanAccessors extends RapidoidThing {
+
+	private static final AtomicInteger ID_GEN = new AtomicInteger();
+
+	// the fallback to reflection is reported only once per class
+	private static final Set<String> NOT_GENERATED = Coll.synchronizedSet();
+
+	// since Java 9, the classes are defined through a private lookup in the bean type (MethodHandles.privateLookupIn)
+	private static final Method PRIVATE_LOOKUP_IN = Cls.findMethod(MethodHandles.class, "privateLookupIn",
+		Class.class, MethodHandles.Lookup.class);
+
+	private static final Method DEFINE_CLASS = Cls.findMethod(MethodHandles.Lookup.class, "defineClass", byte[].class);
+
+	static void generate(Class<?> clazz, Collection<BeanProp> properties) {
+		ClassLoader loader = clazz.getClassLoader();
+
+		if (loader == null || clazz.isArray() || clazz.isPrimitive() || clazz.getName().startsWith("java.")) {
+			return;
+		}
+
+		List<BeanProp> props = U.list();
+
+		for (BeanProp prop : properties) {
+			if (isAccessible(clazz, prop)) {
+				props.add(prop);
+			}
+		}
+
+		if (props.isEmpty()) {
+			return;
+		}
+
+		BeanAccessor accessor;
+
+		try {
+			accessor = tryToGenerate(clazz, props);
+
+		} catch (Throwable e) {
+			if (NOT_GENERATED.add(clazz.getName())) {
+				Log.warn("Couldn't generate bean accessor, will use reflection", "class", clazz.getName(), "error", e);
+			}
+			return;
+		}
+
+		for (int i = 0; i < props.size(); i++) {
+			props.get(i).accessor(accessor, i);
+		}
+	}
+
+	private static BeanAccessor tryToGenerate(Class<?> clazz, List<BeanProp> props) throws Exception {
+		ClassLoader loader = clazz.getClassLoader();
+
+		ClassPool cp = new ClassPool(true);
+		cp.insertClassPath(new LoaderClassPath(loader));
+
+		CtClass cls = cp.makeClass(clazz.getName() + "$$Accessor" + ID_GEN.incrementAndGet());
+
+		cls.addInterface(cp.get(BeanAccessor.class.getName()));
+		cls.addConstructor(CtNewConstructor.defaultConstructor(cls));
+
+		StringBuilder get = new StringBuilder();
+		StringBuilder set = new StringBuilder();
+
+		get.append("public Object get(Object target, int index) { switch ($2) {\n");
+		set.append("public void set(Object target, int index, Object value) { switch ($2) {\n");
+
+		for (int i = 0; i < props.size(); i++) {
+			BeanProp prop = props.get(i);
+
+			Method getter = prop.getGetter();
+			Method setter = prop.getSetter();
+			Field field = prop.getField();
+
+			if (getter != null) {
+				String call = U.frmt("((%s) $1).%s()", typeName(getter.getDeclaringClass()), getter.getName());
+				get.append(U.frmt("case %s: return %s;\n", i, box(call, getter.getReturnType())));
+
+			} else {
+				String access = U.frmt("((%s) $1).%s", typeName(field.getDeclaringClass()), field.getName());
+				get.append(U.frmt("case %s: return %s;\n", i, box(access, field.getType())));
+			}
+
+			if (field != null) {
+				if (!Modifier.isFinal(field.getModifiers())) {
+					String access = U.frmt("((%s) $1).%s", typeName(field.getDeclaringClass()), field.getName());
+					set.append(U.frmt("case %s: %s = %s; return;\n", i, access, unbox("$3", field.getType())));
+				}
+
+			} else if (setter != null) {
+				String target = U.frmt("((%s) $1).%s", typeName(setter.getDeclaringClass()), setter.getName());
+				set.append(U.frmt("case %s: %s(%s); return;\n", i, target, unbox("$3", setter.getParameterTypes()[0])));
+			}
+		}
+
+		get.append("} throw new IllegalArgumentException(\"Unknown property index: \" + $2); }");
+		set.append("} throw new IllegalArgumentException(\"Cannot set property with index: \" + $2); }");
+
+		cls.addMethod(CtNewMethod.make(get.toString(), cls));
+		cls.addMethod(CtNewMethod.make(set.toString(), cls));
+
+		Class<?> accessorClass = defineClass(clazz, cls);
+		cls.detach();
+
+		return (BeanAccessor) accessorClass.newInstance();
+	}
+
+	/**
+	 * Defines the accessor class in the package of the bean type. The class loader's <code>defineClass</code>,
+	 * which is used by Javassist, can't be accessed reflectively since Java 16, so a private lookup in the bean type
+	 * is used instead, when available.
+	 */
+	private static Class<?> defineClass(Class<?> clazz, CtClass cls) throws Exception {
+		if (PRIVATE_LOOKUP_IN != null && DEFINE_CLASS != null) {
+			Object lookup = PRIVATE_LOOKUP_IN.invoke(null, clazz, MethodHandles.lookup());
+			return (Class<?>) DEFINE_CLASS.invoke(lookup, (Object) cls.toBytecode());
+
+		} else {
+			return cls.toClass(clazz.getClassLoader(), clazz.getProtectionDomain());
+		}
+	}
+
+	private static boolean isAccessible(Class<?> clazz, BeanProp prop) {
+		Method getter = prop.getGetter();
+		Method setter = prop.getSetter();
+		Field field = prop.getField();
+
+		if (getter != null) {
+			if (getter.isBridge() || getter.getReturnType() == void.class
+				|| !isAccessible(clazz, getter) || !isAccessible(clazz, getter.getReturnType())) {
+				return false;
+			}
+
+		} else if (field == null) {
+			return false;
+		}
+
+		if (field != null) {
+			return isAccessible(clazz, field) && isAccessible(clazz, field.getType());
+
+		} else if (setter != null) {
+			return !setter.isBridge() && isAccessible(clazz, setter) && isAccessible(clazz, setter.getParameterTypes()[0]);
+
+		} else {
+			return true;
+		}
+	}
+
+	private static boolean isAccessible(Class<?> clazz, Member member) {
+		int modifiers = member.getModifiers();
+		Class<?> owner = member.getDeclaringClass();
+
+		if (Modifier.isPublic(modifiers)) {
+			return Modifier.isPublic(owner.getModifiers()) || isSamePackage(clazz, owner);
+
+		} else {
+			return !Modifier.isPrivate(modifiers) && !Modifier.isProtected(modifiers) && isSamePackage(clazz, owner);
+		}
+	}
+
+	private static boolean isAccessible(Class<?> clazz, Class<?> type) {
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+
+		return type.isPrimitive() || Modifier.isPublic(type.getModifiers()) || isSamePackage(clazz, type);
+	}
+
+	private static boolean isSamePackage(Class<?> clazz, Class<?> type) {
+		return clazz.getClassLoader() == type.getClassLoader() && U.eq(packageOf(clazz), packageOf(type));
+	}
+
+	private static String packageOf(Class<?> clazz) {
+		String name = clazz.getName();
+		int pos = name.lastIndexOf('.');
+		return pos >= 0 ? name.substring(0, pos) : "";
+	}
+
+	private static String typeName(Class<?> type) {
+		return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+	}
+
+	private static String box(String expr, Class<?> type) {
+		if (!type.isPrimitive()) {
+			return expr;
+		}
+
+		return U.frmt("%s.valueOf(%s)", typeName(Cls.getWrapperClass(type)), expr);
+	}
+
+	private static String unbox(String expr, Class<?> type) {
+		if (!type.isPrimitive()) {
+			return U.frmt("(%s) %s", typeName(type), expr);
+		}
+
+		return U.frmt("((%s) %s).%sValue()", typeName(Cls.getWrapperClass(type)), expr, type.getName());
+	}
+
+}
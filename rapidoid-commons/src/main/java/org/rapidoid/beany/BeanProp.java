@@ -65,6 +65,13 @@ public class BeanProp extends RapidoidThing implements Prop {
 	private ParameterizedType genericType;
 	private ParameterizedType rawGenericType;
 
+	// the type of the field or setter parameter, which receives the assigned values
+	private Class<?> valueType;
+
+	private volatile BeanAccessor accessor;
+
+	private volatile int accessorIndex;
+
 	public BeanProp(String name) {
 		this.name = name;
 	}
@@ -92,6 +99,12 @@ public class BeanProp extends RapidoidThing implements Prop {
 		}
 		type = rawType;
 
+		if (field != null) {
+			valueType = field.getType();
+		} else if (setter != null) {
+			valueType = setter.getParameterTypes()[0];
+		}
+
 		Type gType = field != null ? field.getGenericType() : getter.getGenericReturnType();
 		genericType = rawGenericType = Cls.generic(gType);
 
@@ -119,6 +132,11 @@ public class BeanProp extends RapidoidThing implements Prop {
 		declaringType = field != null ? field.getDeclaringClass() : getter.getDeclaringClass();
 	}
 
+	void accessor(BeanAccessor accessor, int index) {
+		this.accessorIndex = index;
+		this.accessor = accessor;
+	}
+
 	public void setGetter(Method getter) {
 		this.getter = getter;
 	}
@@ -163,7 +181,9 @@ public class BeanProp extends RapidoidThing implements Prop {
 		// FIXME when target class isn't the property declaring class
 
 		try {
-			if (getter != null) {
+			if (accessor != null) {
+				return (T) accessor.get(target, accessorIndex);
+			} else if (getter != null) {
 				return (T) getter.invoke(target);
 			} else {
 				return (T) field.get(target);
@@ -326,12 +346,14 @@ public class BeanProp extends RapidoidThing implements Prop {
 
 	private void normalSet(Object target, Object value) {
 		try {
-			if (field != null) {
+			if (accessor != null && valueType != null) {
+				accessor.set(target, accessorIndex, Cls.convert(value, valueType));
+			} else if (field != null) {
 				field.setAccessible(true);
-				field.set(target, Cls.convert(value, field.getType()));
+				field.set(target, Cls.convert(value, valueType));
 			} else if (setter != null) {
 				setter.setAccessible(true);
-				setter.invoke(target, Cls.convert(value, setter.getParameterTypes()[0]));
+				setter.invoke(target, Cls.convert(value, valueType));
 			} else if (getter != null) {
 				throw Err.notExpected();
 			}
@@ -371,7 +393,9 @@ public class BeanProp extends RapidoidThing implements Prop {
 	@Override
 	public Object getFast(Object target) {
 		try {
-			if (getter != null) {
+			if (accessor != null) {
+				return accessor.get(target, accessorIndex);
+			} else if (getter != null) {
 				return getter.invoke(target);
 			} else {
 				return field.get(target);
@@ -62,6 +62,8 @@ public class Beany extends RapidoidThing {
 					e.getValue().init();
 				}
 
+				BeanAccessors.generate(clazz, properties.values());
+
 				return new BeanProperties(properties);
 			}
 		});
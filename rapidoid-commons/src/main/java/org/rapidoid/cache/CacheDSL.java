@@ -34,6 +34,14 @@ public class CacheDSL<K, V> extends RapidoidThing {
 
 	private volatile long ttl = 0;
 
+	private volatile long idleTtl = 0;
+
+	private volatile long refreshAfter = 0;
+
+	private volatile long maxWeight = 0;
+
+	private volatile org.rapidoid.lambda.Mapper<V, Long> weigher = null;
+
 	public CacheDSL<K, V> of(org.rapidoid.lambda.Mapper<K, V> of) {
 		this.of = of;
 		return this;
@@ -61,6 +69,42 @@ public class CacheDSL<K, V> extends RapidoidThing {
 		return this.ttl;
 	}
 
+	public CacheDSL<K, V> idleTtl(long idleTtl) {
+		this.idleTtl = idleTtl;
+		return this;
+	}
+
+	public long idleTtl() {
+		return this.idleTtl;
+	}
+
+	public CacheDSL<K, V> refreshAfter(long refreshAfter) {
+		this.refreshAfter = refreshAfter;
+		return this;
+	}
+
+	public long refreshAfter() {
+		return this.refreshAfter;
+	}
+
+	public CacheDSL<K, V> maxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		return this;
+	}
+
+	public long maxWeight() {
+		return this.maxWeight;
+	}
+
+	public CacheDSL<K, V> weigher(org.rapidoid.lambda.Mapper<V, Long> weigher) {
+		this.weigher = weigher;
+		return this;
+	}
+
+	public org.rapidoid.lambda.Mapper<V, Long> weigher() {
+		return this.weigher;
+	}
+
 	public Cached<K, V> build() {
 		return CacheFactory.create(this);
 	}
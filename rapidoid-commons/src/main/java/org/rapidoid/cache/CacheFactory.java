@@ -29,7 +29,8 @@ import org.rapidoid.annotation.Since;
 public class CacheFactory extends RapidoidThing {
 
 	public static <K, V> CachedImpl<K, V> create(CacheDSL<K, V> params) {
-		return new CachedImpl<K, V>(params.capacity(), params.of(), params.ttl());
+		return new CachedImpl<K, V>(params.capacity(), params.of(), params.ttl(), params.idleTtl(),
+			params.refreshAfter(), params.maxWeight(), params.weigher());
 	}
 
 }
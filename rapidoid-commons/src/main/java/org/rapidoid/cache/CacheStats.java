@@ -0,0 +1,123 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+/**
+ * A snapshot of the cache statistics.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class CacheStats extends RapidoidThing {
+
+	private final long hits;
+
+	private final long misses;
+
+	private final long loads;
+
+	private final long loadErrors;
+
+	private final long totalLoadTime;
+
+	private final long evictions;
+
+	private final long expirations;
+
+	private final long size;
+
+	private final long weight;
+
+	public CacheStats(long hits, long misses, long loads, long loadErrors, long totalLoadTime, long evictions,
+	                  long expirations, long size, long weight) {
+		this.hits = hits;
+		this.misses = misses;
+		this.loads = loads;
+		this.loadErrors = loadErrors;
+		this.totalLoadTime = totalLoadTime;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.size = size;
+		this.weight = weight;
+	}
+
+	public long hits() {
+		return hits;
+	}
+
+	public long misses() {
+		return misses;
+	}
+
+	public double hitRatio() {
+		long requests = hits + misses;
+		return requests > 0 ? (double) hits / requests : 1.0;
+	}
+
+	public long loads() {
+		return loads;
+	}
+
+	public long loadErrors() {
+		return loadErrors;
+	}
+
+	/**
+	 * The total time spent loading values (in nanoseconds), including the refreshes.
+	 */
+	public long totalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * The average time spent loading a value (in nanoseconds).
+	 */
+	public double averageLoadTime() {
+		return loads > 0 ? (double) totalLoadTime / loads : 0;
+	}
+
+	public long evictions() {
+		return evictions;
+	}
+
+	public long expirations() {
+		return expirations;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public long weight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hits + ", misses=" + misses + ", hitRatio=" + hitRatio() + ", loads=" + loads
+			+ ", loadErrors=" + loadErrors + ", averageLoadTime=" + averageLoadTime() + ", evictions=" + evictions
+			+ ", expirations=" + expirations + ", size=" + size + ", weight=" + weight + "]";
+	}
+
+}
@@ -27,6 +27,24 @@ import org.rapidoid.annotation.Since;
 @Since("5.3.0")
 public interface Cached<K, V> {
 
+	/**
+	 * Returns the cached value, loading it if it's missing or expired.
+	 */
 	V get(K key);
 
+	/**
+	 * Returns the cached value, or <code>null</code> if it's missing or expired (without loading it).
+	 */
+	V getIfExists(K key);
+
+	void set(K key, V value);
+
+	void invalidate(K key);
+
+	void clear();
+
+	long size();
+
+	CacheStats stats();
+
 }
@@ -1,13 +1,16 @@
 package org.rapidoid.cache;
 
+import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.lambda.Mapper;
-import org.rapidoid.util.AbstractMapImpl;
-import org.rapidoid.util.MapEntry;
-import org.rapidoid.util.SimpleList;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
 
-import java.util.concurrent.Callable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /*
  * #%L
@@ -29,51 +32,649 @@ import java.util.concurrent.Callable;
  * #L%
  */
 
+/**
+ * A striped cache with W-TinyLFU eviction: the new entries enter a small LRU window, and the entries evicted from
+ * the window compete with the least recently used entries of the main (segmented LRU) space, where the more
+ * frequently accessed entry (estimated by a frequency sketch) survives. This protects the popular entries from
+ * being flushed by a scan of one-hit entries.
+ * <p>
+ * Each segment has its own lock, frequency sketch and an equal share of the capacity (or max weight, when a weigher is
+ * used), so the values heavier than that share are not cached. The values are loaded outside of the lock, and the
+ * concurrent requests for the same key wait for a single load.
+ */
 @Authors("Nikolche Mihajlovski")
 @Since("5.3.0")
-public class CachedImpl<K, V> extends AbstractMapImpl<K, CachedCalc<V>> implements Cached<K, V> {
+public class CachedImpl<K, V> extends RapidoidThing implements Cached<K, V> {
+
+	private static final int MIN_SEGMENT_CAPACITY = 16;
 
-	private static final int BUCKET_SIZE = 10;
+	// how many of the expired entries are removed per queue on each insertion
+	private static final int MAX_EXPIRED_PER_INSERT = 4;
 
 	private final Mapper<K, V> loader;
 
 	private final long ttlInMs;
 
+	private final long idleTtlInMs;
+
+	private final long refreshAfterInMs;
+
+	private final Mapper<V, Long> weigher;
+
+	private final Segment<K, V>[] segments;
+
+	private final int segmentShift;
+
 	public CachedImpl(int capacity, Mapper<K, V> loader, long ttlInMs) {
-		this(capacity / BUCKET_SIZE, BUCKET_SIZE, loader, ttlInMs);
+		this(capacity, loader, ttlInMs, 0, 0, 0, null);
 	}
 
-	public CachedImpl(int buckets, int bucketSize, Mapper<K, V> loader, long ttlInMs) {
-		super(buckets, bucketSize);
+	@SuppressWarnings("unchecked")
+	public CachedImpl(int capacity, Mapper<K, V> loader, long ttlInMs, long idleTtlInMs, long refreshAfterInMs,
+	                  long maxWeight, Mapper<V, Long> weigher) {
+
+		U.must(capacity > 0, "The cache capacity must be positive!");
+		U.must(weigher == null || maxWeight > 0, "The max weight of the cache must be positive, when using a weigher!");
+
 		this.loader = loader;
 		this.ttlInMs = ttlInMs;
+		this.idleTtlInMs = idleTtlInMs;
+		this.refreshAfterInMs = refreshAfterInMs;
+		this.weigher = weigher;
+
+		int concurrency = Runtime.getRuntime().availableProcessors() * 4;
+		int count = 1;
+
+		while (count < concurrency && count * 2 * MIN_SEGMENT_CAPACITY <= capacity) {
+			count <<= 1;
+		}
+
+		this.segments = new Segment[count];
+		this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+
+		// without a weigher, each entry weighs 1, so the max weight is the capacity
+		long totalWeight = weigher != null ? maxWeight : capacity;
+
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment<K, V>(capacity / count, Math.max(totalWeight / count, 1), ttlInMs, idleTtlInMs);
+		}
 	}
 
 	@Override
-	public V get(final K key) {
-		SimpleList<MapEntry<K, CachedCalc<V>>> bucket = entries.bucket(key.hashCode());
-		MapEntry<K, CachedCalc<V>> entry = findEntry(key, bucket);
+	public V get(K key) {
+		int hash = hash(key);
+		Segment<K, V> seg = segmentFor(hash);
+
+		Entry<K, V> entry;
+		boolean load = false;
+		boolean refresh = false;
+
+		synchronized (seg) {
+			seg.sketch.increment(hash);
+			entry = seg.find(key, U.time());
+
+			if (entry == null) {
+				entry = new Entry<K, V>(key, hash);
+				seg.map.put(key, entry);
+				seg.misses++;
+				load = true;
+
+			} else if (entry.loaded) {
+				seg.hits++;
+				refresh = refreshAfterInMs > 0 && !entry.refreshing && U.time() - entry.writtenAt >= refreshAfterInMs;
+				entry.refreshing |= refresh;
+
+			} else {
+				seg.misses++; // waiting for the value to be loaded
+			}
+		}
+
+		if (load) {
+			return load(seg, entry);
+		}
 
-		if (entry != null) {
-			return entry.value.get();
+		if (refresh) {
+			refresh(seg, entry);
 		}
 
-		CachedCalc<V> cachedValue = new ConcurrentCached<V>(loaderFor(key), ttlInMs);
+		return entry.await();
+	}
+
+	@Override
+	public V getIfExists(K key) {
+		int hash = hash(key);
+		Segment<K, V> seg = segmentFor(hash);
 
-		synchronized (bucket) {
-			bucket.addRotating(new MapEntry<K, CachedCalc<V>>(key, cachedValue));
+		synchronized (seg) {
+			seg.sketch.increment(hash);
+			Entry<K, V> entry = seg.find(key, U.time());
+
+			if (entry != null && entry.loaded) {
+				seg.hits++;
+				return entry.value;
+
+			} else {
+				seg.misses++;
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public void set(K key, V value) {
+		int hash = hash(key);
+		Segment<K, V> seg = segmentFor(hash);
+		long weight = weigh(value);
+
+		synchronized (seg) {
+			seg.remove(key);
+
+			if (weight <= seg.maxWeight) {
+				Entry<K, V> entry = new Entry<K, V>(key, hash);
+				entry.complete(value, null);
+
+				seg.map.put(key, entry);
+				seg.admit(entry, weight, U.time());
+			}
+		}
+	}
+
+	@Override
+	public void invalidate(K key) {
+		Segment<K, V> seg = segmentFor(hash(key));
+
+		synchronized (seg) {
+			seg.remove(key);
+		}
+	}
+
+	@Override
+	public void clear() {
+		for (Segment<K, V> seg : segments) {
+			synchronized (seg) {
+				seg.clear();
+			}
+		}
+	}
+
+	@Override
+	public long size() {
+		long size = 0;
+
+		for (Segment<K, V> seg : segments) {
+			synchronized (seg) {
+				size += seg.map.size();
+			}
 		}
 
-		return cachedValue.get();
+		return size;
 	}
 
-	private Callable<V> loaderFor(final K key) {
-		return new Callable<V>() {
+	@Override
+	public CacheStats stats() {
+		long hits = 0, misses = 0, loads = 0, loadErrors = 0, loadTime = 0, evictions = 0, expirations = 0;
+		long size = 0, weight = 0;
+
+		for (Segment<K, V> seg : segments) {
+			synchronized (seg) {
+				hits += seg.hits;
+				misses += seg.misses;
+				loads += seg.loads;
+				loadErrors += seg.loadErrors;
+				loadTime += seg.loadTime;
+				evictions += seg.evictions;
+				expirations += seg.expirations;
+				size += seg.map.size();
+				weight += seg.weight();
+			}
+		}
+
+		return new CacheStats(hits, misses, loads, loadErrors, loadTime, evictions, expirations, size, weight);
+	}
+
+	private V load(Segment<K, V> seg, Entry<K, V> entry) {
+		long start = System.nanoTime();
+
+		V value = null;
+		Throwable error = null;
+		long weight = 0;
+
+		try {
+			value = loader.map(entry.key);
+			weight = weigh(value);
+		} catch (Throwable e) {
+			error = e;
+		}
+
+		long loadTime = System.nanoTime() - start;
+
+		synchronized (seg) {
+			seg.loaded(loadTime, error);
+
+			// the entry might have been invalidated in the meantime
+			if (seg.map.get(entry.key) == entry) {
+				if (error == null && weight <= seg.maxWeight) {
+					seg.admit(entry, weight, U.time());
+				} else {
+					seg.map.remove(entry.key);
+				}
+			}
+
+			// the value is published to the other threads after the entry was admitted
+			entry.complete(value, error);
+		}
+
+		if (error != null) {
+			throw U.rte("Couldn't recalculate the cache value!", error);
+		}
+
+		return value;
+	}
+
+	/**
+	 * Reloads the value in background, while the current value is still being served.
+	 */
+	private void refresh(final Segment<K, V> seg, final Entry<K, V> entry) {
+		try {
+			Jobs.execute(refreshJob(seg, entry));
+
+		} catch (RejectedExecutionException e) {
+			// the stale value is still served, the refresh will be tried again by the next access
+			Log.warn("The cache refresh was rejected by the executor!", "key", entry.key);
+
+			synchronized (seg) {
+				entry.refreshing = false;
+			}
+		}
+	}
+
+	private Runnable refreshJob(final Segment<K, V> seg, final Entry<K, V> entry) {
+		return new Runnable() {
 			@Override
-			public V call() throws Exception {
-				return loader.map(key);
+			public void run() {
+				long start = System.nanoTime();
+
+				V value = null;
+				Throwable error = null;
+				long weight = 0;
+
+				try {
+					value = loader.map(entry.key);
+					weight = weigh(value);
+				} catch (Throwable e) {
+					error = e;
+				}
+
+				long loadTime = System.nanoTime() - start;
+
+				synchronized (seg) {
+					seg.loaded(loadTime, error);
+					entry.refreshing = false;
+
+					if (error == null && seg.map.get(entry.key) == entry) {
+						if (weight <= seg.maxWeight) {
+							seg.update(entry, value, weight, U.time());
+						} else {
+							seg.remove(entry.key);
+						}
+					}
+				}
 			}
 		};
 	}
 
+	private long weigh(V value) {
+		if (weigher == null) {
+			return 1;
+		}
+
+		try {
+			long weight = weigher.map(value);
+			U.must(weight >= 0, "The weight must be non-negative!");
+			return weight;
+
+		} catch (Exception e) {
+			throw U.rte("Couldn't calculate the weight of the cache value!", e);
+		}
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return h * 0x9E3779B9;
+	}
+
+	private Segment<K, V> segmentFor(int hash) {
+		return segmentShift < 32 ? segments[hash >>> segmentShift] : segments[0];
+	}
+
+	@Override
+	public String toString() {
+		return "CachedImpl [segments=" + segments.length + ", ttlInMs=" + ttlInMs + ", idleTtlInMs=" + idleTtlInMs
+			+ ", refreshAfterInMs=" + refreshAfterInMs + ", stats=" + stats() + "]";
+	}
+
+	private static final int NONE = 0;
+	private static final int WINDOW = 1;
+	private static final int PROBATION = 2;
+	private static final int PROTECTED = 3;
+
+	private static class Entry<K, V> {
+
+		final K key;
+
+		final int hash;
+
+		volatile V value;
+
+		volatile boolean loaded;
+
+		Throwable error;
+
+		boolean refreshing;
+
+		long weight;
+
+		long writtenAt;
+
+		long accessedAt;
+
+		int queue = NONE;
+
+		Entry<K, V> prev;
+
+		Entry<K, V> next;
+
+		Entry(K key, int hash) {
+			this.key = key;
+			this.hash = hash;
+		}
+
+		synchronized void complete(V value, Throwable error) {
+			this.value = value;
+			this.error = error;
+			this.loaded = true;
+			notifyAll();
+		}
+
+		V await() {
+			if (!loaded) {
+				synchronized (this) {
+					while (!loaded) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw U.rte("Interrupted while waiting for the cache value!", e);
+						}
+					}
+				}
+			}
+
+			// the error was written before the volatile "loaded" flag, so it's visible here
+			if (error != null) {
+				throw U.rte("Couldn't recalculate the cache value!", error);
+			}
+
+			return value;
+		}
+	}
+
+	/**
+	 * A doubly-linked list of entries, in LRU order (the least recently used entry is the first one).
+	 */
+	private static class Queue<K, V> {
+
+		final Entry<K, V> head = new Entry<K, V>(null, 0);
+
+		long weight;
+
+		Queue() {
+			head.prev = head.next = head;
+		}
+
+		Entry<K, V> first() {
+			return head.next != head ? head.next : null;
+		}
+
+		Entry<K, V> last() {
+			return head.prev != head ? head.prev : null;
+		}
+
+		void add(Entry<K, V> entry, int queue) {
+			entry.queue = queue;
+			entry.prev = head.prev;
+			entry.next = head;
+			head.prev.next = entry;
+			head.prev = entry;
+			weight += entry.weight;
+		}
+
+		void unlink(Entry<K, V> entry) {
+			entry.prev.next = entry.next;
+			entry.next.prev = entry.prev;
+			entry.prev = entry.next = null;
+			entry.queue = NONE;
+			weight -= entry.weight;
+		}
+
+		void clear() {
+			head.prev = head.next = head;
+			weight = 0;
+		}
+	}
+
+	private static class Segment<K, V> {
+
+		final Map<K, Entry<K, V>> map = new HashMap<K, Entry<K, V>>();
+
+		final FrequencySketch sketch;
+
+		final long maxWeight;
+
+		final long maxWindow;
+
+		final long maxProtected;
+
+		final long ttlInMs;
+
+		final long idleTtlInMs;
+
+		final Queue<K, V> window = new Queue<K, V>();
+
+		final Queue<K, V> probation = new Queue<K, V>();
+
+		final Queue<K, V> protect = new Queue<K, V>();
+
+		long hits, misses, loads, loadErrors, loadTime, evictions, expirations;
+
+		Segment(int capacity, long maxWeight, long ttlInMs, long idleTtlInMs) {
+			this.sketch = new FrequencySketch(capacity);
+			this.maxWeight = maxWeight;
+			this.maxWindow = Math.max(maxWeight / 100, 1);
+			this.maxProtected = (maxWeight - maxWindow) * 8 / 10;
+			this.ttlInMs = ttlInMs;
+			this.idleTtlInMs = idleTtlInMs;
+		}
+
+		/**
+		 * Finds the entry (which might be still loading) and records the access, or removes it if it's expired.
+		 */
+		Entry<K, V> find(K key, long now) {
+			Entry<K, V> entry = map.get(key);
+
+			if (entry == null || !entry.loaded) {
+				return entry;
+			}
+
+			if (isExpired(entry, now)) {
+				remove(key);
+				expirations++;
+				return null;
+			}
+
+			entry.accessedAt = now;
+			onAccess(entry);
+
+			return entry;
+		}
+
+		void admit(Entry<K, V> entry, long weight, long now) {
+			entry.weight = weight;
+			entry.writtenAt = now;
+			entry.accessedAt = now;
+
+			window.add(entry, WINDOW);
+
+			expire(now);
+			evict();
+		}
+
+		void update(Entry<K, V> entry, V value, long weight, long now) {
+			Queue<K, V> queue = queueOf(entry);
+			int queueId = entry.queue;
+
+			queue.unlink(entry);
+			entry.weight = weight;
+			queue.add(entry, queueId);
+
+			entry.value = value;
+			entry.writtenAt = now;
+
+			evict();
+		}
+
+		void remove(K key) {
+			Entry<K, V> entry = map.remove(key);
+
+			if (entry != null && entry.queue != NONE) {
+				queueOf(entry).unlink(entry);
+			}
+		}
+
+		void loaded(long time, Throwable error) {
+			loads++;
+			loadTime += time;
+
+			if (error != null) {
+				loadErrors++;
+			}
+		}
+
+		long weight() {
+			return window.weight + probation.weight + protect.weight;
+		}
+
+		void clear() {
+			map.clear();
+			window.clear();
+			probation.clear();
+			protect.clear();
+		}
+
+		private void onAccess(Entry<K, V> entry) {
+			switch (entry.queue) {
+				case WINDOW:
+					window.unlink(entry);
+					window.add(entry, WINDOW);
+					break;
+
+				case PROBATION:
+					probation.unlink(entry);
+					protect.add(entry, PROTECTED);
+
+					// demote the least recently used protected entries
+					while (protect.weight > maxProtected && protect.first() != entry) {
+						Entry<K, V> demoted = protect.first();
+						protect.unlink(demoted);
+						probation.add(demoted, PROBATION);
+					}
+					break;
+
+				case PROTECTED:
+					protect.unlink(entry);
+					protect.add(entry, PROTECTED);
+					break;
+			}
+		}
+
+		private void evict() {
+			// the entries leaving the window become candidates for the main space
+			while (window.weight > maxWindow) {
+				Entry<K, V> entry = window.first();
+				window.unlink(entry);
+				probation.add(entry, PROBATION);
+			}
+
+			while (weight() > maxWeight) {
+				Entry<K, V> victim = probation.first();
+				Entry<K, V> candidate = probation.last();
+
+				if (victim == null) {
+					victim = protect.first() != null ? protect.first() : window.first();
+					evict(victim);
+
+				} else if (candidate == victim) {
+					evict(victim);
+
+				} else {
+					// the more frequently used of them stays in the cache
+					boolean admit = sketch.frequency(candidate.hash) > sketch.frequency(victim.hash);
+					evict(admit ? victim : candidate);
+				}
+			}
+		}
+
+		private void evict(Entry<K, V> entry) {
+			queueOf(entry).unlink(entry);
+			map.remove(entry.key);
+			evictions++;
+		}
+
+		private void expire(long now) {
+			if (ttlInMs <= 0 && idleTtlInMs <= 0) {
+				return;
+			}
+
+			expire(window, now);
+			expire(probation, now);
+			expire(protect, now);
+		}
+
+		private void expire(Queue<K, V> queue, long now) {
+			for (int i = 0; i < MAX_EXPIRED_PER_INSERT; i++) {
+				Entry<K, V> entry = queue.first();
+
+				if (entry == null || !isExpired(entry, now)) {
+					break;
+				}
+
+				queue.unlink(entry);
+				map.remove(entry.key);
+				expirations++;
+			}
+		}
+
+		private boolean isExpired(Entry<K, V> entry, long now) {
+			return (ttlInMs > 0 && now - entry.writtenAt >= ttlInMs)
+				|| (idleTtlInMs > 0 && now - entry.accessedAt >= idleTtlInMs);
+		}
+
+		private Queue<K, V> queueOf(Entry<K, V> entry) {
+			switch (entry.queue) {
+				case WINDOW:
+					return window;
+
+				case PROBATION:
+					return probation;
+
+				case PROTECTED:
+					return protect;
+
+				default:
+					throw U.rte("The cache entry is not in a queue!");
+			}
+		}
+	}
+
 }
@@ -0,0 +1,124 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+/**
+ * A count-min sketch with 4-bit counters, which estimates the (recent) access frequency of the cache keys. The
+ * counters are halved periodically, so the old popularity fades out.
+ * <p>
+ * Not thread-safe, it's guarded by the lock of the cache segment.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+class FrequencySketch {
+
+	private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+	private static final long RESET_MASK = 0x7777777777777777L;
+
+	private static final long ONE_MASK = 0x1111111111111111L;
+
+	// each long holds 16 counters of 4 bits
+	private final long[] table;
+
+	private final int tableMask;
+
+	private final int sampleSize;
+
+	private int size;
+
+	FrequencySketch(int capacity) {
+		int length = Integer.highestOneBit(Math.max(capacity - 1, 8)) << 1;
+
+		this.table = new long[length];
+		this.tableMask = length - 1;
+		this.sampleSize = 10 * Math.max(capacity, 8);
+	}
+
+	/**
+	 * Returns the estimated number of accesses (up to 15) of the key with the specified hash.
+	 */
+	int frequency(int hash) {
+		int start = (hash & 3) << 2;
+		int frequency = Integer.MAX_VALUE;
+
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+			frequency = Math.min(frequency, count);
+		}
+
+		return frequency;
+	}
+
+	/**
+	 * Increments the access counters of the key with the specified hash, unless they are already at the maximum.
+	 */
+	void increment(int hash) {
+		int start = (hash & 3) << 2;
+		boolean added = false;
+
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			added |= incrementAt(index, start + i);
+		}
+
+		if (added && ++size == sampleSize) {
+			reset();
+		}
+	}
+
+	private boolean incrementAt(int index, int counter) {
+		int offset = counter << 2;
+		long mask = 0xfL << offset;
+
+		if ((table[index] & mask) != mask) {
+			table[index] += 1L << offset;
+			return true;
+		}
+
+		return false;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int) h) & tableMask;
+	}
+
+	/**
+	 * Halves all the counters.
+	 */
+	private void reset() {
+		int odd = 0;
+
+		for (int i = 0; i < table.length; i++) {
+			odd += Long.bitCount(table[i] & ONE_MASK);
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		}
+
+		size = (size >>> 1) - (odd >>> 2);
+	}
+
+}
@@ -0,0 +1,185 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of explicitly stored values, bounded by both the number of entries and their total weight (e.g. size in
+ * bytes). When any of the limits is exceeded, the least recently used entries are evicted.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class LRUCache<K, V> extends RapidoidThing {
+
+	private final int capacity;
+
+	private final long maxWeight;
+
+	private final long ttlInMs;
+
+	// in access order, so the least recently used entry is the first one
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private long weight;
+
+	public LRUCache(int capacity, long maxWeight, long ttlInMs) {
+		U.must(capacity > 0, "The cache capacity must be positive!");
+		U.must(maxWeight > 0, "The max weight of the cache must be positive!");
+
+		this.capacity = capacity;
+		this.maxWeight = maxWeight;
+		this.ttlInMs = ttlInMs;
+	}
+
+	/**
+	 * Returns the cached value, or <code>null</code> if it's missing or expired.
+	 */
+	public synchronized V get(K key) {
+		Entry<V> entry = entries.get(key);
+
+		if (entry != null && entry.expiresAt < U.time()) {
+			remove(key);
+			entry = null;
+		}
+
+		if (entry != null) {
+			hits.incrementAndGet();
+			return entry.value;
+
+		} else {
+			misses.incrementAndGet();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the value with the specified weight, evicting the least recently used entries if required. The values
+	 * heavier than the max weight of the cache are not stored.
+	 */
+	public synchronized void put(K key, V value, long weight) {
+		put(key, value, weight, ttlInMs);
+	}
+
+	/**
+	 * Stores the value with the specified weight and time-to-live (instead of the default TTL of the cache).
+	 */
+	public synchronized void put(K key, V value, long weight, long ttlInMs) {
+		remove(key);
+
+		if (weight > maxWeight) {
+			return;
+		}
+
+		long expiresAt = ttlInMs > 0 ? U.time() + ttlInMs : Long.MAX_VALUE;
+
+		entries.put(key, new Entry<V>(value, weight, expiresAt));
+		this.weight += weight;
+
+		evict();
+	}
+
+	public synchronized void invalidate(K key) {
+		remove(key);
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long weight() {
+		return weight;
+	}
+
+	private void remove(K key) {
+		Entry<V> entry = entries.remove(key);
+
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+
+		while ((entries.size() > capacity || weight > maxWeight) && it.hasNext()) {
+			Entry<V> eldest = it.next().getValue();
+			it.remove();
+
+			weight -= eldest.weight;
+			evictions.incrementAndGet();
+		}
+	}
+
+	public AtomicLong getHits() {
+		return hits;
+	}
+
+	public AtomicLong getMisses() {
+		return misses;
+	}
+
+	public AtomicLong getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "LRUCache [capacity=" + capacity + ", maxWeight=" + maxWeight + ", ttlInMs=" + ttlInMs
+			+ ", size=" + entries.size() + ", weight=" + weight + ", hits=" + hits + ", misses=" + misses
+			+ ", evictions=" + evictions + "]";
+	}
+
+	private static class Entry<V> {
+
+		final V value;
+
+		final long weight;
+
+		final long expiresAt;
+
+		Entry(V value, long weight, long expiresAt) {
+			this.value = value;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+}
@@ -570,6 +570,10 @@ public class Cls extends RapidoidThing {
 			return (T) value;
 		}
 
+		if (toType.isPrimitive() && getWrapperClass(toType) == value.getClass()) {
+			return (T) value;
+		}
+
 		if (toType.equals(Object.class)) {
 			return (T) value;
 		}
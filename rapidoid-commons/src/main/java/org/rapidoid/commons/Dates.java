@@ -6,9 +6,11 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.u.U;
 
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.Locale;
 import java.util.TimeZone;
 
 /*
@@ -129,6 +131,30 @@ public class Dates extends RapidoidThing {
 		return df.format(date);
 	}
 
+	/**
+	 * Formats the time in the HTTP date format (RFC 1123), e.g. Sun, 07 Sep 2014 00:17:29 GMT
+	 */
+	public static String httpDate(long time) {
+		return httpDateFormat().format(new Date(time));
+	}
+
+	/**
+	 * Parses a date in the HTTP date format (RFC 1123), returning <code>-1</code> if it is invalid.
+	 */
+	public static long parseHttpDate(String date) {
+		try {
+			return httpDateFormat().parse(date).getTime();
+		} catch (ParseException e) {
+			return -1;
+		}
+	}
+
+	private static DateFormat httpDateFormat() {
+		DateFormat df = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+		df.setTimeZone(GMT);
+		return df;
+	}
+
 	private static SimpleDateFormat frmt(String frmt) {
 		return new SimpleDateFormat(frmt);
 	}
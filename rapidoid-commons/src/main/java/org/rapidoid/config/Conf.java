@@ -91,6 +91,14 @@ public class Conf extends RapidoidThing {
 
 			String logLevel = LOG.entry("level").or("info");
 			Log.setLogLevel(LogLevel.valueOf(logLevel.toUpperCase()));
+
+			Config async = LOG.sub("async");
+			if (async.entry("enabled").bool().or(false)) {
+				boolean block = async.entry("whenFull").or("drop").equalsIgnoreCase("block");
+				Log.async(async.entry("capacity").or(8192), block);
+			} else {
+				Log.sync();
+			}
 		}
 	}
 
@@ -43,7 +43,8 @@ public class ConfigBase extends RapidoidInitializer {
 
 	final Set<ConfigChangeListener> configChangesListeners = Coll.synchronizedSet();
 
-	volatile boolean initializing;
+	// the thread which is currently initializing the config
+	volatile Thread initializer;
 
 	volatile boolean initialized;
 
@@ -65,14 +66,14 @@ public class ConfigBase extends RapidoidInitializer {
 		this.path = "";
 
 		this.initialized = false;
-		this.initializing = false;
+		this.initializer = null;
 	}
 
 	synchronized void invalidate() {
 		this.properties.clear();
 
 		this.initialized = false;
-		this.initializing = false;
+		this.initializer = null;
 	}
 
 	String getFilenameBase() {
@@ -453,16 +453,22 @@ public class ConfigImpl extends RapidoidThing implements Config {
 	}
 
 	private void makeSureIsInitialized() {
-		if (base.initializing) {
-			return;
+		if (base.initializer == Thread.currentThread()) {
+			return; // the config is being accessed during its initialization
 		}
 
 		if (!base.initialized) {
-			synchronized (this) {
+			// the sub-configs share the base, so they must all claim the initialization through the same lock
+			synchronized (root) {
 				if (!base.initialized) {
-					base.initializing = true;
-					root.initialize();
-					base.initialized = true;
+					base.initializer = Thread.currentThread();
+
+					try {
+						root.initialize();
+						base.initialized = true;
+					} finally {
+						base.initializer = null;
+					}
 				}
 			}
 		}
@@ -98,6 +98,13 @@ public class Ctxs extends RapidoidThing {
 		}
 	}
 
+	/**
+	 * Releases a reference to the context, which was taken by spanning it, without attaching it to the thread.
+	 */
+	public static void release(Ctx ctx) {
+		ctx.close();
+	}
+
 	public static PersisterProvider getPersisterProvider() {
 		return persisterProvider;
 	}
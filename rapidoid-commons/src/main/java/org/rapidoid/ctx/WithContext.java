@@ -113,4 +113,8 @@ public class WithContext extends RapidoidThing {
 		Jobs.executeInContext(this, action);
 	}
 
+	public void runInline(Runnable action) {
+		Jobs.executeInContextInline(this, action);
+	}
+
 }
@@ -77,6 +77,8 @@ public class Parse extends RapidoidThing {
 				case XML:
 					try {
 						return XML.parse(data, targetType);
+					} catch (LinkageError e) {
+						// JAXB isn't included in Java 11+, so XML can't be parsed without it
 					} catch (Exception e) {
 						if (firstException == null) {
 							firstException = e;
@@ -0,0 +1,214 @@
+package org.rapidoid.expire;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+/**
+ * Hashed timing wheel: schedules, reschedules and cancels the expiration of its timers in O(1). Each slot of the
+ * wheel holds the timers due in the same tick (modulo the wheel size), and the timers that are due after more than
+ * one revolution simply stay in their slot until their deadline is reached.
+ * <p>
+ * Not thread-safe - it should be used by a single (e.g. event loop) thread, which advances the wheel periodically.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TimingWheel extends RapidoidThing {
+
+	private final long tick;
+
+	private final Timer[] slots;
+
+	private final int mask;
+
+	// the last tick whose slot was processed
+	private long currentTick;
+
+	private int size;
+
+	public TimingWheel(long tick, int wheelSize, long now) {
+		U.must(tick > 0, "The tick must be positive!");
+		U.must(wheelSize > 0 && (wheelSize & (wheelSize - 1)) == 0, "The wheel size must be a power of 2!");
+
+		this.tick = tick;
+		this.mask = wheelSize - 1;
+		this.slots = new Timer[wheelSize];
+		this.currentTick = now / tick - 1;
+
+		for (int i = 0; i < wheelSize; i++) {
+			Timer head = new Timer(null);
+			head.prev = head;
+			head.next = head;
+			slots[i] = head;
+		}
+	}
+
+	public Timer timer(Expiring target) {
+		U.notNull(target, "target");
+		return new Timer(target);
+	}
+
+	/**
+	 * (Re)schedules the timer to expire at the specified deadline.
+	 */
+	public void schedule(Timer timer, long deadline) {
+		if (timer.isScheduled()) {
+			unlink(timer);
+		}
+
+		// the overdue timers are expired on the next tick
+		long deadlineTick = Math.max(deadline / tick, currentTick + 1);
+
+		Timer head = slots[(int) (deadlineTick & mask)];
+
+		timer.deadline = deadline;
+		timer.prev = head.prev;
+		timer.next = head;
+		head.prev.next = timer;
+		head.prev = timer;
+
+		timer.target.setExpiresAt(deadline);
+		size++;
+	}
+
+	public void cancel(Timer timer) {
+		if (timer.isScheduled()) {
+			unlink(timer);
+			timer.target.setExpiresAt(0);
+		}
+	}
+
+	/**
+	 * Expires the timers that are due, visiting only the slots of the ticks that completed since the last advance. The
+	 * timers expire at most one tick after their deadline.
+	 *
+	 * @return the number of expired timers
+	 */
+	public int advance(long now) {
+		long completedTick = now / tick - 1;
+
+		if (completedTick <= currentTick) {
+			return 0;
+		}
+
+		// after a full revolution all the slots have been visited
+		long fromTick = Math.max(currentTick + 1, completedTick - mask);
+		currentTick = completedTick;
+
+		int expired = 0;
+
+		for (long t = fromTick; t <= completedTick; t++) {
+			expired += expireSlot(slots[(int) (t & mask)], now);
+		}
+
+		return expired;
+	}
+
+	private int expireSlot(Timer head, long now) {
+		Timer due = null;
+
+		// first unlink the due timers, so the expiration callbacks can safely (re)schedule and cancel timers
+		for (Timer timer = head.next; timer != head; ) {
+			Timer next = timer.next;
+
+			if (timer.deadline <= now) {
+				unlink(timer);
+				timer.dueNext = due;
+				due = timer;
+			}
+
+			timer = next;
+		}
+
+		int expired = 0;
+
+		while (due != null) {
+			Timer timer = due;
+			due = timer.dueNext;
+			timer.dueNext = null;
+
+			try {
+				timer.target.setExpiresAt(0);
+				timer.target.expire();
+			} catch (Exception e) {
+				Log.error("Error on expiration!", e);
+			}
+
+			expired++;
+		}
+
+		return expired;
+	}
+
+	private void unlink(Timer timer) {
+		timer.prev.next = timer.next;
+		timer.next.prev = timer.prev;
+		timer.prev = null;
+		timer.next = null;
+		size--;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long tick() {
+		return tick;
+	}
+
+	/**
+	 * A reusable timer of a single target, which is scheduled at most once at a time.
+	 */
+	public static class Timer {
+
+		private final Expiring target;
+
+		private long deadline;
+
+		private Timer prev;
+
+		private Timer next;
+
+		private Timer dueNext;
+
+		private Timer(Expiring target) {
+			this.target = target;
+		}
+
+		public boolean isScheduled() {
+			return next != null;
+		}
+
+		public long deadline() {
+			return isScheduled() ? deadline : 0;
+		}
+
+		public Expiring target() {
+			return target;
+		}
+
+	}
+
+}
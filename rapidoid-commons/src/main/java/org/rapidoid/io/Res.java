@@ -257,6 +257,31 @@ public class Res extends RapidoidThing {
 		}
 	}
 
+	/**
+	 * Finds the resource as a plain file on the file system, without loading its content. Returns <code>null</code> if
+	 * the resource isn't a plain file (e.g. it is compressed in a JAR).
+	 */
+	public File findFile() {
+		if (possibleLocations.length == 0) {
+			return plainFile(name);
+		}
+
+		for (String location : possibleLocations) {
+			File file = plainFile(Msc.path(location, name));
+
+			if (file != null) {
+				return file;
+			}
+		}
+
+		return null;
+	}
+
+	private static File plainFile(String filename) {
+		File file = IO.file(filename);
+		return file.isFile() ? file : null;
+	}
+
 	public synchronized String getContent() {
 		mustExist();
 
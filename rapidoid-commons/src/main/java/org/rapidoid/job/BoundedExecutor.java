@@ -0,0 +1,227 @@
+package org.rapidoid.job;
+
+import org.rapidoid.activity.RapidoidThreadFactory;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.timeseries.TimeSeries;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A fixed-size thread pool with a bounded queue, which rejects the jobs (with {@link RejectedExecutionException}) when
+ * the queue is full, instead of letting them pile up. The queue depth, the number of rejected jobs and the time the
+ * jobs waited in the queue (50th and 99th percentile, and maximum) are published as metrics, every second.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class BoundedExecutor extends ThreadPoolExecutor {
+
+	// the wait times (in microseconds) are counted in buckets, the bucket N holds the times from 2^(N-1) to 2^N - 1
+	private static final int BUCKETS = 64;
+
+	private final String name;
+
+	private final int queueSize;
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final AtomicLongArray waitTimes = new AtomicLongArray(BUCKETS);
+
+	private final AtomicLong maxWaitTime = new AtomicLong();
+
+	private final ScheduledFuture<?> metricsUpdater;
+
+	/**
+	 * Creates a pool with the specified number of threads and queue size (non-positive size means unbounded queue).
+	 */
+	public BoundedExecutor(String name, int threads, int queueSize) {
+		super(threads, threads, 0L, TimeUnit.MILLISECONDS, queue(queueSize), new RapidoidThreadFactory(name, true));
+
+		this.name = name;
+		this.queueSize = queueSize;
+		this.metricsUpdater = Jobs.scheduleAtFixedRate(new MetricsUpdater(), 1, 1, TimeUnit.SECONDS);
+	}
+
+	private static BlockingQueue<Runnable> queue(int queueSize) {
+		return queueSize > 0 ? new ArrayBlockingQueue<Runnable>(queueSize) : new LinkedBlockingQueue<Runnable>();
+	}
+
+	@Override
+	public void execute(Runnable job) {
+		try {
+			super.execute(new QueuedJob(job, System.nanoTime()));
+
+		} catch (RejectedExecutionException e) {
+			rejected.incrementAndGet();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns a view of this executor which rejects the jobs when the specified number of jobs is already waiting in
+	 * the queue (non-positive means no limit). The jobs executed directly by this executor are still queued.
+	 */
+	public Executor limitedTo(final int maxQueueDepth) {
+		if (maxQueueDepth <= 0) {
+			return this;
+		}
+
+		return new Executor() {
+			@Override
+			public void execute(Runnable job) {
+				if (queueDepth() >= maxQueueDepth) {
+					rejected.incrementAndGet();
+					throw new RejectedExecutionException("The queue of the executor is full: " + name);
+				}
+
+				BoundedExecutor.this.execute(job);
+			}
+		};
+	}
+
+	@Override
+	protected void terminated() {
+		metricsUpdater.cancel(false);
+		super.terminated();
+	}
+
+	private void waited(long nanos) {
+		long micros = nanos / 1000;
+
+		waitTimes.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(micros));
+
+		long max;
+		do {
+			max = maxWaitTime.get();
+		} while (micros > max && !maxWaitTime.compareAndSet(max, micros));
+	}
+
+	/**
+	 * Returns the upper bound (in milliseconds) of the wait time of the specified fraction of the counted jobs.
+	 */
+	static double percentile(long[] counts, double fraction) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+
+		long target = (long) Math.ceil(total * fraction);
+		long sum = 0;
+
+		for (int bucket = 0; bucket < counts.length; bucket++) {
+			sum += counts[bucket];
+
+			if (sum >= target && sum > 0) {
+				return ((1L << bucket) - 1) / 1000.0;
+			}
+		}
+
+		return 0;
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int queueSize() {
+		return queueSize;
+	}
+
+	public int queueDepth() {
+		return getQueue().size();
+	}
+
+	public long rejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedExecutor [name=" + name + ", threads=" + getMaximumPoolSize() + ", queueSize=" + queueSize
+			+ ", queueDepth=" + queueDepth() + ", rejected=" + rejectedCount() + "]";
+	}
+
+	private class QueuedJob implements Runnable {
+
+		private final Runnable job;
+
+		private final long queuedOn;
+
+		QueuedJob(Runnable job, long queuedOn) {
+			this.job = job;
+			this.queuedOn = queuedOn;
+		}
+
+		@Override
+		public void run() {
+			waited(System.nanoTime() - queuedOn);
+			job.run();
+		}
+	}
+
+	private class MetricsUpdater implements Runnable {
+
+		private final TimeSeries depthMetric = metric("queue", "Queue depth");
+
+		private final TimeSeries rejectedMetric = metric("rejected", "Rejected jobs");
+
+		private final TimeSeries waitP50Metric = metric("wait/p50", "Wait time (ms), 50th percentile");
+
+		private final TimeSeries waitP99Metric = metric("wait/p99", "Wait time (ms), 99th percentile");
+
+		private final TimeSeries waitMaxMetric = metric("wait/max", "Wait time (ms), maximum");
+
+		private long lastRejected;
+
+		private TimeSeries metric(String uri, String title) {
+			TimeSeries metric = new TimeSeries().title(name + ": " + title);
+			Metrics.register("jobs/" + name + "/" + uri, metric);
+			return metric;
+		}
+
+		@Override
+		public void run() {
+			long now = U.time();
+
+			long[] counts = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = waitTimes.getAndSet(i, 0);
+			}
+
+			long totalRejected = rejected.get();
+
+			depthMetric.put(now, queueDepth());
+			rejectedMetric.put(now, totalRejected - lastRejected);
+			waitP50Metric.put(now, percentile(counts, 0.5));
+			waitP99Metric.put(now, percentile(counts, 0.99));
+			waitMaxMetric.put(now, maxWaitTime.getAndSet(0) / 1000.0);
+
+			lastRejected = totalRejected;
+		}
+	}
+
+}
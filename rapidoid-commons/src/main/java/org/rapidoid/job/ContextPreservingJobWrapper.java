@@ -80,6 +80,19 @@ public class ContextPreservingJobWrapper extends RapidoidThing implements Runnab
 		}
 	}
 
+	/**
+	 * Releases the context of the job, which won't be executed (e.g. it was rejected by the executor).
+	 */
+	void cancel() {
+		try {
+			if (ctx != null) {
+				Ctxs.release(ctx);
+			}
+		} finally {
+			done = true;
+		}
+	}
+
 	public boolean isDone() {
 		return done;
 	}
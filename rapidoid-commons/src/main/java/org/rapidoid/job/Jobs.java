@@ -14,6 +14,8 @@ import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Once;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,8 +51,17 @@ public class Jobs extends RapidoidInitializer {
 
 	private static ExecutorService EXECUTOR;
 
+	private static Executor HANDLER_EXECUTOR;
+
+	private static final String VIRTUAL_THREADS_EXECUTOR = "org.rapidoid.job.virtual.VirtualThreadsExecutor";
+
+	private static final Map<String, BoundedExecutor> BULKHEADS = new ConcurrentHashMap<String, BoundedExecutor>();
+
 	private static final Once init = new Once();
 
+	// the inline jobs waiting for the current inline job of the thread to finish
+	private static final ThreadLocal<List<Runnable>> INLINE_JOBS = new ThreadLocal<List<Runnable>>();
+
 	private Jobs() {
 	}
 
@@ -67,8 +78,18 @@ public class Jobs extends RapidoidInitializer {
 
 	public static synchronized Executor executor() {
 		if (EXECUTOR == null) {
-			int threads = JOBS.sub("executor").entry("threads").or(64);
-			EXECUTOR = Executors.newFixedThreadPool(threads, new RapidoidThreadFactory("executor", true));
+			Config cfg = JOBS.sub("executor");
+
+			if ("virtual".equals(cfg.entry("type").or("platform"))) {
+				EXECUTOR = virtualThreadsExecutor();
+			}
+
+			if (EXECUTOR == null) {
+				int threads = cfg.entry("threads").or(64);
+
+				// the callers of the shared executor (e.g. the async callbacks) can't handle rejection
+				EXECUTOR = new BoundedExecutor("executor", threads, 0);
+			}
 
 			if (init.go()) init();
 		}
@@ -76,6 +97,80 @@ public class Jobs extends RapidoidInitializer {
 		return EXECUTOR;
 	}
 
+	/**
+	 * Returns the executor of the HTTP handlers, which rejects the handlers when <code>jobs.executor.queueSize</code>
+	 * jobs are already waiting in the queue of the shared executor (or <code>jobs.executor.maxVirtualThreads</code>
+	 * handlers are already running on virtual threads), so the overloaded server can respond with 503.
+	 */
+	public static synchronized Executor handlerExecutor() {
+		if (HANDLER_EXECUTOR == null) {
+			Executor executor = executor();
+			Config cfg = JOBS.sub("executor");
+
+			if (executor instanceof BoundedExecutor) {
+				HANDLER_EXECUTOR = ((BoundedExecutor) executor).limitedTo(cfg.entry("queueSize").or(10000));
+			} else {
+				HANDLER_EXECUTOR = limitedVirtualThreadsExecutor(executor, cfg.entry("maxVirtualThreads").or(100000));
+			}
+		}
+
+		return HANDLER_EXECUTOR;
+	}
+
+	/**
+	 * Creates the executor that runs each job on a new virtual thread, if the rapidoid-virtual-threads module is
+	 * available and the runtime supports virtual threads (Java 21+).
+	 */
+	private static ExecutorService virtualThreadsExecutor() {
+		try {
+			Class<?> cls = Class.forName(VIRTUAL_THREADS_EXECUTOR);
+			return (ExecutorService) cls.getConstructor(String.class).newInstance("executor");
+
+		} catch (ClassNotFoundException e) {
+			Log.warn("The virtual threads executor requires the rapidoid-virtual-threads module, using platform threads!");
+
+		} catch (Throwable e) {
+			Log.warn("The virtual threads aren't supported (Java 21+ is required), using platform threads!", "error", e);
+		}
+
+		return null;
+	}
+
+	private static Executor limitedVirtualThreadsExecutor(Executor executor, int maxJobs) {
+		try {
+			return (Executor) executor.getClass().getMethod("limitedTo", int.class).invoke(executor, maxJobs);
+		} catch (Exception e) {
+			throw U.rte("Couldn't limit the virtual threads executor!", e);
+		}
+	}
+
+	/**
+	 * Returns the bulkhead (a separate thread pool) with the specified name, configured with
+	 * <code>jobs.bulkheads.&lt;name&gt;.threads</code> and <code>jobs.bulkheads.&lt;name&gt;.queueSize</code>. The
+	 * slow jobs executed by a bulkhead can't starve the other jobs.
+	 */
+	public static Executor bulkhead(String name) {
+		BoundedExecutor bulkhead = BULKHEADS.get(name);
+		return bulkhead != null ? bulkhead : createBulkhead(name);
+	}
+
+	private static synchronized BoundedExecutor createBulkhead(String name) {
+		BoundedExecutor bulkhead = BULKHEADS.get(name);
+
+		if (bulkhead == null) {
+			Config cfg = JOBS.sub("bulkheads").sub(name);
+			int threads = cfg.entry("threads").or(16);
+			int queueSize = cfg.entry("queueSize").or(1000);
+
+			bulkhead = new BoundedExecutor(name, threads, queueSize);
+			BULKHEADS.put(name, bulkhead);
+
+			if (init.go()) init();
+		}
+
+		return bulkhead;
+	}
+
 	private static void init() {
 		Runtime.getRuntime().addShutdownHook(new Thread() {
 			public void run() {
@@ -112,17 +207,28 @@ public class Jobs extends RapidoidInitializer {
 
 	public static void execute(Runnable job) {
 		ContextPreservingJobWrapper jobWrapper = wrap(job);
-		executor().execute(jobWrapper);
+		execute(executor(), jobWrapper);
 	}
 
 	public static void executeAndWait(Runnable job) {
 		ContextPreservingJobWrapper jobWrapper = wrap(job);
-		executor().execute(jobWrapper);
+		execute(executor(), jobWrapper);
 		while (!jobWrapper.isDone()) {
 			U.sleep(10);
 		}
 	}
 
+	private static void execute(Executor executor, ContextPreservingJobWrapper jobWrapper) {
+		try {
+			executor.execute(jobWrapper);
+
+		} catch (RejectedExecutionException e) {
+			// the context was spanned for the job, which won't be executed
+			jobWrapper.cancel();
+			throw e;
+		}
+	}
+
 	public static <T> void execute(Callable<T> job, Callback<T> callback) {
 		execute(callbackJob(job, callback));
 	}
@@ -168,6 +274,51 @@ public class Jobs extends RapidoidInitializer {
 		}
 	}
 
+	/**
+	 * Executes the action in the specified context by the specified executor.
+	 *
+	 * @throws RejectedExecutionException if the executor is overloaded (or shut down), so the caller can handle it
+	 */
+	public static void executeInContext(WithContext context, Runnable action, Executor executor) {
+		executor.execute(new PredefinedContextJobWrapper(context, action));
+	}
+
+	/**
+	 * Executes the action in the specified context on the current thread, instead of the executor. If the thread is
+	 * already executing an inline job, the action is executed after it, so the contexts are never nested.
+	 */
+	public static void executeInContextInline(WithContext context, Runnable action) {
+		Runnable job = new PredefinedContextJobWrapper(context, action);
+		List<Runnable> pending = INLINE_JOBS.get();
+
+		if (pending != null) {
+			pending.add(job);
+			return;
+		}
+
+		pending = U.list();
+		INLINE_JOBS.set(pending);
+
+		try {
+			runInline(job);
+
+			for (int i = 0; i < pending.size(); i++) {
+				runInline(pending.get(i));
+			}
+
+		} finally {
+			INLINE_JOBS.remove();
+		}
+	}
+
+	private static void runInline(Runnable job) {
+		try {
+			job.run();
+		} catch (Throwable e) {
+			// the error was already logged by the job wrapper
+		}
+	}
+
 	public static JobsDSL after(long delay, TimeUnit unit) {
 		return new JobsDSL(delay, -1, unit);
 	}
@@ -186,6 +337,14 @@ public class Jobs extends RapidoidInitializer {
 			EXECUTOR = null;
 		}
 
+		HANDLER_EXECUTOR = null;
+
+		for (BoundedExecutor bulkhead : BULKHEADS.values()) {
+			bulkhead.shutdown();
+		}
+
+		BULKHEADS.clear();
+
 		if (SCHEDULER != null) {
 			SCHEDULER.shutdown();
 			SCHEDULER = null;
@@ -198,6 +357,14 @@ public class Jobs extends RapidoidInitializer {
 			EXECUTOR = null;
 		}
 
+		HANDLER_EXECUTOR = null;
+
+		for (BoundedExecutor bulkhead : BULKHEADS.values()) {
+			bulkhead.shutdownNow();
+		}
+
+		BULKHEADS.clear();
+
 		if (SCHEDULER != null) {
 			SCHEDULER.shutdownNow();
 			SCHEDULER = null;
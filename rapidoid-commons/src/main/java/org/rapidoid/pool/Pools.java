@@ -34,4 +34,9 @@ public class Pools extends RapidoidThing {
 		return new SynchronizedArrayPool<T>(name, factory, capacity);
 	}
 
+	public static <T> ThreadConfinedPool<T> confined(String name, Callable<T> factory, int lowWatermark,
+	                                                 int highWatermark) {
+		return new ThreadConfinedPool<T>(name, factory, lowWatermark, highWatermark, highWatermark);
+	}
+
 }
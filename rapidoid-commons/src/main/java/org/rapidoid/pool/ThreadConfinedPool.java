@@ -0,0 +1,245 @@
+package org.rapidoid.pool;
+
+import org.rapidoid.insight.AbstractInsightful;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A pool designed for a single owner thread (e.g. an I/O worker): the owner thread uses a thread-confined array of
+ * free objects without any synchronization, while the other threads use a bounded lock-free stack.
+ * <p>
+ * When the number of free objects held by the owner reaches the high watermark, the pool is trimmed down to the low
+ * watermark, and the trimmed objects are left to the GC (for direct buffers, that releases their memory).
+ *
+ * @author Nikolche Mihajlovski
+ * @since 5.3.0
+ */
+public class ThreadConfinedPool<T> extends AbstractInsightful implements Pool<T> {
+
+	private final Callable<T> factory;
+
+	private final int lowWatermark;
+
+	private final int highWatermark;
+
+	private final int overflowCapacity;
+
+	private volatile Thread owner;
+
+	// accessed only by the owner thread
+	private final Object[] free;
+
+	private int freeN;
+
+	private final AtomicReference<Node<T>> overflow = new AtomicReference<Node<T>>();
+
+	private final AtomicInteger overflowN = new AtomicInteger();
+
+	private final AtomicInteger inUse = new AtomicInteger();
+
+	private final AtomicLong created = new AtomicLong();
+
+	private final AtomicLong trimmed = new AtomicLong();
+
+	private static class Node<T> {
+		final T obj;
+		Node<T> next;
+
+		Node(T obj) {
+			this.obj = obj;
+		}
+	}
+
+	public ThreadConfinedPool(String name, Callable<T> factory, int lowWatermark, int highWatermark,
+	                          int overflowCapacity) {
+		super("pool", name);
+
+		U.must(lowWatermark >= 0 && lowWatermark <= highWatermark, "Invalid pool watermarks: low=%s, high=%s",
+			lowWatermark, highWatermark);
+
+		this.factory = factory;
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+		this.overflowCapacity = overflowCapacity;
+		this.free = new Object[highWatermark + 1];
+	}
+
+	/**
+	 * Assigns the owner thread, which will use the pool without synchronization.
+	 */
+	public void ownedBy(Thread owner) {
+		this.owner = owner;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public T get() {
+		T obj;
+
+		if (Thread.currentThread() == owner && freeN > 0) {
+			int n = freeN - 1;
+			obj = (T) free[n];
+			free[n] = null;
+			freeN = n;
+
+		} else {
+			obj = pop();
+
+			if (obj == null) {
+				obj = create();
+			}
+		}
+
+		inUse.incrementAndGet();
+		return obj;
+	}
+
+	@Override
+	public void release(T obj) {
+		assert obj != null;
+
+		inUse.decrementAndGet();
+
+		if (Thread.currentThread() == owner) {
+			if (freeN >= highWatermark) {
+				trim();
+			}
+
+			free[freeN] = obj;
+			freeN++;
+
+		} else if (!push(obj)) {
+			trimmed.incrementAndGet();
+		}
+	}
+
+	private void trim() {
+		int n = freeN;
+
+		for (int i = lowWatermark; i < n; i++) {
+			free[i] = null;
+		}
+
+		freeN = lowWatermark;
+		trimmed.addAndGet(n - lowWatermark);
+	}
+
+	private T create() {
+		try {
+			T obj = factory.call();
+			created.incrementAndGet();
+			return obj;
+		} catch (Exception e) {
+			throw U.rte(e);
+		}
+	}
+
+	private boolean push(T obj) {
+		if (overflowN.incrementAndGet() > overflowCapacity) {
+			overflowN.decrementAndGet();
+			return false;
+		}
+
+		Node<T> node = new Node<T>(obj);
+
+		Node<T> head;
+		do {
+			head = overflow.get();
+			node.next = head;
+		} while (!overflow.compareAndSet(head, node));
+
+		return true;
+	}
+
+	private T pop() {
+		Node<T> head;
+
+		do {
+			head = overflow.get();
+
+			if (head == null) {
+				return null;
+			}
+
+		} while (!overflow.compareAndSet(head, head.next));
+
+		overflowN.decrementAndGet();
+		return head.obj;
+	}
+
+	@Override
+	public int size() {
+		return freeN + overflowN.get();
+	}
+
+	@Override
+	public int objectsCreated() {
+		return (int) created.get();
+	}
+
+	public int inUse() {
+		return inUse.get();
+	}
+
+	public long trimmed() {
+		return trimmed.get();
+	}
+
+	/**
+	 * Drops all the free objects. The free objects of the owner are thread-confined, so this must be called by the
+	 * owner thread, or after the owner thread has exited.
+	 */
+	@Override
+	public void clear() {
+		Thread owner = this.owner;
+
+		if (owner != null && owner != Thread.currentThread() && owner.isAlive()) {
+			throw new IllegalStateException("The pool can be cleared only by its owner thread: " + owner);
+		}
+
+		for (int i = 0; i < freeN; i++) {
+			free[i] = null;
+		}
+
+		freeN = 0;
+
+		while (pop() != null) {
+			// dropping all the objects from the overflow stack
+		}
+
+		inUse.set(0);
+		created.set(0);
+		trimmed.set(0);
+	}
+
+	@Override
+	public String toString() {
+		return U.frmt("%s[free=%s, inUse=%s, created=%s, trimmed=%s]", getName(), size(), inUse(),
+			objectsCreated(), trimmed());
+	}
+
+}
@@ -0,0 +1,192 @@
+package org.rapidoid.scan;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.io.IO;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the index of annotated classes, which is generated at compile time by the annotation processor from the
+ * <code>rapidoid-annotation-index</code> module. Finding the annotated classes in the index is much faster than
+ * scanning the classpath, so the classpath roots (directories and JARs) which contain an index aren't scanned. The
+ * other roots are still scanned.
+ * <p>
+ * The index has one line per annotation: <code>annotation=class1,class2,...</code>
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AnnotationIndex extends RapidoidThing {
+
+	public static final String LOCATION = "META-INF/rapidoid/annotated.idx";
+
+	private static volatile boolean enabled = true;
+
+	// the loaded indexes of the classpath roots, by the root path and the last modification time of the index
+	private static final Map<String, Map<String, Set<String>>> INDEXES = U.map();
+
+	// the roots without an index
+	private static final Set<String> NOT_INDEXED = U.set();
+
+	public static synchronized void reset() {
+		INDEXES.clear();
+		NOT_INDEXED.clear();
+	}
+
+	public static boolean enabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables the usage of the index (e.g. if some of the annotated classes weren't indexed).
+	 */
+	public static void enabled(boolean enabled) {
+		AnnotationIndex.enabled = enabled;
+	}
+
+	/**
+	 * Returns the indexed classes of the classpath root (a directory or a JAR) that are in the specified package
+	 * and are annotated with any of the specified annotations, or <code>null</code> if the root has no index.
+	 */
+	public static List<String> find(File root, String pkg, Class<? extends Annotation>[] annotated, Pattern regex) {
+		Map<String, Set<String>> index = enabled && U.notEmpty(annotated) ? index(root) : null;
+
+		if (index == null) {
+			return null;
+		}
+
+		List<String> classes = U.list();
+
+		for (Class<? extends Annotation> ann : annotated) {
+			for (String clsName : U.safe(index.get(ann.getName()))) {
+				if (isInPackage(clsName, pkg) && (regex == null || regex.matcher(clsName).matches())) {
+					classes.add(clsName);
+				}
+			}
+		}
+
+		return classes;
+	}
+
+	private static boolean isInPackage(String clsName, String pkg) {
+		return U.isEmpty(pkg) || clsName.startsWith(pkg + ".");
+	}
+
+	private static synchronized Map<String, Set<String>> index(File root) {
+		// the index of a directory might be re-generated by the compiler
+		long modified = root.isDirectory() ? new File(root, LOCATION).lastModified() : root.lastModified();
+		String key = root.getAbsolutePath() + "@" + modified;
+
+		if (NOT_INDEXED.contains(key)) {
+			return null;
+		}
+
+		Map<String, Set<String>> index = INDEXES.get(key);
+
+		if (index == null) {
+			index = load(root);
+
+			if (index != null) {
+				INDEXES.put(key, index);
+			} else {
+				NOT_INDEXED.add(key);
+			}
+		}
+
+		return index;
+	}
+
+	private static Map<String, Set<String>> load(File root) {
+		InputStream in = null;
+		ZipFile zip = null;
+
+		try {
+			if (root.isDirectory()) {
+				File file = new File(root, LOCATION);
+
+				if (!file.exists()) {
+					return null;
+				}
+
+				in = new FileInputStream(file);
+
+			} else {
+				zip = new ZipFile(root);
+				ZipEntry entry = zip.getEntry(LOCATION);
+
+				if (entry == null) {
+					return null;
+				}
+
+				in = zip.getInputStream(entry);
+			}
+
+			Properties props = new Properties();
+			props.load(in);
+
+			Map<String, Set<String>> index = U.map();
+
+			for (String ann : props.stringPropertyNames()) {
+				Set<String> classes = U.set();
+
+				for (String clsName : props.getProperty(ann).split(",")) {
+					if (U.notEmpty(clsName.trim())) {
+						classes.add(clsName.trim());
+					}
+				}
+
+				index.put(ann, classes);
+			}
+
+			Log.debug("Loaded the annotation index", "root", root);
+			return index;
+
+		} catch (Exception e) {
+			Log.error("Couldn't read the annotation index, the classpath root will be scanned!", "root", root, "error", e);
+			return null;
+
+		} finally {
+			IO.close(in, true);
+
+			if (zip != null) {
+				try {
+					zip.close();
+				} catch (IOException e) {
+					Log.error("Couldn't close the ZIP stream!", e);
+				}
+			}
+		}
+	}
+
+}
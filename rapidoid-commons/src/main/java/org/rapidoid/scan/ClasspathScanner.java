@@ -35,6 +35,9 @@ import org.rapidoid.util.Msc;
 import java.io.*;
 import java.lang.annotation.Annotation;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -44,6 +47,8 @@ import java.util.zip.ZipFile;
 @Since("5.3.0")
 public class ClasspathScanner extends RapidoidThing {
 
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
 	private static Map<ScanParams, List<String>> cache = Coll.autoExpandingMap(new Mapper<ScanParams, List<String>>() {
 		@Override
 		public List<String> map(ScanParams params) throws Exception {
@@ -53,6 +58,7 @@ public class ClasspathScanner extends RapidoidThing {
 
 	public static synchronized void reset() {
 		cache.clear();
+		AnnotationIndex.reset();
 	}
 
 	public static List<String> scan(ScanParams params) {
@@ -79,25 +85,26 @@ public class ClasspathScanner extends RapidoidThing {
 		}
 
 		AtomicInteger searched = new AtomicInteger();
+		AtomicInteger indexed = new AtomicInteger();
 		Set<String> classes = U.set();
 
 		for (String pkg : pkgs) {
-			classes.addAll(retrieveClasses(pkg, params.annotated(), pattern, params.classLoader(), searched));
+			classes.addAll(retrieveClasses(pkg, params.annotated(), pattern, params.classLoader(), searched, indexed));
 		}
 
 		List<String> classList = U.list(classes);
 
 		long timeMs = U.time() - startingAt;
 
-		Log.info("Finished classpath scan", "time", Msc.maybeMasked(timeMs) + "ms", "searched", searched.get(), "!found", Msc.classNames(classList));
+		Log.info("Finished classpath scan", "time", Msc.maybeMasked(timeMs) + "ms", "searched", searched.get(),
+			"indexed roots", indexed.get(), "!found", Msc.classNames(classList));
 
 		return classList;
 	}
 
 	private static List<String> retrieveClasses(String packageName, Class<? extends Annotation>[] annotated,
-	                                            Pattern regex, ClassLoader classLoader, AtomicInteger searched) {
-
-		List<String> classes = U.list();
+	                                            Pattern regex, ClassLoader classLoader, AtomicInteger searched,
+	                                            AtomicInteger indexed) {
 
 		String pkgName = U.safe(packageName);
 		String pkgPath = pkgName.replace('.', File.separatorChar);
@@ -108,7 +115,9 @@ public class ClasspathScanner extends RapidoidThing {
 
 		Log.trace("Classpath details", "classpath", classpath);
 
+		List<ForkJoinTask<List<String>>> tasks = U.list();
 		Set<String> jars = U.set();
+		List<String> classes = U.list();
 
 		for (String cpe : classpath) {
 			File cpEntry = new File(cpe);
@@ -116,6 +125,17 @@ public class ClasspathScanner extends RapidoidThing {
 			if (cpEntry.exists()) {
 				if (cpEntry.isDirectory()) {
 					if (shouldScanDir(cpEntry.getAbsolutePath())) {
+
+						// the roots with an index of the annotated classes aren't scanned
+						List<String> fromIndex = AnnotationIndex.find(cpEntry, pkgName, annotated, regex);
+
+						if (fromIndex != null) {
+							Log.trace("Using the annotation index", "root", cpEntry.getAbsolutePath());
+							indexed.incrementAndGet();
+							classes.addAll(fromIndex);
+							continue;
+						}
+
 						Log.trace("Scanning directory", "root", cpEntry.getAbsolutePath());
 
 						File startingDir;
@@ -126,7 +146,7 @@ public class ClasspathScanner extends RapidoidThing {
 						}
 
 						if (startingDir.exists()) {
-							getClassesFromDir(classes, cpEntry, startingDir, pkgName, regex, annotated, searched);
+							tasks.add(new DirScan(cpEntry, startingDir, regex, annotated, searched));
 						}
 					} else {
 						Log.trace("Skipping directory", "root", cpEntry.getAbsolutePath());
@@ -145,13 +165,31 @@ public class ClasspathScanner extends RapidoidThing {
 
 		for (String jarName : jars) {
 			if (shouldScanJAR(jarName)) {
+				List<String> fromIndex = AnnotationIndex.find(new File(jarName), pkgName, annotated, regex);
+
+				if (fromIndex != null) {
+					Log.trace("Using the annotation index", "root", jarName);
+					indexed.incrementAndGet();
+					classes.addAll(fromIndex);
+					continue;
+				}
+
 				Log.trace("Scanning JAR", "name", jarName);
-				getClassesFromJAR(jarName, classes, packageName, regex, annotated, classLoader, searched);
+				tasks.add(new JarScan(jarName, packageName, regex, annotated, classLoader, searched));
 			} else {
 				Log.trace("Skipping JAR", "name", jarName);
 			}
 		}
 
+		// the JARs and the directory subtrees are scanned in parallel
+		for (ForkJoinTask<List<String>> task : tasks) {
+			POOL.execute(task);
+		}
+
+		for (ForkJoinTask<List<String>> task : tasks) {
+			classes.addAll(task.join());
+		}
+
 		return classes;
 	}
 
@@ -164,30 +202,106 @@ public class ClasspathScanner extends RapidoidThing {
 		return !filename.equalsIgnoreCase("rapidoid.jar") && (!ClasspathUtil.hasAppJar() || U.eq(jar, ClasspathUtil.appJar()));
 	}
 
-	private static void getClassesFromDir(Collection<String> classes, File root, File dir, String pkg, Pattern regex,
-	                                      Class<? extends Annotation>[] annotated, AtomicInteger searched) {
+	/**
+	 * Scans a directory, forking a separate task for each sub-directory.
+	 */
+	@SuppressWarnings("serial")
+	private static class DirScan extends RecursiveTask<List<String>> {
+
+		private final File root;
+
+		private final File dir;
+
+		private final Pattern regex;
+
+		private final Class<? extends Annotation>[] annotated;
 
-		U.must(dir.isDirectory());
-		Log.trace("Traversing directory", "root", root, "dir", dir);
+		private final AtomicInteger searched;
 
-		File[] files = dir.listFiles();
-		if (files == null) {
-			Log.warn("Not a folder!", "dir", dir);
-			return;
+		DirScan(File root, File dir, Pattern regex, Class<? extends Annotation>[] annotated, AtomicInteger searched) {
+			this.root = root;
+			this.dir = dir;
+			this.regex = regex;
+			this.annotated = annotated;
+			this.searched = searched;
 		}
 
-		for (File file : files) {
-			if (file.isDirectory()) {
-				getClassesFromDir(classes, root, file, pkg, regex, annotated, searched);
-			} else {
-				String rootPath = Str.trimr(root.getAbsolutePath(), File.separatorChar);
-				int from = rootPath.length() + 1;
-				String relName = file.getAbsolutePath().substring(from);
+		@Override
+		protected List<String> compute() {
+			List<String> classes = U.list();
+
+			U.must(dir.isDirectory());
+			Log.trace("Traversing directory", "root", root, "dir", dir);
+
+			File[] files = dir.listFiles();
+			if (files == null) {
+				Log.warn("Not a folder!", "dir", dir);
+				return classes;
+			}
+
+			List<DirScan> subdirs = U.list();
 
-				if (!ignore(relName)) {
-					scanFile(classes, regex, annotated, relName, file, null, null, searched);
+			for (File file : files) {
+				if (file.isDirectory()) {
+					DirScan subdir = new DirScan(root, file, regex, annotated, searched);
+					subdir.fork();
+					subdirs.add(subdir);
+
+				} else {
+					String rootPath = Str.trimr(root.getAbsolutePath(), File.separatorChar);
+					int from = rootPath.length() + 1;
+					String relName = file.getAbsolutePath().substring(from);
+
+					if (!ignore(relName)) {
+						scanFile(classes, regex, annotated, relName, file, null, null, searched);
+					}
 				}
 			}
+
+			for (DirScan subdir : subdirs) {
+				classes.addAll(subdir.join());
+			}
+
+			return classes;
+		}
+	}
+
+	/**
+	 * Scans a JAR, using the cached list of its classes and their annotations, if possible.
+	 */
+	@SuppressWarnings("serial")
+	private static class JarScan extends RecursiveTask<List<String>> {
+
+		private final String jarName;
+
+		private final String pkg;
+
+		private final Pattern regex;
+
+		private final Class<? extends Annotation>[] annotated;
+
+		private final ClassLoader classLoader;
+
+		private final AtomicInteger searched;
+
+		JarScan(String jarName, String pkg, Pattern regex, Class<? extends Annotation>[] annotated,
+		        ClassLoader classLoader, AtomicInteger searched) {
+
+			this.jarName = jarName;
+			this.pkg = pkg;
+			this.regex = regex;
+			this.annotated = annotated;
+			this.classLoader = classLoader;
+			this.searched = searched;
+		}
+
+		@Override
+		protected List<String> compute() {
+			if (!JarScanCache.enabled()) {
+				return getClassesFromJAR(jarName, U.<String>list(), pkg, regex, annotated, classLoader, searched);
+			}
+
+			return JarScanCache.find(jarName, pkg, regex, annotated, searched);
 		}
 	}
 
@@ -206,7 +320,13 @@ public class ClasspathScanner extends RapidoidThing {
 				try {
 
 					InputStream input = file != null ? new FileInputStream(file) : zip.getInputStream(entry);
-					ClassFile classFile = new ClassFile(new DataInputStream(input));
+					ClassFile classFile;
+
+					try {
+						classFile = new ClassFile(new DataInputStream(input));
+					} finally {
+						input.close();
+					}
 
 					if (U.isEmpty(annotated) || isAnnotated(classFile, annotated)) {
 						classes.add(clsName);
@@ -277,7 +397,7 @@ public class ClasspathScanner extends RapidoidThing {
 		return classes;
 	}
 
-	private static boolean ignore(String name) {
+	static boolean ignore(String name) {
 		String pkgDirName = Str.triml(name, File.separatorChar);
 
 		int p1 = pkgDirName.indexOf(File.separatorChar);
@@ -0,0 +1,506 @@
+package org.rapidoid.scan;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+import org.rapidoid.crypto.Crypto;
+import org.rapidoid.log.Log;
+import org.rapidoid.u.U;
+
+import java.io.*;
+import java.lang.annotation.Annotation;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Caches the classes of each scanned JAR with the names of their annotations, in memory and on disk, so the unchanged
+ * JARs aren't parsed again after reloading or restarting the application. The cached data is valid while the size and
+ * the modification time of the JAR stay the same.
+ * <p>
+ * The classes are parsed lazily, only when they are needed by some scan, so the first scan doesn't parse more classes
+ * than a scan without the cache would.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class JarScanCache extends RapidoidThing {
+
+	private static final String[] NO_ANNOTATIONS = {};
+
+	private static final ConcurrentMap<String, JarClasses> CACHE = new ConcurrentHashMap<String, JarClasses>();
+
+	private static volatile boolean enabled = true;
+
+	// a per-user folder, as the cached data mustn't be written by the other users
+	private static volatile File dir = new File(System.getProperty("user.home"), ".rapidoid" + File.separator + "scan-cache");
+
+	// the last folder that was checked, and the result of the check
+	private static volatile File checkedDir;
+
+	private static volatile boolean dirTrusted;
+
+	public static void reset() {
+		CACHE.clear();
+	}
+
+	public static boolean enabled() {
+		return enabled;
+	}
+
+	public static void enabled(boolean enabled) {
+		JarScanCache.enabled = enabled;
+	}
+
+	public static File dir() {
+		return dir;
+	}
+
+	/**
+	 * Sets the folder of the on-disk cache, or disables the on-disk cache if <code>null</code>.
+	 */
+	public static void dir(String dir) {
+		JarScanCache.dir = dir != null ? new File(dir) : null;
+	}
+
+	/**
+	 * Finds the classes in the JAR, the same way as {@link ClasspathScanner#getClassesFromJAR}.
+	 */
+	static List<String> find(String jarName, String pkg, Pattern regex, Class<? extends Annotation>[] annotated,
+	                         AtomicInteger searched) {
+
+		return jarClasses(jarName).find(pkg, regex, annotated, searched);
+	}
+
+	/**
+	 * Returns the names of the parsed classes in the JAR, mapped to the names of their annotations.
+	 */
+	static Map<String, String[]> parsed(String jarName) {
+		return jarClasses(jarName).parsed();
+	}
+
+	private static JarClasses jarClasses(String jarName) {
+		File jar = new File(jarName);
+		long size = jar.length();
+		long modified = jar.lastModified();
+
+		JarClasses cached = CACHE.get(jarName);
+
+		if (cached != null && cached.size == size && cached.modified == modified) {
+			return cached;
+		}
+
+		String header = "# " + jarName + " " + size + " " + modified;
+		File dir = trustedDir();
+		File file = dir != null ? new File(dir, Crypto.md5(jarName) + ".idx") : null;
+
+		Map<String, String[]> classes = file != null ? load(file, header) : null;
+
+		if (classes == null) {
+			classes = list(jar);
+		}
+
+		JarClasses jarClasses = new JarClasses(jar, size, modified, header, file, classes);
+		CACHE.put(jarName, jarClasses);
+
+		return jarClasses;
+	}
+
+	/**
+	 * Returns the folder of the on-disk cache, if it can be trusted. The folder is created with owner-only
+	 * permissions. An existing folder must be owned by the current user and mustn't be writable by the other users
+	 * (where the POSIX permissions are supported), otherwise someone else could plant the cached data.
+	 */
+	private static synchronized File trustedDir() {
+		File dir = JarScanCache.dir;
+
+		if (dir == null) {
+			return null;
+		}
+
+		if (!dir.equals(checkedDir)) {
+			dirTrusted = isTrusted(dir);
+			checkedDir = dir;
+
+			if (!dirTrusted) {
+				Log.warn("The scan cache folder can't be trusted, so the on-disk cache won't be used!", "dir", dir);
+			}
+		}
+
+		return dirTrusted ? dir : null;
+	}
+
+	private static boolean isTrusted(File dir) {
+		try {
+			Path path = dir.toPath();
+			boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+
+			if (!dir.exists()) {
+				Files.createDirectories(path);
+
+				if (posix) {
+					Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rwx------"));
+				}
+			}
+
+			if (!dir.isDirectory()) {
+				return false;
+			}
+
+			if (posix) {
+				PosixFileAttributes attrs = Files.readAttributes(path, PosixFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+				UserPrincipal user = path.getFileSystem().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+
+				Set<PosixFilePermission> perms = attrs.permissions();
+
+				return attrs.owner().equals(user)
+					&& !perms.contains(PosixFilePermission.GROUP_WRITE)
+					&& !perms.contains(PosixFilePermission.OTHERS_WRITE);
+			}
+
+			return true;
+
+		} catch (Exception e) {
+			Log.warn("Couldn't check the scan cache folder!", "dir", dir, "error", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Lists the classes in the JAR, without parsing them.
+	 */
+	private static Map<String, String[]> list(File jar) {
+		Map<String, String[]> classes = new LinkedHashMap<String, String[]>();
+		ZipFile zip = null;
+
+		try {
+			zip = new ZipFile(jar);
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				String name = entry.getName();
+
+				if (!entry.isDirectory() && name.endsWith(".class") && !ClasspathScanner.ignore(name)) {
+					classes.put(className(name), null);
+				}
+			}
+
+		} catch (Exception e) {
+			Log.error("Cannot scan JAR: " + jar, e);
+
+		} finally {
+			close(zip);
+		}
+
+		return classes;
+	}
+
+	private static String className(String name) {
+		return Str.sub(name, 0, -6).replace('/', '.').replace('\\', '.');
+	}
+
+	private static void close(ZipFile zip) {
+		if (zip != null) {
+			try {
+				zip.close();
+			} catch (IOException e) {
+				Log.error("Couldn't close the ZIP stream!", e);
+			}
+		}
+	}
+
+	private static String[] annotations(ClassFile classFile) {
+		List<String> annotations = null;
+
+		for (Object attribute : U.safe(classFile.getAttributes())) {
+			if (attribute instanceof AnnotationsAttribute) {
+				for (javassist.bytecode.annotation.Annotation ann : ((AnnotationsAttribute) attribute).getAnnotations()) {
+					if (annotations == null) {
+						annotations = U.list();
+					}
+
+					annotations.add(ann.getTypeName());
+				}
+			}
+		}
+
+		return annotations != null ? annotations.toArray(new String[annotations.size()]) : NO_ANNOTATIONS;
+	}
+
+	private static boolean isAnnotated(String[] annotations, Class<? extends Annotation>[] annotated) {
+		for (String annotation : annotations) {
+			for (Class<? extends Annotation> ann : annotated) {
+				if (ann.getName().equals(annotation)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads the cached classes: a line with only the class name means that the class wasn't parsed yet.
+	 */
+	private static Map<String, String[]> load(File file, String header) {
+		if (!file.exists()) {
+			return null;
+		}
+
+		BufferedReader reader = null;
+
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+
+			// a different size or modification time means that the JAR was changed
+			if (!header.equals(reader.readLine())) {
+				return null;
+			}
+
+			Map<String, String[]> classes = new LinkedHashMap<String, String[]>();
+			Map<String, String> names = U.map();
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				int pos = line.indexOf('=');
+
+				if (pos < 0) {
+					classes.put(line, null);
+					continue;
+				}
+
+				String[] annotations = pos < line.length() - 1 ? line.substring(pos + 1).split(",") : NO_ANNOTATIONS;
+
+				// the same annotation names are shared among the classes, to reduce the memory usage
+				for (int i = 0; i < annotations.length; i++) {
+					String name = names.get(annotations[i]);
+
+					if (name != null) {
+						annotations[i] = name;
+					} else {
+						names.put(annotations[i], annotations[i]);
+					}
+				}
+
+				classes.put(line.substring(0, pos), annotations);
+			}
+
+			return classes;
+
+		} catch (Exception e) {
+			Log.warn("Couldn't read the scan cache!", "file", file, "error", e);
+			return null;
+
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static void store(File file, String header, Map<String, String[]> classes) {
+		File tmp = null;
+		Writer out = null;
+
+		try {
+			file.getParentFile().mkdirs();
+
+			// written to a temporary file first, so other processes never read incomplete data
+			tmp = File.createTempFile("scan", ".tmp", file.getParentFile());
+			out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+
+			out.write(header);
+			out.write('\n');
+
+			for (Map.Entry<String, String[]> e : classes.entrySet()) {
+				out.write(e.getKey());
+
+				if (e.getValue() != null) {
+					out.write('=');
+					out.write(U.join(",", Arrays.asList(e.getValue())));
+				}
+
+				out.write('\n');
+			}
+
+			out.close();
+			out = null;
+
+			if (!tmp.renameTo(file)) {
+				file.delete();
+				U.must(tmp.renameTo(file), "Couldn't rename the file: %s", tmp);
+			}
+
+		} catch (Exception e) {
+			Log.warn("Couldn't write the scan cache!", "file", file, "error", e);
+
+			if (tmp != null) {
+				tmp.delete();
+			}
+
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	private static class JarClasses {
+
+		final File jar;
+
+		final long size;
+
+		final long modified;
+
+		final String header;
+
+		final File file;
+
+		// the value is null if the class wasn't parsed yet
+		final Map<String, String[]> classes;
+
+		JarClasses(File jar, long size, long modified, String header, File file, Map<String, String[]> classes) {
+			this.jar = jar;
+			this.size = size;
+			this.modified = modified;
+			this.header = header;
+			this.file = file;
+			this.classes = classes;
+		}
+
+		synchronized List<String> find(String pkg, Pattern regex, Class<? extends Annotation>[] annotated,
+		                               AtomicInteger searched) {
+
+			List<String> found = U.list();
+			List<String> unparsed = U.list();
+
+			for (Map.Entry<String, String[]> e : classes.entrySet()) {
+				String clsName = e.getKey();
+
+				if (U.isEmpty(pkg) || clsName.startsWith(pkg)) {
+					searched.incrementAndGet();
+
+					if (U.isEmpty(regex) || regex.matcher(clsName).matches()) {
+						String[] annotations = e.getValue();
+
+						if (annotations == null) {
+							unparsed.add(clsName);
+
+						} else if (U.isEmpty(annotated) || isAnnotated(annotations, annotated)) {
+							found.add(clsName);
+						}
+					}
+				}
+			}
+
+			if (!unparsed.isEmpty()) {
+				parse(unparsed);
+
+				for (String clsName : unparsed) {
+					String[] annotations = classes.get(clsName);
+
+					// the classes that couldn't be parsed were removed
+					if (annotations != null && (U.isEmpty(annotated) || isAnnotated(annotations, annotated))) {
+						found.add(clsName);
+					}
+				}
+
+				if (file != null) {
+					store(file, header, classes);
+				}
+			}
+
+			return found;
+		}
+
+		synchronized Map<String, String[]> parsed() {
+			Map<String, String[]> parsed = U.map();
+
+			for (Map.Entry<String, String[]> e : classes.entrySet()) {
+				if (e.getValue() != null) {
+					parsed.put(e.getKey(), e.getValue());
+				}
+			}
+
+			return parsed;
+		}
+
+		private void parse(List<String> clsNames) {
+			ZipFile zip = null;
+
+			try {
+				zip = new ZipFile(jar);
+
+				for (String clsName : clsNames) {
+					try {
+						ZipEntry entry = zip.getEntry(clsName.replace('.', '/') + ".class");
+						InputStream input = zip.getInputStream(entry);
+
+						try {
+							classes.put(clsName, annotations(new ClassFile(new DataInputStream(input))));
+						} finally {
+							input.close();
+						}
+
+					} catch (Throwable e) {
+						Log.debug("Error while loading class", "name", clsName, "error", e);
+						classes.remove(clsName);
+					}
+				}
+
+			} catch (Exception e) {
+				Log.error("Cannot scan JAR: " + jar, e);
+
+			} finally {
+				close(zip);
+			}
+		}
+	}
+
+}
@@ -3,7 +3,10 @@ package org.rapidoid.util;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.LRUCache;
 import org.rapidoid.commons.Str;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
 import org.rapidoid.crypto.Crypto;
 import org.rapidoid.serialize.Serialize;
 import org.rapidoid.u.U;
@@ -42,11 +45,39 @@ public class Tokens extends RapidoidThing {
 	public static final String _SCOPE = "_scope";
 	public static final String _EXPIRES = "_expires";
 
+	private static final int MAX_TOKEN_SIZE = 2500;
+
+	private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[MAX_TOKEN_SIZE];
+		}
+	};
+
+	private static final long CACHE_TTL;
+
+	// the recently serialized or verified (decrypted) tokens, so they don't have to be decrypted again
+	private static final LRUCache<String, VerifiedToken> VERIFIED;
+
+	static {
+		Config cfg = Conf.TOKEN.sub("cache");
+		int capacity = cfg.entry("capacity").or(10000);
+
+		CACHE_TTL = cfg.entry("ttl").or(60000L);
+		VERIFIED = capacity > 0 && CACHE_TTL > 0 ? new LRUCache<String, VerifiedToken>(capacity, capacity, CACHE_TTL) : null;
+	}
+
 	public static String serialize(Map<String, Serializable> token) {
 		if (U.notEmpty(token)) {
 			byte[] tokenBytes = serializeToken(token);
-			byte[] tokenEncrypted = Crypto.encrypt(tokenBytes);
-			return Str.toBase64(tokenEncrypted).replace('+', '$').replace('/', '_');
+			byte[] secret = Crypto.getSecretKey();
+			byte[] tokenEncrypted = Crypto.encrypt(tokenBytes, secret);
+			String serialized = Str.toBase64(tokenEncrypted).replace('+', '$').replace('/', '_');
+
+			// the token is usually sent back with the next request
+			verified(serialized, U.map(token), secret);
+
+			return serialized;
 
 		} else {
 			return "";
@@ -54,30 +85,63 @@ public class Tokens extends RapidoidThing {
 	}
 
 	private static byte[] serializeToken(Map<String, Serializable> token) {
-		byte[] dest = new byte[2500];
+		byte[] buf = BUFFER.get();
 
 		try {
-			int size = Serialize.serialize(dest, token);
-			dest = Arrays.copyOf(dest, size);
+			int size = Serialize.serialize(buf, token);
+			return Arrays.copyOf(buf, size);
 
 		} catch (BufferOverflowException e) {
 			throw U.rte("The token is too big!");
 		}
-
-		return dest;
 	}
 
+	/**
+	 * Decrypts and deserializes the token, or returns a copy of the token data if the token was recently serialized
+	 * or verified (with the same secret key).
+	 */
 	@SuppressWarnings("unchecked")
 	public static Map<String, Serializable> deserialize(String token) {
 		if (!U.isEmpty(token)) {
+			byte[] secret = Crypto.getSecretKey();
+
+			VerifiedToken cached = VERIFIED != null ? VERIFIED.get(token) : null;
+
+			if (cached != null && cached.secret == secret) {
+				return U.map(cached.data);
+			}
+
 			byte[] decoded = Str.fromBase64(token.replace('$', '+').replace('_', '/'));
-			byte[] tokenDecrypted = Crypto.decrypt(decoded);
-			return (Map<String, Serializable>) Serialize.deserialize(tokenDecrypted);
+			byte[] tokenDecrypted = Crypto.decrypt(decoded, secret);
+			Map<String, Serializable> data = (Map<String, Serializable>) Serialize.deserialize(tokenDecrypted);
+
+			verified(token, U.map(data), secret);
+
+			return data;
+
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * Caches the token data, until the cache TTL elapses or the token expires, whichever comes first.
+	 */
+	private static void verified(String token, Map<String, Serializable> data, byte[] secret) {
+		if (VERIFIED == null) return;
+
+		long ttl = CACHE_TTL;
+		Object expires = data.get(_EXPIRES);
+
+		if (expires instanceof Long) {
+			ttl = Math.min(ttl, (Long) expires - U.time());
+		}
+
+		if (ttl > 0) {
+			VERIFIED.put(token, new VerifiedToken(data, secret), 1, ttl);
+		}
+	}
+
 	public static TokenAuthData getAuth(Map<String, Serializable> token) {
 		TokenAuthData data = new TokenAuthData();
 
@@ -113,4 +177,16 @@ public class Tokens extends RapidoidThing {
 		return scopes;
 	}
 
+	private static class VerifiedToken {
+
+		final Map<String, Serializable> data;
+
+		final byte[] secret;
+
+		VerifiedToken(Map<String, Serializable> data, byte[] secret) {
+			this.data = data;
+			this.secret = secret;
+		}
+	}
+
 }
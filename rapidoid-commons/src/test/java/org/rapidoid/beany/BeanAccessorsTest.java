@@ -0,0 +1,127 @@
+package org.rapidoid.beany;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class BeanAccessorsTest extends BeanyTestCommons {
+
+	public static class Person {
+
+		private String name;
+
+		private int age;
+
+		private boolean active;
+
+		public long[] scores;
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public int getAge() {
+			return age;
+		}
+
+		public void setAge(int age) {
+			this.age = age;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public void setActive(boolean active) {
+			this.active = active;
+		}
+
+		public String getCaller() {
+			return new Throwable().getStackTrace()[1].getClassName();
+		}
+	}
+
+	@Test
+	public void shouldAccessPropertiesThroughGeneratedAccessor() {
+		Person person = new Person();
+		BeanProperties props = Beany.propertiesOf(Person.class);
+
+		props.get("name").set(person, "joe");
+		props.get("age").set(person, "25");
+		props.get("active").set(person, true);
+		props.get("scores").set(person, new long[]{1, 2});
+
+		eq(person.getName(), "joe");
+		eq(person.getAge(), 25);
+		isTrue(person.isActive());
+
+		eq(props.get("name").get(person), "joe");
+		eq(props.get("age").get(person), 25);
+		eq(props.get("active").get(person), true);
+		eq((long[]) props.get("scores").get(person), new long[]{1, 2});
+
+		props.get("age").reset(person);
+		eq(person.getAge(), 0);
+
+		// the getter is called directly from the generated class, not through reflection
+		String caller = props.get("caller").get(person);
+		isTrue(caller.startsWith(Person.class.getName() + "$$Accessor"));
+	}
+
+	@Test
+	public void shouldAccessPackagePrivateMembers() {
+		Baz baz = new Baz();
+		BeanProperties props = Beany.propertiesOf(Baz.class);
+
+		props.get("abcd").set(baz, 5);
+		props.get("xy").set(baz, XY.Y);
+		props.get("id").set(baz, 10);
+
+		eq(baz.abcd, 5);
+		eq(baz.xy, XY.Y);
+		eq(baz.id, 10L);
+
+		eq(props.get("abcd").get(baz), 5);
+		eq(props.get("g").get(baz), "gg");
+		isNull(props.get("invisible2"));
+	}
+
+	@Test
+	public void shouldRejectInvalidValues() {
+		Person person = new Person();
+
+		try {
+			Beany.propertiesOf(Person.class).get("age").setRaw(person, null);
+			fail("Expected error!");
+		} catch (RuntimeException e) {
+			eq(e.getMessage(), "Invalid value for 'age'!");
+		}
+	}
+
+}
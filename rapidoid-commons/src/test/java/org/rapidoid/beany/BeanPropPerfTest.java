@@ -0,0 +1,127 @@
+package org.rapidoid.beany;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.util.Msc;
+
+import java.lang.reflect.Method;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class BeanPropPerfTest {
+
+	private static final int COUNT = 10000000;
+
+	public static class OrderDTO {
+
+		private long id;
+
+		private String customer;
+
+		private double total;
+
+		public boolean paid;
+
+		public long getId() {
+			return id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getCustomer() {
+			return customer;
+		}
+
+		public void setCustomer(String customer) {
+			this.customer = customer;
+		}
+
+		public double getTotal() {
+			return total;
+		}
+
+		public void setTotal(double total) {
+			this.total = total;
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		final OrderDTO order = new OrderDTO();
+		final BeanProperties props = Beany.propertiesOf(OrderDTO.class);
+
+		final Prop id = props.get("id");
+		final Prop customer = props.get("customer");
+		final Prop total = props.get("total");
+		final Prop paid = props.get("paid");
+
+		final Method getCustomer = OrderDTO.class.getMethod("getCustomer");
+		final Method setTotal = OrderDTO.class.getMethod("setTotal", double.class);
+
+		for (int round = 0; round < 3; round++) {
+			Msc.benchmark("get (reflection)", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						getCustomer.invoke(order);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+
+			Msc.benchmark("set (reflection)", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						setTotal.invoke(order, 12.5);
+					} catch (Exception e) {
+						throw new RuntimeException(e);
+					}
+				}
+			});
+
+			Msc.benchmark("get (4 props)", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					id.getRaw(order);
+					customer.getRaw(order);
+					total.getRaw(order);
+					paid.getRaw(order);
+				}
+			});
+
+			Msc.benchmark("set (4 props)", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					id.setRaw(order, 123L);
+					customer.setRaw(order, "joe");
+					total.setRaw(order, 12.5);
+					paid.setRaw(order, true);
+				}
+			});
+		}
+	}
+
+}
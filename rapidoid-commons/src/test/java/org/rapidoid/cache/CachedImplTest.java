@@ -0,0 +1,246 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class CachedImplTest extends TestCommons {
+
+	private final AtomicInteger loads = new AtomicInteger();
+
+	private final Mapper<Integer, String> loader = new Mapper<Integer, String>() {
+		@Override
+		public String map(Integer key) throws Exception {
+			loads.incrementAndGet();
+			return U.str(key) + ":" + loads.get();
+		}
+	};
+
+	private static final Mapper<String, Long> LENGTH = new Mapper<String, Long>() {
+		@Override
+		public Long map(String value) throws Exception {
+			return (long) value.length();
+		}
+	};
+
+	@Test
+	public void testLoadingAndStats() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(100).build();
+
+		eq(cache.get(1), "1:1");
+		eq(cache.get(1), "1:1");
+		eq(cache.get(2), "2:2");
+		eq(cache.getIfExists(2), "2:2");
+		isNull(cache.getIfExists(3));
+
+		CacheStats stats = cache.stats();
+
+		eq(stats.hits(), 2);
+		eq(stats.misses(), 3);
+		eq(stats.loads(), 2);
+		eq(stats.loadErrors(), 0);
+		eq(stats.size(), 2);
+		eq(cache.size(), 2);
+	}
+
+	@Test
+	public void testCapacity() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(100).build();
+
+		for (int i = 0; i < 10000; i++) {
+			cache.get(i);
+		}
+
+		isTrue(cache.size() <= 100);
+		eq(cache.stats().evictions(), 10000 - cache.size());
+	}
+
+	@Test
+	public void testScanResistance() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(100).build();
+
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 10; i++) {
+				cache.get(i);
+			}
+		}
+
+		// a scan of keys that are used only once, which would flush a LRU cache
+		for (int i = 1000; i < 2000; i++) {
+			cache.get(i);
+		}
+
+		for (int i = 0; i < 10; i++) {
+			notNull(cache.getIfExists(i));
+		}
+	}
+
+	@Test
+	public void testWeigher() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(10).maxWeight(100).weigher(LENGTH).build();
+
+		for (int i = 0; i < 1000; i++) {
+			cache.get(i);
+		}
+
+		isTrue(cache.stats().weight() <= 100);
+
+		// too heavy to be cached
+		cache.set(-1, new String(new char[101]));
+		isNull(cache.getIfExists(-1));
+	}
+
+	@Test
+	public void testTTL() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(10).ttl(100).build();
+
+		eq(cache.get(1), "1:1");
+		U.sleep(50);
+		eq(cache.get(1), "1:1");
+
+		U.sleep(100);
+		eq(cache.get(1), "1:2");
+		eq(cache.stats().expirations(), 1);
+	}
+
+	@Test
+	public void testIdleTTL() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(10).idleTtl(200).build();
+
+		eq(cache.get(1), "1:1");
+
+		// the access keeps the entry alive
+		for (int i = 0; i < 5; i++) {
+			U.sleep(50);
+			eq(cache.get(1), "1:1");
+		}
+
+		U.sleep(300);
+		isNull(cache.getIfExists(1));
+		eq(cache.get(1), "1:2");
+	}
+
+	@Test
+	public void testRefreshAfter() {
+		Cached<Integer, String> cache = Cache.of(new Mapper<Integer, String>() {
+			@Override
+			public String map(Integer key) throws Exception {
+				int n = loads.incrementAndGet();
+
+				if (n > 1) {
+					U.sleep(200); // slow reload
+				}
+
+				return key + ":" + n;
+			}
+		}).capacity(10).refreshAfter(1000).build();
+
+		eq(cache.get(1), "1:1");
+		U.sleep(1100);
+
+		// the old value is served, while the new one is loaded in background
+		eq(cache.get(1), "1:1");
+		eq(cache.get(1), "1:1");
+
+		// eventually, the reloaded value is served
+		for (int i = 0; i < 100 && !cache.getIfExists(1).equals("1:2"); i++) {
+			U.sleep(20);
+		}
+
+		eq(cache.getIfExists(1), "1:2");
+	}
+
+	@Test
+	public void testSetAndInvalidate() {
+		Cached<Integer, String> cache = Cache.of(loader).capacity(10).build();
+
+		cache.set(1, "one");
+		eq(cache.get(1), "one");
+
+		cache.invalidate(1);
+		eq(cache.get(1), "1:1");
+
+		cache.get(2);
+		eq(cache.size(), 2);
+
+		cache.clear();
+		eq(cache.size(), 0);
+		eq(cache.get(2), "2:3");
+	}
+
+	@Test
+	public void testSingleLoadPerKey() {
+		final Cached<Integer, String> cache = Cache.of(new Mapper<Integer, String>() {
+			@Override
+			public String map(Integer key) throws Exception {
+				loads.incrementAndGet();
+				U.sleep(100);
+				return "x" + key;
+			}
+		}).capacity(10).build();
+
+		Msc.benchmarkMT(10, "concurrent loads", 1000, new Runnable() {
+			@Override
+			public void run() {
+				eq(cache.get(1), "x1");
+			}
+		});
+
+		eq(loads.get(), 1);
+	}
+
+	@Test
+	public void testLoadErrorsAreNotCached() {
+		Cached<Integer, String> cache = Cache.of(new Mapper<Integer, String>() {
+			@Override
+			public String map(Integer key) throws Exception {
+				if (loads.incrementAndGet() == 1) {
+					throw new IllegalStateException("failed");
+				}
+
+				return "ok";
+			}
+		}).capacity(10).build();
+
+		try {
+			cache.get(1);
+			fail("Expected load error!");
+		} catch (RuntimeException e) {
+			isTrue(e.getCause() instanceof IllegalStateException);
+		}
+
+		eq(cache.stats().loadErrors(), 1);
+		eq(cache.size(), 0);
+
+		eq(cache.get(1), "ok");
+	}
+
+}
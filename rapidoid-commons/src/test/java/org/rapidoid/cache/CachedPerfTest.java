@@ -0,0 +1,166 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.lambda.Mapper;
+import org.rapidoid.util.Msc;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the hit ratio and throughput of the cache with the previous implementation ({@link LegacyCached}), on
+ * Zipfian-distributed keys.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class CachedPerfTest {
+
+	private static final int KEYS = 100000;
+
+	private static final int SAMPLES = 1 << 22;
+
+	private static final int COUNT = 8000000;
+
+	private static final int THREADS = 8;
+
+	private static final AtomicLong LOADS = new AtomicLong();
+
+	private static final Mapper<Integer, Integer> LOADER = new Mapper<Integer, Integer>() {
+		@Override
+		public Integer map(Integer key) throws Exception {
+			LOADS.incrementAndGet();
+			return key * 2;
+		}
+	};
+
+	public static void main(String[] args) {
+		final Integer[] keys = zipf(KEYS, 0.99, SAMPLES);
+
+		for (int capacity : new int[]{1000, 10000}) {
+			System.out.println();
+			System.out.println("--- " + capacity + " entries of " + KEYS + " keys ---");
+
+			final Cached<Integer, Integer> cached = Cache.of(LOADER).capacity(capacity).build();
+			final LegacyCached<Integer, Integer> legacy = new LegacyCached<Integer, Integer>(capacity, LOADER, 0);
+
+			hitRatio("W-TinyLFU", keys, new Mapper<Integer, Integer>() {
+				@Override
+				public Integer map(Integer key) throws Exception {
+					return cached.get(key);
+				}
+			});
+
+			hitRatio("legacy", keys, new Mapper<Integer, Integer>() {
+				@Override
+				public Integer map(Integer key) throws Exception {
+					return legacy.get(key);
+				}
+			});
+
+			for (int round = 0; round < 3; round++) {
+				Msc.benchmarkMT(THREADS, "W-TinyLFU", COUNT, reader(keys, new Mapper<Integer, Integer>() {
+					@Override
+					public Integer map(Integer key) throws Exception {
+						return cached.get(key);
+					}
+				}));
+
+				Msc.benchmarkMT(THREADS, "legacy", COUNT, reader(keys, new Mapper<Integer, Integer>() {
+					@Override
+					public Integer map(Integer key) throws Exception {
+						return legacy.get(key);
+					}
+				}));
+			}
+
+			System.out.println(cached);
+		}
+	}
+
+	private static void hitRatio(String name, Integer[] keys, Mapper<Integer, Integer> cache) {
+		LOADS.set(0);
+
+		try {
+			for (Integer key : keys) {
+				cache.map(key);
+			}
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		double hitRatio = 1 - (double) LOADS.get() / keys.length;
+		System.out.println(String.format("%s hit ratio: %.2f%%", name, hitRatio * 100));
+	}
+
+	private static Runnable reader(final Integer[] keys, final Mapper<Integer, Integer> cache) {
+		final ThreadLocal<int[]> cursor = new ThreadLocal<int[]>() {
+			@Override
+			protected int[] initialValue() {
+				return new int[]{new Random().nextInt(keys.length)};
+			}
+		};
+
+		return new Runnable() {
+			@Override
+			public void run() {
+				int[] pos = cursor.get();
+				pos[0] = (pos[0] + 1) & (keys.length - 1);
+
+				try {
+					cache.map(keys[pos[0]]);
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Generates keys with Zipfian distribution (the key N is requested with probability proportional to 1/N^skew).
+	 */
+	private static Integer[] zipf(int n, double skew, int samples) {
+		double[] cdf = new double[n];
+		double sum = 0;
+
+		for (int i = 0; i < n; i++) {
+			sum += 1 / Math.pow(i + 1, skew);
+			cdf[i] = sum;
+		}
+
+		Random rnd = new Random(1);
+		Integer[] keys = new Integer[samples];
+
+		for (int i = 0; i < samples; i++) {
+			int pos = Arrays.binarySearch(cdf, rnd.nextDouble() * sum);
+			int rank = pos >= 0 ? pos : Math.min(-pos - 1, n - 1);
+
+			// scatter the popular keys, so they aren't sequential
+			keys[i] = (rank * 0x9E3779B1) & Integer.MAX_VALUE;
+		}
+
+		return keys;
+	}
+
+}
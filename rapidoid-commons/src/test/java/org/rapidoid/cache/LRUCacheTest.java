@@ -0,0 +1,101 @@
+package org.rapidoid.cache;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class LRUCacheTest extends TestCommons {
+
+	@Test
+	public void testEvictionByCapacity() {
+		LRUCache<String, String> cache = new LRUCache<String, String>(2, 1000, 0);
+
+		cache.put("a", "A", 1);
+		cache.put("b", "B", 1);
+
+		// "a" becomes the most recently used
+		eq(cache.get("a"), "A");
+
+		cache.put("c", "C", 1);
+
+		eq(cache.size(), 2);
+		eq(cache.get("a"), "A");
+		isNull(cache.get("b"));
+		eq(cache.get("c"), "C");
+
+		eq(cache.getHits().get(), 3);
+		eq(cache.getMisses().get(), 1);
+		eq(cache.getEvictions().get(), 1);
+	}
+
+	@Test
+	public void testEvictionByWeight() {
+		LRUCache<String, String> cache = new LRUCache<String, String>(100, 10, 0);
+
+		cache.put("a", "A", 4);
+		cache.put("b", "B", 4);
+		cache.put("c", "C", 4);
+
+		isNull(cache.get("a"));
+		eq(cache.get("b"), "B");
+		eq(cache.get("c"), "C");
+		eq(cache.weight(), 8);
+
+		// too heavy to be cached
+		cache.put("d", "D", 11);
+		isNull(cache.get("d"));
+		eq(cache.size(), 2);
+
+		// replacing a value updates the weight
+		cache.put("b", "BB", 1);
+		eq(cache.get("b"), "BB");
+		eq(cache.weight(), 5);
+
+		cache.invalidate("b");
+		isNull(cache.get("b"));
+		eq(cache.weight(), 4);
+
+		cache.clear();
+		eq(cache.size(), 0);
+		eq(cache.weight(), 0);
+	}
+
+	@Test
+	public void testExpiration() {
+		LRUCache<String, String> cache = new LRUCache<String, String>(10, 10, 100);
+
+		cache.put("x", "X", 1);
+		eq(cache.get("x"), "X");
+
+		U.sleep(200);
+
+		isNull(cache.get("x"));
+		eq(cache.size(), 0);
+		eq(cache.weight(), 0);
+	}
+
+}
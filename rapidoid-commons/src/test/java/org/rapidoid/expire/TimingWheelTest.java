@@ -0,0 +1,161 @@
+package org.rapidoid.expire;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.test.TestCommons;
+
+import java.util.List;
+
+import static org.rapidoid.u.U.list;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TimingWheelTest extends TestCommons {
+
+	private final List<String> expired = list();
+
+	class Target implements Expiring {
+
+		final String name;
+
+		long expiresAt;
+
+		Target(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public void setExpiresAt(long expiresAt) {
+			this.expiresAt = expiresAt;
+		}
+
+		@Override
+		public long getExpiresAt() {
+			return expiresAt;
+		}
+
+		@Override
+		public void expire() {
+			expired.add(name);
+		}
+	}
+
+	@Test
+	public void shouldExpireTimersAfterTheirDeadline() {
+		TimingWheel wheel = new TimingWheel(10, 8, 1000);
+
+		TimingWheel.Timer a = wheel.timer(new Target("a"));
+		TimingWheel.Timer b = wheel.timer(new Target("b"));
+
+		wheel.schedule(a, 1025);
+		wheel.schedule(b, 1055);
+
+		eq(wheel.size(), 2);
+		eq(a.target().getExpiresAt(), 1025);
+
+		eq(wheel.advance(1025), 0);
+		eq(wheel.advance(1030), 1);
+		eq(expired, list("a"));
+
+		eq(wheel.advance(1060), 1);
+		eq(expired, list("a", "b"));
+
+		eq(wheel.size(), 0);
+		isFalse(a.isScheduled());
+		eq(a.target().getExpiresAt(), 0);
+	}
+
+	@Test
+	public void shouldRescheduleAndCancelTimers() {
+		TimingWheel wheel = new TimingWheel(10, 8, 1000);
+
+		TimingWheel.Timer a = wheel.timer(new Target("a"));
+		TimingWheel.Timer b = wheel.timer(new Target("b"));
+
+		wheel.schedule(a, 1020);
+		wheel.schedule(b, 1020);
+
+		wheel.schedule(a, 1050);
+		wheel.cancel(b);
+		wheel.cancel(b);
+
+		eq(wheel.size(), 1);
+		eq(wheel.advance(1040), 0);
+
+		eq(wheel.advance(1060), 1);
+		eq(expired, list("a"));
+	}
+
+	@Test
+	public void shouldKeepTimersBeyondOneRevolution() {
+		TimingWheel wheel = new TimingWheel(10, 8, 1000);
+
+		TimingWheel.Timer a = wheel.timer(new Target("a"));
+
+		// 3 revolutions of the wheel
+		wheel.schedule(a, 1245);
+
+		eq(wheel.advance(1100), 0);
+		eq(wheel.advance(1200), 0);
+		eq(wheel.advance(1245), 0);
+		eq(wheel.advance(1250), 1);
+	}
+
+	@Test
+	public void shouldExpireOverdueTimersOnNextTick() {
+		TimingWheel wheel = new TimingWheel(10, 8, 1000);
+
+		wheel.advance(1100);
+
+		TimingWheel.Timer a = wheel.timer(new Target("a"));
+		wheel.schedule(a, 900);
+
+		eq(wheel.advance(1109), 0);
+		eq(wheel.advance(1110), 1);
+	}
+
+	@Test
+	public void shouldAllowReschedulingFromTheExpirationCallback() {
+		final TimingWheel wheel = new TimingWheel(10, 8, 1000);
+
+		final TimingWheel.Timer[] timer = new TimingWheel.Timer[1];
+
+		timer[0] = wheel.timer(new Target("a") {
+			@Override
+			public void expire() {
+				super.expire();
+				wheel.schedule(timer[0], 1100);
+			}
+		});
+
+		wheel.schedule(timer[0], 1010);
+
+		eq(wheel.advance(1020), 1);
+		isTrue(timer[0].isScheduled());
+
+		eq(wheel.advance(2000), 1);
+		eq(expired, list("a", "a"));
+	}
+
+}
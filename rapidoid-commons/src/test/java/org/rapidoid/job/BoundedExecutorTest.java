@@ -0,0 +1,153 @@
+package org.rapidoid.job;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.test.AbstractCommonsTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class BoundedExecutorTest extends AbstractCommonsTest {
+
+	@Test(timeout = 10000)
+	public void testRejection() throws Exception {
+		BoundedExecutor executor = new BoundedExecutor("bounded-test", 1, 2);
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger executed = new AtomicInteger();
+
+		Runnable job = new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				executed.incrementAndGet();
+			}
+		};
+
+		executor.execute(job);
+		started.await();
+
+		// the only thread is busy, so the next jobs are queued until the queue is full
+		executor.execute(job);
+		executor.execute(job);
+		eq(executor.queueDepth(), 2);
+
+		try {
+			executor.execute(job);
+			fail("The job should have been rejected!");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+
+		eq(executor.rejectedCount(), 1);
+
+		release.countDown();
+		executor.shutdown();
+		isTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		eq(executed.get(), 3);
+		notNull(Metrics.get("jobs/bounded-test/queue"));
+		notNull(Metrics.get("jobs/bounded-test/rejected"));
+		notNull(Metrics.get("jobs/bounded-test/wait/p99"));
+	}
+
+	@Test(timeout = 10000)
+	public void testLimitedView() throws Exception {
+		BoundedExecutor executor = new BoundedExecutor("limited-test", 1, 0);
+		Executor limited = executor.limitedTo(1);
+
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger executed = new AtomicInteger();
+
+		Runnable job = new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				executed.incrementAndGet();
+			}
+		};
+
+		limited.execute(job);
+		started.await();
+
+		limited.execute(job);
+		eq(executor.queueDepth(), 1);
+
+		// the limited view rejects the job, but the executor itself still accepts it
+		try {
+			limited.execute(job);
+			fail("The job should have been rejected!");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+
+		executor.execute(job);
+		eq(executor.queueDepth(), 2);
+		eq(executor.rejectedCount(), 1);
+
+		release.countDown();
+		executor.shutdown();
+		isTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+		eq(executed.get(), 3);
+	}
+
+	@Test
+	public void testWaitTimePercentiles() {
+		long[] counts = new long[64];
+
+		eq(BoundedExecutor.percentile(counts, 0.5), 0.0);
+
+		counts[1] = 90; // 1 us
+		counts[11] = 9; // up to 2047 us
+		counts[20] = 1; // up to 1048575 us
+
+		eq(BoundedExecutor.percentile(counts, 0.5), 0.001);
+		eq(BoundedExecutor.percentile(counts, 0.99), 2.047);
+		eq(BoundedExecutor.percentile(counts, 1.0), 1048.575);
+	}
+
+}
@@ -0,0 +1,180 @@
+package org.rapidoid.pool;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.util.Msc;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ThreadConfinedPoolTest extends TestCommons {
+
+	private final AtomicInteger counter = new AtomicInteger();
+
+	private final Callable<Integer> factory = new Callable<Integer>() {
+		@Override
+		public Integer call() throws Exception {
+			return counter.incrementAndGet();
+		}
+	};
+
+	@Test
+	public void shouldReuseObjectsOnOwnerThread() {
+		ThreadConfinedPool<Integer> pool = new ThreadConfinedPool<Integer>("test", factory, 2, 5, 3);
+		pool.ownedBy(Thread.currentThread());
+
+		Integer a = pool.get();
+		Integer b = pool.get();
+
+		eq(pool.objectsCreated(), 2);
+		eq(pool.inUse(), 2);
+
+		pool.release(a);
+		pool.release(b);
+
+		eq(pool.inUse(), 0);
+		eq(pool.size(), 2);
+
+		// LIFO
+		eq(pool.get(), b);
+		eq(pool.get(), a);
+
+		eq(pool.objectsCreated(), 2);
+	}
+
+	@Test
+	public void shouldTrimToLowWatermark() {
+		ThreadConfinedPool<Integer> pool = new ThreadConfinedPool<Integer>("test", factory, 2, 5, 3);
+		pool.ownedBy(Thread.currentThread());
+
+		Integer[] objs = new Integer[6];
+		for (int i = 0; i < objs.length; i++) {
+			objs[i] = pool.get();
+		}
+
+		for (int i = 0; i < 5; i++) {
+			pool.release(objs[i]);
+		}
+
+		eq(pool.size(), 5);
+		eq(pool.trimmed(), 0);
+
+		// reaching the high watermark
+		pool.release(objs[5]);
+
+		eq(pool.size(), 3);
+		eq(pool.trimmed(), 3);
+		eq(pool.inUse(), 0);
+	}
+
+	@Test
+	public void shouldBoundTheOverflowFromOtherThreads() {
+		final ThreadConfinedPool<Integer> pool = new ThreadConfinedPool<Integer>("test", factory, 2, 5, 3);
+
+		// no owner thread, so everything goes through the overflow stack
+		for (int i = 0; i < 5; i++) {
+			pool.release(pool.get() + 100);
+		}
+
+		eq(pool.size(), 1);
+
+		Integer[] objs = new Integer[5];
+		for (int i = 0; i < objs.length; i++) {
+			objs[i] = pool.get();
+		}
+
+		for (Integer obj : objs) {
+			pool.release(obj);
+		}
+
+		eq(pool.size(), 3);
+		eq(pool.trimmed(), 2);
+	}
+
+	@Test
+	public void shouldBeClearedOnlyByTheOwnerThread() throws Exception {
+		final ThreadConfinedPool<Integer> pool = new ThreadConfinedPool<Integer>("test", factory, 2, 5, 3);
+		final CountDownLatch released = new CountDownLatch(1);
+		final CountDownLatch cleared = new CountDownLatch(1);
+
+		Thread owner = new Thread() {
+			@Override
+			public void run() {
+				pool.ownedBy(Thread.currentThread());
+				pool.release(pool.get());
+				released.countDown();
+
+				try {
+					cleared.await();
+				} catch (InterruptedException e) {
+					// exiting
+				}
+			}
+		};
+
+		owner.start();
+		released.await();
+
+		eq(pool.size(), 1);
+
+		try {
+			pool.clear();
+			fail("Expected IllegalStateException!");
+		} catch (IllegalStateException e) {
+			// the owner is still running
+		}
+
+		eq(pool.size(), 1);
+
+		cleared.countDown();
+		owner.join();
+
+		// the owner has exited
+		pool.clear();
+		eq(pool.size(), 0);
+	}
+
+	@Test
+	public void shouldHandleConcurrentUsage() {
+		final ThreadConfinedPool<Integer> pool = new ThreadConfinedPool<Integer>("test", factory, 10, 100, 100);
+
+		Msc.benchmarkMT(8, "get+release", 1000000, new Runnable() {
+			@Override
+			public void run() {
+				Integer obj = pool.get();
+				notNull(obj);
+				pool.release(obj);
+			}
+		});
+
+		eq(pool.inUse(), 0);
+		isTrue(pool.size() <= 100);
+		eq(pool.objectsCreated(), pool.size() + pool.trimmed());
+	}
+
+}
@@ -0,0 +1,101 @@
+package org.rapidoid.scan;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+import org.rapidoid.log.LogLevel;
+import org.rapidoid.util.Msc;
+
+import java.io.File;
+
+/**
+ * Measures the scan of the whole classpath for annotated classes: without the JAR cache, with empty on-disk cache,
+ * after restart (reading the on-disk cache) and after reload (using the in-memory cache).
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ClasspathScanPerfTest {
+
+	public static void main(String[] args) {
+		Log.setLogLevel(LogLevel.WARN);
+
+		final File dir = new File(System.getProperty("java.io.tmpdir"), "rapidoid-scan-cache-perf");
+		JarScanCache.dir(dir.getAbsolutePath());
+
+		for (int round = 0; round < 3; round++) {
+			JarScanCache.enabled(false);
+
+			Msc.benchmark("no cache", 3, new Runnable() {
+				@Override
+				public void run() {
+					scan();
+				}
+			});
+
+			JarScanCache.enabled(true);
+
+			Msc.benchmark("empty disk cache", 3, new Runnable() {
+				@Override
+				public void run() {
+					clear(dir);
+					JarScanCache.reset();
+					scan();
+				}
+			});
+
+			Msc.benchmark("disk cache (restart)", 10, new Runnable() {
+				@Override
+				public void run() {
+					JarScanCache.reset();
+					scan();
+				}
+			});
+
+			Msc.benchmark("memory cache (reload)", 10, new Runnable() {
+				@Override
+				public void run() {
+					scan();
+				}
+			});
+		}
+
+		clear(dir);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void scan() {
+		ClasspathScanner.reset();
+		Scan.annotated(Deprecated.class).getAll();
+	}
+
+	private static void clear(File dir) {
+		File[] files = dir.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.rapidoid.scan;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import custom.rapidoid.scan.MyAnnot;
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.crypto.Crypto;
+import org.rapidoid.io.IO;
+import org.rapidoid.test.AbstractCommonsTest;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class JarScanCacheTest extends AbstractCommonsTest {
+
+	private static final String[] CLASSES = {"custom.rapidoid.scan.Foo", "custom.rapidoid.scan.Bar", "custom.rapidoid.scan.MyAnnot"};
+
+	@Test
+	public void testCachedJarClasses() throws Exception {
+		File dir = createTempDir();
+		File jar = createJar(new File(dir, "app.jar"));
+
+		File prevDir = JarScanCache.dir();
+		JarScanCache.dir(dir.getAbsolutePath());
+
+		try {
+			JarScanCache.reset();
+			String jarName = jar.getAbsolutePath();
+
+			// only the classes that match the package and the regex are parsed
+			eq(find(jarName, "custom.rapidoid.scan.B", null), U.list("custom.rapidoid.scan.Bar"));
+			eq(JarScanCache.parsed(jarName).keySet(), U.set("custom.rapidoid.scan.Bar"));
+
+			eq(U.set(find(jarName, "", MyAnnot.class)), U.set("custom.rapidoid.scan.Foo", "custom.rapidoid.scan.Bar"));
+			eq(JarScanCache.parsed(jarName).keySet(), U.set(CLASSES));
+			eq(U.list(JarScanCache.parsed(jarName).get("custom.rapidoid.scan.Bar")), U.list(MyAnnot.class.getName()));
+
+			File cacheFile = new File(dir, Crypto.md5(jarName) + ".idx");
+			isTrue(cacheFile.exists());
+
+			// after restart, the classes are read from the on-disk cache
+			String cached = IO.load(cacheFile.getAbsolutePath());
+			String header = cached.substring(0, cached.indexOf('\n') + 1);
+			IO.save(cacheFile.getAbsolutePath(), header + "x.Y=custom.rapidoid.scan.MyAnnot\nx.Z\n");
+
+			JarScanCache.reset();
+			eq(find(jarName, "x", MyAnnot.class), U.list("x.Y"));
+
+			// the changed JAR is parsed again
+			isTrue(jar.setLastModified(jar.lastModified() - 10000));
+
+			eq(U.set(find(jarName, "", MyAnnot.class)), U.set("custom.rapidoid.scan.Foo", "custom.rapidoid.scan.Bar"));
+
+		} finally {
+			JarScanCache.dir(prevDir != null ? prevDir.getAbsolutePath() : null);
+			JarScanCache.reset();
+		}
+	}
+
+	@Test
+	public void testUntrustedCacheDirIsNotUsed() throws Exception {
+		if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			return;
+		}
+
+		File dir = createTempDir();
+		File jar = createJar(new File(dir, "app.jar"));
+
+		// the folder is writable by the other users, so they could plant the cached data
+		Files.setPosixFilePermissions(dir.toPath(), PosixFilePermissions.fromString("rwxrwxrwx"));
+
+		File prevDir = JarScanCache.dir();
+		JarScanCache.dir(dir.getAbsolutePath());
+
+		try {
+			JarScanCache.reset();
+			String jarName = jar.getAbsolutePath();
+
+			eq(U.set(find(jarName, "", MyAnnot.class)), U.set("custom.rapidoid.scan.Foo", "custom.rapidoid.scan.Bar"));
+
+			isFalse(new File(dir, Crypto.md5(jarName) + ".idx").exists());
+
+		} finally {
+			JarScanCache.dir(prevDir != null ? prevDir.getAbsolutePath() : null);
+			JarScanCache.reset();
+		}
+	}
+
+	@Test
+	public void testSameResultsWithoutCache() {
+		ClasspathScanner.reset();
+		List<String> cached = Scan.annotated(Deprecated.class).in("org.junit").getAll();
+
+		isFalse(cached.isEmpty());
+
+		JarScanCache.enabled(false);
+
+		try {
+			ClasspathScanner.reset();
+			List<String> scanned = Scan.annotated(Deprecated.class).in("org.junit").getAll();
+
+			eq(U.set(cached), U.set(scanned));
+
+		} finally {
+			JarScanCache.enabled(true);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<String> find(String jarName, String pkg, Class<? extends Annotation> annotated) {
+		Class<? extends Annotation>[] annotations = annotated != null ? new Class[]{annotated} : null;
+		return JarScanCache.find(jarName, pkg, null, annotations, new AtomicInteger());
+	}
+
+	private static File createTempDir() throws IOException {
+		File dir = File.createTempFile("scan-cache", "");
+		U.must(dir.delete() && dir.mkdir());
+		dir.deleteOnExit();
+		return dir;
+	}
+
+	private static File createJar(File jar) throws IOException {
+		ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar));
+
+		try {
+			for (String cls : CLASSES) {
+				String name = cls.replace('.', '/') + ".class";
+
+				zip.putNextEntry(new ZipEntry(name));
+				zip.write(IO.loadBytes(name));
+				zip.closeEntry();
+			}
+
+		} finally {
+			zip.close();
+		}
+
+		return jar;
+	}
+
+}
@@ -0,0 +1,69 @@
+package org.rapidoid.util;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+import org.rapidoid.crypto.Crypto;
+import org.rapidoid.u.U;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TokensPerfTest {
+
+	private static final int COUNT = 100000;
+
+	public static void main(String[] args) {
+		final Map<String, Serializable> data = U.map(Tokens._USER, (Serializable) "user@example.com",
+			Tokens._SCOPE, "GET:/orders,POST:/orders", Tokens._EXPIRES, U.time() + 3600000);
+
+		final String token = Tokens.serialize(data);
+		final byte[] encrypted = Str.fromBase64(token.replace('$', '+').replace('_', '/'));
+
+		for (int round = 0; round < 3; round++) {
+			Msc.benchmark("serialize", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					Tokens.serialize(data);
+				}
+			});
+
+			Msc.benchmark("decrypt", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					Crypto.decrypt(encrypted);
+				}
+			});
+
+			Msc.benchmark("deserialize (verified)", COUNT, new Runnable() {
+				@Override
+				public void run() {
+					Tokens.deserialize(token);
+				}
+			});
+		}
+	}
+
+}
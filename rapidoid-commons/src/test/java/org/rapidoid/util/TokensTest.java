@@ -0,0 +1,92 @@
+package org.rapidoid.util;
+
+/*
+ * #%L
+ * rapidoid-commons
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.crypto.Crypto;
+import org.rapidoid.test.AbstractCommonsTest;
+import org.rapidoid.u.U;
+
+import java.io.Serializable;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TokensTest extends AbstractCommonsTest {
+
+	@Test
+	public void testSerialization() {
+		Map<String, Serializable> data = U.map(Tokens._USER, (Serializable) "joe", Tokens._EXPIRES, U.time() + 60000);
+
+		String token = Tokens.serialize(data);
+		eq(Tokens.deserialize(token), data);
+
+		// the returned token data can be modified, without affecting the cached data
+		Map<String, Serializable> copy = Tokens.deserialize(token);
+		copy.put("x", 1);
+		eq(Tokens.deserialize(token), data);
+
+		// the same data is encrypted with different (random) salts
+		String token2 = Tokens.serialize(data);
+		neq(token2, token);
+		eq(Tokens.deserialize(token2), data);
+
+		eq(Tokens.getAuth(Tokens.deserialize(token)).user, "joe");
+	}
+
+	@Test
+	public void testDecryptionWithoutCache() {
+		byte[] data = "some data".getBytes();
+		byte[] encrypted = Crypto.encrypt(data);
+
+		// the derived keys are reused by the subsequent decryptions
+		for (int i = 0; i < 3; i++) {
+			eq(new String(Crypto.decrypt(encrypted)), "some data");
+		}
+	}
+
+	@Test
+	public void testCorruptedToken() {
+		String token = Tokens.serialize(U.map(Tokens._USER, (Serializable) "joe"));
+
+		String corrupted = token.substring(0, 50) + (token.charAt(50) == 'A' ? 'B' : 'A') + token.substring(51);
+
+		try {
+			Tokens.deserialize(corrupted);
+			fail("The corrupted token should be rejected!");
+		} catch (RuntimeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testExpiredToken() {
+		Map<String, Serializable> data = U.map(Tokens._USER, (Serializable) "joe", Tokens._EXPIRES, U.time() - 1000);
+
+		String token = Tokens.serialize(data);
+
+		eq(Tokens.deserialize(token), data);
+		isNull(Tokens.getAuth(Tokens.deserialize(token)));
+	}
+
+}
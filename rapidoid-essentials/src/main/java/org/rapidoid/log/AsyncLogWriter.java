@@ -0,0 +1,283 @@
+package org.rapidoid.log;
+
+/*
+ * #%L
+ * rapidoid-essentials
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.RapidoidThing;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes the log messages to the standard output on a background thread. The logging threads only put the (unformatted)
+ * log events into a preallocated ring buffer, and the writer formats them and writes them in batches. When the ring
+ * buffer is full, the new events are either dropped (and counted), or the logging threads wait for free space.
+ *
+ * @author Nikolche Mihajlovski
+ * @since 5.3.0
+ */
+class AsyncLogWriter extends RapidoidThing implements Runnable {
+
+	private static final int MAX_BATCH = 256;
+
+	private static final long IDLE_WAIT = 100 * 1000 * 1000L;
+
+	private static final long FULL_WAIT = 100 * 1000L;
+
+	private static final String NEW_LINE = System.getProperty("line.separator");
+
+	private final LogEvent[] events;
+
+	private final int mask;
+
+	private final boolean blockWhenFull;
+
+	private final AtomicLong dropped;
+
+	// the sequence number of the next event to be put in the ring buffer
+	private final AtomicLong claimed = new AtomicLong();
+
+	// the sequence number of the next event to be written
+	private volatile long consumed;
+
+	private volatile boolean sleeping;
+
+	private volatile boolean running = true;
+
+	private final Thread thread;
+
+	AsyncLogWriter(int capacity, boolean blockWhenFull, AtomicLong dropped) {
+		int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+
+		this.events = new LogEvent[size];
+		this.mask = size - 1;
+		this.blockWhenFull = blockWhenFull;
+		this.dropped = dropped;
+
+		for (int i = 0; i < size; i++) {
+			events[i] = new LogEvent();
+		}
+
+		this.thread = new Thread(this, "log-writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Puts the event in the ring buffer, or drops it if the buffer is full. Returns <code>false</code> if the writer was
+	 * stopped, so the event should be written synchronously.
+	 */
+	boolean publish(LogLevel level, String callingClass, String msg, String key1, Object value1, String key2,
+	                Object value2, String key3, Object value3, String key4, Object value4, String key5, Object value5,
+	                String key6, Object value6, String key7, Object value7, int paramsN) {
+
+		long seq;
+
+		while (true) {
+			if (!running) {
+				return false;
+			}
+
+			seq = claimed.get();
+
+			if (seq - consumed >= events.length) {
+				if (!blockWhenFull) {
+					dropped.incrementAndGet();
+					return true;
+				}
+
+				LockSupport.parkNanos(FULL_WAIT);
+				continue;
+			}
+
+			if (claimed.compareAndSet(seq, seq + 1)) {
+				break;
+			}
+		}
+
+		LogEvent ev = events[(int) seq & mask];
+
+		ev.level = level;
+		ev.threadName = Thread.currentThread().getName();
+		ev.callingClass = callingClass;
+		ev.msg = msg;
+		ev.key1 = key1;
+		ev.value1 = value1;
+		ev.key2 = key2;
+		ev.value2 = value2;
+		ev.key3 = key3;
+		ev.value3 = value3;
+		ev.key4 = key4;
+		ev.value4 = value4;
+		ev.key5 = key5;
+		ev.value5 = value5;
+		ev.key6 = key6;
+		ev.value6 = value6;
+		ev.key7 = key7;
+		ev.value7 = value7;
+		ev.paramsN = paramsN;
+
+		// publishes the event to the writer
+		ev.sequence = seq;
+
+		if (sleeping) {
+			LockSupport.unpark(thread);
+		}
+
+		return true;
+	}
+
+	@Override
+	public void run() {
+		StringBuilder sb = new StringBuilder(16 * 1024);
+		long next = consumed;
+		long reportedDrops = dropped.get();
+
+		while (true) {
+			int count = 0;
+
+			while (count < MAX_BATCH && isPublished(next)) {
+				LogEvent ev = events[(int) next & mask];
+
+				int len = sb.length();
+
+				try {
+					ev.format(sb);
+				} catch (Throwable e) {
+					sb.setLength(len);
+					sb.append("ERROR | ").append(ev.threadName).append(" | ").append(ev.callingClass);
+					sb.append(" | Cannot render log message! | error = ").append(e);
+				}
+
+				sb.append(NEW_LINE);
+				ev.clear();
+
+				consumed = ++next;
+				count++;
+			}
+
+			long drops = dropped.get();
+			if (drops != reportedDrops) {
+				sb.append("WARN | ").append(thread.getName()).append(" | ").append(Log.class.getName());
+				sb.append(" | The log buffer was full, dropped log events | count = ").append(drops - reportedDrops);
+				sb.append(NEW_LINE);
+				reportedDrops = drops;
+			}
+
+			if (sb.length() > 0) {
+				write(sb);
+				sb.setLength(0);
+				continue;
+			}
+
+			if (!running && claimed.get() == next) {
+				break;
+			}
+
+			sleeping = true;
+
+			if (!isPublished(next)) {
+				LockSupport.parkNanos(this, running ? IDLE_WAIT : FULL_WAIT);
+			}
+
+			sleeping = false;
+		}
+	}
+
+	private boolean isPublished(long seq) {
+		return events[(int) seq & mask].sequence == seq;
+	}
+
+	private static void write(StringBuilder sb) {
+		PrintStream out = System.out;
+
+		synchronized (out) {
+			out.print(sb);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Stops the writer, after it writes the pending events.
+	 */
+	void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	int capacity() {
+		return events.length;
+	}
+
+	boolean blockWhenFull() {
+		return blockWhenFull;
+	}
+
+	private static class LogEvent {
+
+		volatile long sequence = -1;
+
+		LogLevel level;
+		String threadName;
+		String callingClass;
+		String msg;
+		String key1;
+		Object value1;
+		String key2;
+		Object value2;
+		String key3;
+		Object value3;
+		String key4;
+		Object value4;
+		String key5;
+		Object value5;
+		String key6;
+		Object value6;
+		String key7;
+		Object value7;
+		int paramsN;
+
+		void format(StringBuilder sb) {
+			sb.append(level.name());
+			sb.append(" | ");
+			sb.append(threadName);
+			sb.append(" | ");
+			sb.append(callingClass);
+			sb.append(" | ");
+
+			Log.formatLogMsg(sb, msg, key1, value1, key2, value2, key3, value3, key4, value4,
+				key5, value5, key6, value6, key7, value7, paramsN);
+		}
+
+		void clear() {
+			threadName = callingClass = msg = null;
+			key1 = key2 = key3 = key4 = key5 = key6 = key7 = null;
+			value1 = value2 = value3 = value4 = value5 = value6 = value7 = null;
+		}
+	}
+
+}
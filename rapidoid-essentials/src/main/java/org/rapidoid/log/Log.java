@@ -32,6 +32,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Nikolche Mihajlovski
@@ -51,6 +52,12 @@ public class Log extends RapidoidThing {
 
 	private static volatile boolean styled = System.console() != null;
 
+	private static volatile AsyncLogWriter asyncWriter;
+
+	private static final AtomicLong DROPPED = new AtomicLong();
+
+	private static boolean shutdownHookAdded;
+
 	private Log() {
 	}
 
@@ -87,6 +94,59 @@ public class Log extends RapidoidThing {
 		setLogLevel(LEVEL_DEBUG);
 	}
 
+	/**
+	 * Writes the log messages (when no SLF4J logger is bound) to the standard output on a background thread, so the
+	 * logging threads don't wait for the (possibly slow) standard output. When the ring buffer of the pending messages
+	 * is full, the new messages are either dropped (and counted), or the logging threads wait for free space.
+	 */
+	public static synchronized void async(int capacity, boolean blockWhenFull) {
+		AsyncLogWriter writer = asyncWriter;
+
+		if (writer != null) {
+			if (writer.capacity() >= capacity && writer.blockWhenFull() == blockWhenFull) {
+				return; // already configured
+			}
+
+			sync();
+		}
+
+		asyncWriter = new AsyncLogWriter(capacity, blockWhenFull, DROPPED);
+
+		if (!shutdownHookAdded) {
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					sync();
+				}
+			});
+
+			shutdownHookAdded = true;
+		}
+	}
+
+	/**
+	 * Writes the log messages on the logging threads, after the pending asynchronous messages are written.
+	 */
+	public static synchronized void sync() {
+		AsyncLogWriter writer = asyncWriter;
+
+		if (writer != null) {
+			asyncWriter = null;
+			writer.stop();
+		}
+	}
+
+	public static boolean isAsync() {
+		return asyncWriter != null;
+	}
+
+	/**
+	 * Returns the total number of the log messages that were dropped, because the asynchronous log buffer was full.
+	 */
+	public static long droppedEvents() {
+		return DROPPED.get();
+	}
+
 	private static String getCallingClass() {
 		StackTraceElement[] trace = Thread.currentThread().getStackTrace();
 
@@ -100,10 +160,9 @@ public class Log extends RapidoidThing {
 		return Log.class.getCanonicalName();
 	}
 
-	private static void formatLogMsg(Appendable out, String msg, String key1, Object value1, String key2,
-	                                 Object value2, String key3, Object value3, String key4, Object value4,
-	                                 String key5, Object value5, String key6, Object value6, String key7, Object value7,
-	                                 int paramsN) {
+	static void formatLogMsg(Appendable out, String msg, String key1, Object value1, String key2, Object value2,
+	                         String key3, Object value3, String key4, Object value4, String key5, Object value5,
+	                         String key6, Object value6, String key7, Object value7, int paramsN) {
 
 		try {
 			boolean bold = msg.startsWith("!");
@@ -279,6 +338,13 @@ public class Log extends RapidoidThing {
 
 		if (logger == null || logger instanceof NOPLogger) {
 			// no logger is available, so log to stdout
+			AsyncLogWriter writer = asyncWriter;
+
+			if (writer != null && writer.publish(level, getCallingClass(), msg, key1, value1, key2, value2, key3,
+				value3, key4, value4, key5, value5, key6, value6, key7, value7, paramsN)) {
+				return;
+			}
+
 			StringBuilder sb = new StringBuilder();
 
 			sb.append(level.name());
@@ -0,0 +1,139 @@
+package org.rapidoid.log;
+
+import org.junit.Test;
+import org.rapidoid.test.TestCommons;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CountDownLatch;
+
+/*
+ * #%L
+ * rapidoid-essentials
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * @author Nikolche Mihajlovski
+ * @since 5.3.0
+ */
+public class AsyncLogTest extends TestCommons {
+
+	@Test(timeout = 20000)
+	public void shouldWriteAllMessagesWhenBlocking() throws Exception {
+		Log.setLogLevel(LogLevel.INFO);
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(output, true));
+
+		try {
+			Log.async(16, true);
+			isTrue(Log.isAsync());
+
+			Thread[] threads = new Thread[4];
+
+			for (int t = 0; t < threads.length; t++) {
+				final int id = t;
+
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						for (int i = 0; i < 1000; i++) {
+							Log.info("Async", "thread", id, "n", i);
+						}
+					}
+				};
+
+				threads[t].start();
+			}
+
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+		} finally {
+			Log.sync();
+			System.setOut(stdout);
+		}
+
+		isFalse(Log.isAsync());
+
+		String[] lines = output.toString().split("\n");
+		eq(lines.length, 4000);
+
+		for (int t = 0; t < 4; t++) {
+			isTrue(output.toString().contains(" | Async | thread = " + t + " | n = 999"));
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void shouldDropMessagesWhenFull() throws Exception {
+		Log.setLogLevel(LogLevel.INFO);
+
+		final CountDownLatch writing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+		// a slow standard output, which blocks the writer
+		OutputStream slow = new OutputStream() {
+			@Override
+			public void write(int b) {
+				writing.countDown();
+
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				output.write(b);
+			}
+		};
+
+		PrintStream stdout = System.out;
+		System.setOut(new PrintStream(slow, true));
+
+		long droppedBefore = Log.droppedEvents();
+
+		try {
+			Log.async(4, false);
+
+			Log.info("Blocking the writer");
+			writing.await();
+
+			for (int i = 0; i < 100; i++) {
+				Log.info("Dropping", "n", i);
+			}
+
+		} finally {
+			release.countDown();
+			Log.sync();
+			System.setOut(stdout);
+		}
+
+		// the writer was blocked, so only 4 messages could wait in the buffer
+		eq(Log.droppedEvents() - droppedBefore, 96);
+
+		String out = output.toString();
+		isTrue(out.contains("Dropping | n = 3"));
+		isFalse(out.contains("Dropping | n = 4"));
+		isTrue(out.contains("dropped log events | count = 96"));
+	}
+
+}
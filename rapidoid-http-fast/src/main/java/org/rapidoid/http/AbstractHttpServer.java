@@ -26,6 +26,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.Buf;
 import org.rapidoid.bytes.BytesUtil;
 import org.rapidoid.commons.Dates;
+import org.rapidoid.config.Conf;
 import org.rapidoid.data.BufRange;
 import org.rapidoid.data.JSON;
 import org.rapidoid.http.impl.HttpIO;
@@ -34,6 +35,7 @@ import org.rapidoid.net.Protocol;
 import org.rapidoid.net.Server;
 import org.rapidoid.net.TCP;
 import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.AcceptBalancers;
 import org.rapidoid.net.impl.RapidoidHelper;
 import org.rapidoid.util.Msc;
 
@@ -218,6 +220,8 @@ public abstract class AbstractHttpServer extends RapidoidThing implements Protoc
 			.address(address)
 			.port(port)
 			.syncBufs(syncBufs)
+			.reusePort(Conf.HTTP.entry("reusePort").or(false))
+			.acceptBalancer(AcceptBalancers.create(Conf.HTTP.entry("acceptBalancer").str().getOrNull()))
 			.build()
 			.start();
 	}
@@ -5,6 +5,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.Buf;
 import org.rapidoid.bytes.BytesUtil;
 import org.rapidoid.collection.Coll;
+import org.rapidoid.config.Conf;
 import org.rapidoid.config.Config;
 import org.rapidoid.config.ConfigImpl;
 import org.rapidoid.data.BufRange;
@@ -19,13 +20,18 @@ import org.rapidoid.io.Upload;
 import org.rapidoid.log.Log;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.abstracts.IRequest;
 import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.pool.Pool;
+import org.rapidoid.pool.Pools;
+import org.rapidoid.pool.ThreadConfinedPool;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /*
  * #%L
@@ -55,6 +61,12 @@ public class FastHttp extends AbstractHttpProcessor {
 
 	private static final String INTERNAL_SERVER_ERROR = "Internal Server Error!";
 
+	private static final int REQUEST_POOL_LOW_WATERMARK = 100;
+
+	private static final int REQUEST_POOL_HIGH_WATERMARK = 1000;
+
+	private final boolean pooledRequests = Conf.HTTP.entry("pooledRequests").or(false);
+
 	private final HttpRoutesImpl[] routeGroups;
 
 	private final Map<String, Object> attributes = Coll.synchronizedMap();
@@ -124,12 +136,36 @@ public class FastHttp extends AbstractHttpProcessor {
 		HttpHandler handler = match != null ? match.getHandler() : null;
 		boolean noReq = (handler != null && !handler.needsParams());
 
+		HttpResponseCache cache = !noReq && isKeepAlive ? responseCache(matchingRoute, matchingRoutes) : null;
+		String cacheKey = null;
+
+		if (cache != null) {
+			cacheKey = cache.key(buf, data);
+
+			if (cacheKey != null) {
+				byte[] cached = cache.get(cacheKey);
+
+				if (cached != null) {
+					HttpResponseCache.write(channel, cached);
+					return;
+				}
+
+			} else {
+				cache = null; // e.g. an authenticated request
+			}
+		}
+
 		ReqImpl req = null;
 
 		if (!noReq) {
 			req = createReq(channel, isGet, isKeepAlive, data, buf, matchingRoutes, matchingRoute, match, handler);
 		}
 
+		if (cache != null && !cache.load(cacheKey, req)) {
+			// the same response is already being computed, and this request will receive it, too
+			return;
+		}
+
 		try {
 			if (handler != null) {
 				status = handleIfFound(channel, isKeepAlive, handler, req);
@@ -164,15 +200,26 @@ public class FastHttp extends AbstractHttpProcessor {
 		KeyValueRanges cookiesKV = helper.cookies.reset();
 
 		HTTP_PARSER.parseParams(buf, paramsKV, helper.query);
-		Map<String, String> params = U.cast(paramsKV.toMap(buf, true, true, false));
+		HTTP_PARSER.parseHeadersIntoKV(buf, helper.headers, headersKV, cookiesKV, helper);
+
+		// the request head is copied once, and the params, headers and cookies are decoded from it on demand
+		int headStart = helper.verb.start;
+		byte[] head = requestHead(buf, helper);
+
+		LazyKeyValues params = LazyKeyValues.from(paramsKV, head, headStart, true, false);
+		LazyKeyValues headers = LazyKeyValues.from(headersKV, head, headStart, false, true);
+		LazyKeyValues cookies = LazyKeyValues.from(cookiesKV, head, headStart, false, false);
+
+		Map<String, String> pathParams = Collections.EMPTY_MAP;
 
 		if (match != null && match.getParams() != null) {
-			params.putAll(match.getParams());
-		}
+			pathParams = match.getParams();
 
-		HTTP_PARSER.parseHeadersIntoKV(buf, helper.headers, headersKV, cookiesKV, helper);
-		Map<String, String> headers = U.cast(headersKV.toMap(buf, false, false, true));
-		Map<String, String> cookies = U.cast(cookiesKV.toMap(buf, false, false, false));
+			// the buffer will be reused, so the path params are decoded (on demand) from the copy of the head
+			if (pathParams instanceof PathParams) {
+				((PathParams) pathParams).moveTo(head, headStart);
+			}
+		}
 
 		byte[] body;
 		Map<String, Object> posted;
@@ -214,12 +261,20 @@ public class FastHttp extends AbstractHttpProcessor {
 
 		zone = U.or(zone, "main");
 
-		params = Collections.synchronizedMap(params);
-		headers = Collections.synchronizedMap(headers);
-		cookies = Collections.synchronizedMap(cookies);
+		if (pooledRequests) {
+			recyclePreviousReq(channel);
+
+			Pool<ReqImpl> pool = requestPool(helper);
+			req = pool.get();
+			req.pooled(pool);
+
+			req.init(channel, isKeepAlive, verb, uri, path, query, body, pathParams, params, headers, cookies,
+				posted, files, pendingBodyParsing, contentType, zone, matchingRoutes, matchingRoute);
 
-		req = new ReqImpl(this, channel, isKeepAlive, verb, uri, path, query, body, params, headers, cookies,
-			posted, files, pendingBodyParsing, contentType, zone, matchingRoutes, matchingRoute);
+		} else {
+			req = new ReqImpl(this, channel, isKeepAlive, verb, uri, path, query, body, pathParams, params, headers,
+				cookies, posted, files, pendingBodyParsing, contentType, zone, matchingRoutes, matchingRoute);
+		}
 
 		if (!attributes.isEmpty()) {
 			req.attrs().putAll(attributes);
@@ -229,6 +284,60 @@ public class FastHttp extends AbstractHttpProcessor {
 		return req;
 	}
 
+	private static void recyclePreviousReq(Channel channel) {
+		IRequest previous = channel.request();
+
+		if (previous instanceof ReqImpl) {
+			((ReqImpl) previous).recycle();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Pool<ReqImpl> requestPool(RapidoidHelper helper) {
+		ThreadConfinedPool<ReqImpl> pool = (ThreadConfinedPool<ReqImpl>) helper.requestPool;
+
+		if (pool == null) {
+			pool = Pools.confined("requests", new Callable<ReqImpl>() {
+				@Override
+				public ReqImpl call() throws Exception {
+					return new ReqImpl(FastHttp.this);
+				}
+			}, REQUEST_POOL_LOW_WATERMARK, REQUEST_POOL_HIGH_WATERMARK);
+
+			// the requests are taken from the pool by the worker thread
+			pool.ownedBy(Thread.currentThread());
+			helper.requestPool = pool;
+		}
+
+		return pool;
+	}
+
+	private static HttpResponseCache responseCache(Route route, HttpRoutesImpl routes) {
+		HttpResponseCache cache = route instanceof RouteImpl ? ((RouteImpl) route).cache() : null;
+
+		// the global wrappers must be executed for each request, so the cached responses can't be used
+		if (cache != null && routes != null && U.notEmpty(routes.custom().wrappers())) {
+			return null;
+		}
+
+		return cache;
+	}
+
+	private static byte[] requestHead(Buf buf, RapidoidHelper helper) {
+		BufRanges headerLines = helper.headers;
+
+		int limit = headerLines.count > 0 ? headerLines.ranges[headerLines.count - 1].limit() : helper.protocol.limit();
+		limit = Math.max(limit, helper.protocol.limit());
+
+		BufRange head = helper.ranges3.ranges[0];
+		head.setInterval(helper.verb.start, limit);
+
+		byte[] bytes = new byte[head.length];
+		buf.get(head, bytes, 0);
+
+		return bytes;
+	}
+
 	private HttpStatus handleIfFound(Channel channel, boolean isKeepAlive, HttpHandler handler, ReqImpl req) {
 		try {
 			return handler.handle(channel, isKeepAlive, req, null);
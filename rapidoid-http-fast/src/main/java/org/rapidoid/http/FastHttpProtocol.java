@@ -52,7 +52,7 @@ public class FastHttpProtocol extends RapidoidThing implements Protocol {
 		Buf buf = channel.input();
 		RapidoidHelper helper = channel.helper();
 
-		HTTP_PARSER.parse(buf, helper);
+		HTTP_PARSER.parse(buf, helper, channel);
 
 		processor.onRequest(channel, helper);
 	}
@@ -42,6 +42,30 @@ public class HttpHeaders extends RapidoidThing {
 
 	public static final HttpHeaders X_FORWARDED_FOR = new HttpHeaders("X-Forwarded-For");
 
+	public static final HttpHeaders VARY = new HttpHeaders("Vary");
+
+	public static final HttpHeaders ETAG = new HttpHeaders("ETag");
+
+	public static final HttpHeaders LAST_MODIFIED = new HttpHeaders("Last-Modified");
+
+	public static final HttpHeaders ACCEPT_RANGES = new HttpHeaders("Accept-Ranges");
+
+	public static final HttpHeaders CONTENT_RANGE = new HttpHeaders("Content-Range");
+
+	public static final HttpHeaders IF_NONE_MATCH = new HttpHeaders("If-None-Match");
+
+	public static final HttpHeaders IF_MODIFIED_SINCE = new HttpHeaders("If-Modified-Since");
+
+	public static final HttpHeaders IF_RANGE = new HttpHeaders("If-Range");
+
+	public static final HttpHeaders RANGE = new HttpHeaders("Range");
+
+	public static final HttpHeaders ACCEPT_ENCODING = new HttpHeaders("Accept-Encoding");
+
+	public static final HttpHeaders CONTENT_ENCODING = new HttpHeaders("Content-Encoding");
+
+	public static final HttpHeaders RETRY_AFTER = new HttpHeaders("Retry-After");
+
 	private final byte[] bytes;
 
 	private final String name;
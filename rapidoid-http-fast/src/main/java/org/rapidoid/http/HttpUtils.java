@@ -138,7 +138,7 @@ public class HttpUtils extends RapidoidThing implements HttpMetadata {
 		} else {
 			Res res = Res.from(resName, possibleLocations);
 
-			if (!res.exists()) {
+			if (res.findFile() == null && !res.exists()) {
 				res = Res.from(resName + ".html", possibleLocations);
 			}
 
@@ -225,8 +225,6 @@ public class HttpUtils extends RapidoidThing implements HttpMetadata {
 			}
 
 			setContentTypeForFile(resp, file);
-
-			resp.result(Res.from(file).getBytes());
 		}
 	}
 
@@ -240,6 +240,19 @@ public interface Resp {
 	 */
 	Resp mvc(boolean mvc);
 
+	/**
+	 * Checks whether the response body written through <code>Resp#out()</code> will be streamed to the client as it is
+	 * being produced (with <code>Transfer-Encoding: chunked</code>).
+	 */
+	boolean chunked();
+
+	/**
+	 * Sets whether the response body written through <code>Resp#out()</code> will be streamed to the client as it is
+	 * being produced (with <code>Transfer-Encoding: chunked</code>), instead of being buffered to calculate the
+	 * <code>Content-Length</code>. Writing to the stream waits while the client is too slow to receive it.
+	 */
+	Resp chunked(boolean chunked);
+
 	/**
 	 * First renders the response headers, then returns an <i>OutputStream</i> representing
 	 * the <b>response body</b>. The response body will be constructed by writing to the <i>OutputStream</i>.
@@ -63,4 +63,24 @@ public interface RouteConfig {
 
 	RouteOptions managed(boolean managed);
 
+	long cacheTTL();
+
+	RouteOptions cacheTTL(long cacheTTL);
+
+	int cacheCapacity();
+
+	RouteOptions cacheCapacity(int cacheCapacity);
+
+	String[] cacheVary();
+
+	RouteOptions cacheVary(String... cacheVary);
+
+	boolean inline();
+
+	RouteOptions inline(boolean inline);
+
+	String bulkhead();
+
+	RouteOptions bulkhead(String bulkhead);
+
 }
@@ -28,38 +28,64 @@ import org.rapidoid.event.Events;
 import org.rapidoid.event.Fire;
 import org.rapidoid.http.Req;
 import org.rapidoid.http.customize.SessionManager;
+import org.rapidoid.http.impl.SessionStore;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.u.U;
-import org.rapidoid.util.Msc;
 
 import java.io.Serializable;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Keeps the sessions in a {@link SessionStore} (configured in the <code>http.sessions</code> section). The concurrent
+ * requests of the same session share the same (deserialized) session data, which is stored on every save.
+ */
 @Authors("Nikolche Mihajlovski")
 @Since("5.2.0")
 public class DefaultSessionManager extends RapidoidThing implements SessionManager {
 
 	public static class SessionHolder {
-		volatile byte[] serialized;
 		volatile Map<String, Serializable> session;
-		final AtomicLong refCounter = new AtomicLong();
+		long refCounter;
+		long lastUsed;
 	}
 
-	private final Map<String, SessionHolder> sessions = Coll.autoExpandingMap(SessionHolder.class);
+	// the requests that don't change the session don't save it, so they never release it
+	private static final long ABANDONED_AFTER = 60000;
+
+	// the sessions that are being used by the current requests
+	private final Map<String, SessionHolder> active = U.map();
+
+	private volatile SessionStore store;
 
 	@Override
 	public Map<String, Serializable> loadSession(Req req, String sessionId) throws Exception {
 		Fire.event(Events.SESSION_LOAD, "id", sessionId);
 
-		SessionHolder holder = sessions.get(sessionId);
+		SessionHolder holder;
+
+		synchronized (active) {
+			holder = active.get(sessionId);
+
+			if (holder == null) {
+				holder = new SessionHolder();
+				active.put(sessionId, holder);
+			}
+
+			holder.refCounter++;
+			holder.lastUsed = U.time();
+		}
 
 		if (holder.session == null) {
 			synchronized (holder) {
 				if (holder.session == null) {
 
-					if (holder.serialized != null) {
+					Map<String, Serializable> stored = store().load(sessionId);
+
+					if (stored != null) {
 						Fire.event(Events.SESSION_DESERIALIZE, "id", sessionId);
-						holder.session = U.cast(Msc.deserialize(holder.serialized));
+						holder.session = stored;
 					} else {
 						holder.session = Coll.concurrentMap();
 						Fire.event(Events.SESSION_CONCURRENT_ACCESS, "id", sessionId);
@@ -68,8 +94,6 @@ public class DefaultSessionManager extends RapidoidThing implements SessionManag
 			}
 		}
 
-		holder.refCounter.incrementAndGet();
-
 		return holder.session;
 	}
 
@@ -77,20 +101,68 @@ public class DefaultSessionManager extends RapidoidThing implements SessionManag
 	public void saveSession(Req req, String sessionId, Map<String, Serializable> session) throws Exception {
 		Fire.event(Events.SESSION_SAVE, "id", sessionId);
 
-		SessionHolder holder = sessions.get(sessionId);
-		long refN = holder.refCounter.decrementAndGet();
+		SessionHolder holder;
 
-		U.must(refN >= 0, "The session has negative reference counter!");
+		synchronized (active) {
+			holder = active.get(sessionId);
+		}
 
-		if (refN == 0) {
-			synchronized (holder) {
-				if (holder.refCounter.get() == 0) {
-					Fire.event(Events.SESSION_SERIALIZE, "id", sessionId);
-					holder.serialized = Msc.serialize(session);
-					holder.session = null;
+		if (holder == null) {
+			// the session was loaded long ago, and released as abandoned
+			Fire.event(Events.SESSION_SERIALIZE, "id", sessionId);
+			store().save(sessionId, session);
+			return;
+		}
+
+		synchronized (holder) {
+			Fire.event(Events.SESSION_SERIALIZE, "id", sessionId);
+			store().save(sessionId, session);
+		}
+
+		synchronized (active) {
+			long refN = --holder.refCounter;
+
+			U.must(refN >= 0, "The session has negative reference counter!");
+
+			// the next requests of the session will load it from the store
+			if (refN == 0) {
+				active.remove(sessionId);
+			}
+		}
+	}
+
+	private void releaseAbandoned() {
+		long now = U.time();
+
+		synchronized (active) {
+			Iterator<SessionHolder> it = active.values().iterator();
+
+			while (it.hasNext()) {
+				if (now - it.next().lastUsed > ABANDONED_AFTER) {
+					it.remove();
 				}
 			}
 		}
 	}
 
+	private SessionStore store() {
+		// lazily initialized, after the configuration was loaded
+		if (store == null) {
+			synchronized (this) {
+				if (store == null) {
+					store = SessionStore.fromConfig();
+
+					Jobs.scheduleAtFixedRate(new Runnable() {
+						@Override
+						public void run() {
+							releaseAbandoned();
+						}
+					}, ABANDONED_AFTER, ABANDONED_AFTER, TimeUnit.MILLISECONDS);
+				}
+			}
+		}
+
+		return store;
+	}
+
 }
@@ -3,13 +3,18 @@ package org.rapidoid.http.handler;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.annotation.TransactionMode;
+import org.rapidoid.config.Conf;
 import org.rapidoid.ctx.With;
+import org.rapidoid.ctx.WithContext;
 import org.rapidoid.http.*;
 import org.rapidoid.http.customize.Customization;
 import org.rapidoid.http.impl.HttpIO;
+import org.rapidoid.http.impl.ReqImpl;
 import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.job.Jobs;
 import org.rapidoid.jpa.JPA;
 import org.rapidoid.lambda.Mapper;
+import org.rapidoid.log.Log;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.security.Secure;
@@ -19,6 +24,8 @@ import org.rapidoid.util.TokenAuthData;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /*
  * #%L
@@ -47,9 +54,14 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 	private static final String CTX_TAG_INIT = "init";
 	private static final String CTX_TAG_HANDLER = "handler";
 	private static final String CTX_TAG_ERROR = "error";
+	private static final String CTX_TAG_REJECTED = "rejected";
 
 	private static final HttpWrapper[] NO_WRAPPERS = {};
 
+	private static final String RETRY_AFTER = String.valueOf(Conf.HTTP.entry("retryAfter").or(1));
+
+	private static final byte[] SERVICE_UNAVAILABLE = "Service unavailable, please try again later!".getBytes();
+
 	private final FastHttp http;
 
 	@SuppressWarnings("UnusedParameters")
@@ -90,14 +102,88 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 		return HttpStatus.DONE;
 	}
 
-	private HttpStatus handleDecorating(Channel ctx, boolean isKeepAlive, Req req, Object extra) {
+	private HttpStatus handleDecorating(Channel ctx, boolean isKeepAlive, final Req req, Object extra) {
 		ctx.async();
 
-		execHandlerJob(ctx, isKeepAlive, options.contentType(), req, extra);
+		// a pooled request mustn't be recycled until the handler job is finished
+		if (req instanceof ReqImpl) {
+			((ReqImpl) req).hold();
+		}
+
+		try {
+			execHandlerJob(ctx, isKeepAlive, options.contentType(), req, extra, isInline());
+
+		} catch (RejectedExecutionException e) {
+			// the response is rendered in the context of the request
+			inContextOf(CTX_TAG_REJECTED, req).runInline(new Runnable() {
+				@Override
+				public void run() {
+					reject(req);
+				}
+			});
+		}
 
 		return HttpStatus.ASYNC;
 	}
 
+	/**
+	 * The inline handlers are executed on the I/O thread which received the request, instead of the executor. The
+	 * transactional handlers are always executed by the executor, as they might block.
+	 */
+	private boolean isInline() {
+		return options.inline() && U.or(options.transactionMode(), TransactionMode.NONE) == TransactionMode.NONE;
+	}
+
+	/**
+	 * The offloaded handlers are executed by the bulkhead of the route (or zone), if configured, so a slow handler
+	 * can't starve the others.
+	 */
+	private Executor executor() {
+		String bulkhead = options.bulkhead();
+		return bulkhead != null ? Jobs.bulkhead(bulkhead) : Jobs.handlerExecutor();
+	}
+
+	/**
+	 * The context of the request captures the generation of the (pooled) request, to detect the stale references.
+	 */
+	private static WithContext inContextOf(String tag, Req req) {
+		return With.tag(tag).exchange(req).extras(ReqImpl.contextExtras(req));
+	}
+
+	private void runInContext(WithContext context, Runnable action, boolean inline) {
+		if (inline) {
+			context.runInline(action);
+		} else {
+			Jobs.executeInContext(context, action, executor());
+		}
+	}
+
+	/**
+	 * Responds with 503 (Service Unavailable) when the executor of the handler is overloaded, instead of queueing the
+	 * request without bound.
+	 */
+	private void reject(Req req) {
+		Log.debug("The request was rejected, the executor is overloaded", "uri", req.uri(), "bulkhead", options.bulkhead());
+
+		try {
+			// the channel is already async, and the request must remain recyclable
+			req.revert();
+
+			req.response()
+				.code(503)
+				.contentType(MediaType.PLAIN_TEXT_UTF_8)
+				.header(HttpHeaders.RETRY_AFTER.name(), RETRY_AFTER)
+				.body(SERVICE_UNAVAILABLE);
+
+			req.done();
+
+		} finally {
+			if (req instanceof ReqImpl) {
+				((ReqImpl) req).unhold();
+			}
+		}
+	}
+
 	private Set<String> userRoles(Req req, String username) {
 		if (username != null) {
 			try {
@@ -128,14 +214,17 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 	}
 
 	private void execHandlerJob(final Channel channel, final boolean isKeepAlive, final MediaType contentType,
-	                            final Req req, final Object extra) {
+	                            final Req req, final Object extra, final boolean inline) {
 
-		With.tag(CTX_TAG_INIT).exchange(req).run(new Runnable() {
+		runInContext(inContextOf(CTX_TAG_INIT, req), new Runnable() {
 
 			volatile String username = null;
 			volatile Set<String> roles = null;
 			volatile Set<String> scope = null;
 
+			// the inline handler releases the request by itself, even if it fails
+			volatile boolean released = false;
+
 			@Override
 			public void run() {
 				try {
@@ -157,25 +246,42 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 					HttpWrapper[] wrappers = httpWrappers != null ? httpWrappers : U.or(Customization.of(req).wrappers(), NO_WRAPPERS);
 
 					Runnable handleRequest = handlerWithWrappers(channel, isKeepAlive, contentType, req, extra, wrappers);
-					Runnable handleRequestMaybeInTx = txWrap(req, txMode, handleRequest);
+					Runnable handleRequestMaybeInTx = unholdAfter(req, txWrap(req, txMode, handleRequest));
+
+					WithContext handlerCtx = inContextOf(CTX_TAG_HANDLER, req).username(username).roles(roles).scope(scope);
+
+					released = inline;
+					runInContext(handlerCtx, handleRequestMaybeInTx, inline);
 
-					With.tag(CTX_TAG_HANDLER).exchange(req).username(username).roles(roles).scope(scope).run(handleRequestMaybeInTx);
+				} catch (RejectedExecutionException e) {
+					reject(req);
 
 				} catch (Throwable e) {
-					// if there was an error in the job scheduling:
-					execErrorHandler(req, username, roles, scope, e);
+					// if there was an error in the job scheduling (e.g. the user doesn't have the required roles):
+					execErrorHandler(req, username, roles, scope, e, inline, !released);
 				}
 			}
-		});
+		}, inline);
 	}
 
-	private HttpStatus execErrorHandler(final Req req, String username, Set<String> roles, Set<String> scope, final Throwable error) {
-		With.tag(CTX_TAG_ERROR).exchange(req).username(username).roles(roles).scope(scope).run(new Runnable() {
+	private HttpStatus execErrorHandler(final Req req, String username, Set<String> roles, Set<String> scope,
+	                                    final Throwable error, boolean inline, boolean release) {
+
+		WithContext errorCtx = inContextOf(CTX_TAG_ERROR, req).username(username).roles(roles).scope(scope);
+
+		Runnable handleError = new Runnable() {
 			@Override
 			public void run() {
 				handleError(req, error);
 			}
-		});
+		};
+
+		try {
+			runInContext(errorCtx, release ? unholdAfter(req, handleError) : handleError, inline);
+
+		} catch (RejectedExecutionException e) {
+			reject(req);
+		}
 
 		return HttpStatus.ASYNC;
 	}
@@ -206,6 +312,23 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 		};
 	}
 
+	private Runnable unholdAfter(final Req req, final Runnable action) {
+		if (!(req instanceof ReqImpl)) {
+			return action;
+		}
+
+		return new Runnable() {
+			@Override
+			public void run() {
+				try {
+					action.run();
+				} finally {
+					((ReqImpl) req).unhold();
+				}
+			}
+		};
+	}
+
 	private Runnable txWrap(final Req req, final TransactionMode txMode, final Runnable handleRequest) {
 		if (txMode != null && txMode != TransactionMode.NONE) {
 
@@ -257,8 +380,8 @@ public abstract class AbstractDecoratingHttpHandler extends AbstractHttpHandler
 	}
 
 	private Object handleError(Req req, Throwable e) {
+		// the channel is already async, and the request must remain recyclable
 		req.revert();
-		req.async();
 
 		HttpIO.error(req, e, LogLevel.ERROR);
 		// the Req object will do the rendering
@@ -30,11 +30,14 @@ import org.rapidoid.http.customize.Customization;
 import org.rapidoid.http.customize.StaticFilesSecurity;
 import org.rapidoid.http.impl.HttpIO;
 import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.http.impl.StaticAssets;
 import org.rapidoid.io.Res;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.u.U;
 
+import java.io.File;
+
 @Authors("Nikolche Mihajlovski")
 @Since("5.0.0")
 public class StaticResourcesHandler extends AbstractHttpHandler {
@@ -61,10 +64,19 @@ public class StaticResourcesHandler extends AbstractHttpHandler {
 					StaticFilesSecurity staticFilesSecurity = customization.staticFilesSecurity();
 
 					if (staticFilesSecurity.canServe(req, res)) {
+						MediaType contentType = U.or(MediaType.getByFileName(res.getName()), MediaType.BINARY);
+						File file = res.findFile();
+
+						// the hidden files (if allowed by a custom security) are served as before, without caching
+						if (file != null && !file.isHidden()) {
+							StaticAssets.serve(ctx, isKeepAlive, req, file, res.getName(), contentType);
+							return HttpStatus.DONE;
+						}
+
+						// the resources from the classpath (e.g. compressed in a JAR) and the hidden files
 						byte[] bytes = res.getBytesOrNull();
 
 						if (bytes != null) {
-							MediaType contentType = U.or(MediaType.getByFileName(res.getName()), MediaType.BINARY);
 							HttpIO.write200(ctx, isKeepAlive, contentType, bytes);
 							return HttpStatus.DONE;
 						}
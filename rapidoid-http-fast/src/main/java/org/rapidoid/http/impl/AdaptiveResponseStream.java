@@ -0,0 +1,108 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.http.Resp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Writes the response body of unknown size. While the body is smaller than <code>http.streamBufferSize</code>, it is
+ * kept in memory and sent as a normal response (with <code>Content-Length</code>), so an error can still replace it.
+ * A bigger body is streamed to the client through a {@link ChunkedResponseStream}, as it is being produced.
+ * <p>
+ * The stream must be closed when the body is complete, or aborted if the body can't be completed (e.g. after an
+ * error).
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AdaptiveResponseStream extends OutputStream {
+
+	private static final int MAX_BUFFERED = Conf.HTTP.entry("streamBufferSize").or(8192);
+
+	private final Resp resp;
+
+	private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+	private OutputStream out;
+
+	public AdaptiveResponseStream(Resp resp) {
+		this.resp = resp;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] bytes, int off, int len) throws IOException {
+		if (out == null && buffer.size() + len > MAX_BUFFERED) {
+			out = resp.chunked(true).out();
+
+			buffer.writeTo(out);
+			buffer = null;
+		}
+
+		if (out != null) {
+			out.write(bytes, off, len);
+		} else {
+			buffer.write(bytes, off, len);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		// the buffered body is sent as a whole, when the stream is closed
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			out.close();
+
+		} else if (buffer != null) {
+			resp.body(buffer.toByteArray());
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Discards the incomplete body. If a part of the body was already streamed to the client, the connection is
+	 * closed instead of completing the response, so the client can tell that the response is incomplete.
+	 */
+	public void abort() {
+		buffer = null;
+
+		if (out != null) {
+			((ReqImpl) resp.request()).abort();
+		}
+	}
+
+}
@@ -0,0 +1,237 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.util.Constants;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Streams the response body to the client as it is being produced. The data is written to the connection as a chunk
+ * (<code>Transfer-Encoding: chunked</code>) whenever the local buffer fills up or the stream is flushed. If the
+ * connection isn't kept alive, the body isn't chunked, and it ends with the closing of the connection.
+ * <p>
+ * When the client can't keep up and more than <code>http.maxPendingOutput</code> bytes are waiting to be sent, the
+ * producer waits for the connection to drain, so the output doesn't grow without bound.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ChunkedResponseStream extends OutputStream implements Constants {
+
+	private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes();
+
+	private static final int BUFFER_SIZE = Conf.HTTP.entry("streamBufferSize").or(8192);
+
+	private static final int MAX_PENDING_OUTPUT = Conf.HTTP.entry("maxPendingOutput").or(1024 * 1024);
+
+	private final ReqImpl req;
+
+	private final Channel channel;
+
+	private final boolean chunked;
+
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+
+	private int count;
+
+	private boolean finished;
+
+	// released by the I/O worker when the pending output drains
+	private final Semaphore writable = new Semaphore(0);
+
+	private final Runnable onWritable = new Runnable() {
+		@Override
+		public void run() {
+			writable.release();
+		}
+	};
+
+	ChunkedResponseStream(ReqImpl req, Channel channel, boolean chunked) {
+		this.req = req;
+		this.channel = channel;
+		this.chunked = chunked;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		boolean sent = false;
+
+		synchronized (this) {
+			ensureOpen();
+
+			if (count == buffer.length) {
+				sent = send();
+			}
+
+			buffer[count++] = (byte) b;
+		}
+
+		if (sent) {
+			awaitWritable();
+		}
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) throws IOException {
+		boolean sent = false;
+
+		synchronized (this) {
+			ensureOpen();
+
+			if (length >= buffer.length) {
+				// a big piece of data is written as a separate chunk, without copying it into the buffer
+				writeBuffer();
+				writeChunk(bytes, offset, length);
+				sent = send();
+
+			} else {
+				if (length > buffer.length - count) {
+					sent = send();
+				}
+
+				System.arraycopy(bytes, offset, buffer, count, length);
+				count += length;
+			}
+		}
+
+		if (sent) {
+			awaitWritable();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		boolean sent;
+
+		synchronized (this) {
+			ensureOpen();
+			sent = send();
+		}
+
+		if (sent) {
+			awaitWritable();
+		}
+	}
+
+	/**
+	 * Only flushes the stream, the response is completed when the request is done.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!isFinished()) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the rest of the body and the last chunk, completing the response.
+	 */
+	synchronized void finish() {
+		if (!finished) {
+			finished = true;
+
+			if (!req.isStopped()) {
+				writeBuffer();
+
+				if (chunked) {
+					channel.write(LAST_CHUNK);
+				}
+			}
+		}
+	}
+
+	synchronized boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Writes the buffered data and asks the I/O worker to send the output.
+	 *
+	 * @return <code>true</code> if the caller should wait for the output to drain
+	 */
+	private boolean send() {
+		writeBuffer();
+		channel.send();
+
+		// the I/O worker can't wait for itself to send the output, so it just keeps it buffered
+		return !channel.onSameThread();
+	}
+
+	private void writeBuffer() {
+		if (count > 0) {
+			writeChunk(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	private void writeChunk(byte[] bytes, int offset, int length) {
+		if (chunked) {
+			channel.write(Integer.toHexString(length));
+			channel.write(CR_LF);
+			channel.write(bytes, offset, length);
+			channel.write(CR_LF);
+
+		} else {
+			channel.write(bytes, offset, length);
+		}
+	}
+
+	private void awaitWritable() throws IOException {
+		writable.drainPermits();
+		channel.onWritable(MAX_PENDING_OUTPUT, onWritable);
+
+		try {
+			// the connection might be closed (and reused) meanwhile, so it is checked regularly
+			while (!writable.tryAcquire(1, TimeUnit.SECONDS)) {
+				ensureConnected();
+			}
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the client to receive the response!");
+		}
+
+		ensureConnected();
+	}
+
+	private void ensureOpen() throws IOException {
+		if (finished) {
+			throw new IOException("The response was already completed!");
+		}
+
+		ensureConnected();
+	}
+
+	private void ensureConnected() throws IOException {
+		if (req.isStopped() || req.isAborted()) {
+			throw new IOException("The connection was closed!");
+		}
+	}
+
+}
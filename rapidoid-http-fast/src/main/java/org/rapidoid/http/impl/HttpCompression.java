@@ -0,0 +1,300 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.http.MediaType;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Negotiates and applies the compression (<code>gzip</code> or <code>deflate</code>) of the responses. Only the
+ * responses of the configured media types (<code>http.compression.types</code>) that are at least
+ * <code>http.compression.minSize</code> bytes long are compressed.
+ * <p>
+ * The {@link Deflater}s are reset and returned to a bounded pool (<code>http.compression.poolSize</code>) after each
+ * response, so the native zlib state isn't allocated (and finalized) for each response. The deflaters that don't fit
+ * in the pool are ended right away.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpCompression extends RapidoidThing {
+
+	public static final String GZIP = "gzip";
+
+	public static final String DEFLATE = "deflate";
+
+	private static final boolean ENABLED;
+
+	private static final int MIN_SIZE;
+
+	private static final int LEVEL;
+
+	private static final String[] TYPES;
+
+	private static final int POOL_SIZE;
+
+	private static final int MAX_KEPT_BUFFER = 64 * 1024;
+
+	private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+	private static final Map<MediaType, Boolean> COMPRESSIBLE = new ConcurrentHashMap<MediaType, Boolean>();
+
+	static {
+		Config cfg = Conf.HTTP.sub("compression");
+
+		ENABLED = cfg.entry("enabled").or(true);
+		MIN_SIZE = cfg.entry("minSize").or(1024);
+		LEVEL = cfg.entry("level").or(6);
+		POOL_SIZE = cfg.entry("poolSize").or(32);
+
+		String types = cfg.entry("types").or("text/*, application/json, application/javascript, application/xml");
+		TYPES = types.split("\\s*,\\s*");
+	}
+
+	// the idle raw deflate (for gzip) and zlib (for deflate) compressors
+	private static final BlockingQueue<Compressor> RAW_POOL = new ArrayBlockingQueue<Compressor>(POOL_SIZE);
+
+	private static final BlockingQueue<Compressor> ZLIB_POOL = new ArrayBlockingQueue<Compressor>(POOL_SIZE);
+
+	private static class Compressor {
+
+		final Deflater deflater;
+
+		byte[] buf = new byte[8192];
+
+		Compressor(boolean raw) {
+			this.deflater = new Deflater(LEVEL, raw);
+		}
+	}
+
+	public static boolean isEnabled() {
+		return ENABLED;
+	}
+
+	/**
+	 * Checks whether a response of the specified type and size should be compressed (if the client accepts it).
+	 */
+	public static boolean isCompressible(MediaType contentType, int size) {
+		return ENABLED && size >= MIN_SIZE && contentType != null && isCompressible(contentType);
+	}
+
+	private static boolean isCompressible(MediaType contentType) {
+		Boolean compressible = COMPRESSIBLE.get(contentType);
+
+		if (compressible == null) {
+			compressible = matchesType(new String(contentType.getBytes()));
+			COMPRESSIBLE.put(contentType, compressible);
+		}
+
+		return compressible;
+	}
+
+	private static boolean matchesType(String contentType) {
+		int sep = contentType.indexOf(';');
+		String type = (sep >= 0 ? contentType.substring(0, sep) : contentType).trim().toLowerCase();
+
+		for (String allowed : TYPES) {
+			if (allowed.endsWith("/*") ? type.startsWith(allowed.substring(0, allowed.length() - 1)) : type.equals(allowed)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Chooses the encoding of the response from the <code>Accept-Encoding</code> header of the request, preferring
+	 * gzip. The wildcard <code>*</code> only applies to the codings that aren't listed explicitly, so e.g.
+	 * <code>gzip;q=0, *</code> still rejects gzip.
+	 *
+	 * @return <code>gzip</code>, <code>deflate</code> or <code>null</code> if the response shouldn't be compressed
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return null;
+		}
+
+		Boolean gzip = null, deflate = null, any = null;
+
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase();
+			boolean accepted = !isRejected(parts);
+
+			if (name.equals(GZIP) || name.equals("x-gzip")) {
+				gzip = accept(gzip, accepted);
+			} else if (name.equals(DEFLATE)) {
+				deflate = accept(deflate, accepted);
+			} else if (name.equals("*")) {
+				any = accept(any, accepted);
+			}
+		}
+
+		boolean anyAccepted = Boolean.TRUE.equals(any);
+
+		if (gzip != null ? gzip : anyAccepted) {
+			return GZIP;
+		}
+
+		if (deflate != null ? deflate : anyAccepted) {
+			return DEFLATE;
+		}
+
+		return null;
+	}
+
+	/**
+	 * An explicit rejection (<code>q=0</code>) of a coding wins over the other entries for the same coding.
+	 */
+	private static Boolean accept(Boolean current, boolean accepted) {
+		return current == null ? accepted : current && accepted;
+	}
+
+	private static boolean isRejected(String[] codingParts) {
+		for (int i = 1; i < codingParts.length; i++) {
+			String param = codingParts[i].trim();
+
+			if (param.startsWith("q=")) {
+				try {
+					return Double.parseDouble(param.substring(2).trim()) <= 0;
+				} catch (NumberFormatException e) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compresses the bytes with the specified encoding (<code>gzip</code> or <code>deflate</code>).
+	 */
+	public static byte[] compress(byte[] bytes, String encoding) {
+		boolean gzip = GZIP.equals(encoding);
+
+		BlockingQueue<Compressor> pool = gzip ? RAW_POOL : ZLIB_POOL;
+		Compressor compressor = pool.poll();
+
+		if (compressor == null) {
+			compressor = new Compressor(gzip);
+		}
+
+		try {
+			return compress(bytes, gzip, compressor);
+
+		} finally {
+			release(pool, compressor);
+		}
+	}
+
+	private static byte[] compress(byte[] bytes, boolean gzip, Compressor compressor) {
+		Deflater deflater = compressor.deflater;
+		byte[] buf = compressor.buf;
+
+		int pos = 0;
+
+		if (gzip) {
+			System.arraycopy(GZIP_HEADER, 0, buf, 0, GZIP_HEADER.length);
+			pos = GZIP_HEADER.length;
+		}
+
+		deflater.setInput(bytes);
+		deflater.finish();
+
+		while (!deflater.finished()) {
+			if (pos == buf.length) {
+				buf = grow(compressor, buf);
+			}
+
+			pos += deflater.deflate(buf, pos, buf.length - pos);
+		}
+
+		if (gzip) {
+			if (buf.length - pos < 8) {
+				buf = grow(compressor, buf);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(bytes);
+
+			pos = writeIntLE(buf, pos, (int) crc.getValue());
+			pos = writeIntLE(buf, pos, bytes.length);
+		}
+
+		byte[] compressed = new byte[pos];
+		System.arraycopy(buf, 0, compressed, 0, pos);
+
+		return compressed;
+	}
+
+	private static void release(BlockingQueue<Compressor> pool, Compressor compressor) {
+		boolean pooled = false;
+
+		try {
+			compressor.deflater.reset();
+			pooled = pool.offer(compressor);
+
+		} finally {
+			// the native zlib state of the dropped deflaters is freed right away, instead of waiting for finalization
+			if (!pooled) {
+				compressor.deflater.end();
+			}
+		}
+	}
+
+	private static byte[] grow(Compressor compressor, byte[] buf) {
+		byte[] bigger = new byte[buf.length * 2];
+		System.arraycopy(buf, 0, bigger, 0, buf.length);
+
+		// the bigger buffer is kept for the next responses, unless it's too big
+		if (bigger.length <= MAX_KEPT_BUFFER) {
+			compressor.buf = bigger;
+		}
+
+		return bigger;
+	}
+
+	/**
+	 * The number of the idle deflaters kept for reuse, at most <code>http.compression.poolSize</code> of each kind.
+	 */
+	public static int idleDeflaters() {
+		return RAW_POOL.size() + ZLIB_POOL.size();
+	}
+
+	private static int writeIntLE(byte[] buf, int pos, int n) {
+		buf[pos] = (byte) n;
+		buf[pos + 1] = (byte) (n >> 8);
+		buf[pos + 2] = (byte) (n >> 16);
+		buf[pos + 3] = (byte) (n >> 24);
+		return pos + 4;
+	}
+
+}
@@ -25,6 +25,7 @@ import org.rapidoid.util.Msc;
 import org.rapidoid.util.StreamUtils;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 
 /*
@@ -68,6 +69,8 @@ public class HttpIO extends RapidoidThing implements Constants {
 
 	static final byte[] CONTENT_LENGTH_UNKNOWN = "Content-Length: 0000000000".getBytes();
 
+	private static final byte[] TRANSFER_ENCODING_CHUNKED = "Transfer-Encoding: chunked\r\n".getBytes();
+
 	private static final int CONTENT_LENGTHS_SIZE = 5000;
 
 	private static final byte[] DATE_IS = "Date: ".getBytes();
@@ -123,6 +126,17 @@ public class HttpIO extends RapidoidThing implements Constants {
 			ctx.write(SERVER_HEADER);
 		}
 
+		writeDateHeader(ctx);
+
+		if (MANDATORY_HEADER_CONTENT_TYPE) {
+			ctx.write(contentType.asHttpHeader());
+		}
+	}
+
+	/**
+	 * Writes the <code>Date</code> header (with the current date), if it is enabled.
+	 */
+	public static void writeDateHeader(Channel ctx) {
 		if (MANDATORY_HEADER_DATE) {
 			ctx.write(DATE_IS);
 
@@ -134,10 +148,6 @@ public class HttpIO extends RapidoidThing implements Constants {
 
 			ctx.write(CR_LF);
 		}
-
-		if (MANDATORY_HEADER_CONTENT_TYPE) {
-			ctx.write(contentType.asHttpHeader());
-		}
 	}
 
 	public static void addCustomHeader(Channel ctx, byte[] name, byte[] value) {
@@ -254,6 +264,26 @@ public class HttpIO extends RapidoidThing implements Constants {
 		ctx.output().append(baos);
 	}
 
+	public static void writeContentLengthAndFile(Channel ctx, File file) {
+		long len = file.length();
+
+		writeContentLengthHeader(ctx, len);
+		ctx.write(CR_LF);
+
+		// the file content doesn't go through the output buffer
+		ctx.transfer(file, 0, len);
+	}
+
+	public static void writeContentLengthHeader(Channel ctx, long len) {
+		if (len <= Integer.MAX_VALUE) {
+			writeContentLengthHeader(ctx, (int) len);
+		} else {
+			ctx.write(CONTENT_LENGTH_IS);
+			ctx.write(String.valueOf(len));
+			ctx.write(CR_LF);
+		}
+	}
+
 	public static void writeContentLengthHeader(Channel ctx, int len) {
 		if (len < CONTENT_LENGTHS_SIZE) {
 			ctx.write(CONTENT_LENGTHS[len]);
@@ -310,6 +340,10 @@ public class HttpIO extends RapidoidThing implements Constants {
 		channel.write(HttpIO.CONTENT_LENGTH_UNKNOWN);
 	}
 
+	public static void writeChunkedEncodingHeader(Channel ctx) {
+		ctx.write(TRANSFER_ENCODING_CHUNKED);
+	}
+
 	public static void done(Channel ctx, boolean isKeepAlive) {
 		ctx.done();
 		ctx.closeIf(!isKeepAlive);
@@ -14,6 +14,7 @@ import org.rapidoid.data.KeyValueRanges;
 import org.rapidoid.http.HttpContentType;
 import org.rapidoid.io.Upload;
 import org.rapidoid.log.Log;
+import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.net.impl.RapidoidHelper;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Constants;
@@ -91,6 +92,14 @@ public class HttpParser extends RapidoidThing implements Constants {
 	private static final byte[] GET = "GET".getBytes();
 
 	public void parse(Buf buf, RapidoidHelper helper) {
+		parse(buf, helper, null);
+	}
+
+	/**
+	 * Parses the request and notifies the channel (if specified) when the head of the request was read, so the rest
+	 * of the request is subject to the body-read timeout.
+	 */
+	public void parse(Buf buf, RapidoidHelper helper, Channel channel) {
 
 		Bytes bytes = buf.bytes();
 
@@ -107,6 +116,10 @@ public class HttpParser extends RapidoidThing implements Constants {
 
 		helper.isGet.value = BytesUtil.matches(bytes, helper.verb, GET, true);
 		if (!helper.isGet.value) {
+			if (channel != null) {
+				channel.readingBody();
+			}
+
 			parseBody(buf, helper);
 		}
 	}
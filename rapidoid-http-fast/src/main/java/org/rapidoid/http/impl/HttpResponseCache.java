@@ -0,0 +1,463 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.cache.LRUCache;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.HttpHeaders;
+import org.rapidoid.http.HttpMetadata;
+import org.rapidoid.http.HttpVerb;
+import org.rapidoid.http.Route;
+import org.rapidoid.http.handler.AbstractDecoratingHttpHandler;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.log.LogLevel;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.timeseries.TimeSeries;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Constants;
+import org.rapidoid.util.Once;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Caches the fully serialized (keep-alive) responses of a GET route, so a cache hit is served by writing the bytes
+ * straight to the connection, without constructing the request.
+ * <p>
+ * The cache key consists of the request URI and the Host header, plus the request headers listed by the Vary header
+ * of the cached responses. While a response is being computed, the other requests for the same key are parked and
+ * receive the same response, so a stampede of requests is handled by a single computation.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpResponseCache extends RapidoidThing implements Constants {
+
+	private static final byte[] HOST = "Host:".getBytes();
+
+	private static final byte[] AUTHORIZATION = "Authorization:".getBytes();
+
+	private static final byte[] COOKIE = "Cookie:".getBytes();
+
+	private static final byte[] STATUS_200 = HttpIO.HTTP_200_OK;
+
+	private static final byte[] DATE_HEADER = "\r\nDate:".getBytes();
+
+	private static final AtomicLong HITS = new AtomicLong();
+
+	private static final AtomicLong MISSES = new AtomicLong();
+
+	private static final TimeSeries HITS_METRIC = new TimeSeries().title("HTTP response cache hits (per second)");
+
+	private static final TimeSeries MISSES_METRIC = new TimeSeries().title("HTTP response cache misses (per second)");
+
+	private static final Once metricsOnce = new Once();
+
+	private final LRUCache<String, byte[]> responses;
+
+	// the requests waiting for the responses that are being computed
+	private final Map<String, List<ReqImpl>> loading = U.map();
+
+	// the (lower-case) names of the request headers which the cached responses vary on
+	private volatile String[] vary = {};
+
+	private volatile byte[][] varyPrefixes = {};
+
+	public HttpResponseCache(long ttl, int capacity, String... varyHeaders) {
+		Config cfg = Conf.HTTP.sub("cache");
+
+		if (capacity <= 0) {
+			capacity = cfg.entry("capacity").or(1000);
+		}
+
+		long maxSize = cfg.entry("maxSize").or(10000000L);
+
+		this.responses = new LRUCache<String, byte[]>(capacity, maxSize, ttl);
+
+		// only the compressed responses declare it, but the uncompressed ones are also specific for the encoding
+		if (HttpCompression.isEnabled()) {
+			learnVary(HttpHeaders.ACCEPT_ENCODING.name());
+		}
+
+		// the configured headers are part of the key from the start (e.g. Cookie or Authorization)
+		if (varyHeaders != null) {
+			for (String name : varyHeaders) {
+				learnVary(name);
+			}
+		}
+
+		bootstrapMetrics();
+	}
+
+	/**
+	 * Creates a response cache for the route, if it is configured to be cached and can be cached.
+	 */
+	public static HttpResponseCache forRoute(Route route) {
+		RouteOptions options = (RouteOptions) route.config();
+
+		if (options == null || options.cacheTTL() <= 0) {
+			return null;
+		}
+
+		// the access to the responses of the restricted routes must be checked for each request
+		U.must(U.isEmpty(options.roles()), "The responses of the routes with required roles can't be cached: %s", route);
+
+		// only the managed handlers render the responses through the request, so they can be captured; the wrappers
+		// must be executed for each request, so the responses of the routes with wrappers aren't cached
+		boolean cacheable = route.verb() == HttpVerb.GET && options.managed()
+			&& route.handler() instanceof AbstractDecoratingHttpHandler && U.isEmpty(options.wrappers());
+
+		return cacheable ? new HttpResponseCache(options.cacheTTL(), options.cacheCapacity(), options.cacheVary()) : null;
+	}
+
+	/**
+	 * Returns the key of the cached response for the request, or <code>null</code> if the response can't be cached,
+	 * because the request is authenticated (by the <code>Authorization</code> header, or the token or session
+	 * cookie) and the key doesn't include the credentials (see {@link RouteOptions#cacheVary(String...)}).
+	 */
+	public String key(Buf buf, RapidoidHelper helper) {
+		if (isAuthenticated(buf, helper)) {
+			return null;
+		}
+
+		StringBuilder key = new StringBuilder(helper.uri.str(buf));
+
+		appendHeader(key, buf, helper, HOST);
+
+		for (byte[] prefix : varyPrefixes) {
+			appendHeader(key, buf, helper, prefix);
+		}
+
+		return key.toString();
+	}
+
+	private boolean isAuthenticated(Buf buf, RapidoidHelper helper) {
+		if (!varies(AUTHORIZATION) && helper.headers.getByPrefix(buf.bytes(), AUTHORIZATION, false) != null) {
+			return true;
+		}
+
+		if (!varies(COOKIE)) {
+			BufRange header = helper.headers.getByPrefix(buf.bytes(), COOKIE, false);
+
+			if (header != null) {
+				String cookies = buf.get(header).substring(COOKIE.length);
+
+				for (String cookie : cookies.split(";")) {
+					String name = cookie.split("=", 2)[0].trim();
+
+					if (name.equals(HttpMetadata.TOKEN) || name.equals(HttpMetadata.SESSION_COOKIE)) {
+						return true;
+					}
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private boolean varies(byte[] prefix) {
+		for (byte[] varyPrefix : varyPrefixes) {
+			if (equalsIgnoreCase(varyPrefix, prefix)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean equalsIgnoreCase(byte[] a, byte[] b) {
+		return new String(a).equalsIgnoreCase(new String(b));
+	}
+
+	private static void appendHeader(StringBuilder key, Buf buf, RapidoidHelper helper, byte[] prefix) {
+		key.append('\n');
+
+		BufRange header = helper.headers.getByPrefix(buf.bytes(), prefix, false);
+
+		if (header != null) {
+			key.append(buf.get(header).substring(prefix.length).trim());
+		}
+	}
+
+	/**
+	 * Returns the cached response, or <code>null</code> if it's not cached. The cached responses are stored without
+	 * the <code>Date</code> header, so they must be written with {@link #write(Channel, byte[])}.
+	 */
+	public byte[] get(String key) {
+		byte[] response = responses.get(key);
+
+		if (response != null) {
+			HITS.incrementAndGet();
+		} else {
+			MISSES.incrementAndGet();
+		}
+
+		return response;
+	}
+
+	/**
+	 * Writes the cached response, with a fresh <code>Date</code> header.
+	 */
+	public static void write(Channel channel, byte[] response) {
+		int pos = STATUS_200.length;
+
+		channel.write(response, 0, pos);
+		HttpIO.writeDateHeader(channel);
+		channel.write(response, pos, response.length - pos);
+	}
+
+	/**
+	 * Registers the request as loading the response for the key, or parks it if the same response is already being
+	 * loaded by another request.
+	 *
+	 * @return <code>true</code> if the request should compute the response, or <code>false</code> if it was parked
+	 */
+	public synchronized boolean load(String key, ReqImpl req) {
+		List<ReqImpl> waiting = loading.get(key);
+
+		if (waiting != null) {
+			waiting.add(req);
+			req.channel().async();
+			return false;
+		}
+
+		loading.put(key, U.<ReqImpl>list());
+		req.loadsCachedResponse(this, key);
+		return true;
+	}
+
+	/**
+	 * Stores the loaded response (if it is cacheable) and completes the parked requests with it. If the response
+	 * isn't cacheable, the parked requests are handled one by one.
+	 */
+	void loaded(String key, ReqImpl req, byte[] response) {
+		if (response != null && !isCacheable(req, response)) {
+			response = null;
+		}
+
+		List<ReqImpl> waiting;
+
+		synchronized (this) {
+			waiting = loading.remove(key);
+
+			if (response != null) {
+				byte[] cached = withoutDate(response);
+				responses.put(key, cached, cached.length);
+			}
+		}
+
+		if (waiting != null) {
+			for (ReqImpl waiter : waiting) {
+				if (response != null) {
+					waiter.response().raw(response);
+					waiter.done();
+				} else {
+					handle(waiter);
+				}
+			}
+		}
+	}
+
+	private boolean isCacheable(ReqImpl req, byte[] response) {
+		if (!startsWith(response, STATUS_200)) {
+			return false;
+		}
+
+		// the responses that change the token or session, or set some cookies, are specific for the user
+		if (req.tokenChanged.get() || req.sessionChanged.get()) {
+			return false;
+		}
+
+		RespImpl resp = (RespImpl) req.response();
+
+		if (U.notEmpty(resp.cookies())) {
+			return false;
+		}
+
+		for (Map.Entry<String, String> header : resp.headers().entrySet()) {
+			String name = header.getKey();
+			String value = header.getValue().toLowerCase();
+
+			if (name.equalsIgnoreCase(HttpHeaders.CACHE_CONTROL.name())) {
+				if (value.contains("no-store") || value.contains("no-cache") || value.contains("private")) {
+					return false;
+				}
+
+			} else if (name.equalsIgnoreCase(HttpHeaders.VARY.name())) {
+				// the key of this response didn't include the varying headers, so the next one will be cached
+				if (learnVary(value)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private synchronized boolean learnVary(String varyHeader) {
+		if (varyHeader.trim().equals("*")) {
+			return true;
+		}
+
+		List<String> names = U.list(vary);
+		boolean changed = false;
+
+		for (String name : varyHeader.split(",")) {
+			name = name.trim();
+
+			if (!name.isEmpty() && !names.contains(name)) {
+				names.add(name);
+				changed = true;
+			}
+		}
+
+		if (changed) {
+			byte[][] prefixes = new byte[names.size()][];
+
+			for (int i = 0; i < prefixes.length; i++) {
+				prefixes[i] = (names.get(i) + ":").getBytes();
+			}
+
+			vary = U.arrayOf(String.class, names);
+			varyPrefixes = prefixes;
+
+			// the responses were cached with keys that don't include the varying headers
+			responses.clear();
+		}
+
+		return changed;
+	}
+
+	private static void handle(ReqImpl req) {
+		try {
+			req.route().handler().handle(req.channel(), true, req, null);
+		} catch (Throwable e) {
+			HttpIO.errorAndDone(req, e, LogLevel.ERROR);
+		}
+	}
+
+	/**
+	 * Removes the <code>Date</code> header from the response, so a fresh one can be written on each cache hit.
+	 */
+	private static byte[] withoutDate(byte[] response) {
+		int headersEnd = indexOf(response, CR_LF_CR_LF, 0, response.length);
+		int date = indexOf(response, DATE_HEADER, 0, headersEnd);
+
+		if (date < 0) {
+			return response;
+		}
+
+		int from = date + 2; // after the CR LF of the previous header
+		int to = indexOf(response, CR_LF, from, headersEnd + 2) + 2;
+
+		byte[] bytes = new byte[response.length - (to - from)];
+
+		System.arraycopy(response, 0, bytes, 0, from);
+		System.arraycopy(response, to, bytes, from, response.length - to);
+
+		return bytes;
+	}
+
+	private static int indexOf(byte[] bytes, byte[] sub, int from, int limit) {
+		for (int i = from; i <= limit - sub.length; i++) {
+			if (startsWith(bytes, i, sub)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private static boolean startsWith(byte[] bytes, int pos, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			if (bytes[pos + i] != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean startsWith(byte[] bytes, byte[] prefix) {
+		if (bytes.length < prefix.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length; i++) {
+			if (bytes[i] != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public String[] vary() {
+		return vary;
+	}
+
+	public LRUCache<String, byte[]> responses() {
+		return responses;
+	}
+
+	private static void bootstrapMetrics() {
+		if (!metricsOnce.go()) return;
+
+		Metrics.register("http/cache/hits", HITS_METRIC);
+		Metrics.register("http/cache/misses", MISSES_METRIC);
+
+		Jobs.scheduleAtFixedRate(new Runnable() {
+
+			private long hits;
+
+			private long misses;
+
+			@Override
+			public void run() {
+				long totalHits = HITS.get();
+				long totalMisses = MISSES.get();
+
+				HITS_METRIC.put(U.time(), totalHits - hits);
+				MISSES_METRIC.put(U.time(), totalMisses - misses);
+
+				hits = totalHits;
+				misses = totalMisses;
+			}
+
+		}, 1, 1, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public String toString() {
+		return "HttpResponseCache [vary=" + Arrays.toString(vary) + ", responses=" + responses + "]";
+	}
+
+}
@@ -73,14 +73,14 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 	final BufMap<HttpHandler> headHandlers = new BufMapImpl<HttpHandler>();
 	final BufMap<HttpHandler> traceHandlers = new BufMapImpl<HttpHandler>();
 
-	final Map<PathPattern, HttpHandler> paternGetHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternPostHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternPutHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternDeleteHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternPatchHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternOptionsHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternHeadHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
-	final Map<PathPattern, HttpHandler> paternTraceHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
+	final RouteTree paternGetHandlers = new RouteTree(HttpVerb.GET);
+	final RouteTree paternPostHandlers = new RouteTree(HttpVerb.POST);
+	final RouteTree paternPutHandlers = new RouteTree(HttpVerb.PUT);
+	final RouteTree paternDeleteHandlers = new RouteTree(HttpVerb.DELETE);
+	final RouteTree paternPatchHandlers = new RouteTree(HttpVerb.PATCH);
+	final RouteTree paternOptionsHandlers = new RouteTree(HttpVerb.OPTIONS);
+	final RouteTree paternHeadHandlers = new RouteTree(HttpVerb.HEAD);
+	final RouteTree paternTraceHandlers = new RouteTree(HttpVerb.TRACE);
 
 	private final Customization customization;
 
@@ -313,7 +313,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 				HandlerMatch handler = getHandlers.get(buf, path);
 
 				if (handler == null && !paternGetHandlers.isEmpty()) {
-					handler = matchByPattern(HttpVerb.GET, paternGetHandlers, buf.get(path));
+					handler = paternGetHandlers.match(buf, path);
 				}
 
 				return handler;
@@ -323,7 +323,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = postHandlers.get(buf, path);
 
 			if (handler == null && !paternPostHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.POST, paternPostHandlers, buf.get(path));
+				handler = paternPostHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -332,7 +332,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = putHandlers.get(buf, path);
 
 			if (handler == null && !paternPutHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.PUT, paternPutHandlers, buf.get(path));
+				handler = paternPutHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -341,7 +341,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = deleteHandlers.get(buf, path);
 
 			if (handler == null && !paternDeleteHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.DELETE, paternDeleteHandlers, buf.get(path));
+				handler = paternDeleteHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -350,7 +350,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = patchHandlers.get(buf, path);
 
 			if (handler == null && !paternPatchHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.PATCH, paternPatchHandlers, buf.get(path));
+				handler = paternPatchHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -359,7 +359,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = optionsHandlers.get(buf, path);
 
 			if (handler == null && !paternOptionsHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.OPTIONS, paternOptionsHandlers, buf.get(path));
+				handler = paternOptionsHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -368,7 +368,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = headHandlers.get(buf, path);
 
 			if (handler == null && !paternHeadHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.HEAD, paternHeadHandlers, buf.get(path));
+				handler = paternHeadHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -377,7 +377,7 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			HandlerMatch handler = traceHandlers.get(buf, path);
 
 			if (handler == null && !paternTraceHandlers.isEmpty()) {
-				handler = matchByPattern(HttpVerb.TRACE, paternTraceHandlers, buf.get(path));
+				handler = paternTraceHandlers.match(buf, path);
 			}
 
 			return handler;
@@ -386,21 +386,6 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 		return null; // no handler
 	}
 
-	private HandlerMatch matchByPattern(HttpVerb verb, Map<PathPattern, HttpHandler> handlers, String path) {
-		for (Map.Entry<PathPattern, HttpHandler> e : handlers.entrySet()) {
-
-			PathPattern pattern = e.getKey();
-			Map<String, String> params = pattern.match(path);
-
-			if (params != null) {
-				RouteImpl route = new RouteImpl(verb, path, null, null);
-				return new HandlerMatchWithParams(e.getValue(), params, route);
-			}
-		}
-
-		return null;
-	}
-
 	@Override
 	public synchronized void on(String verb, String path, HttpHandler handler) {
 		addOrRemove(true, verb, path, handler);
@@ -546,7 +531,8 @@ public class HttpRoutesImpl extends RapidoidThing implements HttpRoutes {
 			if (U.notEmpty(staticFilesLocations)) {
 				String filename = Str.triml(uri, '/');
 				if (filename.isEmpty()) filename = "index.html";
-				if (Res.from(filename, staticFilesLocations).exists()) return true;
+				Res res = Res.from(filename, staticFilesLocations);
+				if (res.findFile() != null || res.exists()) return true;
 			}
 		}
 
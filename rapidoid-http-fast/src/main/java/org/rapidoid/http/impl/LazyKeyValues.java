@@ -0,0 +1,186 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.data.KeyValueRanges;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.Map;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The key-value pairs (e.g. headers, cookies or URL parameters) of a request, kept as offsets into a copy of the
+ * request head. The individual values are decoded on demand, and the whole map is constructed only if required.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class LazyKeyValues extends RapidoidThing {
+
+	private final byte[] src;
+
+	// key start, key length, value start, value length (for each pair)
+	private final int[] ranges;
+
+	private final int count;
+
+	private final boolean urlDecode;
+
+	private final boolean lowerCaseKeys;
+
+	private LazyKeyValues(byte[] src, int[] ranges, int count, boolean urlDecode, boolean lowerCaseKeys) {
+		this.src = src;
+		this.ranges = ranges;
+		this.count = count;
+		this.urlDecode = urlDecode;
+		this.lowerCaseKeys = lowerCaseKeys;
+	}
+
+	/**
+	 * @param head      a copy of the request head
+	 * @param headStart the position of the request head in the buffer the ranges refer to
+	 */
+	public static LazyKeyValues from(KeyValueRanges kv, byte[] head, int headStart, boolean urlDecode,
+	                                 boolean lowerCaseKeys) {
+
+		int[] ranges = new int[kv.count * 4];
+
+		for (int i = 0; i < kv.count; i++) {
+			relative(kv.keys[i], headStart, ranges, i * 4);
+			relative(kv.values[i], headStart, ranges, i * 4 + 2);
+		}
+
+		return new LazyKeyValues(head, ranges, kv.count, urlDecode, lowerCaseKeys);
+	}
+
+	private static void relative(BufRange range, int headStart, int[] dest, int index) {
+		if (range.start >= 0) {
+			dest[index] = range.start - headStart;
+			dest[index + 1] = range.length;
+		}
+	}
+
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Finds the value of the specified key (case-insensitively if the keys are lower-cased). If the key occurs more
+	 * than once, the last value is returned (as in the map).
+	 */
+	public String get(String key) {
+		for (int i = count - 1; i >= 0; i--) {
+			if (keyMatches(i, key)) {
+				return value(i);
+			}
+		}
+
+		return null;
+	}
+
+	public Map<String, String> toMap() {
+		Map<String, String> map = U.map();
+
+		for (int i = 0; i < count; i++) {
+			map.put(key(i), value(i));
+		}
+
+		return map;
+	}
+
+	private boolean keyMatches(int index, String key) {
+		int start = ranges[index * 4];
+		int len = ranges[index * 4 + 1];
+
+		if (needsDecoding(start, len)) {
+			return key(index).equals(lowerCaseKeys ? key.toLowerCase() : key);
+		}
+
+		if (len != key.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < len; i++) {
+			int b = src[start + i];
+			int c = key.charAt(i);
+
+			if (lowerCaseKeys) {
+				b = toLowerCase(b);
+				c = c < 128 ? toLowerCase(c) : c;
+			}
+
+			if (b != c) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private String key(int index) {
+		String key = decoded(ranges[index * 4], ranges[index * 4 + 1]);
+		return lowerCaseKeys ? key.toLowerCase() : key;
+	}
+
+	private String value(int index) {
+		return decoded(ranges[index * 4 + 2], ranges[index * 4 + 3]);
+	}
+
+	private String decoded(int start, int len) {
+		String s = str(start, len);
+		return urlDecode && isURLEncoded(start, len) ? Msc.urlDecodeOrKeepOriginal(s) : s;
+	}
+
+	private String str(int start, int len) {
+		return len > 0 ? new String(src, start, len) : "";
+	}
+
+	/**
+	 * The non-ASCII and the URL-encoded keys must be decoded before comparison.
+	 */
+	private boolean needsDecoding(int start, int len) {
+		for (int i = start; i < start + len; i++) {
+			if (src[i] < 0) {
+				return true;
+			}
+		}
+
+		return urlDecode && isURLEncoded(start, len);
+	}
+
+	private boolean isURLEncoded(int start, int len) {
+		for (int i = start; i < start + len; i++) {
+			if (src[i] == '%' || src[i] == '+') {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static int toLowerCase(int c) {
+		return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+	}
+
+}
@@ -0,0 +1,134 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.data.BufRange;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The path parameters matched by the {@link RouteTree}, kept as ranges of the request bytes. The values are
+ * turned into strings only when they are read.
+ * <p>
+ * The ranges refer to the buffer of the connection, until the parameters are moved to a copy of the request head with
+ * {@link #moveTo(byte[], int)}, which must be done before the buffer is reused.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class PathParams extends AbstractMap<String, String> {
+
+	private final String[] names;
+
+	// the start and the end of each value
+	private final int[] ranges;
+
+	private final String[] values;
+
+	private Buf buf;
+
+	private byte[] src;
+
+	private int srcStart;
+
+	private Map<String, String> map;
+
+	public PathParams(Buf buf, String[] names, int[] ranges) {
+		this.buf = buf;
+		this.names = names;
+		this.ranges = ranges;
+		this.values = new String[names.length];
+	}
+
+	/**
+	 * Makes the values refer to the specified copy of the request head, instead of the buffer.
+	 *
+	 * @param head      a copy of the request head
+	 * @param headStart the position of the request head in the buffer the ranges refer to
+	 */
+	public void moveTo(byte[] head, int headStart) {
+		this.src = head;
+		this.srcStart = headStart;
+		this.buf = null;
+	}
+
+	@Override
+	public String get(Object key) {
+		int index = indexOf(key);
+		return index >= 0 ? value(index) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return indexOf(key) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return names.length;
+	}
+
+	@Override
+	public Set<Entry<String, String>> entrySet() {
+		if (map == null) {
+			Map<String, String> map = new LinkedHashMap<String, String>();
+
+			for (int i = 0; i < names.length; i++) {
+				map.put(names[i], value(i));
+			}
+
+			this.map = Collections.unmodifiableMap(map);
+		}
+
+		return map.entrySet();
+	}
+
+	private int indexOf(Object key) {
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].equals(key)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private String value(int index) {
+		String value = values[index];
+
+		if (value == null) {
+			int start = ranges[index * 2];
+			int len = ranges[index * 2 + 1] - start;
+
+			value = src != null ? new String(src, start - srcStart, len) : buf.get(new BufRange(start, len));
+			values[index] = value;
+		}
+
+		return value;
+	}
+
+}
@@ -4,11 +4,14 @@ import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.Buf;
+import org.rapidoid.data.BufRange;
 import org.rapidoid.cls.Cls;
 import org.rapidoid.collection.ChangeTrackingMap;
 import org.rapidoid.collection.Coll;
 import org.rapidoid.http.MediaType;
 import org.rapidoid.commons.Str;
+import org.rapidoid.ctx.Ctx;
+import org.rapidoid.ctx.Ctxs;
 import org.rapidoid.http.*;
 import org.rapidoid.http.customize.BeanParameterFactory;
 import org.rapidoid.http.customize.Customization;
@@ -19,6 +22,7 @@ import org.rapidoid.log.Log;
 import org.rapidoid.log.LogLevel;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.net.abstracts.IRequest;
+import org.rapidoid.pool.Pool;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Constants;
 import org.rapidoid.util.Msc;
@@ -28,6 +32,7 @@ import java.io.Serializable;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
  * #%L
@@ -53,12 +58,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Since("5.0.2")
 public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetadata, IRequest {
 
+	// the context extra which holds the generation of the request, captured when the request is handed out
+	public static final String CTX_GENERATION = "rapidoid.req.generation";
+
 	private final FastHttp http;
 
-	private final Channel channel;
+	private volatile Channel channel;
 
 	private volatile boolean stopped = false;
 
+	private volatile boolean aborted = false;
+
 	private volatile boolean isKeepAlive;
 
 	private volatile String verb;
@@ -75,15 +85,25 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	private volatile byte[] body;
 
-	private final Map<String, String> params;
+	// the params, headers and cookies are decoded on demand, and the maps are constructed only if required
+
+	private volatile Map<String, String> pathParams;
+
+	private volatile LazyKeyValues lazyParams;
+
+	private volatile LazyKeyValues lazyHeaders;
+
+	private volatile LazyKeyValues lazyCookies;
 
-	private final Map<String, String> headers;
+	private volatile Map<String, String> params;
 
-	private final Map<String, String> cookies;
+	private volatile Map<String, String> headers;
 
-	private final Map<String, Object> posted;
+	private volatile Map<String, String> cookies;
 
-	private final Map<String, List<Upload>> files;
+	private volatile Map<String, Object> posted;
+
+	private volatile Map<String, List<Upload>> files;
 
 	private final Map<String, Object> attrs = Collections.synchronizedMap(new HashMap<String, Object>());
 
@@ -101,12 +121,17 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	private volatile RespImpl response;
 
+	// a reset response, which is reused when the (pooled) request is recycled
+	private volatile RespImpl spareResponse;
+
 	private volatile boolean rendering;
 
 	private volatile int posConLen;
 
 	private volatile int posBefore;
 
+	private volatile ChunkedResponseStream stream;
+
 	private volatile boolean async;
 
 	private volatile boolean done;
@@ -115,21 +140,57 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	private volatile boolean pendingBodyParsing;
 
-	private final MediaType defaultContentType;
+	private volatile MediaType defaultContentType;
 
 	private volatile HttpRoutesImpl routes;
 
-	private final Route route;
+	private volatile Route route;
 
 	private volatile Customization custom;
 
+	/* RESPONSE CACHING: */
+
+	// the cache which will receive the response, if this request is loading a cached response
+	private volatile HttpResponseCache responseCache;
+
+	private volatile String cacheKey;
+
+	/* POOLING: */
+
+	// the pool of the worker which this request was taken from, if pooling is enabled
+	private volatile Pool<ReqImpl> pool;
+
+	// the number of framework jobs (e.g. managed handlers) that are still using the request
+	private final AtomicInteger holds = new AtomicInteger();
+
+	// the request was used after completion, so it mustn't be recycled
+	private volatile boolean leaked;
+
+	// incremented on every recycling, so the contexts which captured an older generation can be detected
+	private volatile int generation;
+
+	public ReqImpl(FastHttp http) {
+		this.http = http;
+	}
+
 	public ReqImpl(FastHttp http, Channel channel, boolean isKeepAlive, String verb, String uri, String path,
-	               String query, byte[] body, Map<String, String> params, Map<String, String> headers,
-	               Map<String, String> cookies, Map<String, Object> posted, Map<String, List<Upload>> files,
+	               String query, byte[] body, Map<String, String> pathParams, LazyKeyValues params,
+	               LazyKeyValues headers, LazyKeyValues cookies, Map<String, Object> posted, Map<String, List<Upload>> files,
 	               boolean pendingBodyParsing, MediaType defaultContentType, String zone,
 	               HttpRoutesImpl routes, Route route) {
 
-		this.http = http;
+		this(http);
+
+		init(channel, isKeepAlive, verb, uri, path, query, body, pathParams, params, headers, cookies, posted, files,
+			pendingBodyParsing, defaultContentType, zone, routes, route);
+	}
+
+	public void init(Channel channel, boolean isKeepAlive, String verb, String uri, String path,
+	                 String query, byte[] body, Map<String, String> pathParams, LazyKeyValues params,
+	                 LazyKeyValues headers, LazyKeyValues cookies, Map<String, Object> posted,
+	                 Map<String, List<Upload>> files, boolean pendingBodyParsing, MediaType defaultContentType,
+	                 String zone, HttpRoutesImpl routes, Route route) {
+
 		this.channel = channel;
 		this.isKeepAlive = isKeepAlive;
 		this.verb = verb;
@@ -137,9 +198,10 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		this.path = path;
 		this.query = query;
 		this.body = body;
-		this.params = params;
-		this.headers = headers;
-		this.cookies = cookies;
+		this.pathParams = pathParams;
+		this.lazyParams = params;
+		this.lazyHeaders = headers;
+		this.lazyCookies = cookies;
 		this.posted = posted;
 		this.files = files;
 		this.pendingBodyParsing = pendingBodyParsing;
@@ -152,6 +214,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String verb() {
+		ensureCurrent();
 		return verb;
 	}
 
@@ -162,6 +225,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String uri() {
+		ensureCurrent();
 		return uri;
 	}
 
@@ -172,6 +236,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String path() {
+		ensureCurrent();
 		return path;
 	}
 
@@ -182,6 +247,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String query() {
+		ensureCurrent();
 		return query;
 	}
 
@@ -192,6 +258,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public byte[] body() {
+		ensureCurrent();
 		return body;
 	}
 
@@ -202,21 +269,78 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, String> params() {
+		ensureCurrent();
+		if (params == null) {
+			synchronized (this) {
+				if (params == null) {
+					Map<String, String> allParams = lazyParams.toMap();
+					allParams.putAll(pathParams);
+					params = Collections.synchronizedMap(allParams);
+				}
+			}
+		}
+
 		return params;
 	}
 
 	@Override
 	public Map<String, String> headers() {
+		ensureCurrent();
+		if (headers == null) {
+			synchronized (this) {
+				if (headers == null) {
+					headers = Collections.synchronizedMap(lazyHeaders.toMap());
+				}
+			}
+		}
+
 		return headers;
 	}
 
 	@Override
 	public Map<String, String> cookies() {
+		ensureCurrent();
+		if (cookies == null) {
+			synchronized (this) {
+				if (cookies == null) {
+					cookies = Collections.synchronizedMap(lazyCookies.toMap());
+				}
+			}
+		}
+
 		return cookies;
 	}
 
+	private String findParam(String name) {
+		ensureCurrent();
+
+		Map<String, String> params = this.params;
+
+		if (params != null) {
+			return params.get(name);
+		}
+
+		String value = pathParams.get(name);
+		return value != null ? value : lazyParams.get(name);
+	}
+
+	private String findHeader(String name) {
+		ensureCurrent();
+
+		Map<String, String> headers = this.headers;
+		return headers != null ? headers.get(name.toLowerCase()) : lazyHeaders.get(name);
+	}
+
+	private String findCookie(String name) {
+		ensureCurrent();
+
+		Map<String, String> cookies = this.cookies;
+		return cookies != null ? cookies.get(name) : lazyCookies.get(name);
+	}
+
 	@Override
 	public Map<String, Object> posted() {
+		ensureCurrent();
 		if (pendingBodyParsing) {
 			synchronized (this) {
 				if (pendingBodyParsing) {
@@ -231,6 +355,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, List<Upload>> files() {
+		ensureCurrent();
 		return files;
 	}
 
@@ -261,12 +386,12 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String param(String name) {
-		return U.notNull(params().get(name), "PARAMS[%s]", name);
+		return U.notNull(findParam(name), "PARAMS[%s]", name);
 	}
 
 	@Override
 	public String param(String name, String defaultValue) {
-		return withDefault(params().get(name), defaultValue);
+		return withDefault(findParam(name), defaultValue);
 	}
 
 	@Override
@@ -276,22 +401,22 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public String header(String name) {
-		return U.notNull(headers().get(name.toLowerCase()), "HEADERS[%s]", name);
+		return U.notNull(findHeader(name), "HEADERS[%s]", name);
 	}
 
 	@Override
 	public String header(String name, String defaultValue) {
-		return U.or(headers().get(name.toLowerCase()), defaultValue);
+		return U.or(findHeader(name), defaultValue);
 	}
 
 	@Override
 	public String cookie(String name) {
-		return U.notNull(cookies().get(name), "COOKIES[%s]", name);
+		return U.notNull(findCookie(name), "COOKIES[%s]", name);
 	}
 
 	@Override
 	public String cookie(String name, String defaultValue) {
-		return U.or(cookies().get(name), defaultValue);
+		return U.or(findCookie(name), defaultValue);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -326,12 +451,13 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, Object> data() {
+		ensureCurrent();
 		if (data == null) {
 			synchronized (this) {
 				if (data == null) {
 					Map<String, Object> allData = U.map();
 
-					allData.putAll(params);
+					allData.putAll(params());
 					allData.putAll(files);
 					allData.putAll(posted());
 
@@ -383,6 +509,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, Object> attrs() {
+		ensureCurrent();
 		return attrs;
 	}
 
@@ -410,8 +537,12 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public synchronized Resp response() {
+		ensureNotCompleted();
+
 		if (response == null) {
-			response = new RespImpl(this);
+			response = spareResponse != null ? spareResponse : new RespImpl(this);
+			spareResponse = null;
+
 			if (defaultContentType != null) {
 				response.contentType(defaultContentType);
 			}
@@ -470,6 +601,28 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		}
 	}
 
+	/**
+	 * Renders the response headers and starts streaming the response body.
+	 */
+	synchronized OutputStream streamingOut(int code) {
+		if (stream == null) {
+			U.must(!isRendering(), "The response rendering has already started, so the response can't be streamed!");
+
+			startResponse(code, false);
+
+			if (isKeepAlive) {
+				HttpIO.writeChunkedEncodingHeader(channel);
+			}
+
+			// finishing the headers
+			channel.write(CR_LF);
+
+			stream = new ChunkedResponseStream(this, channel, isKeepAlive);
+		}
+
+		return stream;
+	}
+
 	private void writeResponseLength() {
 		Buf out = channel.output();
 
@@ -497,22 +650,57 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 	}
 
 	private void onDone() {
-		if (stopped) {
-			return;
-		}
+		byte[] cacheable = null;
 
-		if (!rendering) {
-			renderResponseOrError();
-		}
+		try {
+			if (stopped || aborted) {
+				return;
+			}
 
-		if (!completed) {
-			writeResponseLength();
-			completed = true;
+			// the response can be cached only if it is rendered here as a whole, into the output buffer
+			boolean capture = responseCache != null && !rendering && (response == null || response.file() == null);
+			int cacheFrom = capture ? channel.output().size() : -1;
+
+			if (!rendering) {
+				renderResponseOrError();
+			}
+
+			if (!completed) {
+				if (stream != null) {
+					stream.finish();
+				} else {
+					writeResponseLength();
+				}
+
+				completed = true;
+			}
+
+			if (cacheFrom >= 0) {
+				cacheable = renderedResponse(cacheFrom);
+			}
+
+		} finally {
+			// the parked requests must be completed regardless of the outcome, and before the next request comes
+			if (responseCache != null) {
+				responseCache.loaded(cacheKey, this, cacheable);
+			}
 		}
 
 		finish();
 	}
 
+	private byte[] renderedResponse(int from) {
+		Buf out = channel.output();
+
+		BufRange range = new BufRange();
+		range.setInterval(from, out.size());
+
+		byte[] bytes = new byte[range.length];
+		out.get(range, bytes, 0);
+
+		return bytes;
+	}
+
 	private void renderResponseOrError() {
 		String err = validateResponse();
 
@@ -533,9 +721,15 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 			channel.write(bytes);
 			completed = true;
 
+		} else if (response.file() != null) {
+			// the file is transferred to the socket as the connection drains, instead of loading it in memory
+			startRendering(response.code(), false);
+			HttpIO.writeContentLengthAndFile(channel, response.file());
+			completed = true;
+
 		} else {
 			// first serialize the response to bytes (with error handling)
-			byte[] bytes = responseToBytes();
+			byte[] bytes = compressIfAccepted(responseToBytes());
 
 			// then start rendering
 			startRendering(response.code(), false);
@@ -543,6 +737,51 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		}
 	}
 
+	/**
+	 * Compresses the response body, if its type and size are eligible and the client accepts the compression.
+	 */
+	private byte[] compressIfAccepted(byte[] bytes) {
+		if (!HttpCompression.isCompressible(response.contentType(), bytes.length)
+			|| findResponseHeader(HttpHeaders.CONTENT_ENCODING.name()) != null) {
+			return bytes;
+		}
+
+		String encoding = HttpCompression.negotiate(header(HttpHeaders.ACCEPT_ENCODING.name(), null));
+
+		if (encoding == null) {
+			return bytes;
+		}
+
+		response.headers().put(HttpHeaders.CONTENT_ENCODING.name(), encoding);
+		varyOn(HttpHeaders.ACCEPT_ENCODING.name());
+		return HttpCompression.compress(bytes, encoding);
+	}
+
+	private void varyOn(String header) {
+		String name = U.or(findResponseHeader(HttpHeaders.VARY.name()), HttpHeaders.VARY.name());
+		String vary = response.headers().get(name);
+
+		if (vary == null) {
+			response.headers().put(name, header);
+
+		} else if (!vary.toLowerCase().contains(header.toLowerCase())) {
+			response.headers().put(name, vary + ", " + header);
+		}
+	}
+
+	/**
+	 * Finds the actual name of a (case-insensitive) response header.
+	 */
+	private String findResponseHeader(String name) {
+		for (String header : response.headers().keySet()) {
+			if (header.equalsIgnoreCase(name)) {
+				return header;
+			}
+		}
+
+		return null;
+	}
+
 	private void writeContentLengthAndBody(byte[] bytes) {
 		HttpIO.writeContentLengthAndBody(channel, bytes);
 		completed = true;
@@ -625,6 +864,8 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Req async() {
+		ensureNotCompleted();
+
 		this.async = true;
 		channel.async();
 		return this;
@@ -643,8 +884,10 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 		if (U.isEmpty(sessionId)) {
 			sessionId = UUID.randomUUID().toString();
+			Map<String, String> cookies = cookies();
+
 			synchronized (cookies) {
-				if (cookie(SESSION_COOKIE, null) == null) {
+				if (cookies.get(SESSION_COOKIE) == null) {
 					cookies.put(SESSION_COOKIE, sessionId);
 					response().cookie(SESSION_COOKIE, sessionId, "HttpOnly");
 				}
@@ -661,6 +904,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, Serializable> session() {
+		ensureCurrent();
 		if (session == null) {
 			synchronized (this) {
 				if (session == null) {
@@ -695,6 +939,7 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 
 	@Override
 	public Map<String, Serializable> token() {
+		ensureCurrent();
 		if (tokenStatus == TokenStatus.PENDING) {
 			synchronized (this) {
 				if (tokenStatus == TokenStatus.PENDING) {
@@ -772,8 +1017,8 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 	public String toString() {
 		String info = verb() + " " + path();
 
-		if (U.notEmpty(params)) {
-			info += "?" + U.join("&", Msc.protectSensitiveInfo(params, "<...>").entrySet());
+		if (U.notEmpty(params())) {
+			info += "?" + U.join("&", Msc.protectSensitiveInfo(params(), "<...>").entrySet());
 		}
 
 		return info;
@@ -790,6 +1035,9 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 	@Override
 	public void stop() {
 		this.stopped = true;
+
+		// the connection was closed, so the request can be recycled (if nothing else is using it)
+		recycle();
 	}
 
 	@Override
@@ -797,11 +1045,185 @@ public class ReqImpl extends RapidoidThing implements Req, Constants, HttpMetada
 		return stopped;
 	}
 
+	/**
+	 * Closes the connection after the part of the streamed response that was already written, instead of completing
+	 * the response, so the client can tell that the response is incomplete.
+	 */
+	synchronized void abort() {
+		if (!aborted) {
+			aborted = true;
+			channel.close();
+		}
+	}
+
+	boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Marks the request as loading the response for the cache, which will receive the rendered response.
+	 */
+	void loadsCachedResponse(HttpResponseCache responseCache, String cacheKey) {
+		this.responseCache = responseCache;
+		this.cacheKey = cacheKey;
+	}
+
+	/**
+	 * Assigns the pool of the worker, which will receive the request back when it is recycled.
+	 */
+	public void pooled(Pool<ReqImpl> pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Marks the request as being in use by a framework job (e.g. a managed handler), so it can't be recycled.
+	 */
+	public void hold() {
+		holds.incrementAndGet();
+	}
+
+	public void unhold() {
+		holds.decrementAndGet();
+	}
+
+	/**
+	 * Returns the request to the pool of the worker, if it was completed and nothing is using it anymore. This is
+	 * done by the worker, when the connection receives the next request or is closed.
+	 */
+	public void recycle() {
+		Pool<ReqImpl> pool = this.pool;
+
+		if (pool != null && isRecyclable()) {
+			reset();
+			pool.release(this);
+		}
+	}
+
+	private boolean isRecyclable() {
+		// the asynchronous requests might still be used by other threads, so they are left to the GC
+		// the aborted requests might still be attached to the connection that is being closed
+		return done && !async && !leaked && !aborted && holds.get() == 0;
+	}
+
+	/**
+	 * In pooling mode, using a request after completion indicates that someone is holding onto it, so it will be
+	 * recycled by mistake. That is detected here, before it corrupts another response.
+	 */
+	private void ensureNotCompleted() {
+		ensureCurrent();
+
+		if (pool != null && done) {
+			leaked = true;
+			throw new IllegalStateException("The request was already completed, so it can't be used anymore!");
+		}
+	}
+
+	/**
+	 * After recycling, a stale reference to the request would read the data of the next request. The generation of
+	 * the request is captured in the context when the request is handed out (see {@link #contextExtras(Req)}), so
+	 * the stale reference is detected when it is used in the context of the old request.
+	 */
+	private void ensureCurrent() {
+		if (generation == 0) {
+			return; // never recycled
+		}
+
+		Ctx ctx = Ctxs.get();
+
+		if (ctx != null) {
+			Object exchange = ctx.exchange();
+
+			if (exchange == this) {
+				Object captured = ctx.extras().get(CTX_GENERATION);
+
+				if (captured != null && ((Integer) captured) != generation) {
+					throw new IllegalStateException("The request was already completed and recycled, so it can't be used anymore!");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the context extras which capture the current generation of the request, so the stale references to
+	 * a recycled request can be detected.
+	 */
+	public static Map<String, Object> contextExtras(Req req) {
+		if (req instanceof ReqImpl) {
+			return U.<String, Object>map(CTX_GENERATION, ((ReqImpl) req).generation);
+		} else {
+			return Collections.emptyMap();
+		}
+	}
+
+	private void reset() {
+		channel = null;
+		stopped = false;
+		aborted = false;
+		isKeepAlive = false;
+		verb = null;
+		uri = null;
+		path = null;
+		query = null;
+		zone = null;
+		contextPath = null;
+		body = null;
+
+		pathParams = null;
+		lazyParams = null;
+		lazyHeaders = null;
+		lazyCookies = null;
+		params = null;
+		headers = null;
+		cookies = null;
+		posted = null;
+		files = null;
+		attrs.clear();
+		data = null;
+
+		token = null;
+		tokenChanged.set(false);
+		tokenStatus = TokenStatus.PENDING;
+		session = null;
+		sessionChanged.set(false);
+
+		if (response != null) {
+			response.reset();
+			spareResponse = response;
+			response = null;
+		}
+
+		rendering = false;
+		posConLen = 0;
+		posBefore = 0;
+		stream = null;
+		async = false;
+		done = false;
+		completed = false;
+		pendingBodyParsing = false;
+		defaultContentType = null;
+		routes = null;
+		route = null;
+		custom = null;
+		responseCache = null;
+		cacheKey = null;
+		pool = null;
+
+		leaked = false;
+		holds.set(0);
+		generation++;
+	}
+
 	@Override
 	public void revert() {
+		if (stream != null) {
+			// a part of the response was already sent, so it can't be replaced (e.g. with the error)
+			abort();
+		}
+
 		rendering = false;
 		posConLen = 0;
 		posBefore = 0;
+		stream = null;
 		async = false;
 		done = false;
 		completed = false;
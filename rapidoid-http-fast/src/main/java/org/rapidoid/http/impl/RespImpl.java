@@ -82,12 +82,35 @@ public class RespImpl extends RapidoidThing implements Resp {
 
 	private volatile boolean mvc = false;
 
+	private volatile boolean chunked = false;
+
 	private volatile Screen screen;
 
 	public RespImpl(ReqImpl req) {
 		this.req = req;
 	}
 
+	/**
+	 * Clears the response, so it can be reused when the (pooled) request is recycled.
+	 */
+	synchronized void reset() {
+		result = null;
+		body = null;
+		raw = null;
+		code = 200;
+		contentType = MediaType.HTML_UTF_8;
+		headers.clear();
+		cookies.clear();
+		model.clear();
+		redirect = null;
+		filename = null;
+		file = null;
+		view = null;
+		mvc = false;
+		chunked = false;
+		screen = null;
+	}
+
 	@Override
 	public synchronized Resp result(Object content) {
 		ensureCanChange();
@@ -340,6 +363,18 @@ public class RespImpl extends RapidoidThing implements Resp {
 		return this;
 	}
 
+	@Override
+	public synchronized boolean chunked() {
+		return chunked;
+	}
+
+	@Override
+	public synchronized Resp chunked(boolean chunked) {
+		ensureCanChange();
+		this.chunked = chunked;
+		return this;
+	}
+
 	@Override
 	public Req request() {
 		return req;
@@ -445,6 +480,10 @@ public class RespImpl extends RapidoidThing implements Resp {
 		U.must(body() == null, "The response body has already been set, so cannot write the response through OutputStream, too!");
 		U.must(raw() == null, "The raw response has already been set, so cannot write the response through OutputStream, too!");
 
+		if (chunked) {
+			return req.streamingOut(code());
+		}
+
 		req.startRendering(code(), true);
 
 		return req.channel().output().asOutputStream();
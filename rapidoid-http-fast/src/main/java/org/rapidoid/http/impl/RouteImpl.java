@@ -41,11 +41,14 @@ public class RouteImpl extends RapidoidThing implements Route {
 
 	private volatile RouteOptions options;
 
+	private final HttpResponseCache cache;
+
 	public RouteImpl(HttpVerb verb, String path, HttpHandler handler, RouteOptions options) {
 		this.verb = verb;
 		this.path = path;
 		this.handler = handler;
 		this.options = options;
+		this.cache = HttpResponseCache.forRoute(this);
 	}
 
 	@Override
@@ -91,6 +94,13 @@ public class RouteImpl extends RapidoidThing implements Route {
 		return result;
 	}
 
+	/**
+	 * Returns the cache of the route responses, or <code>null</code> if they are not cached.
+	 */
+	public HttpResponseCache cache() {
+		return cache;
+	}
+
 	public RouteImpl handler(HttpHandler handler) {
 		this.handler = handler;
 		return this;
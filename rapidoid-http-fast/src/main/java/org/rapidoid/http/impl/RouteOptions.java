@@ -53,6 +53,16 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 
 	private volatile HttpWrapper[] wrappers;
 
+	private volatile long cacheTTL;
+
+	private volatile int cacheCapacity;
+
+	private volatile String[] cacheVary = {};
+
+	private volatile boolean inline;
+
+	private volatile String bulkhead;
+
 	@Override
 	public String toString() {
 		String prefix = mvc ? "MVC" : "";
@@ -62,6 +72,11 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 			(transactionMode != null ? ", transactionMode='" + transactionMode + '\'' : "") +
 			(U.notEmpty(roles) ? ", roles=" + roles : "") +
 			(U.notEmpty(wrappers) ? ", wrappers=" + wrappers : "") +
+			(cacheTTL > 0 ? ", cacheTTL=" + cacheTTL : "") +
+			(cacheCapacity > 0 ? ", cacheCapacity=" + cacheCapacity : "") +
+			(U.notEmpty(cacheVary) ? ", cacheVary=" + Arrays.toString(cacheVary) : "") +
+			(inline ? ", inline=true" : "") +
+			(bulkhead != null ? ", bulkhead='" + bulkhead + '\'' : "") +
 			'}';
 	}
 
@@ -153,6 +168,61 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		return this;
 	}
 
+	@Override
+	public long cacheTTL() {
+		return cacheTTL;
+	}
+
+	@Override
+	public RouteOptions cacheTTL(long cacheTTL) {
+		this.cacheTTL = cacheTTL;
+		return this;
+	}
+
+	@Override
+	public int cacheCapacity() {
+		return cacheCapacity;
+	}
+
+	@Override
+	public RouteOptions cacheCapacity(int cacheCapacity) {
+		this.cacheCapacity = cacheCapacity;
+		return this;
+	}
+
+	@Override
+	public String[] cacheVary() {
+		return cacheVary;
+	}
+
+	@Override
+	public RouteOptions cacheVary(String... cacheVary) {
+		this.cacheVary = cacheVary;
+		return this;
+	}
+
+	@Override
+	public boolean inline() {
+		return inline;
+	}
+
+	@Override
+	public RouteOptions inline(boolean inline) {
+		this.inline = inline;
+		return this;
+	}
+
+	@Override
+	public String bulkhead() {
+		return bulkhead;
+	}
+
+	@Override
+	public RouteOptions bulkhead(String bulkhead) {
+		this.bulkhead = bulkhead;
+		return this;
+	}
+
 	public RouteOptions copy() {
 		RouteOptions copy = new RouteOptions();
 
@@ -164,6 +234,11 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		copy.wrappers(wrappers());
 		copy.zone(zone());
 		copy.managed(managed());
+		copy.cacheTTL(cacheTTL());
+		copy.cacheCapacity(cacheCapacity());
+		copy.cacheVary(cacheVary());
+		copy.inline(inline());
+		copy.bulkhead(bulkhead());
 
 		return copy;
 	}
@@ -177,10 +252,15 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 
 		if (mvc != that.mvc) return false;
 		if (managed != that.managed) return false;
+		if (cacheTTL != that.cacheTTL) return false;
+		if (cacheCapacity != that.cacheCapacity) return false;
+		if (inline != that.inline) return false;
 		if (contentType != null ? !contentType.equals(that.contentType) : that.contentType != null) return false;
 		if (view != null ? !view.equals(that.view) : that.view != null) return false;
 		if (zone != null ? !zone.equals(that.zone) : that.zone != null) return false;
+		if (bulkhead != null ? !bulkhead.equals(that.bulkhead) : that.bulkhead != null) return false;
 		if (transactionMode != that.transactionMode) return false;
+		if (!Arrays.equals(cacheVary, that.cacheVary)) return false;
 		if (roles != null ? !roles.equals(that.roles) : that.roles != null) return false;
 		return Arrays.equals(wrappers, that.wrappers);
 
@@ -196,6 +276,11 @@ public class RouteOptions extends RapidoidThing implements RouteConfig {
 		result = 31 * result + (transactionMode != null ? transactionMode.hashCode() : 0);
 		result = 31 * result + (roles != null ? roles.hashCode() : 0);
 		result = 31 * result + Arrays.hashCode(wrappers);
+		result = 31 * result + (int) (cacheTTL ^ (cacheTTL >>> 32));
+		result = 31 * result + cacheCapacity;
+		result = 31 * result + Arrays.hashCode(cacheVary);
+		result = 31 * result + (inline ? 1 : 0);
+		result = 31 * result + (bulkhead != null ? bulkhead.hashCode() : 0);
 		return result;
 	}
 }
@@ -0,0 +1,477 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.bytes.Bytes;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.HttpVerb;
+import org.rapidoid.http.Route;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.u.U;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * The parameterized routes of a HTTP verb, compiled into a radix tree that is matched directly against the request
+ * bytes. At each step the static routes take precedence over the path parameters with custom regex ({name:regex}),
+ * then the other path parameters ({name}) and finally the wildcards (/*). The matched parameters are kept as ranges of
+ * the request bytes.
+ * <p>
+ * The routes that cannot be expressed in the tree (e.g. parameters spanning more than one segment, or more parameters
+ * in one segment) are matched with their regex, in the order of registration. They still take precedence over the
+ * wildcards.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class RouteTree extends RapidoidThing {
+
+	private static final Pattern PARAM_SEGMENT = Pattern.compile("\\{(\\w+)(?::(.+))?\\}");
+
+	// the regex constructs that could match a '/', so the parameter could span more than one segment
+	private static final Pattern MULTI_SEGMENT_REGEX = Pattern.compile("/|\\.|\\[\\^|\\\\[SWDpPQxuc0-9]");
+
+	private static final Pattern LITERAL_SEGMENT = Pattern.compile("[^\\\\{}()\\[\\]|+*?^$]*");
+
+	private static final byte[] NO_BYTES = {};
+
+	private static final Node[] NO_NODES = {};
+
+	private final HttpVerb verb;
+
+	private final Map<PathPattern, HttpHandler> handlers = new LinkedHashMap<PathPattern, HttpHandler>();
+
+	// re-compiled on every change, so the lookups don't need synchronization
+	private volatile Compiled compiled = new Compiled();
+
+	public RouteTree(HttpVerb verb) {
+		this.verb = verb;
+	}
+
+	public synchronized void put(PathPattern pattern, HttpHandler handler) {
+		handlers.put(pattern, handler);
+		compile();
+	}
+
+	public synchronized void remove(PathPattern pattern) {
+		if (handlers.remove(pattern) != null) {
+			compile();
+		}
+	}
+
+	public synchronized void clear() {
+		handlers.clear();
+		compile();
+	}
+
+	public boolean isEmpty() {
+		return compiled.isEmpty;
+	}
+
+	private void compile() {
+		Compiled compiled = new Compiled();
+
+		for (Map.Entry<PathPattern, HttpHandler> e : handlers.entrySet()) {
+			if (!compiled.add(e.getKey().getPath(), e.getValue())) {
+				compiled.regexHandlers.put(e.getKey(), e.getValue());
+			}
+		}
+
+		compiled.isEmpty = handlers.isEmpty();
+		this.compiled = compiled;
+	}
+
+	public HandlerMatch match(Buf buf, BufRange path) {
+		Compiled compiled = this.compiled;
+
+		if (compiled.isEmpty) {
+			return null;
+		}
+
+		int[] params = compiled.maxParams > 0 ? new int[compiled.maxParams * 2] : null;
+
+		Leaf leaf = match(compiled.root, buf, buf.bytes(), path.start, path.limit(), params, 0);
+
+		if (leaf != null && !leaf.isWildcard) {
+			return matchOf(leaf, buf, path, params);
+		}
+
+		// the routes that couldn't be compiled into the tree take precedence over the wildcards
+		if (!compiled.regexHandlers.isEmpty()) {
+			HandlerMatch match = matchByRegex(compiled.regexHandlers, buf.get(path));
+
+			if (match != null) {
+				return match;
+			}
+		}
+
+		return leaf != null ? matchOf(leaf, buf, path, params) : null;
+	}
+
+	private HandlerMatch matchOf(Leaf leaf, Buf buf, BufRange path, int[] params) {
+		Map<String, String> values = leaf.paramNames.length > 0
+			? new PathParams(buf, leaf.paramNames, params)
+			: Collections.<String, String>emptyMap();
+
+		return new HandlerMatchWithParams(leaf.handler, values, routeOf(leaf.handler, buf, path));
+	}
+
+	private Leaf match(Node node, Buf buf, Bytes bytes, int pos, int end, int[] params, int paramN) {
+
+		// a static route ending here takes precedence over the (possibly empty) parameters
+		if (pos == end && node.leaf != null) {
+			return node.leaf;
+		}
+
+		if (pos < end) {
+			int index = indexOf(node.indices, bytes.get(pos));
+
+			if (index >= 0) {
+				Node child = node.children[index];
+				byte[] prefix = child.prefix;
+
+				if (startsWith(bytes, pos, end, prefix)) {
+					Leaf leaf = match(child, buf, bytes, pos + prefix.length, end, params, paramN);
+
+					if (leaf != null) {
+						return leaf;
+					}
+				}
+			}
+		}
+
+		if (pos < end || node.regexParams.length > 0) {
+			int segmentEnd = pos;
+
+			while (segmentEnd < end && bytes.get(segmentEnd) != '/') {
+				segmentEnd++;
+			}
+
+			if (node.regexParams.length > 0) {
+				String segment = buf.get(new BufRange(pos, segmentEnd - pos));
+
+				for (Node regexParam : node.regexParams) {
+					if (regexParam.regex.matcher(segment).matches()) {
+						Leaf leaf = matchParam(regexParam, buf, bytes, pos, segmentEnd, end, params, paramN);
+
+						if (leaf != null) {
+							return leaf;
+						}
+					}
+				}
+			}
+
+			if (node.param != null && segmentEnd > pos) {
+				Leaf leaf = matchParam(node.param, buf, bytes, pos, segmentEnd, end, params, paramN);
+
+				if (leaf != null) {
+					return leaf;
+				}
+			}
+		}
+
+		return node.wildcard != null ? node.wildcard.leaf : null;
+	}
+
+	private Leaf matchParam(Node param, Buf buf, Bytes bytes, int pos, int segmentEnd, int end, int[] params,
+	                        int paramN) {
+
+		params[paramN * 2] = pos;
+		params[paramN * 2 + 1] = segmentEnd;
+
+		return match(param, buf, bytes, segmentEnd, end, params, paramN + 1);
+	}
+
+	private HandlerMatch matchByRegex(Map<PathPattern, HttpHandler> handlers, String path) {
+		for (Map.Entry<PathPattern, HttpHandler> e : handlers.entrySet()) {
+
+			PathPattern pattern = e.getKey();
+			Map<String, String> params = pattern.match(path);
+
+			if (params != null) {
+				HttpHandler handler = e.getValue();
+				Route route = handler.getRoute();
+
+				return new HandlerMatchWithParams(handler, params, route != null ? route : new RouteImpl(verb, path, null, null));
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the registered route of the handler, so its options (e.g. the response cache) apply to the matches.
+	 */
+	private Route routeOf(HttpHandler handler, Buf buf, BufRange path) {
+		Route route = handler.getRoute();
+		return route != null ? route : new RouteImpl(verb, buf.get(path), null, null);
+	}
+
+	private static boolean startsWith(Bytes bytes, int pos, int end, byte[] prefix) {
+		if (end - pos < prefix.length) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length; i++) {
+			if (bytes.get(pos + i) != prefix[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int indexOf(byte[] indices, byte value) {
+		for (int i = 0; i < indices.length; i++) {
+			if (indices[i] == value) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	private static class Compiled {
+
+		final Node root = new Node(NO_BYTES);
+
+		final Map<PathPattern, HttpHandler> regexHandlers = new LinkedHashMap<PathPattern, HttpHandler>();
+
+		int maxParams;
+
+		boolean isEmpty = true;
+
+		/**
+		 * Adds the route to the tree, if it consists only of static, {name}, {name:regex} (if the regex cannot match
+		 * a '/') and trailing * segments.
+		 */
+		boolean add(String path, HttpHandler handler) {
+			String[] segments = path.split("/", -1);
+			List<String> paramNames = U.list();
+
+			// validate the segments first, to avoid adding partial routes to the tree
+			for (int i = 0; i < segments.length; i++) {
+				String segment = segments[i];
+
+				boolean isWildcard = segment.equals("*") && i == segments.length - 1;
+				Matcher param = PARAM_SEGMENT.matcher(segment);
+
+				if (param.matches()) {
+					String regex = param.group(2);
+
+					if (regex != null && MULTI_SEGMENT_REGEX.matcher(regex).find()) {
+						return false;
+					}
+
+				} else if (!isWildcard && !LITERAL_SEGMENT.matcher(segment).matches()) {
+					return false;
+				}
+			}
+
+			Node node = root;
+			StringBuilder literal = new StringBuilder();
+			boolean isWildcard = false;
+
+			for (int i = 0; i < segments.length; i++) {
+				String segment = segments[i];
+
+				if (i > 0) {
+					literal.append('/');
+				}
+
+				Matcher param = PARAM_SEGMENT.matcher(segment);
+
+				if (param.matches()) {
+					node = insert(node, literal.toString().getBytes(), 0);
+					literal.setLength(0);
+
+					String regex = param.group(2);
+
+					if (regex != null) {
+						node = node.regexParam(regex);
+
+					} else {
+						if (node.param == null) {
+							node.param = new Node(NO_BYTES);
+						}
+
+						node = node.param;
+					}
+
+					paramNames.add(param.group(1));
+
+				} else if (segment.equals("*") && i == segments.length - 1) {
+					node = insert(node, literal.toString().getBytes(), 0);
+					literal.setLength(0);
+
+					if (node.wildcard == null) {
+						node.wildcard = new Node(NO_BYTES);
+					}
+
+					node = node.wildcard;
+					isWildcard = true;
+
+				} else {
+					literal.append(segment);
+				}
+			}
+
+			node = insert(node, literal.toString().getBytes(), 0);
+
+			// the first registered route wins (e.g. between /x/{a} and /x/{b})
+			if (node.leaf == null) {
+				node.leaf = new Leaf(handler, paramNames.toArray(new String[paramNames.size()]), isWildcard);
+				maxParams = Math.max(maxParams, paramNames.size());
+			}
+
+			return true;
+		}
+
+		private Node insert(Node parent, byte[] path, int from) {
+			if (from == path.length) {
+				return parent;
+			}
+
+			int index = indexOf(parent.indices, path[from]);
+
+			if (index < 0) {
+				Node child = new Node(Arrays.copyOfRange(path, from, path.length));
+				parent.addChild(child);
+				return child;
+			}
+
+			Node child = parent.children[index];
+			int common = commonPrefix(child.prefix, path, from);
+
+			if (common < child.prefix.length) {
+				child.split(common);
+			}
+
+			return insert(child, path, from + common);
+		}
+
+		private static int commonPrefix(byte[] prefix, byte[] path, int from) {
+			int n = 0;
+
+			while (n < prefix.length && from + n < path.length && prefix[n] == path[from + n]) {
+				n++;
+			}
+
+			return n;
+		}
+	}
+
+	private static class Node {
+
+		byte[] prefix;
+
+		// the first byte of each static child, for quick lookup
+		byte[] indices = NO_BYTES;
+
+		Node[] children = NO_NODES;
+
+		// the parameters with custom regex, in the order of registration
+		Node[] regexParams = NO_NODES;
+
+		Node param;
+
+		Node wildcard;
+
+		Leaf leaf;
+
+		// the regex of the segment, for the parameters with custom regex
+		Pattern regex;
+
+		Node(byte[] prefix) {
+			this.prefix = prefix;
+		}
+
+		Node regexParam(String regex) {
+			for (Node param : regexParams) {
+				if (param.regex.pattern().equals(regex)) {
+					return param;
+				}
+			}
+
+			Node param = new Node(NO_BYTES);
+			param.regex = Pattern.compile(regex);
+
+			regexParams = Arrays.copyOf(regexParams, regexParams.length + 1);
+			regexParams[regexParams.length - 1] = param;
+
+			return param;
+		}
+
+		void addChild(Node child) {
+			indices = Arrays.copyOf(indices, indices.length + 1);
+			indices[indices.length - 1] = child.prefix[0];
+
+			children = Arrays.copyOf(children, children.length + 1);
+			children[children.length - 1] = child;
+		}
+
+		void split(int at) {
+			Node tail = new Node(Arrays.copyOfRange(prefix, at, prefix.length));
+
+			tail.indices = indices;
+			tail.children = children;
+			tail.regexParams = regexParams;
+			tail.param = param;
+			tail.wildcard = wildcard;
+			tail.leaf = leaf;
+
+			prefix = Arrays.copyOf(prefix, at);
+			indices = NO_BYTES;
+			children = NO_NODES;
+			regexParams = NO_NODES;
+			param = null;
+			wildcard = null;
+			leaf = null;
+
+			addChild(tail);
+		}
+	}
+
+	private static class Leaf {
+
+		final HttpHandler handler;
+
+		final String[] paramNames;
+
+		final boolean isWildcard;
+
+		Leaf(HttpHandler handler, String[] paramNames, boolean isWildcard) {
+			this.handler = handler;
+			this.paramNames = paramNames;
+			this.isWildcard = isWildcard;
+		}
+	}
+
+}
@@ -0,0 +1,555 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.collection.Coll;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.log.Log;
+import org.rapidoid.serialize.Serialize;
+import org.rapidoid.timeseries.TimeSeries;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Stores the serialized sessions outside of the heap, in a slab of fixed-size blocks, which is either a direct buffer,
+ * or a memory-mapped file (so the sessions survive restarts). When the slab is full, the least recently used sessions
+ * are evicted. The sessions expire after the configured idle time (since the last access) or absolute time (since
+ * their creation).
+ * <p>
+ * The sessions are serialized in the compact {@link Serialize} format, falling back to Java serialization for the
+ * sessions that contain values of other types.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class SessionStore extends RapidoidThing {
+
+	private static final int MAGIC = 0x5E551011;
+
+	private static final byte FORMAT_COMPACT = 0;
+
+	private static final byte FORMAT_JAVA = 1;
+
+	// magic (4), entry length (4), created at (8), last accessed at (8), ID length (2)
+	private static final int HEADER_SIZE = 26;
+
+	private static final int LAST_ACCESSED_AT_OFFSET = 16;
+
+	private static final ThreadLocal<ByteBuffer> BUFFERS = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(4096);
+		}
+	};
+
+	private final ByteBuffer slab;
+
+	private final boolean mapped;
+
+	private final int blockSize;
+
+	private final int blockCount;
+
+	private final long idleTTL;
+
+	private final long absoluteTTL;
+
+	private final BitSet usedBlocks;
+
+	// ordered by the last access, the least recently used sessions are first
+	private final LinkedHashMap<String, Slot> index = new LinkedHashMap<String, Slot>(16, 0.75f, true);
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong expirations = new AtomicLong();
+
+	private final AtomicLong serializations = new AtomicLong();
+
+	private final AtomicLong serializationTime = new AtomicLong();
+
+	private final ScheduledFuture<?> maintenance;
+
+	/**
+	 * Creates a store with the specified total size (in bytes), which is backed by a direct buffer, or by the specified
+	 * file (if not <code>null</code>). A non-positive TTL means the sessions don't expire.
+	 */
+	public SessionStore(long size, int blockSize, long idleTTL, long absoluteTTL, String filename) {
+		U.must(blockSize > HEADER_SIZE, "The block size must be bigger than %s bytes!", HEADER_SIZE);
+
+		this.blockSize = blockSize;
+		this.blockCount = (int) Math.min(size / blockSize, Integer.MAX_VALUE / blockSize);
+		this.idleTTL = idleTTL;
+		this.absoluteTTL = absoluteTTL;
+		this.usedBlocks = new BitSet(blockCount);
+
+		int capacity = blockCount * blockSize;
+
+		this.mapped = U.notEmpty(filename);
+
+		if (mapped) {
+			this.slab = mapFile(filename, capacity);
+			restore();
+		} else {
+			this.slab = ByteBuffer.allocateDirect(capacity);
+		}
+
+		this.maintenance = Jobs.scheduleAtFixedRate(new Maintenance(), 1, 1, TimeUnit.SECONDS);
+	}
+
+	public static SessionStore fromConfig() {
+		Config cfg = Conf.HTTP.sub("sessions");
+
+		long size = cfg.entry("maxSize").or(33554432L);
+		int blockSize = cfg.entry("blockSize").or(256);
+		long idleTTL = cfg.entry("idleTTL").or(1800000L);
+		long absoluteTTL = cfg.entry("absoluteTTL").or(86400000L);
+		String filename = cfg.entry("file").str().getOrNull();
+
+		return new SessionStore(size, blockSize, idleTTL, absoluteTTL, filename);
+	}
+
+	private static MappedByteBuffer mapFile(String filename, int capacity) {
+		try {
+			RandomAccessFile file = new RandomAccessFile(new File(filename), "rw");
+
+			try {
+				// the mapping remains valid after the file is closed
+				return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			} finally {
+				file.close();
+			}
+
+		} catch (Exception e) {
+			throw U.rte("Couldn't map the sessions file: " + filename, e);
+		}
+	}
+
+	/**
+	 * Returns the session data, or <code>null</code> if there is no such session, or it has expired.
+	 */
+	public Map<String, Serializable> load(String id) {
+		byte format;
+		byte[] data;
+
+		synchronized (this) {
+			Slot slot = index.get(id);
+
+			if (slot == null) {
+				return null;
+			}
+
+			long now = U.time();
+
+			if (isExpired(slot, now)) {
+				remove(id, slot);
+				expirations.incrementAndGet();
+				return null;
+			}
+
+			slot.lastAccessedAt = now;
+			slab.putLong(slot.offset() + LAST_ACCESSED_AT_OFFSET, now);
+
+			int pos = slot.offset() + HEADER_SIZE + slot.idLength;
+			format = slab.get(pos);
+
+			ByteBuffer src = slab.duplicate();
+			src.position(pos + 1);
+
+			data = new byte[slot.length - HEADER_SIZE - slot.idLength - 1];
+			src.get(data);
+		}
+
+		Map<?, ?> session = (Map<?, ?>) (format == FORMAT_COMPACT ? Serialize.deserialize(data) : Msc.deserialize(data));
+
+		Map<String, Serializable> result = Coll.concurrentMap();
+		result.putAll(U.<Map<String, Serializable>>cast(session));
+		return result;
+	}
+
+	/**
+	 * Stores the session data, evicting the least recently used sessions if there isn't enough space.
+	 */
+	public void save(String id, Map<String, Serializable> session) {
+		long start = System.nanoTime();
+
+		ByteBuffer buf = serialize(session);
+
+		serializations.incrementAndGet();
+		serializationTime.addAndGet(System.nanoTime() - start);
+
+		byte[] idBytes = id.getBytes();
+		int length = HEADER_SIZE + idBytes.length + buf.remaining();
+		int blocks = (length + blockSize - 1) / blockSize;
+
+		U.must(blocks <= blockCount, "The session is too big to be stored: %s bytes!", length);
+
+		synchronized (this) {
+			long now = U.time();
+			long createdAt = now;
+
+			Slot slot = index.get(id);
+
+			if (slot != null) {
+				createdAt = slot.createdAt;
+
+				if (blocks <= slot.blocks) {
+					// fits in the current blocks, so the surplus blocks are released
+					usedBlocks.clear(slot.block + blocks, slot.block + slot.blocks);
+				} else {
+					remove(id, slot);
+					slot = null;
+				}
+			}
+
+			if (slot == null) {
+				slot = new Slot(allocate(blocks, id), blocks, createdAt);
+				index.put(id, slot);
+			}
+
+			slot.blocks = blocks;
+			slot.length = length;
+			slot.idLength = idBytes.length;
+			slot.lastAccessedAt = now;
+
+			write(slot, idBytes, buf);
+		}
+	}
+
+	public synchronized void remove(String id) {
+		Slot slot = index.get(id);
+
+		if (slot != null) {
+			remove(id, slot);
+		}
+	}
+
+	private void remove(String id, Slot slot) {
+		index.remove(id);
+		slab.putInt(slot.offset(), 0);
+		usedBlocks.clear(slot.block, slot.block + slot.blocks);
+	}
+
+	private ByteBuffer serialize(Map<String, Serializable> session) {
+		ByteBuffer buf = BUFFERS.get();
+
+		while (true) {
+			buf.clear();
+
+			try {
+				buf.put(FORMAT_COMPACT);
+				Serialize.serialize(buf, session);
+				break;
+
+			} catch (BufferOverflowException e) {
+				buf = ByteBuffer.allocate(buf.capacity() * 2);
+				BUFFERS.set(buf);
+
+			} catch (RuntimeException e) {
+				// some of the values aren't supported by the compact format
+				byte[] bytes = Msc.serialize(session);
+
+				if (buf.capacity() < bytes.length + 1) {
+					buf = ByteBuffer.allocate(bytes.length + 1);
+					BUFFERS.set(buf);
+				}
+
+				buf.clear();
+				buf.put(FORMAT_JAVA);
+				buf.put(bytes);
+				break;
+			}
+		}
+
+		buf.flip();
+		return buf;
+	}
+
+	private void write(Slot slot, byte[] idBytes, ByteBuffer data) {
+		int offset = slot.offset();
+
+		// the magic is written last, so a partially written entry is never restored from the file
+		slab.putInt(offset, 0);
+
+		ByteBuffer dest = slab.duplicate();
+		dest.position(offset + 4);
+
+		dest.putInt(slot.length);
+		dest.putLong(slot.createdAt);
+		dest.putLong(slot.lastAccessedAt);
+		dest.putShort((short) idBytes.length);
+		dest.put(idBytes);
+		dest.put(data);
+
+		slab.putInt(offset, MAGIC);
+	}
+
+	private int allocate(int blocks, String id) {
+		while (true) {
+			int block = findFreeBlocks(blocks);
+
+			if (block >= 0) {
+				usedBlocks.set(block, block + blocks);
+				return block;
+			}
+
+			Iterator<Map.Entry<String, Slot>> it = index.entrySet().iterator();
+			U.must(it.hasNext(), "Couldn't allocate space for the session: %s", id);
+
+			Map.Entry<String, Slot> lru = it.next();
+			remove(lru.getKey(), lru.getValue());
+			evictions.incrementAndGet();
+		}
+	}
+
+	private int findFreeBlocks(int blocks) {
+		int from = usedBlocks.nextClearBit(0);
+
+		while (from + blocks <= blockCount) {
+			int next = usedBlocks.nextSetBit(from);
+
+			if (next < 0 || next - from >= blocks) {
+				return from;
+			}
+
+			from = usedBlocks.nextClearBit(next);
+		}
+
+		return -1;
+	}
+
+	private boolean isExpired(Slot slot, long now) {
+		return (idleTTL > 0 && now - slot.lastAccessedAt > idleTTL)
+			|| (absoluteTTL > 0 && now - slot.createdAt > absoluteTTL);
+	}
+
+	/**
+	 * Removes the expired sessions. As the sessions are ordered by their last access, the scan stops at the first session
+	 * that isn't idle for too long, so the ones that reached the absolute TTL before that are removed when they are
+	 * accessed (or evicted).
+	 */
+	public synchronized void purge() {
+		long now = U.time();
+
+		Iterator<Map.Entry<String, Slot>> it = index.entrySet().iterator();
+
+		while (it.hasNext()) {
+			Map.Entry<String, Slot> e = it.next();
+			Slot slot = e.getValue();
+
+			if (!isExpired(slot, now)) {
+				if (idleTTL > 0) {
+					break; // the next sessions were accessed even later
+				} else {
+					continue;
+				}
+			}
+
+			it.remove();
+			slab.putInt(slot.offset(), 0);
+			usedBlocks.clear(slot.block, slot.block + slot.blocks);
+			expirations.incrementAndGet();
+		}
+	}
+
+	private void restore() {
+		List<String> ids = U.list();
+		List<Slot> slots = U.list();
+
+		int block = 0;
+
+		while (block < blockCount) {
+			int offset = block * blockSize;
+
+			if (slab.getInt(offset) == MAGIC) {
+				int length = slab.getInt(offset + 4);
+				int blocks = (length + blockSize - 1) / blockSize;
+				int idLength = slab.getShort(offset + HEADER_SIZE - 2);
+
+				if (length > HEADER_SIZE && idLength > 0 && block + blocks <= blockCount) {
+					Slot slot = new Slot(block, blocks, slab.getLong(offset + 8));
+					slot.length = length;
+					slot.idLength = idLength;
+					slot.lastAccessedAt = slab.getLong(offset + LAST_ACCESSED_AT_OFFSET);
+
+					byte[] idBytes = new byte[idLength];
+					ByteBuffer src = slab.duplicate();
+					src.position(offset + HEADER_SIZE);
+					src.get(idBytes);
+
+					ids.add(new String(idBytes));
+					slots.add(slot);
+
+					block += blocks;
+					continue;
+				}
+			}
+
+			block++;
+		}
+
+		Integer[] order = new Integer[slots.size()];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+
+		final List<Slot> restored = slots;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(restored.get(a).lastAccessedAt, restored.get(b).lastAccessedAt);
+			}
+		});
+
+		synchronized (this) {
+			for (Integer i : order) {
+				Slot slot = slots.get(i);
+				Slot old = index.put(ids.get(i), slot);
+
+				if (old != null) {
+					// the older copy of the same session
+					slab.putInt(old.offset(), 0);
+					usedBlocks.clear(old.block, old.block + old.blocks);
+				}
+
+				usedBlocks.set(slot.block, slot.block + slot.blocks);
+			}
+		}
+
+		purge();
+
+		Log.info("Restored the stored sessions", "count", size());
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	public synchronized long usedBytes() {
+		return (long) usedBlocks.cardinality() * blockSize;
+	}
+
+	public long evictions() {
+		return evictions.get();
+	}
+
+	public long expirations() {
+		return expirations.get();
+	}
+
+	/**
+	 * Stops the maintenance and flushes the changes to the file (if the store is backed by a file).
+	 */
+	public void close() {
+		maintenance.cancel(false);
+
+		if (mapped) {
+			((MappedByteBuffer) slab).force();
+		}
+	}
+
+	private class Slot {
+
+		final int block;
+
+		int blocks;
+
+		final long createdAt;
+
+		long lastAccessedAt;
+
+		int length;
+
+		int idLength;
+
+		Slot(int block, int blocks, long createdAt) {
+			this.block = block;
+			this.blocks = blocks;
+			this.createdAt = createdAt;
+		}
+
+		int offset() {
+			return block * blockSize;
+		}
+	}
+
+	private class Maintenance implements Runnable {
+
+		private final TimeSeries sizeMetric = metric("count", "Number of stored sessions");
+
+		private final TimeSeries usedMetric = metric("used", "Used space (bytes)");
+
+		private final TimeSeries evictionsMetric = metric("evictions", "Evicted sessions");
+
+		private final TimeSeries expirationsMetric = metric("expirations", "Expired sessions");
+
+		private final TimeSeries serializationMetric = metric("serialization", "Serialization time (ms), average");
+
+		private long lastEvictions;
+
+		private long lastExpirations;
+
+		private TimeSeries metric(String uri, String title) {
+			TimeSeries metric = new TimeSeries().title("Sessions: " + title);
+			Metrics.register("sessions/" + uri, metric);
+			return metric;
+		}
+
+		@Override
+		public void run() {
+			purge();
+
+			long now = U.time();
+
+			long totalEvictions = evictions();
+			long totalExpirations = expirations();
+
+			long count = serializations.getAndSet(0);
+			long time = serializationTime.getAndSet(0);
+
+			sizeMetric.put(now, size());
+			usedMetric.put(now, usedBytes());
+			evictionsMetric.put(now, totalEvictions - lastEvictions);
+			expirationsMetric.put(now, totalExpirations - lastExpirations);
+			serializationMetric.put(now, count > 0 ? time / 1e6 / count : 0);
+
+			lastEvictions = totalEvictions;
+			lastExpirations = totalExpirations;
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Dates;
+import org.rapidoid.io.IO;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A snapshot of a static file with its precomputed validators (ETag and Last-Modified). The content of the small
+ * files is kept in a direct buffer, the bigger files are transferred from the disk.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class StaticAsset extends RapidoidThing {
+
+	// the file changes are checked at most this often, if the file isn't watched for changes
+	static final long CHECK_INTERVAL = 500;
+
+	private final File file;
+
+	private final long length;
+
+	private final long lastModified;
+
+	private final ByteBuffer content;
+
+	private final boolean watched;
+
+	// whether there is a precompressed (.gz) sibling of the file
+	private final boolean gzipped;
+
+	private final String etag;
+
+	private final byte[] etagBytes;
+
+	private final byte[] lastModifiedBytes;
+
+	private volatile long checkedOn;
+
+	private StaticAsset(File file, long length, long lastModified, ByteBuffer content, boolean watched) {
+		this.file = file;
+		this.length = length;
+		this.lastModified = lastModified;
+		this.content = content;
+		this.watched = watched;
+		this.gzipped = hasGzippedSibling(file);
+
+		this.etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+		this.etagBytes = etag.getBytes();
+		this.lastModifiedBytes = Dates.httpDate(lastModified).getBytes();
+		this.checkedOn = U.time();
+	}
+
+	/**
+	 * Takes a snapshot of the file, loading its content in a direct buffer if it is smaller than
+	 * <code>maxContentSize</code>.
+	 */
+	static StaticAsset load(File file, long maxContentSize, boolean watched) throws IOException {
+		long lastModified = file.lastModified();
+		FileInputStream stream = new FileInputStream(file);
+
+		try {
+			FileChannel channel = stream.getChannel();
+			long length = channel.size();
+			ByteBuffer content = null;
+
+			if (length < maxContentSize) {
+				content = ByteBuffer.allocateDirect((int) length);
+
+				while (content.hasRemaining() && channel.read(content) >= 0) {
+					// keep reading
+				}
+
+				content.flip();
+				length = content.limit();
+			}
+
+			return new StaticAsset(file, length, lastModified, content, watched);
+
+		} finally {
+			IO.close(stream, true);
+		}
+	}
+
+	/**
+	 * Checks whether the snapshot is still up-to-date. The files that are not watched for changes are checked on the
+	 * disk (at most every 500 ms).
+	 */
+	boolean isFresh() {
+		if (watched) {
+			return true;
+		}
+
+		long now = U.time();
+
+		if (now - checkedOn < CHECK_INTERVAL) {
+			return true;
+		}
+
+		checkedOn = now;
+
+		return file.lastModified() == lastModified && file.length() == length && hasGzippedSibling(file) == gzipped;
+	}
+
+	private static boolean hasGzippedSibling(File file) {
+		return !file.getName().endsWith(".gz") && gzippedSibling(file).isFile();
+	}
+
+	static File gzippedSibling(File file) {
+		return new File(file.getPath() + ".gz");
+	}
+
+	/**
+	 * Checks whether the entity tags of a <code>If-None-Match</code> or <code>If-Range</code> header match this file.
+	 */
+	boolean matches(String etags) {
+		if (etags.trim().equals("*")) {
+			return true;
+		}
+
+		for (String tag : etags.split(",")) {
+			tag = tag.trim();
+
+			// the weak comparison is used for the conditional GET requests
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+
+			if (tag.equals(etag)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks whether the file wasn't modified since the date of a <code>If-Modified-Since</code> header.
+	 */
+	boolean notModifiedSince(String date) {
+		long since = Dates.parseHttpDate(date);
+
+		// the HTTP dates have a precision of 1 second
+		return since >= 0 && lastModified / 1000 <= since / 1000;
+	}
+
+	public File file() {
+		return file;
+	}
+
+	public long length() {
+		return length;
+	}
+
+	public long lastModified() {
+		return lastModified;
+	}
+
+	public boolean gzipped() {
+		return gzipped;
+	}
+
+	public String etag() {
+		return etag;
+	}
+
+	byte[] etagBytes() {
+		return etagBytes;
+	}
+
+	byte[] lastModifiedBytes() {
+		return lastModifiedBytes;
+	}
+
+	/**
+	 * Returns a region of the content, or <code>null</code> if the content isn't kept in memory.
+	 */
+	ByteBuffer content(long position, long count) {
+		if (content == null) {
+			return null;
+		}
+
+		ByteBuffer region = content.duplicate();
+		region.position((int) position);
+		region.limit((int) (position + count));
+
+		return region;
+	}
+
+	/**
+	 * The size of the content kept in memory.
+	 */
+	long size() {
+		return content != null ? content.capacity() : 0;
+	}
+
+}
@@ -0,0 +1,331 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.cache.LRUCache;
+import org.rapidoid.collection.Coll;
+import org.rapidoid.commons.Str;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.http.HttpHeaders;
+import org.rapidoid.http.MediaType;
+import org.rapidoid.http.Req;
+import org.rapidoid.log.Log;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.util.Constants;
+import org.rapidoid.util.Msc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Serves the static files from a bounded cache of snapshots, with conditional (304) and partial (206) responses. The
+ * cached files are invalidated by the file system watcher, if the folder of the file is watched for changes, or
+ * checked on the disk otherwise.
+ * <p>
+ * If a file has a precompressed (.gz) sibling, the sibling is served instead to the clients that accept gzip.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class StaticAssets extends RapidoidThing implements Constants {
+
+	private static final byte[] BYTES = "bytes".getBytes();
+
+	private static final byte[] GZIP = HttpCompression.GZIP.getBytes();
+
+	private static final byte[] VARY_ENCODING = HttpHeaders.ACCEPT_ENCODING.getBytes();
+
+	private static final boolean PRECOMPRESSED = Conf.HTTP.sub("compression").entry("precompressed").or(true);
+
+	// the files of this size or bigger are transferred from the disk, instead of being kept in memory
+	private static final long FILE_TRANSFER_THRESHOLD = Conf.HTTP.entry("fileTransferThreshold").or(65536L);
+
+	private static final LRUCache<String, StaticAsset> ASSETS;
+
+	private static final boolean WATCH;
+
+	// the (absolute) folders that are watched for changes
+	private static final Set<String> WATCHED = Coll.synchronizedSet();
+
+	static {
+		Config cfg = Conf.HTTP.sub("staticFiles");
+		int capacity = cfg.entry("capacity").or(1000);
+		long maxSize = cfg.entry("maxSize").or(50000000L);
+
+		ASSETS = new LRUCache<String, StaticAsset>(capacity, maxSize, 0);
+		WATCH = cfg.entry("watch").or(true) && Msc.withWatchModule();
+	}
+
+	/**
+	 * Returns an up-to-date snapshot of the file, loading it if it isn't cached. The static files location (folder)
+	 * of the file is watched for changes, if the rapidoid-watch module is available.
+	 */
+	public static StaticAsset get(File file, String name) throws IOException {
+		String path = file.getAbsolutePath();
+		StaticAsset asset = ASSETS.get(path);
+
+		if (asset == null || !asset.isFresh()) {
+			if (WATCH && path.endsWith(name)) {
+				watch(path.substring(0, path.length() - name.length()));
+			}
+
+			asset = StaticAsset.load(file, FILE_TRANSFER_THRESHOLD, isWatched(path));
+			ASSETS.put(path, asset, asset.size());
+		}
+
+		return asset;
+	}
+
+	private static void watch(String folder) {
+		folder = Str.trimr(folder, File.separator) + File.separator;
+
+		if (WATCHED.add(folder)) {
+			StaticFilesWatcher.watch(folder);
+		}
+	}
+
+	/**
+	 * Invalidates the cached snapshot of the file (or folder) that was changed.
+	 */
+	public static void changed(String filename) {
+		Log.debug("Static file has changed", "file", filename);
+
+		String path = new File(filename).getAbsolutePath();
+
+		if (new File(path).isDirectory()) {
+			ASSETS.clear();
+		} else {
+			ASSETS.invalidate(path);
+
+			// the snapshot of the original file knows whether the precompressed (.gz) sibling exists
+			if (path.endsWith(".gz")) {
+				ASSETS.invalidate(path.substring(0, path.length() - 3));
+			}
+		}
+	}
+
+	public static void reset() {
+		ASSETS.clear();
+	}
+
+	private static boolean isWatched(String path) {
+		synchronized (WATCHED) {
+			for (String folder : WATCHED) {
+				if (path.startsWith(folder)) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Serves the file, or its precompressed (.gz) sibling if there is one and the client accepts gzip.
+	 */
+	public static void serve(Channel ctx, boolean isKeepAlive, Req req, File file, String name,
+	                         MediaType contentType) throws IOException {
+
+		StaticAsset asset = get(file, name);
+
+		if (PRECOMPRESSED && asset.gzipped()) {
+			String encoding = HttpCompression.negotiate(req.header(HttpHeaders.ACCEPT_ENCODING.name(), null));
+
+			if (HttpCompression.GZIP.equals(encoding)) {
+				StaticAsset gzipped = get(StaticAsset.gzippedSibling(file), name + ".gz");
+				write(ctx, isKeepAlive, req, gzipped, contentType, GZIP, true);
+				return;
+			}
+
+			write(ctx, isKeepAlive, req, asset, contentType, null, true);
+			return;
+		}
+
+		write(ctx, isKeepAlive, req, asset, contentType, null, false);
+	}
+
+	/**
+	 * Writes a full (200), partial (206), not modified (304) or range not satisfiable (416) response, depending on
+	 * the conditional and range headers of the request.
+	 */
+	public static void write(Channel ctx, boolean isKeepAlive, Req req, StaticAsset asset, MediaType contentType) {
+		write(ctx, isKeepAlive, req, asset, contentType, null, false);
+	}
+
+	private static void write(Channel ctx, boolean isKeepAlive, Req req, StaticAsset asset, MediaType contentType,
+	                          byte[] encoding, boolean varies) {
+
+		if (isNotModified(req, asset)) {
+			HttpIO.startResponse(ctx, 304, isKeepAlive, contentType);
+			writeValidators(ctx, asset, varies);
+			ctx.write(CR_LF);
+			return;
+		}
+
+		long length = asset.length();
+		String range = req.header(HttpHeaders.RANGE.name(), null);
+
+		if (range != null && isRangeApplicable(req, asset)) {
+			long[] interval = parseRange(range, length);
+
+			if (interval == null) {
+				HttpIO.startResponse(ctx, 416, isKeepAlive, contentType);
+				HttpIO.addCustomHeader(ctx, HttpHeaders.CONTENT_RANGE.getBytes(), ("bytes */" + length).getBytes());
+				HttpIO.writeContentLengthHeader(ctx, 0);
+				ctx.write(CR_LF);
+				return;
+			}
+
+			if (interval.length == 2) {
+				long start = interval[0];
+				long count = interval[1] - start + 1;
+				String contentRange = "bytes " + start + "-" + interval[1] + "/" + length;
+
+				HttpIO.startResponse(ctx, 206, isKeepAlive, contentType);
+				writeValidators(ctx, asset, varies);
+				writeEncoding(ctx, encoding);
+				HttpIO.addCustomHeader(ctx, HttpHeaders.CONTENT_RANGE.getBytes(), contentRange.getBytes());
+				writeBody(ctx, asset, start, count);
+				return;
+			}
+		}
+
+		HttpIO.startResponse(ctx, 200, isKeepAlive, contentType);
+		writeValidators(ctx, asset, varies);
+		writeEncoding(ctx, encoding);
+		HttpIO.addCustomHeader(ctx, HttpHeaders.ACCEPT_RANGES.getBytes(), BYTES);
+		writeBody(ctx, asset, 0, length);
+	}
+
+	private static boolean isNotModified(Req req, StaticAsset asset) {
+		String ifNoneMatch = req.header(HttpHeaders.IF_NONE_MATCH.name(), null);
+
+		if (ifNoneMatch != null) {
+			// If-Modified-Since is ignored when If-None-Match is specified
+			return asset.matches(ifNoneMatch);
+		}
+
+		String ifModifiedSince = req.header(HttpHeaders.IF_MODIFIED_SINCE.name(), null);
+		return ifModifiedSince != null && asset.notModifiedSince(ifModifiedSince);
+	}
+
+	private static boolean isRangeApplicable(Req req, StaticAsset asset) {
+		String ifRange = req.header(HttpHeaders.IF_RANGE.name(), null);
+
+		if (ifRange == null) {
+			return true;
+		}
+
+		// the strong comparison is required for If-Range, so the weak tags never match
+		return ifRange.startsWith("\"") ? ifRange.trim().equals(asset.etag()) : asset.notModifiedSince(ifRange);
+	}
+
+	/**
+	 * Parses a single byte range (e.g. <code>bytes=0-99</code>, <code>bytes=100-</code> or <code>bytes=-100</code>).
+	 *
+	 * @return the first and last position of the range, an empty array if the range should be ignored (e.g. it is
+	 * invalid or has multiple ranges) or <code>null</code> if the range can't be satisfied
+	 */
+	static long[] parseRange(String range, long length) {
+		range = range.trim();
+
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return new long[0];
+		}
+
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+
+		if (dash < 0) {
+			return new long[0];
+		}
+
+		String from = spec.substring(0, dash).trim();
+		String to = spec.substring(dash + 1).trim();
+
+		long start, end;
+
+		try {
+			if (from.isEmpty()) {
+				// the last N bytes
+				long suffix = Long.parseLong(to);
+
+				if (suffix <= 0 || length == 0) {
+					return null;
+				}
+
+				start = Math.max(length - suffix, 0);
+				end = length - 1;
+
+			} else {
+				start = Long.parseLong(from);
+				end = to.isEmpty() ? length - 1 : Math.min(Long.parseLong(to), length - 1);
+
+				if (start < 0 || (!to.isEmpty() && Long.parseLong(to) < start)) {
+					return new long[0];
+				}
+
+				if (start >= length) {
+					return null;
+				}
+			}
+
+		} catch (NumberFormatException e) {
+			return new long[0];
+		}
+
+		return new long[]{start, end};
+	}
+
+	private static void writeValidators(Channel ctx, StaticAsset asset, boolean varies) {
+		HttpIO.addCustomHeader(ctx, HttpHeaders.ETAG.getBytes(), asset.etagBytes());
+		HttpIO.addCustomHeader(ctx, HttpHeaders.LAST_MODIFIED.getBytes(), asset.lastModifiedBytes());
+
+		if (varies) {
+			HttpIO.addCustomHeader(ctx, HttpHeaders.VARY.getBytes(), VARY_ENCODING);
+		}
+	}
+
+	private static void writeEncoding(Channel ctx, byte[] encoding) {
+		if (encoding != null) {
+			HttpIO.addCustomHeader(ctx, HttpHeaders.CONTENT_ENCODING.getBytes(), encoding);
+		}
+	}
+
+	private static void writeBody(Channel ctx, StaticAsset asset, long position, long count) {
+		HttpIO.writeContentLengthHeader(ctx, count);
+		ctx.write(CR_LF);
+
+		ByteBuffer content = asset.content(position, count);
+
+		if (content != null) {
+			ctx.write(content);
+		} else {
+			ctx.transfer(asset.file(), position, count);
+		}
+	}
+
+}
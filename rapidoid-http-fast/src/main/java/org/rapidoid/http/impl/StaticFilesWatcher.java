@@ -0,0 +1,46 @@
+package org.rapidoid.http.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.io.watch.Watch;
+import org.rapidoid.lambda.Operation;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Invalidates the cached static files when they change. Used only if the (optional) rapidoid-watch module is
+ * available.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+class StaticFilesWatcher extends RapidoidThing {
+
+	static void watch(String folder) {
+		Watch.dir(folder, new Operation<String>() {
+			@Override
+			public void execute(String filename) throws Exception {
+				StaticAssets.changed(filename);
+			}
+		});
+	}
+
+}
@@ -23,10 +23,13 @@ package org.rapidoid.http.processor;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
 import org.rapidoid.http.FastHttpProtocol;
 import org.rapidoid.http.HttpMetadata;
 import org.rapidoid.net.Server;
 import org.rapidoid.net.TCP;
+import org.rapidoid.net.impl.AcceptBalancer;
+import org.rapidoid.net.impl.AcceptBalancers;
 
 @Authors("Nikolche Mihajlovski")
 @Since("5.1.0")
@@ -43,7 +46,11 @@ public abstract class AbstractHttpProcessor extends RapidoidThing implements Htt
 	@Override
 	public Server listen(String address, int port) {
 		FastHttpProtocol protocol = new FastHttpProtocol(this);
-		return TCP.server().protocol(protocol).address(address).port(port).syncBufs(syncBufs).build().start();
+		boolean reusePort = Conf.HTTP.entry("reusePort").or(false);
+		AcceptBalancer balancer = AcceptBalancers.create(Conf.HTTP.entry("acceptBalancer").str().getOrNull());
+
+		return TCP.server().protocol(protocol).address(address).port(port).syncBufs(syncBufs).reusePort(reusePort)
+			.acceptBalancer(balancer).build().start();
 	}
 
 	@Override
@@ -0,0 +1,111 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.HttpCompression;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.zip.Deflater;
+
+/**
+ * Measures the CPU cost vs the saved bytes of the response compression, for typical JSON and HTML payloads of
+ * different sizes, with the default (gzip) compression and with the compression levels 1, 6 and 9.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class CompressionPerfTest {
+
+	private static final int TOTAL_BYTES = 50 * 1024 * 1024;
+
+	public static void main(String[] args) {
+		for (int round = 0; round < 2; round++) {
+			for (int items : new int[]{10, 100, 1000}) {
+				benchmark("JSON", json(items));
+				benchmark("HTML", html(items));
+			}
+		}
+	}
+
+	private static void benchmark(String type, final byte[] payload) {
+		String name = type + " (" + payload.length + " bytes)";
+		int count = TOTAL_BYTES / payload.length;
+
+		Msc.benchmark(name + " gzip", count, new Runnable() {
+			@Override
+			public void run() {
+				HttpCompression.compress(payload, HttpCompression.GZIP);
+			}
+		});
+
+		report(name + " gzip", payload.length, HttpCompression.compress(payload, HttpCompression.GZIP).length);
+
+		for (int level : new int[]{1, 6, 9}) {
+			final Deflater deflater = new Deflater(level, true);
+			final byte[] out = new byte[payload.length + 1024];
+			final int[] size = {0};
+
+			Msc.benchmark(name + " level " + level, count, new Runnable() {
+				@Override
+				public void run() {
+					deflater.setInput(payload);
+					deflater.finish();
+					size[0] = deflater.deflate(out);
+					deflater.reset();
+				}
+			});
+
+			report(name + " level " + level, payload.length, size[0]);
+			deflater.end();
+		}
+	}
+
+	private static void report(String name, int original, int compressed) {
+		U.print(U.frmt("%s: %s -> %s bytes (%s%% saved)", name, original, compressed, 100 - compressed * 100 / original));
+	}
+
+	private static byte[] json(int items) {
+		StringBuilder sb = new StringBuilder("[");
+
+		for (int i = 0; i < items; i++) {
+			if (i > 0) sb.append(",");
+			sb.append("{\"id\":").append(i).append(",\"name\":\"User ").append(i).append("\",\"email\":\"user")
+				.append(i).append("@example.com\",\"active\":").append(i % 3 == 0).append(",\"score\":")
+				.append(i * 37 % 1000).append("}");
+		}
+
+		return sb.append("]").toString().getBytes();
+	}
+
+	private static byte[] html(int rows) {
+		StringBuilder sb = new StringBuilder("<html><head><title>Users</title></head><body><table class=\"table\">");
+
+		for (int i = 0; i < rows; i++) {
+			sb.append("<tr><td class=\"id\">").append(i).append("</td><td class=\"name\">User ").append(i)
+				.append("</td><td><a href=\"/users/").append(i).append("\">Details</a></td></tr>");
+		}
+
+		return sb.append("</table></body></html>").toString().getBytes();
+	}
+
+}
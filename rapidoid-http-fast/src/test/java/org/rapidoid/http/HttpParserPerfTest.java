@@ -40,29 +40,54 @@ public class HttpParserPerfTest {
 	static String REQ3 = "DELETE /ff?ba=fg F|AAAAA: aaa=2|AAAAA: aaa=2|AAAAA: aaa=2|Content-Length:0|AAAAA: aaa=2|AAAAA: aaa=2|Connection: keep-alive|AAAAA: aaa=2||";
 	static String REQ4 = "PUT /books MY-PROTOCOL|Conf:|Set-Cookie: aaa=2|Set-Cookie: aaa=2|Content-Length:10|Set-Cookie: aaa=2|Set-Cookie: aaa=2|Set-Cookie: aaa=2||abcdefghij";
 
+	// typical headers of a browser, followed by cookies (of analytics, sessions etc.) up to the target size
+	static String BROWSER_HEADERS = "GET /products/list?category=books&page=2 HTTP/1.1|Host: www.example.com|"
+		+ "Connection: keep-alive|Cache-Control: max-age=0|Upgrade-Insecure-Requests: 1|"
+		+ "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) "
+		+ "Chrome/118.0.0.0 Safari/537.36|"
+		+ "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,image/avif,image/webp,image/apng,*/*;q=0.8|"
+		+ "Sec-Fetch-Site: same-origin|Sec-Fetch-Mode: navigate|Sec-Fetch-User: ?1|Sec-Fetch-Dest: document|"
+		+ "Referer: https://www.example.com/products?category=books|Accept-Encoding: gzip, deflate, br|"
+		+ "Accept-Language: en-US,en;q=0.9,de;q=0.8|Cookie: ";
+
 	protected static final BufRanges helpers = new BufRanges(100);
 
 	public static void main(String[] args) {
+		benchmark("parse small requests", r(REQ1), r(REQ2), r(REQ3), r(REQ4));
+		benchmark("parse browser requests (1-4 KB)", r(browserReq(1024)), r(browserReq(2048)), r(browserReq(4096)));
 
+		System.out.println(BUFS.instances() + " buffer instances.");
+	}
+
+	private static void benchmark(String name, final Buf... reqs) {
 		final HttpParser parser = new HttpParser();
-		final Buf[] reqs = {r(REQ1), r(REQ2), r(REQ3), r(REQ4)};
 		final RapidoidHelper helper = new RapidoidHelper(null);
 
-		for (int i = 0; i < 100; i++) {
-			Msc.benchmark("parse", 3000000, new Runnable() {
+		for (int i = 0; i < 10; i++) {
+			Msc.benchmark(name, 1000000, new Runnable() {
 				int n;
 
 				@Override
 				public void run() {
-					Buf buf = reqs[n % 4];
+					Buf buf = reqs[n % reqs.length];
 					buf.position(0);
 					parser.parse(buf, helper);
 					n++;
 				}
 			});
 		}
+	}
+
+	static String browserReq(int size) {
+		StringBuilder sb = new StringBuilder(BROWSER_HEADERS);
+
+		sb.append("_ga=GA1.2.1730593612.1697011208; _gid=GA1.2.1403375011.1697540372");
+
+		for (int i = 0; sb.length() < size - 4; i++) {
+			sb.append("; pref_").append(i).append("=").append(Integer.toHexString(i * 0x9E3779B1));
+		}
 
-		System.out.println(BUFS.instances() + " buffer instances.");
+		return sb.append("||").toString();
 	}
 
 	private static Buf r(String req) {
@@ -0,0 +1,97 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.http.impl.HttpParser;
+import org.rapidoid.http.impl.LazyKeyValues;
+import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class LazyKeyValuesTest extends TestCommons {
+
+	private static final String REQ = ("GET /foo?a=5&b&n=%20x&a=6&c%20d=e+f HTTP/1.1|Host: www.test.com|"
+		+ "X-Custom: One|Cookie: aaa=2; bb=abc|x-custom: Two||").replaceAll("\\|", "\r\n");
+
+	private final RapidoidHelper helper = new RapidoidHelper();
+
+	private final byte[] head = REQ.getBytes();
+
+	@Test
+	public void shouldDecodeParamsOnDemand() {
+		parse();
+
+		LazyKeyValues params = LazyKeyValues.from(helper.params, head, 0, true, false);
+
+		eq(params.get("a"), "6");
+		eq(params.get("b"), "");
+		eq(params.get("n"), " x");
+		eq(params.get("c d"), "e f");
+		isNull(params.get("A"));
+		isNull(params.get("x"));
+
+		eq(params.toMap(), U.map("a", "6", "b", "", "n", " x", "c d", "e f"));
+	}
+
+	@Test
+	public void shouldFindHeadersCaseInsensitively() {
+		parse();
+
+		LazyKeyValues headers = LazyKeyValues.from(helper.headersKV, head, 0, false, true);
+
+		eq(headers.get("host"), "www.test.com");
+		eq(headers.get("HOST"), "www.test.com");
+		eq(headers.get("X-Custom"), "Two");
+		isNull(headers.get("Cookie"));
+
+		eq(headers.toMap(), U.map("host", "www.test.com", "x-custom", "Two"));
+	}
+
+	@Test
+	public void shouldFindCookies() {
+		parse();
+
+		LazyKeyValues cookies = LazyKeyValues.from(helper.cookies, head, 0, false, false);
+
+		eq(cookies.get("aaa"), "2");
+		eq(cookies.get("bb"), "abc");
+		isNull(cookies.get("BB"));
+
+		eq(cookies.toMap(), U.map("aaa", "2", "bb", "abc"));
+	}
+
+	private void parse() {
+		Buf buf = new BufGroup(10).from(REQ, "test");
+		HttpParser parser = new HttpParser();
+
+		parser.parse(buf, helper);
+		parser.parseParams(buf, helper.params, helper.query);
+		parser.parseHeadersIntoKV(buf, helper.headers, helper.headersKV, helper.cookies, helper);
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.ConfigImpl;
+import org.rapidoid.http.customize.Customization;
+import org.rapidoid.http.impl.HttpParser;
+import org.rapidoid.http.impl.HttpRoutesImpl;
+import org.rapidoid.http.impl.ReqImpl;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.abstracts.IRequest;
+import org.rapidoid.net.impl.RapidoidHelper;
+import org.rapidoid.util.Msc;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ReqAllocationPerfTest {
+
+	private static final int COUNT = 1000000;
+
+	static String REQ = "GET /asd/ff?a=5&bn=4&name=John%20Doe HTTP/1.1|Host:www.test.com|User-Agent: Mozilla/5.0|"
+		+ "Accept: text/html|Accept-Language: en-US|Cookie: a=2; session=abcdefgh|Connection: keep-alive||";
+
+	public static void main(String[] args) {
+		final HttpParser parser = new HttpParser();
+		final Buf buf = new BufGroup(10).from(REQ.replaceAll("\\|", "\r\n"), "req");
+		final RapidoidHelper helper = new RapidoidHelper(null);
+
+		Customization customization = new Customization("perf", null, new ConfigImpl(), new ConfigImpl());
+		final FastHttp http = new FastHttp(new HttpRoutesImpl(customization));
+
+		Conf.HTTP.set("pooledRequests", true);
+		final FastHttp pooledHttp = new FastHttp(new HttpRoutesImpl(customization));
+
+		final Channel channel = channel(new BufGroup(10).newBuf("output"));
+
+		Runnable oneHeader = new Runnable() {
+			@Override
+			public void run() {
+				ReqImpl req = createReq(parser, buf, helper, http, channel);
+				req.header("User-Agent");
+			}
+		};
+
+		Runnable allMaps = new Runnable() {
+			@Override
+			public void run() {
+				ReqImpl req = createReq(parser, buf, helper, http, channel);
+				req.params();
+				req.headers();
+				req.cookies();
+			}
+		};
+
+		Runnable completed = new Runnable() {
+			@Override
+			public void run() {
+				complete(createReq(parser, buf, helper, http, channel), channel);
+			}
+		};
+
+		Runnable completedPooled = new Runnable() {
+			@Override
+			public void run() {
+				complete(createReq(parser, buf, helper, pooledHttp, channel), channel);
+			}
+		};
+
+		for (int i = 0; i < 10; i++) {
+			measure("one header", oneHeader);
+			measure("all maps", allMaps);
+			measure("completed", completed);
+			measure("completed (pooled)", completedPooled);
+		}
+	}
+
+	private static void complete(ReqImpl req, Channel channel) {
+		req.header("User-Agent");
+		req.response().plain("ok");
+		req.done();
+		channel.output().clear();
+	}
+
+	private static Channel channel(final Buf output) {
+		return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(),
+			new Class[]{Channel.class}, new InvocationHandler() {
+
+				private IRequest request;
+
+				@Override
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					switch (method.getName()) {
+						case "output":
+							return output;
+
+						case "setRequest":
+							request = (IRequest) args[0];
+							return null;
+
+						case "request":
+							return request;
+
+						default:
+							return method.getReturnType() == boolean.class ? false : null;
+					}
+				}
+			});
+	}
+
+	private static ReqImpl createReq(HttpParser parser, Buf buf, RapidoidHelper helper, FastHttp http,
+	                                 Channel channel) {
+		buf.position(0);
+		parser.parse(buf, helper);
+		return http.createReq(channel, true, true, helper, buf, null, null, null, null);
+	}
+
+	private static void measure(String name, Runnable task) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		long before = threads.getThreadAllocatedBytes(threadId);
+		Msc.benchmark(name, COUNT, task);
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		System.out.println(name + ": " + allocated / COUNT + " bytes allocated per request");
+	}
+
+}
@@ -0,0 +1,100 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.http.handler.ParamsAwareReqHandler;
+import org.rapidoid.http.impl.PathPattern;
+import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.http.impl.RouteTree;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the matching of the parameterized routes with a linear scan of regex patterns vs the radix tree, with 10,
+ * 100 and 1000 routes. The request path matches one of the last registered routes (the worst case for the linear scan).
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class RouteTreePerfTest {
+
+	private static final BufGroup BUFS = new BufGroup(10);
+
+	public static void main(String[] args) {
+		HttpHandler handler = new ParamsAwareReqHandler(null, null, new RouteOptions(), new ReqHandler() {
+			@Override
+			public Object execute(Req req) throws Exception {
+				return null;
+			}
+		});
+
+		for (int round = 0; round < 3; round++) {
+			for (int routesN : new int[]{10, 100, 1000}) {
+				benchmark(routesN, handler);
+			}
+		}
+	}
+
+	private static void benchmark(int routesN, HttpHandler handler) {
+		final List<PathPattern> patterns = U.list();
+		final RouteTree tree = new RouteTree(HttpVerb.GET);
+
+		for (int i = 0; i < routesN; i++) {
+			PathPattern pattern = PathPattern.from("/api/res" + i + "/{id}/items/{item}");
+			patterns.add(pattern);
+			tree.put(pattern, handler);
+		}
+
+		String path = "/api/res" + (routesN - 1) + "/12345/items/abc";
+		final Buf buf = BUFS.from(path, "path");
+		final BufRange range = new BufRange(0, path.length());
+
+		int count = 10000000 / routesN;
+
+		Msc.benchmark("regex scan (" + routesN + " routes)", count, new Runnable() {
+			@Override
+			public void run() {
+				String path = buf.get(range);
+
+				for (PathPattern pattern : patterns) {
+					Map<String, String> params = pattern.match(path);
+					if (params != null) break;
+				}
+			}
+		});
+
+		Msc.benchmark("radix tree (" + routesN + " routes)", count * 10, new Runnable() {
+			@Override
+			public void run() {
+				U.notNull(tree.match(buf, range), "match");
+			}
+		});
+	}
+
+}
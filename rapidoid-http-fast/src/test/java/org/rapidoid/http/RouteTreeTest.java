@@ -0,0 +1,192 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.buffer.Buf;
+import org.rapidoid.buffer.BufGroup;
+import org.rapidoid.data.BufRange;
+import org.rapidoid.http.handler.HttpHandler;
+import org.rapidoid.http.handler.ParamsAwareReqHandler;
+import org.rapidoid.http.impl.HandlerMatch;
+import org.rapidoid.http.impl.PathParams;
+import org.rapidoid.http.impl.PathPattern;
+import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.http.impl.RouteTree;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class RouteTreeTest extends TestCommons {
+
+	private static final BufGroup BUFS = new BufGroup(10);
+
+	private final RouteTree tree = new RouteTree(HttpVerb.GET);
+
+	private final Map<HttpHandler, String> names = U.map();
+
+	@Test
+	public void shouldMatchParamsAndWildcards() {
+		add("/users/{id}");
+		add("/users/{id}/posts/{post}");
+		add("/files/*");
+		add("/robots.txt");
+
+		match("/users/10", "/users/{id}", U.map("id", "10"));
+		match("/users/abc/posts/7", "/users/{id}/posts/{post}", U.map("id", "abc", "post", "7"));
+		match("/files/", "/files/*", U.<String, String>map());
+		match("/files/a/b/c.txt", "/files/*", U.<String, String>map());
+		match("/robots.txt", "/robots.txt", U.<String, String>map());
+
+		noMatch("/users");
+		noMatch("/users/");
+		noMatch("/users/10/posts");
+		noMatch("/files");
+		noMatch("/robots-txt");
+	}
+
+	@Test
+	public void shouldPreferStaticOverParamOverWildcard() {
+		add("/x/*");
+		add("/x/{name}");
+		add("/x/{name}/edit");
+		add("/x/me/edit");
+
+		match("/x/me/edit", "/x/me/edit", U.<String, String>map());
+		match("/x/you/edit", "/x/{name}/edit", U.map("name", "you"));
+		match("/x/me", "/x/{name}", U.map("name", "me"));
+		match("/x/me/view", "/x/*", U.<String, String>map());
+	}
+
+	@Test
+	public void shouldSplitSharedPrefixes() {
+		add("/api/books/{id}");
+		add("/api/bookmarks/{id}");
+		add("/api/b/{id}");
+		add("/apix");
+
+		match("/api/books/1", "/api/books/{id}", U.map("id", "1"));
+		match("/api/bookmarks/2", "/api/bookmarks/{id}", U.map("id", "2"));
+		match("/api/b/3", "/api/b/{id}", U.map("id", "3"));
+		match("/apix", "/apix", U.<String, String>map());
+
+		noMatch("/api/book/1");
+	}
+
+	@Test
+	public void shouldMatchCustomParamsInTheTree() {
+		add("/n/{num:\\d+}");
+		add("/n/{name}/x");
+		add("/n/{code:[a-z]+}/y");
+
+		match("/n/123", "/n/{num:\\d+}", U.map("num", "123"));
+		match("/n/abc/x", "/n/{name}/x", U.map("name", "abc"));
+		match("/n/abc/y", "/n/{code:[a-z]+}/y", U.map("code", "abc"));
+
+		noMatch("/n/abc");
+		noMatch("/n/ab1/y");
+	}
+
+	@Test
+	public void shouldPreferCustomParamsOverWildcard() {
+		add("/x/*");
+		add("/x/{id:\\d+}");
+		add("/x/{a}-{b}");
+		add("/x/{rest:.+}/end");
+
+		match("/x/12", "/x/{id:\\d+}", U.map("id", "12"));
+		match("/x/1-2", "/x/{a}-{b}", U.map("a", "1", "b", "2"));
+		match("/x/a/b/end", "/x/{rest:.+}/end", U.map("rest", "a/b"));
+		match("/x/ab", "/x/*", U.<String, String>map());
+		match("/x/a/b", "/x/*", U.<String, String>map());
+	}
+
+	@Test
+	public void shouldKeepParamsAsRangesUntilRead() {
+		add("/users/{id}/posts/{post}");
+
+		String req = "GET /users/10/posts/7 HTTP/1.1";
+		Buf buf = BUFS.from(req, "req");
+
+		HandlerMatch match = tree.match(buf, new BufRange(4, req.length() - 13));
+		PathParams params = (PathParams) match.getParams();
+
+		// the params are read from the copy of the request, after the buffer is reused
+		params.moveTo(req.getBytes(), 0);
+		buf.clear();
+		buf.append("GET /users/xx/posts/y HTTP/1.1");
+
+		eq(params.get("id"), "10");
+		eq(params.get("post"), "7");
+		eq(params, U.map("id", "10", "post", "7"));
+	}
+
+	@Test
+	public void shouldSupportRemoval() {
+		add("/a/{x}");
+		add("/a/{x}/b");
+
+		tree.remove(PathPattern.from("/a/{x}"));
+
+		noMatch("/a/1");
+		match("/a/1/b", "/a/{x}/b", U.map("x", "1"));
+
+		tree.clear();
+		isTrue(tree.isEmpty());
+		noMatch("/a/1/b");
+	}
+
+	private void add(String path) {
+		HttpHandler handler = new ParamsAwareReqHandler(null, null, new RouteOptions(), new ReqHandler() {
+			@Override
+			public Object execute(Req req) throws Exception {
+				return null;
+			}
+		});
+
+		names.put(handler, path);
+		tree.put(PathPattern.from(path), handler);
+	}
+
+	private HandlerMatch find(String path) {
+		// the path is surrounded by other bytes, to verify the matching of a range within the buffer
+		Buf buf = BUFS.from("GET " + path + " HTTP/1.1", "req");
+		return tree.match(buf, new BufRange(4, path.length()));
+	}
+
+	private void match(String path, String route, Map<String, String> params) {
+		HandlerMatch match = find(path);
+
+		notNull(match);
+		eq(names.get(match.getHandler()), route);
+		eq(match.getParams(), params);
+	}
+
+	private void noMatch(String path) {
+		isNull(find(path));
+	}
+
+}
@@ -0,0 +1,167 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-http-fast
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Str;
+import org.rapidoid.http.impl.SessionStore;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class SessionStoreTest extends TestCommons {
+
+	public static class Cart implements Serializable {
+		int items;
+	}
+
+	@Test
+	public void shouldStoreSessions() {
+		SessionStore store = new SessionStore(10000, 100, 0, 0, null);
+
+		store.save("s1", session("user", "joe", "n", 1));
+		store.save("s2", session("user", "ann", "ids", U.list(1, 2, 3)));
+
+		eq(store.size(), 2);
+		eq(store.load("s1"), session("user", "joe", "n", 1));
+		eq(store.load("s2"), session("user", "ann", "ids", U.list(1, 2, 3)));
+		isNull(store.load("s3"));
+
+		// bigger than the current blocks
+		store.save("s1", session("user", "joe", "text", Str.mul("abc", 100)));
+		eq(store.load("s1").get("text"), Str.mul("abc", 100));
+
+		store.remove("s1");
+		isNull(store.load("s1"));
+		eq(store.usedBytes(), 100);
+
+		store.close();
+	}
+
+	@Test
+	public void shouldFallBackToJavaSerialization() {
+		SessionStore store = new SessionStore(10000, 100, 0, 0, null);
+
+		Cart cart = new Cart();
+		cart.items = 3;
+
+		store.save("s1", session("cart", cart));
+
+		Cart loaded = (Cart) store.load("s1").get("cart");
+		eq(loaded.items, 3);
+
+		store.close();
+	}
+
+	@Test
+	public void shouldExpireIdleSessions() {
+		SessionStore store = new SessionStore(10000, 100, 200, 0, null);
+
+		store.save("s1", session("n", 1));
+		store.save("s2", session("n", 2));
+
+		U.sleep(150);
+		notNull(store.load("s1")); // refreshes the last access
+		U.sleep(150);
+
+		store.purge();
+
+		eq(store.size(), 1);
+		notNull(store.load("s1"));
+		isNull(store.load("s2"));
+		eq(store.expirations(), 1);
+
+		store.close();
+	}
+
+	@Test
+	public void shouldExpireOldSessions() {
+		SessionStore store = new SessionStore(10000, 100, 0, 200, null);
+
+		store.save("s1", session("n", 1));
+
+		U.sleep(150);
+		store.save("s1", session("n", 2)); // doesn't extend the absolute TTL
+		U.sleep(150);
+
+		isNull(store.load("s1"));
+		eq(store.expirations(), 1);
+
+		store.close();
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsedSessions() {
+		SessionStore store = new SessionStore(300, 100, 0, 0, null);
+
+		store.save("s1", session("n", 1));
+		store.save("s2", session("n", 2));
+		store.save("s3", session("n", 3));
+
+		notNull(store.load("s1"));
+
+		store.save("s4", session("n", 4));
+
+		eq(store.evictions(), 1);
+		isNull(store.load("s2"));
+		eq(store.load("s1"), session("n", 1));
+		eq(store.load("s3"), session("n", 3));
+		eq(store.load("s4"), session("n", 4));
+
+		store.close();
+	}
+
+	@Test
+	public void shouldRestoreSessionsFromFile() throws Exception {
+		File file = File.createTempFile("sessions", ".dat");
+		file.deleteOnExit();
+
+		SessionStore store = new SessionStore(10000, 100, 0, 0, file.getAbsolutePath());
+
+		store.save("s1", session("user", "joe"));
+		store.save("s2", session("user", "ann", "text", Str.mul("abc", 100)));
+		store.save("s3", session("user", "bob"));
+		store.remove("s3");
+
+		store.close();
+
+		SessionStore restored = new SessionStore(10000, 100, 0, 0, file.getAbsolutePath());
+
+		eq(restored.size(), 2);
+		eq(restored.load("s1"), session("user", "joe"));
+		eq(restored.load("s2"), session("user", "ann", "text", Str.mul("abc", 100)));
+		isNull(restored.load("s3"));
+
+		restored.close();
+	}
+
+	private static Map<String, Serializable> session(Object... keysAndValues) {
+		return U.cast(U.map(keysAndValues));
+	}
+
+}
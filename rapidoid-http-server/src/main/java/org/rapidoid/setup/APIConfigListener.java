@@ -29,6 +29,9 @@ import org.rapidoid.http.HttpVerb;
 import org.rapidoid.http.Req;
 import org.rapidoid.http.ReqRespHandler;
 import org.rapidoid.http.Resp;
+import org.rapidoid.http.customize.Customization;
+import org.rapidoid.http.customize.defaults.DefaultJsonResponseRenderer;
+import org.rapidoid.http.impl.AdaptiveResponseStream;
 import org.rapidoid.jdbc.JDBC;
 import org.rapidoid.lambda.Operation;
 import org.rapidoid.u.U;
@@ -76,7 +79,31 @@ public class APIConfigListener extends RapidoidThing implements Operation<Config
 			@Override
 			public Object execute(Req req, Resp resp) throws Exception {
 				if (verb == HttpVerb.GET) {
-					return JDBC.query(api.sql);
+					Customization custom = Customization.of(req);
+
+					if (!(custom.jsonResponseRenderer() instanceof DefaultJsonResponseRenderer)) {
+						return JDBC.query(api.sql);
+					}
+
+					// the rows are streamed into the response, instead of being loaded in memory
+					AdaptiveResponseStream out = new AdaptiveResponseStream(resp);
+					boolean complete = false;
+
+					try {
+						JDBC.queryJSON(custom.jackson(), out, api.sql);
+						complete = true;
+
+					} finally {
+						// the incomplete body mustn't be sent as a complete response
+						if (complete) {
+							out.close();
+						} else {
+							out.abort();
+						}
+					}
+
+					return resp;
+
 				} else {
 					int changes = JDBC.execute(api.sql);
 					return U.map("success", true, "changes", changes); // FIXME improve
@@ -402,4 +402,29 @@ public class OnRoute extends RapidoidThing {
 		return this;
 	}
 
+	public OnRoute cacheTTL(long cacheTTL) {
+		options.cacheTTL(cacheTTL);
+		return this;
+	}
+
+	public OnRoute cacheCapacity(int cacheCapacity) {
+		options.cacheCapacity(cacheCapacity);
+		return this;
+	}
+
+	public OnRoute cacheVary(String... cacheVary) {
+		options.cacheVary(cacheVary);
+		return this;
+	}
+
+	public OnRoute inline(boolean inline) {
+		options.inline(inline);
+		return this;
+	}
+
+	public OnRoute bulkhead(String bulkhead) {
+		options.bulkhead(bulkhead);
+		return this;
+	}
+
 }
@@ -0,0 +1,98 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.job.BoundedExecutor;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpBulkheadTest extends IsolatedIntegrationTest {
+
+	@Test(timeout = 30000)
+	public void testBulkheadRejection() throws Exception {
+		Config bulkhead = Conf.JOBS.sub("bulkheads").sub("slow-test");
+		bulkhead.set("threads", 1);
+		bulkhead.set("queueSize", 1);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		On.get("/slow").bulkhead("slow-test").plain(() -> {
+			started.countDown();
+			release.await();
+			return "done";
+		});
+
+		On.get("/fast").plain("fast");
+
+		// separate clients, as the concurrent requests would be limited by the connection pool of a single client
+		HttpClient client1 = HTTP.client();
+		HttpClient client2 = HTTP.client();
+		HttpClient client3 = HTTP.client();
+
+		// the first request occupies the only thread of the bulkhead, the second one waits in its queue
+		CompletableFuture<HttpResp> first = CompletableFuture.supplyAsync(() -> client1.get(localhost("/slow")).execute());
+		started.await();
+
+		CompletableFuture<HttpResp> second = CompletableFuture.supplyAsync(() -> client2.get(localhost("/slow")).execute());
+
+		BoundedExecutor executor = (BoundedExecutor) Jobs.bulkhead("slow-test");
+		while (executor.queueDepth() == 0) {
+			U.sleep(10);
+		}
+
+		// the queue is full, so the next request is rejected
+		HttpResp rejected = client3.get(localhost("/slow")).execute();
+		eq(rejected.code(), 503);
+		eq(rejected.headers().get("Retry-After"), "1");
+		eq(executor.rejectedCount(), 1);
+
+		// the other routes aren't affected by the busy bulkhead
+		eq(HTTP.get(localhost("/fast")).fetch(), "fast");
+
+		release.countDown();
+
+		eq(first.get().code(), 200);
+		eq(first.get().body(), "done");
+		eq(second.get().code(), 200);
+		eq(second.get().body(), "done");
+
+		client1.close();
+		client2.close();
+		client3.close();
+
+		notNull(Metrics.get("jobs/slow-test/rejected"));
+		notNull(Metrics.get("jobs/executor/queue"));
+	}
+
+}
@@ -0,0 +1,178 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.AdaptiveResponseStream;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpChunkedResponseTest extends IsolatedIntegrationTest {
+
+	private static final int ROWS = 100000;
+
+	@Test
+	public void testChunkedResponse() {
+		On.get("/export").plain((Req req, Resp resp) -> {
+			OutputStream out = resp.chunked(true).out();
+
+			for (int i = 0; i < ROWS; i++) {
+				out.write(("row " + i + "\n").getBytes());
+
+				if (i % 10000 == 0) {
+					out.flush();
+				}
+			}
+
+			return resp;
+		});
+
+		On.get("/hello").plain("hello");
+
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < ROWS; i++) {
+			expected.append("row ").append(i).append("\n");
+		}
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+
+		for (int i = 0; i < 3; i++) {
+			HttpResp resp = client.get(localhost("/export")).execute();
+
+			eq(resp.code(), 200);
+			eq(resp.headers().get("Transfer-Encoding"), "chunked");
+			isNull(resp.headers().get("Content-Length"));
+			eq(new String(resp.bodyBytes()), expected.toString());
+
+			// the connection is still usable after the last chunk
+			eq(client.get(localhost("/hello")).fetch(), "hello");
+		}
+
+		client.close();
+	}
+
+	@Test
+	public void testBackpressure() throws IOException {
+		final long total = 20 * 1024 * 1024;
+		final AtomicLong produced = new AtomicLong();
+
+		On.get("/download").plain((Req req, Resp resp) -> {
+			OutputStream out = resp.chunked(true).out();
+			byte[] bytes = new byte[64 * 1024];
+
+			while (produced.get() < total) {
+				out.write(bytes);
+				produced.addAndGet(bytes.length);
+			}
+
+			return resp;
+		});
+
+		Socket socket = new Socket("localhost", DEFAULT_PORT);
+		socket.getOutputStream().write("GET /download HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes());
+
+		// the producer must wait for the slow client, instead of buffering the whole response
+		U.sleep(1000);
+		isTrue(produced.get() < total / 2);
+
+		InputStream in = socket.getInputStream();
+		byte[] buf = new byte[64 * 1024];
+		long received = 0;
+		int n;
+
+		while ((n = in.read(buf)) >= 0) {
+			received += n;
+		}
+
+		socket.close();
+
+		// without keep-alive, the body isn't chunked, it ends when the connection is closed
+		eq(produced.get(), total);
+		isTrue(received > total);
+		isTrue(received < total + 1000);
+	}
+
+	@Test
+	public void testErrorAfterStreamingStarted() throws IOException {
+		On.get("/broken").plain((Req req, Resp resp) -> {
+			OutputStream out = resp.chunked(true).out();
+
+			for (int i = 0; i < 10000; i++) {
+				out.write(("row " + i + "\n").getBytes());
+			}
+
+			out.flush();
+			throw U.rte("Failed in the middle of the response!");
+		});
+
+		On.get("/aborted").plain((Req req, Resp resp) -> {
+			AdaptiveResponseStream out = new AdaptiveResponseStream(resp);
+
+			for (int i = 0; i < 10000; i++) {
+				out.write(("row " + i + "\n").getBytes());
+			}
+
+			out.abort();
+			return resp;
+		});
+
+		for (String uri : U.list("/broken", "/aborted")) {
+			String response = fetchUntilClosed(uri);
+
+			// the incomplete response is cut off by closing the connection, instead of being completed
+			isTrue(response.startsWith("HTTP/1.1 200 OK"));
+			isTrue(response.contains("row 0\n"));
+			isFalse(response.endsWith("0\r\n\r\n"));
+			isFalse(response.contains("HTTP/1.1 500"));
+		}
+	}
+
+	private static String fetchUntilClosed(String uri) throws IOException {
+		Socket socket = new Socket("localhost", DEFAULT_PORT);
+		socket.setSoTimeout(10000);
+		socket.getOutputStream().write(("GET " + uri + " HTTP/1.1\r\n\r\n").getBytes());
+
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream response = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+
+		// the keep-alive connection would time out here, if it wasn't closed
+		while ((n = in.read(buf)) >= 0) {
+			response.write(buf, 0, n);
+		}
+
+		socket.close();
+		return response.toString();
+	}
+
+}
@@ -0,0 +1,210 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.http.impl.HttpCompression;
+import org.rapidoid.io.IO;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpCompressionTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void testDynamicResponses() throws IOException {
+		List<Map<String, Object>> items = U.list();
+
+		for (int i = 0; i < 1000; i++) {
+			items.add(U.map("id", i, "name", "item " + i));
+		}
+
+		On.get("/items").json(() -> items);
+		On.get("/small").json(() -> U.map("x", 1));
+
+		String json = HTTP.get(localhost("/items")).fetch();
+
+		HttpURLConnection conn = open("/items", "gzip, deflate");
+		eq(conn.getHeaderField("Content-Encoding"), "gzip");
+		eq(conn.getHeaderField("Vary"), "Accept-Encoding");
+		isTrue(conn.getContentLength() < json.length() / 4);
+		eq(new String(read(new GZIPInputStream(conn.getInputStream()))), json);
+
+		conn = open("/items", "deflate;q=0.5, gzip;q=0");
+		eq(conn.getHeaderField("Content-Encoding"), "deflate");
+		eq(new String(read(new InflaterInputStream(conn.getInputStream()))), json);
+
+		// the explicitly rejected gzip isn't accepted through the wildcard
+		conn = open("/items", "gzip;q=0, *");
+		eq(conn.getHeaderField("Content-Encoding"), "deflate");
+		eq(new String(read(new InflaterInputStream(conn.getInputStream()))), json);
+
+		conn = open("/items", null);
+		isNull(conn.getHeaderField("Content-Encoding"));
+		isNull(conn.getHeaderField("Vary"));
+		eq(new String(read(conn.getInputStream())), json);
+
+		// the small responses aren't compressed
+		conn = open("/small", "gzip");
+		isNull(conn.getHeaderField("Content-Encoding"));
+		eq(new String(read(conn.getInputStream())), "{\"x\":1}");
+	}
+
+	@Test
+	public void testNegotiation() {
+		eq(HttpCompression.negotiate("gzip, deflate"), "gzip");
+		eq(HttpCompression.negotiate("deflate"), "deflate");
+		eq(HttpCompression.negotiate("*"), "gzip");
+		eq(HttpCompression.negotiate("gzip;q=0, *"), "deflate");
+		eq(HttpCompression.negotiate("*, gzip;q=0"), "deflate");
+		eq(HttpCompression.negotiate("gzip;q=0, deflate;q=0, *"), null);
+		eq(HttpCompression.negotiate("gzip, *;q=0"), "gzip");
+		eq(HttpCompression.negotiate("*;q=0"), null);
+		eq(HttpCompression.negotiate("x-gzip;q=0, gzip"), null);
+		eq(HttpCompression.negotiate("identity"), null);
+		eq(HttpCompression.negotiate(null), null);
+	}
+
+	@Test
+	public void testCompressionFromManyThreads() throws Exception {
+		byte[] text = String.join(" ", Collections.nCopies(100000, "hello")).getBytes();
+
+		ExecutorService executor = Executors.newFixedThreadPool(100);
+		List<Future<byte[]>> results = U.list();
+
+		for (int i = 0; i < 200; i++) {
+			String encoding = i % 2 == 0 ? HttpCompression.GZIP : HttpCompression.DEFLATE;
+			results.add(executor.submit(() -> HttpCompression.compress(text, encoding)));
+		}
+
+		for (int i = 0; i < results.size(); i++) {
+			InputStream compressed = new ByteArrayInputStream(results.get(i).get());
+			eq(read(i % 2 == 0 ? new GZIPInputStream(compressed) : new InflaterInputStream(compressed)), text);
+		}
+
+		executor.shutdown();
+
+		// only a bounded number of the deflaters is kept, instead of one per thread
+		isTrue(HttpCompression.idleDeflaters() <= 2 * 32);
+	}
+
+	@Test
+	public void testCachedResponses() throws IOException {
+		String text = String.join(" ", Collections.nCopies(1000, "hello"));
+
+		On.get("/cached").cacheTTL(10000).plain(() -> text);
+
+		for (int i = 0; i < 3; i++) {
+			// the cached compressed responses mustn't be served to the clients that don't accept them
+			HttpURLConnection conn = open("/cached", "gzip");
+			eq(conn.getHeaderField("Content-Encoding"), "gzip");
+			eq(new String(read(new GZIPInputStream(conn.getInputStream()))), text);
+
+			conn = open("/cached", null);
+			isNull(conn.getHeaderField("Content-Encoding"));
+			eq(new String(read(conn.getInputStream())), text);
+		}
+	}
+
+	@Test
+	public void testPrecompressedStaticFiles() throws IOException {
+		File dir = Files.createTempDirectory("compressed").toFile();
+
+		String js = "function hello() { return 'hello'; }";
+		File file = file(dir, "app.js", js.getBytes());
+		File gzFile = file(dir, "app.js.gz", gzip(js.getBytes()));
+
+		On.custom().staticFilesPath(dir.getAbsolutePath());
+
+		HttpURLConnection conn = open("/app.js", "gzip");
+		eq(conn.getHeaderField("Content-Encoding"), "gzip");
+		eq(conn.getHeaderField("Vary"), "Accept-Encoding");
+		eq(conn.getContentLength(), (int) gzFile.length());
+		eq(new String(read(new GZIPInputStream(conn.getInputStream()))), js);
+
+		conn = open("/app.js", null);
+		isNull(conn.getHeaderField("Content-Encoding"));
+		eq(conn.getHeaderField("Vary"), "Accept-Encoding");
+		eq(conn.getContentLength(), (int) file.length());
+		eq(new String(read(conn.getInputStream())), js);
+	}
+
+	private HttpURLConnection open(String uri, String acceptEncoding) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(localhost(uri)).openConnection();
+
+		if (acceptEncoding != null) {
+			conn.setRequestProperty("Accept-Encoding", acceptEncoding);
+		}
+
+		eq(conn.getResponseCode(), 200);
+		return conn;
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+
+		while ((n = in.read(buf)) >= 0) {
+			out.write(buf, 0, n);
+		}
+
+		IO.close(in, true);
+		return out.toByteArray();
+	}
+
+	private static byte[] gzip(byte[] bytes) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(bytes);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	private static File file(File dir, String name, byte[] content) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), content);
+		file.deleteOnExit();
+		return file;
+	}
+
+}
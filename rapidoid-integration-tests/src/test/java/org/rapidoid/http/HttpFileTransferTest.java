@@ -0,0 +1,85 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.setup.On;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpFileTransferTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void testFileResponses() throws IOException {
+		File dir = Files.createTempDirectory("transfer").toFile();
+
+		byte[] big = randomBytes(5 * 1024 * 1024 + 123);
+		byte[] small = randomBytes(100);
+
+		File bigFile = file(dir, "big.bin", big);
+		File smallFile = file(dir, "small.txt", small);
+
+		On.get("/big").html((Req req, Resp resp) -> resp.file(bigFile));
+		On.get("/small").html((Req req, Resp resp) -> resp.file(smallFile));
+		On.get("/hello").plain("hello");
+
+		On.custom().staticFilesPath(dir.getAbsolutePath());
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+
+		for (int i = 0; i < 3; i++) {
+			// the responses after the transferred files mustn't be corrupted
+			eq(client.get(localhost("/big")).execute().bodyBytes(), big);
+			eq(client.get(localhost("/hello")).fetch(), "hello");
+
+			eq(client.get(localhost("/small")).execute().bodyBytes(), small);
+			eq(client.get(localhost("/hello")).fetch(), "hello");
+
+			// static files
+			eq(client.get(localhost("/big.bin")).execute().bodyBytes(), big);
+			eq(client.get(localhost("/small.txt")).execute().bodyBytes(), small);
+			eq(client.get(localhost("/hello")).fetch(), "hello");
+		}
+
+		client.close();
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+
+	private static File file(File dir, String name, byte[] content) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), content);
+		file.deleteOnExit();
+		return file;
+	}
+
+}
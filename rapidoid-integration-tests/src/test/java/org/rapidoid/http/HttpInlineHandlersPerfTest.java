@@ -0,0 +1,123 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Compares the latency of the inline and the offloaded handlers, with the requests sent one by one through a
+ * keep-alive connection.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpInlineHandlersPerfTest {
+
+	private static final int WARMUP = 2000;
+
+	private static final int COUNT = 10000;
+
+	public static void main(String[] args) throws IOException {
+		On.get("/inline").inline(true).plain(() -> "hello");
+		On.get("/offloaded").plain(() -> "hello");
+
+		measure("/inline", WARMUP);
+		measure("/offloaded", WARMUP);
+
+		for (int round = 0; round < 5; round++) {
+			long inline = measure("/inline", COUNT);
+			long offloaded = measure("/offloaded", COUNT);
+
+			U.print(U.frmt("Average latency: inline = %s us, offloaded = %s us", inline / 1000, offloaded / 1000));
+		}
+
+		// the watcher and the job threads would keep the JVM running
+		System.exit(0);
+	}
+
+	/**
+	 * Sends the requests one by one through a keep-alive connection.
+	 *
+	 * @return the average latency (in nanoseconds)
+	 */
+	private static long measure(String uri, int count) throws IOException {
+		Socket socket = new Socket("localhost", On.setup().port());
+		socket.setTcpNoDelay(true);
+
+		OutputStream out = socket.getOutputStream();
+		InputStream in = new BufferedInputStream(socket.getInputStream());
+
+		byte[] req = ("GET " + uri + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes();
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < count; i++) {
+			out.write(req);
+			U.must(readResponseBody(in).equals("hello"));
+		}
+
+		long time = System.nanoTime() - start;
+		socket.close();
+
+		return time / count;
+	}
+
+	private static String readResponseBody(InputStream in) throws IOException {
+		int contentLength = -1;
+		String line;
+
+		while (!(line = readLine(in)).isEmpty()) {
+			if (line.toLowerCase().startsWith("content-length:")) {
+				contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+			}
+		}
+
+		byte[] body = new byte[contentLength];
+		int n = 0;
+
+		while (n < contentLength) {
+			n += in.read(body, n, contentLength - n);
+		}
+
+		return new String(body);
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int c;
+
+		while ((c = in.read()) != '\n') {
+			if (c < 0) throw new IOException("Unexpected end of the response!");
+			if (c != '\r') sb.append((char) c);
+		}
+
+		return sb.toString();
+	}
+
+}
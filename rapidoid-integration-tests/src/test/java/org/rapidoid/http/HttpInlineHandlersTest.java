@@ -0,0 +1,65 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.GET;
+import org.rapidoid.annotation.Inline;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.setup.App;
+import org.rapidoid.setup.On;
+
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpInlineHandlersTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void testInlineHandlers() {
+		On.get("/inline").inline(true).plain(() -> Thread.currentThread().getName());
+		On.get("/offloaded").plain(() -> Thread.currentThread().getName());
+
+		On.get("/inline-error").inline(true).plain(() -> {
+			throw new RuntimeException("inline error");
+		});
+
+		On.get("/inline-secure").inline(true).roles("admin").plain(() -> "secret");
+
+		App.beans(new Object() {
+			@GET
+			@Inline
+			public String pojo() {
+				return Thread.currentThread().getName();
+			}
+		});
+
+		// the inline handlers are executed on the I/O threads
+		isTrue(HTTP.get(localhost("/inline")).fetch().startsWith("server"));
+		isTrue(HTTP.get(localhost("/pojo")).fetch().startsWith("\"server"));
+		isTrue(HTTP.get(localhost("/offloaded")).fetch().startsWith("executor"));
+
+		// the errors, roles and wrappers are handled as usual
+		eq(HTTP.get(localhost("/inline-error")).execute().code(), 500);
+		eq(HTTP.get(localhost("/inline-secure")).execute().code(), 403);
+	}
+
+}
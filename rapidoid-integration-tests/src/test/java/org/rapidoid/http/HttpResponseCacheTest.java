@@ -0,0 +1,277 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.collection.Coll;
+import org.rapidoid.insight.Metrics;
+import org.rapidoid.io.IO;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpResponseCacheTest extends IsolatedIntegrationTest {
+
+	private final HttpClient client = HTTP.client().reuseConnections(true);
+
+	@After
+	public void closeClient() {
+		client.close();
+	}
+
+	@Test
+	public void testCachedResponses() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/cached").cacheTTL(10000).plain((Req req) -> counter.incrementAndGet() + ":" + req.param("x", ""));
+
+		eq(request("/cached"), "1:");
+		eq(request("/cached"), "1:");
+
+		// the query is a part of the cache key
+		eq(request("/cached?x=a"), "2:a");
+		eq(request("/cached?x=a"), "2:a");
+		eq(request("/cached"), "1:");
+
+		notNull(Metrics.get("http/cache/hits"));
+		notNull(Metrics.get("http/cache/misses"));
+	}
+
+	@Test
+	public void testCachedParameterizedRoute() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/books/{id}").cacheTTL(10000).plain((Req req) -> counter.incrementAndGet() + ":" + req.param("id"));
+
+		eq(request("/books/1"), "1:1");
+		eq(request("/books/1"), "1:1");
+
+		eq(request("/books/2"), "2:2");
+		eq(request("/books/2"), "2:2");
+		eq(request("/books/1"), "1:1");
+	}
+
+	@Test
+	public void testAuthenticatedRequestsAreNotCached() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/private").cacheTTL(10000).plain((Req req) -> counter.incrementAndGet());
+
+		eq(request("/private"), "1");
+		eq(request("/private"), "1");
+
+		eq(client.get(localhost("/private")).header("Authorization", "Basic Zm9vOmJhcg==").fetch(), "2");
+		eq(client.get(localhost("/private")).header("Authorization", "Basic Zm9vOmJhcg==").fetch(), "3");
+
+		eq(client.get(localhost("/private")).cookies(U.map("JSESSIONID", "abc")).fetch(), "4");
+		eq(client.get(localhost("/private")).cookies(U.map("JSESSIONID", "abc")).fetch(), "5");
+
+		eq(request("/private"), "1");
+	}
+
+	@Test
+	public void testConfiguredCacheKeyHeaders() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/per-user").cacheTTL(10000).cacheVary("Authorization").plain((Req req) -> counter.incrementAndGet());
+
+		eq(client.get(localhost("/per-user")).header("Authorization", "Basic YQ==").fetch(), "1");
+		eq(client.get(localhost("/per-user")).header("Authorization", "Basic YQ==").fetch(), "1");
+
+		eq(client.get(localhost("/per-user")).header("Authorization", "Basic Yg==").fetch(), "2");
+		eq(client.get(localhost("/per-user")).header("Authorization", "Basic Yg==").fetch(), "2");
+		eq(client.get(localhost("/per-user")).header("Authorization", "Basic YQ==").fetch(), "1");
+	}
+
+	@Test
+	public void testExpiration() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/expiring").cacheTTL(300).plain((Req req) -> counter.incrementAndGet());
+
+		eq(request("/expiring"), "1");
+		eq(request("/expiring"), "1");
+
+		U.sleep(500);
+
+		eq(request("/expiring"), "2");
+	}
+
+	@Test
+	public void testUncacheableResponses() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/cookie").cacheTTL(10000).plain((Req req) -> {
+			req.response().cookie("c", "x");
+			return counter.incrementAndGet();
+		});
+
+		On.get("/error").cacheTTL(10000).plain((Req req) -> {
+			req.response().code(500);
+			return counter.incrementAndGet();
+		});
+
+		eq(request("/cookie"), "1");
+		eq(request("/cookie"), "2");
+
+		eq(request("/error"), "3");
+		eq(request("/error"), "4");
+	}
+
+	@Test
+	public void testVaryingResponses() {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/lang").cacheTTL(10000).plain((Req req) -> {
+			req.response().header("Vary", "X-Lang");
+			return counter.incrementAndGet() + ":" + req.header("X-Lang", "");
+		});
+
+		// the first response reveals the varying header, so it isn't cached
+		eq(request("/lang", "en"), "1:en");
+
+		eq(request("/lang", "en"), "2:en");
+		eq(request("/lang", "en"), "2:en");
+
+		eq(request("/lang", "fr"), "3:fr");
+		eq(request("/lang", "fr"), "3:fr");
+		eq(request("/lang", "en"), "2:en");
+	}
+
+	@Test
+	public void testFreshDateOfCachedResponses() throws IOException {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/dated").cacheTTL(10000).plain((Req req) -> counter.incrementAndGet());
+
+		List<String> first = dates("/dated");
+		U.sleep(1100);
+		List<String> second = dates("/dated");
+
+		// the cached response gets a single, fresh Date header
+		eq(counter.get(), 1);
+		eq(first.size(), 1);
+		eq(second.size(), 1);
+		neq(second.get(0), first.get(0));
+	}
+
+	@Test
+	public void testRoutesWithWrappersAreNotCached() {
+		AtomicInteger counter = new AtomicInteger();
+		AtomicInteger wrapped = new AtomicInteger();
+
+		On.get("/wrapped").cacheTTL(10000).wrappers((req, invocation) -> {
+			wrapped.incrementAndGet();
+			return invocation.invoke();
+		}).plain((Req req) -> counter.incrementAndGet());
+
+		eq(request("/wrapped"), "1");
+		eq(request("/wrapped"), "2");
+		eq(wrapped.get(), 2);
+	}
+
+	@Test
+	public void testSingleFlightLoading() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/slow").cacheTTL(10000).plain((Req req) -> {
+			U.sleep(500);
+			return counter.incrementAndGet();
+		});
+
+		List<String> results = concurrently("/slow", 10);
+
+		eq(results.size(), 10);
+
+		for (String result : results) {
+			eq(result, "1");
+		}
+
+		eq(counter.get(), 1);
+	}
+
+	@Test
+	public void testParkedRequestsOfUncacheableResponse() throws Exception {
+		AtomicInteger counter = new AtomicInteger();
+
+		On.get("/slow-cookie").cacheTTL(10000).plain((Req req) -> {
+			U.sleep(500);
+			req.response().cookie("c", "x");
+			return counter.incrementAndGet();
+		});
+
+		List<String> results = concurrently("/slow-cookie", 5);
+
+		// the parked requests are handled one by one, after the first response turned out to be uncacheable
+		eq(U.set(results), U.set("1", "2", "3", "4", "5"));
+		eq(counter.get(), 5);
+	}
+
+	private List<String> concurrently(String uri, int count) throws InterruptedException {
+		List<String> results = Coll.synchronizedList();
+		List<Thread> threads = U.list();
+
+		for (int i = 0; i < count; i++) {
+			Thread thread = new Thread(() -> {
+				HttpClient slowClient = HTTP.client().reuseConnections(true);
+				results.add(slowClient.get(localhost(uri)).fetch());
+				slowClient.close();
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		return results;
+	}
+
+	private List<String> dates(String uri) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection) new URL(localhost(uri)).openConnection();
+
+		eq(conn.getResponseCode(), 200);
+		IO.close(conn.getInputStream(), false);
+
+		return conn.getHeaderFields().get("Date");
+	}
+
+	private String request(String uri) {
+		return client.get(localhost(uri)).fetch();
+	}
+
+	private String request(String uri, String lang) {
+		return client.get(localhost(uri)).header("X-Lang", lang).fetch();
+	}
+
+}
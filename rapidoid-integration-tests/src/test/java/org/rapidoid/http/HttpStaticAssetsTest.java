@@ -0,0 +1,110 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Dates;
+import org.rapidoid.setup.On;
+import org.rapidoid.u.U;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpStaticAssetsTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void testConditionalAndPartialResponses() throws IOException {
+		File dir = Files.createTempDirectory("assets").toFile();
+		File file = file(dir, "abc.txt", "abcdefghijklmnopqrstuvwxyz");
+
+		On.custom().staticFilesPath(dir.getAbsolutePath());
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+
+		HttpResp resp = client.get(localhost("/abc.txt")).execute();
+		eq(resp.code(), 200);
+		eq(resp.body(), "abcdefghijklmnopqrstuvwxyz");
+		eq(resp.headers().get("Accept-Ranges"), "bytes");
+
+		String etag = resp.headers().get("ETag");
+		String lastModified = resp.headers().get("Last-Modified");
+		notNull(etag);
+		eq(lastModified, Dates.httpDate(file.lastModified()));
+
+		// conditional requests
+		eq(client.get(localhost("/abc.txt")).header("If-None-Match", etag).execute().code(), 304);
+		eq(client.get(localhost("/abc.txt")).header("If-None-Match", "W/" + etag).execute().code(), 304);
+		eq(client.get(localhost("/abc.txt")).header("If-None-Match", "\"other\"").execute().code(), 200);
+		eq(client.get(localhost("/abc.txt")).header("If-Modified-Since", lastModified).execute().code(), 304);
+
+		String longAgo = Dates.httpDate(file.lastModified() - 60000);
+		eq(client.get(localhost("/abc.txt")).header("If-Modified-Since", longAgo).execute().code(), 200);
+
+		// range requests
+		resp = client.get(localhost("/abc.txt")).header("Range", "bytes=0-9").execute();
+		eq(resp.code(), 206);
+		eq(resp.body(), "abcdefghij");
+		eq(resp.headers().get("Content-Range"), "bytes 0-9/26");
+
+		resp = client.get(localhost("/abc.txt")).header("Range", "bytes=-5").execute();
+		eq(resp.code(), 206);
+		eq(resp.body(), "vwxyz");
+
+		resp = client.get(localhost("/abc.txt")).header("Range", "bytes=20-").execute();
+		eq(resp.code(), 206);
+		eq(resp.body(), "uvwxyz");
+
+		resp = client.get(localhost("/abc.txt")).header("Range", "bytes=100-200").execute();
+		eq(resp.code(), 416);
+		eq(resp.headers().get("Content-Range"), "bytes */26");
+
+		// the range is ignored if the file has changed
+		resp = client.get(localhost("/abc.txt")).header("Range", "bytes=0-9").header("If-Range", "\"other\"").execute();
+		eq(resp.code(), 200);
+		eq(resp.body(), "abcdefghijklmnopqrstuvwxyz");
+
+		// the changes of the file are detected
+		Files.write(file.toPath(), "changed".getBytes());
+
+		for (int i = 0; i < 50 && !client.get(localhost("/abc.txt")).fetch().equals("changed"); i++) {
+			U.sleep(100);
+		}
+
+		resp = client.get(localhost("/abc.txt")).header("If-None-Match", etag).execute();
+		eq(resp.code(), 200);
+		eq(resp.body(), "changed");
+
+		client.close();
+	}
+
+	private static File file(File dir, String name, String content) throws IOException {
+		File file = new File(dir, name);
+		Files.write(file.toPath(), content.getBytes());
+		file.deleteOnExit();
+		return file;
+	}
+
+}
@@ -0,0 +1,198 @@
+package org.rapidoid.http;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.setup.Setup;
+import org.rapidoid.u.U;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpTimeoutsTest extends IsolatedIntegrationTest {
+
+	private static final int PORT = 7788;
+
+	private static final int TIMEOUT = 1000;
+
+	// the wheel tick, plus some slack for a slow machine
+	private static final int TOLERANCE = 1500;
+
+	private static final int BIG_SIZE = 32 * 1024 * 1024;
+
+	private Setup setup;
+
+	@Before
+	public void setupServer() {
+		Conf.HTTP.set("timeoutResolution", 100);
+		Conf.HTTP.set("headerTimeout", TIMEOUT);
+		Conf.HTTP.set("bodyTimeout", TIMEOUT);
+		Conf.HTTP.set("writeTimeout", TIMEOUT);
+
+		setup = Setup.create("timeouts").port(PORT);
+
+		setup.get("/hello").plain("hello");
+		setup.post("/hello").plain("hello");
+		setup.get("/big").plain(new byte[BIG_SIZE]);
+	}
+
+	@After
+	public void shutdownServer() {
+		setup.shutdown();
+	}
+
+	@Test
+	public void testSlowHeaderIsCutOff() throws IOException {
+		Socket socket = new Socket("localhost", PORT);
+		socket.setSoTimeout(200);
+
+		OutputStream out = socket.getOutputStream();
+		InputStream in = socket.getInputStream();
+
+		long start = U.time();
+		out.write("GET /hello HTTP/1.1\r\n".getBytes());
+
+		// the head keeps arriving slowly, but that doesn't extend its deadline
+		boolean closed = false;
+
+		for (int i = 0; !closed && U.time() - start < TIMEOUT + TOLERANCE * 2; i++) {
+			try {
+				out.write(("X-Slow-" + i + ": x\r\n").getBytes());
+				closed = isClosed(in);
+
+			} catch (SocketException e) {
+				closed = true;
+			}
+		}
+
+		long elapsed = U.time() - start;
+		socket.close();
+
+		isTrue(closed);
+		isTrue(elapsed >= TIMEOUT);
+		isTrue(elapsed < TIMEOUT + TOLERANCE);
+	}
+
+	@Test
+	public void testIdleConnectionIsNotCutOffByHeaderTimeout() throws IOException {
+		Socket socket = new Socket("localhost", PORT);
+
+		// the head deadline starts when the head starts to arrive
+		U.sleep(TIMEOUT + 500);
+
+		socket.getOutputStream().write("GET /hello HTTP/1.1\r\n\r\n".getBytes());
+
+		String resp = new String(readAvailable(socket.getInputStream()));
+		socket.close();
+
+		isTrue(resp.startsWith("HTTP/1.1 200 OK"));
+		isTrue(resp.endsWith("hello"));
+	}
+
+	@Test
+	public void testStalledBodyIsCutOff() throws IOException {
+		Socket socket = new Socket("localhost", PORT);
+
+		long start = U.time();
+		socket.getOutputStream().write("POST /hello HTTP/1.1\r\nContent-Length: 100\r\n\r\nabc".getBytes());
+
+		long elapsed = awaitClose(socket) - start;
+		socket.close();
+
+		isTrue(elapsed >= TIMEOUT);
+		isTrue(elapsed < TIMEOUT + TOLERANCE);
+	}
+
+	@Test
+	public void testNonReadingClientIsCutOff() throws IOException {
+		Socket socket = new Socket("localhost", PORT);
+		socket.getOutputStream().write("GET /big HTTP/1.1\r\n\r\n".getBytes());
+
+		// the client doesn't read, so the response can't be sent
+		U.sleep(TIMEOUT + TOLERANCE);
+
+		long received = 0;
+		InputStream in = socket.getInputStream();
+		byte[] buf = new byte[64 * 1024];
+
+		try {
+			int n;
+			while ((n = in.read(buf)) >= 0) {
+				received += n;
+			}
+		} catch (SocketException e) {
+			// the connection was reset
+		}
+
+		socket.close();
+
+		// only the part that was already buffered by the OS is received
+		isTrue(received < BIG_SIZE);
+	}
+
+	private static boolean isClosed(InputStream in) throws IOException {
+		try {
+			return in.read() < 0;
+
+		} catch (SocketTimeoutException e) {
+			return false;
+
+		} catch (SocketException e) {
+			return true; // the connection was reset
+		}
+	}
+
+	private static long awaitClose(Socket socket) throws IOException {
+		socket.setSoTimeout(100);
+		InputStream in = socket.getInputStream();
+
+		long deadline = U.time() + TIMEOUT + TOLERANCE * 2;
+
+		while (!isClosed(in)) {
+			U.must(U.time() < deadline, "The connection wasn't closed!");
+		}
+
+		return U.time();
+	}
+
+	private static byte[] readAvailable(InputStream in) throws IOException {
+		// the response is small, so it arrives at once
+		U.sleep(300);
+
+		byte[] buf = new byte[1024];
+		int n = in.read(buf);
+
+		return n > 0 ? Arrays.copyOf(buf, n) : new byte[0];
+	}
+
+}
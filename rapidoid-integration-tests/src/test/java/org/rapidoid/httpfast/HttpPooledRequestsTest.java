@@ -0,0 +1,214 @@
+package org.rapidoid.httpfast;
+
+/*
+ * #%L
+ * rapidoid-integration-tests
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Rnd;
+import org.rapidoid.config.Conf;
+import org.rapidoid.config.ConfigImpl;
+import org.rapidoid.http.*;
+import org.rapidoid.http.customize.Customization;
+import org.rapidoid.http.customize.ErrorHandler;
+import org.rapidoid.http.impl.HttpRoutesImpl;
+import org.rapidoid.http.impl.RouteOptions;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.net.Server;
+import org.rapidoid.security.Role;
+import org.rapidoid.setup.My;
+import org.rapidoid.u.U;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class HttpPooledRequestsTest extends IsolatedIntegrationTest {
+
+	@Test
+	public void testPooledRequests() {
+		Conf.HTTP.set("pooledRequests", true);
+
+		Customization customization = new Customization("example", My.custom(), new ConfigImpl(), new ConfigImpl());
+		HttpRoutesImpl routes = new HttpRoutesImpl(customization);
+		FastHttp http = new FastHttp(routes);
+
+		final Set<Req> instances = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Req, Boolean>()));
+		final AtomicReference<Req> kept = new AtomicReference<>();
+
+		routes.on("get", "/echo", req -> {
+			instances.add(req);
+
+			// the attributes of the previous request mustn't be visible
+			Object prev = req.attrs().put("x", req.param("x"));
+
+			return U.join(":", U.list(req.param("x"), req.header("X-Test", null), req.cookie("c", null), prev));
+		});
+
+		routes.on("get", "/keep", req -> {
+			kept.set(req);
+			return "kept";
+		});
+
+		Server server = http.listen(7779);
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+		int count = 100;
+
+		for (int i = 0; i < count; i++) {
+			String x = Rnd.rnd(1000) + "";
+			String hdr = i % 2 == 0 ? "h" + i : null;
+
+			HttpReq req = client.get("http://localhost:7779/echo?x=" + x);
+
+			if (hdr != null) {
+				req.header("X-Test", hdr).cookies(U.map("c", x));
+			}
+
+			eq(req.fetch(), U.join(":", U.list(x, hdr, hdr != null ? x : null, null)));
+		}
+
+		isTrue(instances.size() < count);
+
+		eq(client.get("http://localhost:7779/keep").fetch(), "kept");
+
+		Req keptReq = kept.get();
+		notNull(keptReq);
+
+		for (int i = 0; i < 100 && !keptReq.isDone(); i++) {
+			U.sleep(10);
+		}
+
+		try {
+			keptReq.response();
+			fail("Expected IllegalStateException!");
+		} catch (IllegalStateException e) {
+			// the request was used after completion
+		}
+
+		// the leaked request mustn't be recycled
+		eq(client.get("http://localhost:7779/echo?x=abc").fetch(), "abc:null:null:null");
+		isTrue(keptReq.isDone());
+
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testStaleReferenceToRecycledRequest() throws Exception {
+		Conf.HTTP.set("pooledRequests", true);
+
+		Customization customization = new Customization("example", My.custom(), new ConfigImpl(), new ConfigImpl());
+		HttpRoutesImpl routes = new HttpRoutesImpl(customization);
+		FastHttp http = new FastHttp(routes);
+
+		final CountDownLatch recycled = new CountDownLatch(1);
+		final CountDownLatch checked = new CountDownLatch(1);
+		final AtomicReference<String> staleParam = new AtomicReference<>();
+		final AtomicBoolean detected = new AtomicBoolean();
+
+		routes.on("get", "/stale", req -> {
+
+			// the job inherits the context of the request, but uses the request after it was recycled
+			Jobs.execute(() -> {
+				try {
+					recycled.await();
+					staleParam.set(req.param("x"));
+				} catch (IllegalStateException e) {
+					detected.set(true);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				} finally {
+					checked.countDown();
+				}
+			});
+
+			return req.param("x");
+		});
+
+		routes.on("get", "/echo", req -> req.param("x"));
+
+		Server server = http.listen(7779);
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+
+		eq(client.get("http://localhost:7779/stale?x=old").fetch(), "old");
+
+		// the next request on the same connection recycles the previous one
+		eq(client.get("http://localhost:7779/echo?x=new").fetch(), "new");
+
+		recycled.countDown();
+		isTrue(checked.await(5, TimeUnit.SECONDS));
+
+		isNull(staleParam.get());
+		isTrue(detected.get());
+
+		client.close();
+		server.shutdown();
+	}
+
+	@Test
+	public void testForbiddenRequestsAreRecycled() {
+		Conf.HTTP.set("pooledRequests", true);
+
+		Customization customization = new Customization("example", My.custom(), new ConfigImpl(), new ConfigImpl());
+		HttpRoutesImpl routes = new HttpRoutesImpl(customization);
+		FastHttp http = new FastHttp(routes);
+
+		final Set<Req> instances = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Req, Boolean>()));
+		final ErrorHandler errorHandler = customization.errorHandler();
+
+		customization.errorHandler((req, resp, error) -> {
+			instances.add(req);
+			return errorHandler.handleError(req, resp, error);
+		});
+
+		routes.on("get", "/admin", routes.handler(req -> "secret", new RouteOptions().roles(Role.ADMINISTRATOR)));
+
+		routes.on("get", "/echo", req -> {
+			instances.add(req);
+			return req.param("x");
+		});
+
+		Server server = http.listen(7779);
+
+		HttpClient client = HTTP.client().reuseConnections(true);
+		int count = 50;
+
+		for (int i = 0; i < count; i++) {
+			eq(client.get("http://localhost:7779/admin").execute().code(), 403);
+			eq(client.get("http://localhost:7779/echo?x=" + i).fetch(), "" + i);
+		}
+
+		// the rejected requests are recycled, too
+		isTrue(instances.size() < count);
+
+		client.close();
+		server.shutdown();
+	}
+
+}
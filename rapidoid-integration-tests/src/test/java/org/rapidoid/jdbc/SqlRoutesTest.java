@@ -24,6 +24,9 @@ import org.junit.Test;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.config.Conf;
+import org.rapidoid.data.JSON;
+import org.rapidoid.http.HTTP;
+import org.rapidoid.http.HttpResp;
 import org.rapidoid.http.IsolatedIntegrationTest;
 import org.rapidoid.setup.App;
 import org.rapidoid.u.U;
@@ -53,4 +56,25 @@ public class SqlRoutesTest extends IsolatedIntegrationTest {
 		onlyGet("/nums");
 	}
 
+	@Test
+	public void testStreamedSqlRoute() {
+		String all = "SELECT * FROM items ORDER BY id";
+
+		App.run(new String[0], "/items <= " + all);
+
+		JDBC.tryToExecute("drop table items");
+		JDBC.execute("create table items (id int, name varchar(20))");
+
+		for (int i = 0; i < 5000; i++) {
+			JDBC.execute("insert into items values (?, ?)", i, "item" + i);
+		}
+
+		// the big result is streamed in chunks
+		HttpResp resp = HTTP.get(localhost("/items")).execute();
+
+		eq(resp.code(), 200);
+		eq(resp.headers().get("Transfer-Encoding"), "chunked");
+		eq(resp.body(), JSON.stringify(JDBC.query(all)));
+	}
+
 }
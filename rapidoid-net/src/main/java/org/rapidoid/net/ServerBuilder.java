@@ -3,6 +3,7 @@ package org.rapidoid.net;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.net.impl.AcceptBalancer;
 import org.rapidoid.net.impl.RapidoidHelper;
 import org.rapidoid.net.impl.RapidoidServerLoop;
 
@@ -48,6 +49,10 @@ public class ServerBuilder extends RapidoidThing {
 
 	private volatile boolean syncBufs = true;
 
+	private volatile boolean reusePort = false;
+
+	private volatile AcceptBalancer acceptBalancer = null;
+
 	public ServerBuilder address(String address) {
 		this.address = address;
 		return this;
@@ -127,8 +132,35 @@ public class ServerBuilder extends RapidoidThing {
 		return this;
 	}
 
+	public boolean reusePort() {
+		return reusePort;
+	}
+
+	/**
+	 * Each I/O worker accepts the connections on its own SO_REUSEPORT listening socket (if supported), instead of
+	 * receiving them from a single acceptor thread.
+	 */
+	public ServerBuilder reusePort(boolean reusePort) {
+		this.reusePort = reusePort;
+		return this;
+	}
+
+	public AcceptBalancer acceptBalancer() {
+		return acceptBalancer;
+	}
+
+	/**
+	 * The strategy that distributes the accepted connections across the I/O workers (round-robin by default). Not
+	 * used when each worker accepts the connections by itself (see {@link #reusePort(boolean)}).
+	 */
+	public ServerBuilder acceptBalancer(AcceptBalancer acceptBalancer) {
+		this.acceptBalancer = acceptBalancer;
+		return this;
+	}
+
 	public Server build() {
-		return new RapidoidServerLoop(protocol, exchangeClass, helperClass, address, port, workers, bufSizeKB, noNelay, syncBufs);
+		return new RapidoidServerLoop(protocol, exchangeClass, helperClass, address, port, workers, bufSizeKB, noNelay,
+			syncBufs, reusePort, acceptBalancer);
 	}
 
 }
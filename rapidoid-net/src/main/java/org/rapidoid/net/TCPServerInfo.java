@@ -24,4 +24,19 @@ public interface TCPServerInfo {
 
 	long messagesProcessed();
 
+	/**
+	 * The name of the strategy that distributes the accepted connections across the I/O workers.
+	 */
+	String acceptBalancer();
+
+	/**
+	 * The load of each I/O worker, as measured by the accept balancing strategy.
+	 */
+	long[] workerLoads();
+
+	/**
+	 * The number of open connections of each I/O worker.
+	 */
+	int[] workerConnections();
+
 }
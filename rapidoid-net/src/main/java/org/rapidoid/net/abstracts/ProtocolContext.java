@@ -60,6 +60,8 @@ public interface ProtocolContext<T> {
 
 	void setRequest(IRequest request);
 
+	IRequest request();
+
 	boolean onSameThread();
 
 	/* PROTOCOL */
@@ -80,10 +82,23 @@ public interface ProtocolContext<T> {
 
 	T write(File file);
 
+	/**
+	 * Writes a region of the file after the current output, transferring it from the file to the socket without copying
+	 * it into the output buffer.
+	 */
+	T transfer(File file, long position, long length);
+
 	T writeJSON(Object value);
 
 	T send();
 
+	/**
+	 * Invokes the callback as soon as the output that wasn't written to the socket yet drops to
+	 * <code>maxPendingOutput</code> bytes or less, or the connection is closed. The callback is invoked on the I/O
+	 * worker thread, so it mustn't block. If the output is already small enough, the callback is invoked immediately.
+	 */
+	T onWritable(int maxPendingOutput, Runnable callback);
+
 	/* ASYNC */
 
 	// due to async() web handling option, it ain't over till the fat lady sings "done"
@@ -97,6 +112,11 @@ public interface ProtocolContext<T> {
 
 	String readN(int count);
 
+	/**
+	 * Marks that the head of the current message was read, so the rest of it is subject to the body-read timeout.
+	 */
+	T readingBody();
+
 	/* IO */
 
 	Buf input();
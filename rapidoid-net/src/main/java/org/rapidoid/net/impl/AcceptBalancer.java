@@ -0,0 +1,46 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Strategy for distributing the accepted connections across the I/O workers. The {@link #pick()} method is called
+ * only by the acceptor thread, while the load gauges can be read from any thread.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public interface AcceptBalancer {
+
+	void init(RapidoidWorker[] workers);
+
+	RapidoidWorker pick();
+
+	/**
+	 * The load of the specified worker, as measured by this strategy.
+	 */
+	long load(int workerIndex);
+
+	String name();
+
+}
@@ -0,0 +1,69 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AcceptBalancers extends RapidoidThing {
+
+	public static final String ROUND_ROBIN = "round-robin";
+
+	public static final String LEAST_CONNECTIONS = "least-connections";
+
+	public static final String TWO_CHOICES = "two-choices";
+
+	public static final long DEFAULT_SAMPLE_INTERVAL = 1000;
+
+	public static AcceptBalancer roundRobin() {
+		return new RoundRobinBalancer();
+	}
+
+	public static AcceptBalancer leastConnections() {
+		return new LeastConnectionsBalancer();
+	}
+
+	public static AcceptBalancer twoChoices(long sampleInterval) {
+		return new TwoChoicesBalancer(sampleInterval);
+	}
+
+	public static AcceptBalancer create(String name) {
+		if (U.isEmpty(name) || ROUND_ROBIN.equals(name)) {
+			return roundRobin();
+
+		} else if (LEAST_CONNECTIONS.equals(name)) {
+			return leastConnections();
+
+		} else if (TWO_CHOICES.equals(name)) {
+			return twoChoices(DEFAULT_SAMPLE_INTERVAL);
+
+		} else {
+			throw U.illegal("Unknown accept balancer: '%s'! Supported: %s, %s, %s", name, ROUND_ROBIN,
+				LEAST_CONNECTIONS, TWO_CHOICES);
+		}
+	}
+
+}
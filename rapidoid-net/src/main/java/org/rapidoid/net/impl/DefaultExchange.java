@@ -7,6 +7,7 @@ import org.rapidoid.buffer.Buf;
 import org.rapidoid.buffer.BufProvider;
 import org.rapidoid.data.*;
 import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.abstracts.IRequest;
 import org.rapidoid.net.abstracts.ProtocolContext;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Constants;
@@ -112,7 +113,19 @@ public abstract class DefaultExchange<T> extends RapidoidThing implements Protoc
 		return me();
 	}
 
-	private T wrote(int count) {
+	@Override
+	public T transfer(File file, long position, long length) {
+		conn.transfer(file, position, length);
+		return wrote(length);
+	}
+
+	@Override
+	public T onWritable(int maxPendingOutput, Runnable callback) {
+		conn.onWritable(maxPendingOutput, callback);
+		return me();
+	}
+
+	private T wrote(long count) {
 		totalWritten.addAndGet(count);
 		return me();
 	}
@@ -149,6 +162,17 @@ public abstract class DefaultExchange<T> extends RapidoidThing implements Protoc
 		return conn.readN(count);
 	}
 
+	@Override
+	public T readingBody() {
+		conn.readingBody();
+		return me();
+	}
+
+	@Override
+	public IRequest request() {
+		return conn.request();
+	}
+
 	@Override
 	public InetSocketAddress getAddress() {
 		return conn.getAddress();
@@ -0,0 +1,100 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.io.IO;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * A region of a file, which is transferred to the socket with {@link FileChannel#transferTo} (e.g. sendfile), without
+ * copying the file content through the heap or the connection buffers.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+class FileTransfer extends RapidoidThing {
+
+	// the max bytes transferred at once, so a big file doesn't monopolize the worker
+	static final long CHUNK_SIZE = 1024 * 1024;
+
+	private final FileInputStream stream;
+
+	private final FileChannel file;
+
+	private long position;
+
+	private long remaining;
+
+	// the bytes of the connection output that must be written before the file
+	int outputBefore;
+
+	FileTransfer(File file, long position, long length, int outputBefore) throws IOException {
+		this.stream = new FileInputStream(file);
+		this.file = stream.getChannel();
+		this.position = position;
+		this.remaining = length;
+		this.outputBefore = outputBefore;
+	}
+
+	/**
+	 * Transfers chunks of the file until the socket can't accept more data or the transfer is complete.
+	 *
+	 * @return <code>true</code> if the whole region was transferred
+	 */
+	boolean transferTo(WritableByteChannel socket) throws IOException {
+		while (remaining > 0) {
+			long count = Math.min(remaining, CHUNK_SIZE);
+			long sent = file.transferTo(position, count, socket);
+
+			if (sent <= 0) {
+				if (position >= file.size()) {
+					// the file was truncated after the response headers were written
+					throw new EOFException("Unexpected end of the transferred file!");
+				}
+
+				break;
+			}
+
+			position += sent;
+			remaining -= sent;
+
+			if (sent < count) {
+				// the socket buffer is full
+				break;
+			}
+		}
+
+		return remaining == 0;
+	}
+
+	void close() {
+		IO.close(stream, true);
+	}
+
+}
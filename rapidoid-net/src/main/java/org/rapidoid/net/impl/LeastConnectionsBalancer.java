@@ -0,0 +1,84 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Hands the accepted connection to the worker with the least open (and pending) connections, which keeps the
+ * long-lived connections evenly spread across the workers.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class LeastConnectionsBalancer extends RapidoidThing implements AcceptBalancer {
+
+	private volatile RapidoidWorker[] workers;
+
+	private int offset;
+
+	@Override
+	public void init(RapidoidWorker[] workers) {
+		this.workers = workers;
+		this.offset = 0;
+	}
+
+	@Override
+	public RapidoidWorker pick() {
+		RapidoidWorker[] workers = this.workers;
+		int count = workers.length;
+
+		// start from a rotating offset, so the ties are resolved in round-robin fashion
+		RapidoidWorker best = null;
+		long bestLoad = Long.MAX_VALUE;
+
+		for (int i = 0; i < count; i++) {
+			RapidoidWorker worker = workers[(offset + i) % count];
+			long load = connections(worker);
+
+			if (load < bestLoad) {
+				best = worker;
+				bestLoad = load;
+			}
+		}
+
+		offset = (offset + 1) % count;
+
+		return best;
+	}
+
+	@Override
+	public long load(int workerIndex) {
+		return connections(workers[workerIndex]);
+	}
+
+	private static long connections(RapidoidWorker worker) {
+		return worker.activeConnections() + worker.pendingConnections();
+	}
+
+	@Override
+	public String name() {
+		return AcceptBalancers.LEAST_CONNECTIONS;
+	}
+
+}
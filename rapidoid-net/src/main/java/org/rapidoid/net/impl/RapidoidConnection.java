@@ -7,6 +7,7 @@ import org.rapidoid.buffer.Buf;
 import org.rapidoid.buffer.BufGroup;
 import org.rapidoid.data.JSON;
 import org.rapidoid.expire.Expiring;
+import org.rapidoid.expire.TimingWheel;
 import org.rapidoid.net.Protocol;
 import org.rapidoid.net.abstracts.Channel;
 import org.rapidoid.net.abstracts.IRequest;
@@ -23,6 +24,8 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicLong;
 
 /*
@@ -61,8 +64,16 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 
 	private final ConnState state = new ConnState();
 
+	// the files that are transferred to the socket, interleaved with the output
+	private final Queue<FileTransfer> transfers = new ArrayDeque<FileTransfer>();
+
 	private volatile boolean waitingToWrite = false;
 
+	// the callback that waits for the pending output to drain (e.g. of a paused producer of a streamed response)
+	private Runnable writableCallback;
+
+	private int writableThreshold;
+
 	public volatile SelectionKey key;
 
 	private volatile boolean closeAfterWrite = false;
@@ -93,10 +104,18 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 
 	private volatile long expiresAt;
 
-	public RapidoidConnection(RapidoidWorker worker, BufGroup bufs) {
+	// the timer and the timeout state are accessed only by the worker thread
+	final TimingWheel.Timer timer;
+
+	int timeoutPhase;
+
+	boolean readingBody;
+
+	public RapidoidConnection(RapidoidWorker worker, BufGroup bufs, TimingWheel timeouts) {
 		this.worker = worker;
 		this.input = bufs.newBuf("input#" + connId());
 		this.output = bufs.newBuf("output#" + connId());
+		this.timer = timeouts != null ? timeouts.timer(this) : null;
 		reset();
 	}
 
@@ -108,11 +127,16 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 			request = null;
 		}
 
+		// wake up the producer that is waiting to write, so it can find out the connection was closed
+		Runnable callback = writableCallback;
+		writableCallback = null;
+
 		key = null;
 		closed = true;
 		closing = false;
 		input.clear();
 		output.clear();
+		clearTransfers();
 		closeAfterWrite = false;
 		waitingToWrite = false;
 		completedInputPos = 0;
@@ -124,7 +148,13 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		protocol = null;
 		requestId = 0;
 		expiresAt = 0;
+		timeoutPhase = 0;
+		readingBody = false;
 		state.reset();
+
+		if (callback != null) {
+			callback.run();
+		}
 	}
 
 	@Override
@@ -188,6 +218,116 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		return this;
 	}
 
+	@Override
+	public synchronized Channel transfer(File file, long position, long length) {
+		// the output before this file, which is written after the previous transferred file
+		int outputBefore = output.size();
+
+		for (FileTransfer transfer : transfers) {
+			outputBefore -= transfer.outputBefore;
+		}
+
+		try {
+			transfers.add(new FileTransfer(file, position, length, outputBefore));
+		} catch (IOException e) {
+			throw U.rte(e);
+		}
+
+		return this;
+	}
+
+	/**
+	 * Writes as much of the output and the pending file transfers as the socket can accept, preserving their order.
+	 *
+	 * @return <code>true</code> if everything was written
+	 */
+	synchronized boolean writeTo(SocketChannel socketChannel) throws IOException {
+		FileTransfer transfer;
+
+		while ((transfer = transfers.peek()) != null) {
+
+			if (transfer.outputBefore > 0) {
+				int wrote = output.writeTo(socketChannel, transfer.outputBefore);
+				output.deleteBefore(wrote);
+				transfer.outputBefore -= wrote;
+
+				if (transfer.outputBefore > 0) {
+					return false;
+				}
+			}
+
+			if (!transfer.transferTo(socketChannel)) {
+				return false;
+			}
+
+			transfers.poll();
+			transfer.close();
+		}
+
+		int wrote = output.gatherTo(socketChannel);
+		output.deleteBefore(wrote);
+
+		boolean complete = output.size() == 0;
+
+		if (complete) {
+			// cleared together with the check, so the output that is written concurrently asks to be sent again
+			waitingToWrite = false;
+		}
+
+		return complete;
+	}
+
+	synchronized boolean hasPendingOutput() {
+		return output.size() > 0 || !transfers.isEmpty();
+	}
+
+	@Override
+	public Channel onWritable(int maxPendingOutput, Runnable callback) {
+		boolean writable;
+
+		synchronized (this) {
+			writable = closed || output.size() <= maxPendingOutput;
+
+			if (!writable) {
+				writableCallback = callback;
+				writableThreshold = maxPendingOutput;
+			}
+		}
+
+		if (writable) {
+			callback.run();
+		}
+
+		return this;
+	}
+
+	/**
+	 * Invokes the writability callback, if the pending output has drained enough.
+	 */
+	void notifyWritable() {
+		Runnable callback;
+
+		synchronized (this) {
+			callback = writableCallback;
+
+			if (callback == null || output.size() > writableThreshold) {
+				return;
+			}
+
+			writableCallback = null;
+		}
+
+		callback.run();
+	}
+
+	private void clearTransfers() {
+		FileTransfer transfer;
+
+		while ((transfer = transfers.poll()) != null) {
+			transfer.close();
+		}
+	}
+
 	@Override
 	public Channel writeJSON(Object value) {
 		JSON.stringify(value, output.asOutputStream());
@@ -227,7 +367,7 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 	}
 
 	private synchronized void askToSend() {
-		if (!waitingToWrite && output.size() > 0) {
+		if (!waitingToWrite && hasPendingOutput()) {
 			waitingToWrite = true;
 			worker.wantToWrite(this);
 		}
@@ -246,10 +386,6 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 	}
 
 	public synchronized void wrote(boolean complete) {
-		if (complete) {
-			waitingToWrite = false;
-		}
-
 		input.deleteBefore(completedInputPos);
 		completedInputPos = 0;
 	}
@@ -311,6 +447,12 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		return input().readN(count);
 	}
 
+	@Override
+	public Channel readingBody() {
+		readingBody = true;
+		return this;
+	}
+
 	@Override
 	public ConnState state() {
 		return state;
@@ -390,6 +532,11 @@ public class RapidoidConnection extends RapidoidThing implements Resetable, Chan
 		this.request = request;
 	}
 
+	@Override
+	public IRequest request() {
+		return request;
+	}
+
 	@Override
 	public void setExpiresAt(long expiresAt) {
 		this.expiresAt = expiresAt;
@@ -75,6 +75,9 @@ public class RapidoidHelper extends RapidoidThing {
 	public final Pool<?> pool;
 	public final Object exchange;
 
+	// the reusable requests of the protocol (if pooling is enabled), assigned lazily by the worker thread
+	public Pool<?> requestPool;
+
 	public final KeyValueRanges params = new KeyValueRanges(100);
 	public final KeyValueRanges cookies = new KeyValueRanges(100);
 	public final KeyValueRanges headersKV = new KeyValueRanges(100);
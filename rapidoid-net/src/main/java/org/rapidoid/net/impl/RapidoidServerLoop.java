@@ -46,8 +46,6 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	private volatile RapidoidWorker[] ioWorkers;
 
-	private RapidoidWorker currentWorker;
-
 	private final String address;
 
 	private final int port;
@@ -64,7 +62,7 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	private ServerSocketChannel serverSocketChannel;
 
-	private final Selector selector;
+	private volatile Selector selector;
 
 	private final int bufSizeKB;
 
@@ -72,9 +70,14 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	private final boolean syncBufs;
 
+	private final boolean reusePort;
+
+	private final AcceptBalancer balancer;
+
 	public RapidoidServerLoop(Protocol protocol, Class<? extends DefaultExchange<?>> exchangeClass,
 	                          Class<? extends RapidoidHelper> helperClass, String address, int port,
-	                          int workers, int bufSizeKB, boolean noNelay, boolean syncBufs) {
+	                          int workers, int bufSizeKB, boolean noNelay, boolean syncBufs, boolean reusePort,
+	                          AcceptBalancer balancer) {
 		super("server");
 
 		this.protocol = protocol;
@@ -85,14 +88,9 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		this.bufSizeKB = bufSizeKB;
 		this.noNelay = noNelay;
 		this.syncBufs = syncBufs;
+		this.reusePort = reusePort;
+		this.balancer = U.or(balancer, AcceptBalancers.roundRobin());
 		this.helperClass = U.or(helperClass, RapidoidHelper.class);
-
-		try {
-			this.selector = Selector.open();
-		} catch (IOException e) {
-			Log.error("Cannot open selector!", e);
-			throw new RuntimeException(e);
-		}
 	}
 
 	@Override
@@ -107,17 +105,18 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 	}
 
 	private void validate() {
+		U.notNull(protocol, "protocol");
+		U.notNull(helperClass, "helperClass");
+
 		U.must(workers <= RapidoidWorker.MAX_IO_WORKERS, "Too many workers! Maximum = %s",
 			RapidoidWorker.MAX_IO_WORKERS);
 	}
 
 	private void openSocket() throws IOException {
-		U.notNull(protocol, "protocol");
-		U.notNull(helperClass, "helperClass");
-
 		String blockingInfo = blockingAccept ? "blocking" : "non-blocking";
 		Log.debug("Initializing server", "address", address, "port", port, "sync", syncBufs, "accept", blockingInfo);
 
+		selector = Selector.open();
 		serverSocketChannel = ServerSocketChannel.open();
 
 		if ((serverSocketChannel.isOpen()) && (selector.isOpen())) {
@@ -126,7 +125,8 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 			ServerSocket socket = serverSocketChannel.socket();
 
-			Log.info("!Starting server", "!address", address, "!port", port, "I/O workers", workers, "sync", syncBufs, "accept", blockingInfo);
+			Log.info("!Starting server", "!address", address, "!port", port, "I/O workers", workers, "sync", syncBufs,
+			"accept", blockingInfo, "balancer", balancer.name());
 
 			InetSocketAddress addr = new InetSocketAddress(address, port);
 
@@ -148,24 +148,43 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		}
 	}
 
+	private void openWorkerSockets() {
+		InetSocketAddress addr = new InetSocketAddress(address, port);
+
+		Log.info("!Starting server", "!address", address, "!port", port, "I/O workers", workers, "sync", syncBufs,
+			"accept", "SO_REUSEPORT per worker");
+
+		initWorkers(addr);
+
+		for (RapidoidWorker worker : ioWorkers) {
+			if (worker.status() == LoopStatus.FAILED) {
+				throw U.rte("Cannot open the worker's server socket!");
+			}
+		}
+	}
+
 	private void initWorkers() {
+		initWorkers(null);
+	}
+
+	private void initWorkers(InetSocketAddress listenAddress) {
 		ioWorkers = new RapidoidWorker[workers];
 
 		for (int i = 0; i < ioWorkers.length; i++) {
 
 			RapidoidWorkerThread workerThread = new RapidoidWorkerThread(i, protocol, exchangeClass,
 				helperClass, bufSizeKB, noNelay, syncBufs);
+
+			if (listenAddress != null) {
+				workerThread.listenOn(listenAddress, MAX_PENDING_CONNECTIONS);
+			}
+
 			workerThread.start();
 
 			ioWorkers[i] = workerThread.getWorker();
-
-			if (i > 0) {
-				ioWorkers[i - 1].next = ioWorkers[i];
-			}
 		}
 
-		ioWorkers[ioWorkers.length - 1].next = ioWorkers[0];
-		currentWorker = ioWorkers[0];
+		balancer.init(ioWorkers);
 
 		for (RapidoidWorker worker : ioWorkers) {
 			worker.waitToStart();
@@ -174,6 +193,14 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 
 	@Override
 	public synchronized Server start() {
+		if (reusePort) {
+			if (ReusePort.isSupported()) {
+				return startWithoutAcceptor();
+			}
+
+			Log.warn("SO_REUSEPORT is not supported, falling back to a single acceptor!");
+		}
+
 		new RapidoidThread(this, "server").start();
 
 		waitForStatusOtherThan(LoopStatus.INIT, LoopStatus.BEFORE_LOOP);
@@ -185,23 +212,47 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		return super.start();
 	}
 
+	/**
+	 * The workers accept the connections on their own (SO_REUSEPORT) sockets, so there is no acceptor loop.
+	 */
+	private Server startWithoutAcceptor() {
+		try {
+			validate();
+			openWorkerSockets();
+
+		} catch (RuntimeException e) {
+			status = LoopStatus.FAILED;
+
+			// the workers that managed to bind would keep holding the port
+			stopWorkers();
+
+			throw U.rte("Server start-up failed!", e);
+		}
+
+		status = LoopStatus.LOOP;
+
+		return super.start();
+	}
+
 	@Override
 	public synchronized Server shutdown() {
 		Log.info("Shutting down the server...");
 		stopLoop();
+		stopWorkers();
 
-		if (ioWorkers != null) {
-			for (RapidoidWorker worker : ioWorkers) {
-				worker.shutdown();
+		if (selector != null) {
+			try {
+				selector.close();
+			} catch (IOException e) {
+				Log.warn("Cannot close the selector!", e);
 			}
 		}
 
-		if (serverSocketChannel != null && selector != null && serverSocketChannel.isOpen() && selector.isOpen()) {
+		if (serverSocketChannel != null) {
 			try {
-				selector.close();
 				serverSocketChannel.close();
 			} catch (IOException e) {
-				Log.warn("Cannot close socket or selector!", e);
+				Log.warn("Cannot close the server socket!", e);
 			}
 		}
 
@@ -210,6 +261,16 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		return this;
 	}
 
+	private void stopWorkers() {
+		if (ioWorkers != null) {
+			for (RapidoidWorker worker : ioWorkers) {
+				if (worker != null) {
+					worker.shutdown();
+				}
+			}
+		}
+	}
+
 	public synchronized RapidoidConnection newConnection() {
 		int rndWorker = Rnd.rnd(ioWorkers.length);
 		return ioWorkers[rndWorker].newConnection();
@@ -253,6 +314,35 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 		return total;
 	}
 
+	@Override
+	public String acceptBalancer() {
+		return balancer.name();
+	}
+
+	@Override
+	public long[] workerLoads() {
+		RapidoidWorker[] workers = ioWorkers;
+		long[] loads = new long[workers != null ? workers.length : 0];
+
+		for (int i = 0; i < loads.length; i++) {
+			loads[i] = balancer.load(i);
+		}
+
+		return loads;
+	}
+
+	@Override
+	public int[] workerConnections() {
+		RapidoidWorker[] workers = ioWorkers;
+		int[] connections = new int[workers != null ? workers.length : 0];
+
+		for (int i = 0; i < connections.length; i++) {
+			connections[i] = workers[i].activeConnections();
+		}
+
+		return connections;
+	}
+
 	@Override
 	protected void insideLoop() {
 		if (blockingAccept) {
@@ -294,8 +384,7 @@ public class RapidoidServerLoop extends AbstractLoop<Server> implements Server,
 	private void acceptChannel(ServerSocketChannel serverChannel) {
 		try {
 			SocketChannel channel = serverSocketChannel.accept();
-			currentWorker.accept(channel);
-			currentWorker = currentWorker.next;
+			balancer.pick().accept(channel);
 		} catch (IOException e) {
 			Log.error("Acceptor error!", e);
 		}
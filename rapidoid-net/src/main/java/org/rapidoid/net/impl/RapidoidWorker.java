@@ -4,12 +4,11 @@ import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.buffer.BufGroup;
 import org.rapidoid.buffer.IncompleteReadException;
-import org.rapidoid.collection.Coll;
 import org.rapidoid.config.Conf;
+import org.rapidoid.config.Config;
 import org.rapidoid.config.ConfigUtil;
 import org.rapidoid.ctx.Ctxs;
-import org.rapidoid.expire.ExpirationCrawlerThread;
-import org.rapidoid.expire.Expire;
+import org.rapidoid.expire.TimingWheel;
 import org.rapidoid.log.Log;
 import org.rapidoid.net.Protocol;
 import org.rapidoid.pool.Pool;
@@ -18,15 +17,18 @@ import org.rapidoid.u.U;
 import org.rapidoid.util.SimpleList;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.Queue;
-import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /*
  * #%L
@@ -56,9 +58,13 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 
 	public static boolean EXTRA_SAFE = false;
 
-	private static final ExpirationCrawlerThread idleConnectionsCrawler;
+	private static final int TIMEOUT_IDLE = 1;
 
-	private static final int connTimeout;
+	private static final int TIMEOUT_HEADER = 2;
+
+	private static final int TIMEOUT_BODY = 3;
+
+	private static final int TIMEOUT_WRITE = 4;
 
 	private final Queue<SocketChannel> connected;
 
@@ -66,10 +72,10 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 
 	private final Pool<RapidoidConnection> connections;
 
-	private final Set<RapidoidConnection> allConnections = Coll.concurrentSet();
-
 	private final int maxPipelineSize;
 
+	private final int scatterReadUnits;
+
 	final Protocol serverProtocol;
 
 	final RapidoidHelper helper;
@@ -80,33 +86,46 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 
 	private final BufGroup bufs;
 
+	private final TimingWheel timeouts;
+
+	private final int idleTimeout;
+
+	private final int headerTimeout;
+
+	private final int bodyTimeout;
+
+	private final int writeTimeout;
+
 	private volatile long messagesProcessed;
 
-	RapidoidWorker next;
+	private final AtomicInteger activeConnections = new AtomicInteger();
 
-	static {
-		int timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(5000);
-		connTimeout = Conf.HTTP.entry("timeout").or(30000);
+	private volatile InetSocketAddress listenAddress;
 
-		if (timeoutResolution > 0 && connTimeout > 0) {
-			idleConnectionsCrawler = Expire.crawler("idleConnections", timeoutResolution);
-		} else {
-			idleConnectionsCrawler = null;
-		}
-	}
+	private volatile int listenBacklog;
+
+	private volatile ServerSocketChannel serverSocketChannel;
 
 	public RapidoidWorker(String name, final Protocol protocol, final RapidoidHelper helper,
 	                      int bufSizeKB, boolean noNelay, boolean syncBufs) {
 
 		super(name);
 
-		this.bufs = new BufGroup(14, syncBufs); // 2^14B (16 KB per buffer segment)
+		Config bufConfig = Conf.HTTP.sub("buffers");
+		int lowWatermark = bufConfig.entry("lowWatermark").or(100);
+		int highWatermark = bufConfig.entry("highWatermark").or(1000);
+
+		// 2^14B (16 KB per buffer segment)
+		this.bufs = new BufGroup(14, syncBufs, lowWatermark, highWatermark);
 
 		this.serverProtocol = protocol;
 		this.helper = helper;
 
 		this.maxPipelineSize = Conf.HTTP.entry("maxPipeline").or(10);
 
+		// the max number of buffer segments to fill with a single (scattering) read, 1 means no scattering
+		this.scatterReadUnits = Conf.HTTP.entry("scatterReadUnits").or(1);
+
 		final int queueSize = ConfigUtil.micro() ? 1000 : 1000000;
 		final int growFactor = ConfigUtil.micro() ? 2 : 10;
 
@@ -123,8 +142,63 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 		this.bufSize = bufSizeKB * 1024;
 		this.noDelay = noNelay;
 
-		if (idleConnectionsCrawler != null) {
-			idleConnectionsCrawler.register(allConnections);
+		int timeoutResolution = Conf.HTTP.entry("timeoutResolution").or(1000);
+
+		this.idleTimeout = Conf.HTTP.entry("timeout").or(30000);
+		this.headerTimeout = Conf.HTTP.entry("headerTimeout").or(idleTimeout);
+		this.bodyTimeout = Conf.HTTP.entry("bodyTimeout").or(idleTimeout);
+		this.writeTimeout = Conf.HTTP.entry("writeTimeout").or(idleTimeout);
+
+		// 512 slots of 1 second (by default) cover the usual timeouts in a single revolution of the wheel
+		this.timeouts = timeoutResolution > 0 ? new TimingWheel(timeoutResolution, 512, U.time()) : null;
+	}
+
+	/**
+	 * Makes the worker accept the connections by itself, on its own SO_REUSEPORT listening socket. Must be called
+	 * before the worker is started.
+	 */
+	public void listenOn(InetSocketAddress address, int backlog) {
+		this.listenAddress = address;
+		this.listenBacklog = backlog;
+	}
+
+	@Override
+	protected void beforeLoop() {
+		// the buffers are mostly used by the worker thread, so they don't need synchronization on it
+		bufs.ownedBy(Thread.currentThread());
+
+		if (listenAddress != null) {
+			try {
+				openSocket();
+			} catch (IOException e) {
+				throw U.rte("Cannot open socket!", e);
+			}
+		}
+	}
+
+	private void openSocket() throws IOException {
+		serverSocketChannel = ServerSocketChannel.open();
+		serverSocketChannel.configureBlocking(false);
+
+		ReusePort.enable(serverSocketChannel);
+
+		ServerSocket socket = serverSocketChannel.socket();
+		socket.setReceiveBufferSize(16 * 1024);
+		socket.setReuseAddress(true);
+		socket.bind(listenAddress, listenBacklog);
+
+		serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+		Log.debug("Opened worker's server socket", "worker", name, "address", listenAddress);
+	}
+
+	@Override
+	protected void acceptOP(SelectionKey key) throws IOException {
+		ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
+
+		SocketChannel schannel;
+		while ((schannel = serverChannel.accept()) != null) {
+			connected(schannel);
 		}
 	}
 
@@ -150,7 +224,11 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 
 		int read;
 		try {
-			read = conn.input.append(socketChannel);
+			if (scatterReadUnits > 1) {
+				read = conn.input.append(socketChannel, scatterReadUnits);
+			} else {
+				read = conn.input.append(socketChannel);
+			}
 		} catch (Exception e) {
 			read = -1;
 		}
@@ -181,7 +259,7 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 			reqN++;
 		}
 
-		touch(conn);
+		scheduleTimeout(conn);
 
 		return reqN;
 	}
@@ -228,6 +306,7 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 				protocol.process(conn);
 			}
 
+			conn.readingBody = false;
 			conn.input().setReadOnly(false);
 
 			if (!conn.closed && !conn.isAsync()) {
@@ -303,11 +382,16 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 				if (attachment instanceof RapidoidConnection) {
 					RapidoidConnection conn = (RapidoidConnection) attachment;
 
+					if (timeouts != null && onSameThread()) {
+						timeouts.cancel(conn.timer);
+					}
+
 					if (!conn.closed) {
 						Log.trace("Closing connection", "connection", conn);
 						assert conn.key == key;
 						conn.reset();
 						connections.release(conn);
+						activeConnections.decrementAndGet();
 					}
 				}
 			}
@@ -332,13 +416,8 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 
 		checkOnSameThread();
 
-		touch(conn);
-
 		try {
-			int wrote = conn.output.writeTo(socketChannel);
-			conn.output.deleteBefore(wrote);
-
-			boolean complete = conn.output.size() == 0;
+			boolean complete = conn.writeTo(socketChannel);
 
 			if (conn.closeAfterWrite() && complete) {
 				close(conn);
@@ -349,6 +428,8 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 					key.interestOps(SelectionKey.OP_READ + SelectionKey.OP_WRITE);
 				}
 				conn.wrote(complete);
+				conn.notifyWritable();
+				scheduleTimeout(conn);
 			}
 		} catch (IOException e) {
 			close(conn);
@@ -366,8 +447,6 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 	}
 
 	private void wantToWriteAsync(RapidoidConnection conn) {
-		touch(conn);
-
 		synchronized (done) {
 			done.add(conn);
 		}
@@ -378,38 +457,14 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 	@Override
 	protected void doProcessing() {
 
+		if (timeouts != null) {
+			timeouts.advance(approxTime);
+		}
+
 		SocketChannel schannel;
 
 		while ((schannel = connected.poll()) != null) {
-
-			try {
-				configureSocket(schannel);
-			} catch (IOException e) {
-				Log.error("Cannot configure channel!", e);
-				continue;
-			}
-
-			RapidoidChannel channel = new RapidoidChannel(schannel, false, serverProtocol);
-
-			SocketChannel socketChannel = channel.socketChannel;
-			Log.debug("connected", "address", socketChannel.socket().getRemoteSocketAddress());
-
-			try {
-				SelectionKey newKey = socketChannel.register(selector, SelectionKey.OP_READ);
-				U.notNull(channel.protocol, "protocol");
-				RapidoidConnection conn = attachConn(newKey, channel.protocol);
-
-				conn.setClient(channel.isClient);
-
-				try {
-					processNext(conn, true);
-				} finally {
-					conn.setInitial(false);
-				}
-
-			} catch (ClosedChannelException e) {
-				Log.warn("Closed channel", e);
-			}
+			connected(schannel);
 		}
 
 		synchronized (done) {
@@ -417,12 +472,44 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 				RapidoidConnection conn = done.get(i);
 				if (conn.key != null && conn.key.isValid()) {
 					conn.key.interestOps(SelectionKey.OP_WRITE);
+					scheduleTimeout(conn);
 				}
 			}
 			done.clear();
 		}
 	}
 
+	private void connected(SocketChannel schannel) {
+		try {
+			configureSocket(schannel);
+		} catch (IOException e) {
+			Log.error("Cannot configure channel!", e);
+			return;
+		}
+
+		RapidoidChannel channel = new RapidoidChannel(schannel, false, serverProtocol);
+
+		SocketChannel socketChannel = channel.socketChannel;
+		Log.debug("connected", "address", socketChannel.socket().getRemoteSocketAddress());
+
+		try {
+			SelectionKey newKey = socketChannel.register(selector, SelectionKey.OP_READ);
+			U.notNull(channel.protocol, "protocol");
+			RapidoidConnection conn = attachConn(newKey, channel.protocol);
+
+			conn.setClient(channel.isClient);
+
+			try {
+				processNext(conn, true);
+			} finally {
+				conn.setInitial(false);
+			}
+
+		} catch (ClosedChannelException e) {
+			Log.warn("Closed channel", e);
+		}
+	}
+
 	private RapidoidConnection attachConn(SelectionKey key, Protocol protocol) {
 		U.notNull(key, "protocol");
 		U.notNull(protocol, "protocol");
@@ -442,19 +529,56 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 		conn.key = key;
 		conn.setProtocol(protocol);
 
+		activeConnections.incrementAndGet();
+
 //		if (protocol instanceof CtxListener) {
 //			conn.setListener((CtxListener) protocol);
 //		}
 
 		key.attach(conn);
 
-		touch(conn);
+		scheduleTimeout(conn);
 
 		return conn;
 	}
 
-	private void touch(RapidoidConnection conn) {
-		conn.setExpiresAt(approxTime + connTimeout);
+	/**
+	 * (Re)schedules the timeout of the connection according to its current phase: writing the response, reading the
+	 * head or the body of a request, or waiting idle. The header-read deadline is fixed when the head starts to arrive,
+	 * while the other deadlines are extended on every read/write.
+	 */
+	private void scheduleTimeout(RapidoidConnection conn) {
+		if (timeouts == null || conn.closed) {
+			return;
+		}
+
+		int phase;
+		int timeout;
+
+		if (conn.hasPendingOutput()) {
+			phase = TIMEOUT_WRITE;
+			timeout = writeTimeout;
+
+		} else if (conn.input.hasRemaining()) {
+			phase = conn.readingBody ? TIMEOUT_BODY : TIMEOUT_HEADER;
+			timeout = conn.readingBody ? bodyTimeout : headerTimeout;
+
+		} else {
+			phase = TIMEOUT_IDLE;
+			timeout = idleTimeout;
+		}
+
+		if (phase == TIMEOUT_HEADER && conn.timeoutPhase == TIMEOUT_HEADER && conn.timer.isScheduled()) {
+			return; // slowly sending the head doesn't extend its deadline
+		}
+
+		conn.timeoutPhase = phase;
+
+		if (timeout > 0) {
+			timeouts.schedule(conn.timer, approxTime + timeout);
+		} else {
+			timeouts.cancel(conn.timer);
+		}
 	}
 
 	@Override
@@ -464,22 +588,54 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 	}
 
 	public RapidoidConnection newConnection() {
-		RapidoidConnection conn = new RapidoidConnection(RapidoidWorker.this, bufs);
-		allConnections.add(conn);
-		return conn;
+		return new RapidoidConnection(RapidoidWorker.this, bufs, timeouts);
 	}
 
 	public long getMessagesProcessed() {
 		return messagesProcessed;
 	}
 
+	/**
+	 * The number of open connections served by this worker.
+	 */
+	public int activeConnections() {
+		return activeConnections.get();
+	}
+
+	/**
+	 * The number of accepted connections that are waiting to be registered by this worker.
+	 */
+	public int pendingConnections() {
+		return connected.size();
+	}
+
 	@Override
 	protected synchronized void stopLoop() {
 		super.stopLoop();
 
+		if (serverSocketChannel != null) {
+			try {
+				serverSocketChannel.close();
+			} catch (IOException e) {
+				Log.warn("Cannot close the worker's server socket!", e);
+			}
+		}
+
 		done.clear();
 		connected.clear();
 		connections.clear();
+	}
+
+	@Override
+	protected void afterLoop() {
+		// a closed channel is released only after its key is deregistered from the selector (e.g. by closing it)
+		try {
+			selector.close();
+		} catch (IOException e) {
+			Log.warn("Cannot close the worker's selector!", e);
+		}
+
+		// the free buffers are confined to the worker thread
 		bufs.clear();
 	}
 
@@ -487,6 +643,19 @@ public class RapidoidWorker extends AbstractEventLoop<RapidoidWorker> {
 	public synchronized RapidoidWorker shutdown() {
 		stopLoop();
 		waitToStop();
+
+		// wait for the loop to exit and release the selector, so the listening socket is closed on return
+		Thread thread = ownerThread;
+		if (thread != null && thread != Thread.currentThread()) {
+			selector.wakeup();
+
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
 		return this;
 	}
 
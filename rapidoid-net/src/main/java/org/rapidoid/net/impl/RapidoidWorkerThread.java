@@ -27,6 +27,8 @@ import org.rapidoid.cls.Cls;
 import org.rapidoid.net.Protocol;
 import org.rapidoid.u.U;
 
+import java.net.InetSocketAddress;
+
 @Authors("Nikolche Mihajlovski")
 @Since("4.1.0")
 public class RapidoidWorkerThread extends RapidoidThread {
@@ -47,6 +49,10 @@ public class RapidoidWorkerThread extends RapidoidThread {
 
 	private final boolean syncBufs;
 
+	private volatile InetSocketAddress listenAddress;
+
+	private volatile int listenBacklog;
+
 	public RapidoidWorkerThread(int workerIndex, Protocol protocol, Class<? extends DefaultExchange<?>> exchangeClass,
 	                            Class<? extends RapidoidHelper> helperClass, int bufSizeKB, boolean noNelay, boolean syncBufs) {
 		super("server" + (workerIndex + 1));
@@ -65,11 +71,26 @@ public class RapidoidWorkerThread extends RapidoidThread {
 		RapidoidHelper helper = Cls.newInstance(helperClass, exchangeClass);
 		helper.requestIdGen = workerIndex; // to generate UNIQUE request ID (+= MAX_IO_WORKERS)
 
-		worker = new RapidoidWorker("server" + (workerIndex + 1), protocol, helper, bufSizeKB, noDelay, syncBufs);
+		RapidoidWorker worker = new RapidoidWorker("server" + (workerIndex + 1), protocol, helper, bufSizeKB, noDelay,
+			syncBufs);
+
+		if (listenAddress != null) {
+			worker.listenOn(listenAddress, listenBacklog);
+		}
+
+		this.worker = worker;
 
 		worker.run();
 	}
 
+	/**
+	 * Makes the worker accept the connections on its own SO_REUSEPORT listening socket.
+	 */
+	public void listenOn(InetSocketAddress address, int backlog) {
+		this.listenAddress = address;
+		this.listenBacklog = backlog;
+	}
+
 	public RapidoidWorker getWorker() {
 		while (worker == null) {
 			U.sleep(50);
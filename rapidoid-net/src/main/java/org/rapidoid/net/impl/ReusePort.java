@@ -0,0 +1,82 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.log.Log;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Support for the SO_REUSEPORT socket option, which is available only on Java 9+ (and supported only by some OSes).
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ReusePort extends RapidoidThing {
+
+	private static final SocketOption<Boolean> SO_REUSEPORT = findOption();
+
+	private static volatile Boolean supported;
+
+	@SuppressWarnings("unchecked")
+	private static SocketOption<Boolean> findOption() {
+		try {
+			Field field = StandardSocketOptions.class.getField("SO_REUSEPORT");
+			return (SocketOption<Boolean>) field.get(null);
+
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	public static boolean isSupported() {
+		if (supported == null) {
+			supported = checkSupport();
+		}
+
+		return supported;
+	}
+
+	private static boolean checkSupport() {
+		if (SO_REUSEPORT == null) {
+			return false;
+		}
+
+		try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+			return channel.supportedOptions().contains(SO_REUSEPORT);
+
+		} catch (IOException e) {
+			Log.warn("Couldn't check the support for SO_REUSEPORT!", e);
+			return false;
+		}
+	}
+
+	public static void enable(ServerSocketChannel channel) throws IOException {
+		channel.setOption(SO_REUSEPORT, true);
+	}
+
+}
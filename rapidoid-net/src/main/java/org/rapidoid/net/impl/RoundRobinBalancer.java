@@ -0,0 +1,65 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Hands the accepted connections to the workers in turn, regardless of their load.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class RoundRobinBalancer extends RapidoidThing implements AcceptBalancer {
+
+	private volatile RapidoidWorker[] workers;
+
+	private int current;
+
+	@Override
+	public void init(RapidoidWorker[] workers) {
+		this.workers = workers;
+		this.current = 0;
+	}
+
+	@Override
+	public RapidoidWorker pick() {
+		RapidoidWorker[] workers = this.workers;
+
+		RapidoidWorker worker = workers[current];
+		current = (current + 1) % workers.length;
+
+		return worker;
+	}
+
+	@Override
+	public long load(int workerIndex) {
+		return workers[workerIndex].activeConnections();
+	}
+
+	@Override
+	public String name() {
+		return AcceptBalancers.ROUND_ROBIN;
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.rapidoid.net.impl;
+
+import org.rapidoid.RapidoidThing;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.commons.Rnd;
+import org.rapidoid.u.U;
+
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Power-of-two-choices: picks two random workers and hands the accepted connection to the one that has processed
+ * less messages recently (the rates are re-sampled periodically). The ties are resolved by the number of open
+ * connections.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TwoChoicesBalancer extends RapidoidThing implements AcceptBalancer {
+
+	private final long sampleInterval;
+
+	private volatile RapidoidWorker[] workers;
+
+	private volatile long[] rates;
+
+	private long[] lastProcessed;
+
+	private long lastSampledAt;
+
+	public TwoChoicesBalancer(long sampleInterval) {
+		this.sampleInterval = sampleInterval;
+	}
+
+	@Override
+	public void init(RapidoidWorker[] workers) {
+		this.lastProcessed = new long[workers.length];
+		this.lastSampledAt = U.time();
+		this.rates = new long[workers.length];
+		this.workers = workers;
+	}
+
+	@Override
+	public RapidoidWorker pick() {
+		RapidoidWorker[] workers = this.workers;
+		int count = workers.length;
+
+		if (count == 1) {
+			return workers[0];
+		}
+
+		long now = U.time();
+		if (now - lastSampledAt >= sampleInterval) {
+			sample(workers, now);
+		}
+
+		int a = Rnd.rnd(count);
+		int b = Rnd.rndExcept(count, a);
+
+		return isLessLoaded(workers, b, a) ? workers[b] : workers[a];
+	}
+
+	private boolean isLessLoaded(RapidoidWorker[] workers, int a, int b) {
+		long[] rates = this.rates;
+
+		if (rates[a] != rates[b]) {
+			return rates[a] < rates[b];
+		}
+
+		return workers[a].activeConnections() + workers[a].pendingConnections()
+			< workers[b].activeConnections() + workers[b].pendingConnections();
+	}
+
+	private void sample(RapidoidWorker[] workers, long now) {
+		long elapsed = Math.max(now - lastSampledAt, 1);
+		long[] rates = new long[workers.length];
+
+		for (int i = 0; i < workers.length; i++) {
+			long processed = workers[i].getMessagesProcessed();
+			rates[i] = (processed - lastProcessed[i]) * 1000 / elapsed;
+			lastProcessed[i] = processed;
+		}
+
+		this.rates = rates;
+		this.lastSampledAt = now;
+	}
+
+	/**
+	 * The recent rate of processed messages (per second) of the specified worker.
+	 */
+	@Override
+	public long load(int workerIndex) {
+		return rates[workerIndex];
+	}
+
+	@Override
+	public String name() {
+		return AcceptBalancers.TWO_CHOICES;
+	}
+
+}
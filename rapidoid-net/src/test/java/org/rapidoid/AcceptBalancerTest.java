@@ -0,0 +1,136 @@
+package org.rapidoid;
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.net.Protocol;
+import org.rapidoid.net.Server;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.TCPServerInfo;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.AcceptBalancer;
+import org.rapidoid.net.impl.AcceptBalancers;
+import org.rapidoid.u.U;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class AcceptBalancerTest extends NetTestCommons {
+
+	private static final Protocol ECHO = new Protocol() {
+		@Override
+		public void process(Channel ctx) {
+			ctx.write(ctx.readln()).write(CR_LF);
+		}
+	};
+
+	@Test
+	public void leastConnectionsSpreadsLongLivedConnectionsEvenly() throws IOException {
+		String info = openAndDescribe(AcceptBalancers.leastConnections(), 12);
+		eq(info, "least-connections: connections=[3, 3, 3, 3], loads=[3, 3, 3, 3]");
+	}
+
+	@Test
+	public void roundRobinHandsConnectionsInTurn() throws IOException {
+		String info = openAndDescribe(AcceptBalancers.roundRobin(), 8);
+		eq(info, "round-robin: connections=[2, 2, 2, 2], loads=[2, 2, 2, 2]");
+	}
+
+	@Test
+	public void twoChoicesServesAllConnections() throws IOException {
+		AcceptBalancer balancer = AcceptBalancers.twoChoices(10);
+		Server server = TCP.server().protocol(ECHO).workers(4).acceptBalancer(balancer).build().start();
+
+		try {
+			List<Socket> sockets = connect(8);
+
+			int total = 0;
+			for (int conns : server.info().workerConnections()) {
+				total += conns;
+			}
+
+			eq(total, 8);
+			eq(server.info().acceptBalancer(), AcceptBalancers.TWO_CHOICES);
+
+			close(sockets);
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownBalancer() {
+		AcceptBalancers.create("random");
+	}
+
+	private String openAndDescribe(AcceptBalancer balancer, int connections) throws IOException {
+		Server server = TCP.server().protocol(ECHO).workers(4).acceptBalancer(balancer).build().start();
+
+		try {
+			List<Socket> sockets = connect(connections);
+
+			TCPServerInfo info = server.info();
+			String desc = U.frmt("%s: connections=%s, loads=%s", info.acceptBalancer(),
+				Arrays.toString(info.workerConnections()), Arrays.toString(info.workerLoads()));
+
+			close(sockets);
+			return desc;
+
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	private List<Socket> connect(int connections) throws IOException {
+		List<Socket> sockets = U.list();
+
+		for (int i = 0; i < connections; i++) {
+			Socket socket = new Socket("localhost", 8888);
+			sockets.add(socket);
+
+			OutputStream out = socket.getOutputStream();
+			out.write(("conn" + i + "\n").getBytes());
+			out.flush();
+
+			// the echo confirms that the connection was registered by its worker
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			eq(in.readLine(), "conn" + i);
+		}
+
+		return sockets;
+	}
+
+	private void close(List<Socket> sockets) throws IOException {
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.rapidoid;
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.net.Protocol;
+import org.rapidoid.net.Server;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.ReusePort;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Measures the rate of new connections (connect, request, response, close) with a single acceptor thread, and with
+ * SO_REUSEPORT listening sockets per I/O worker (requires Java 9+).
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ConnectionRatePerfTest {
+
+	private static final int PORT = 8888;
+
+	private static final int CLIENTS = 64;
+
+	private static final int CONNECTIONS = 200000;
+
+	private static final byte[] REQ = "ping\n".getBytes();
+
+	public static void main(String[] args) {
+		System.out.println("SO_REUSEPORT supported: " + ReusePort.isSupported());
+
+		for (int round = 0; round < 3; round++) {
+			bench(false);
+			bench(true);
+		}
+	}
+
+	private static void bench(boolean reusePort) {
+		Server server = TCP.server().protocol(new Protocol() {
+			@Override
+			public void process(Channel ctx) {
+				ctx.readln();
+				ctx.write("pong\n").closeIf(true);
+			}
+		}).port(PORT).reusePort(reusePort).build().start();
+
+		try {
+			String name = reusePort ? "connections (SO_REUSEPORT)" : "connections (single acceptor)";
+
+			Msc.benchmarkMT(CLIENTS, name, CONNECTIONS, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						roundtrip();
+					} catch (IOException e) {
+						throw U.rte(e);
+					}
+				}
+			});
+
+		} finally {
+			server.shutdown();
+		}
+	}
+
+	private static void roundtrip() throws IOException {
+		Socket socket = new Socket();
+
+		try {
+			socket.setTcpNoDelay(true);
+			socket.connect(new InetSocketAddress("localhost", PORT));
+
+			OutputStream out = socket.getOutputStream();
+			out.write(REQ);
+			out.flush();
+
+			// read until the server closes the connection
+			InputStream in = socket.getInputStream();
+			while (in.read() >= 0) {
+				// reading the response
+			}
+
+		} finally {
+			socket.close();
+		}
+	}
+
+}
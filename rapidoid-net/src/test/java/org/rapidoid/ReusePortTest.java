@@ -0,0 +1,98 @@
+package org.rapidoid;
+
+/*
+ * #%L
+ * rapidoid-net
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.net.Protocol;
+import org.rapidoid.net.Server;
+import org.rapidoid.net.TCP;
+import org.rapidoid.net.abstracts.Channel;
+import org.rapidoid.net.impl.ReusePort;
+import org.rapidoid.u.U;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+import java.util.Set;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class ReusePortTest extends NetTestCommons {
+
+	@Test
+	public void testTwoServersOnTheSamePort() throws IOException {
+		Assume.assumeTrue(ReusePort.isSupported());
+
+		Server server1 = server("one");
+		Server server2 = server("two");
+
+		try {
+			Set<String> responders = U.set();
+
+			for (int i = 0; i < 200; i++) {
+				responders.add(roundtrip());
+			}
+
+			// the connections are balanced by the kernel, so both servers get some of them
+			eq(responders, U.set("one", "two"));
+
+			// the listening sockets are closed on shutdown, so the other server gets all the new connections
+			server1.shutdown();
+
+			for (int i = 0; i < 20; i++) {
+				eq(roundtrip(), "two");
+			}
+
+		} finally {
+			if (server1.isActive()) server1.shutdown();
+			server2.shutdown();
+		}
+	}
+
+	private static Server server(final String name) {
+		return TCP.server().protocol(new Protocol() {
+			@Override
+			public void process(Channel ctx) {
+				ctx.readln();
+				ctx.write(name + "\n").closeIf(true);
+			}
+		}).workers(2).reusePort(true).build().start();
+	}
+
+	private static String roundtrip() throws IOException {
+		Socket socket = new Socket("localhost", 8888);
+
+		try {
+			socket.getOutputStream().write("ping\n".getBytes());
+
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			return in.readLine();
+
+		} finally {
+			socket.close();
+		}
+	}
+
+}
@@ -7,7 +7,7 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
 
@@ -47,24 +47,24 @@ public class RapidoidTemplate extends RapidoidThing implements Template {
 		this.factory = factory;
 	}
 
-	void doRenderMulti(RapidoidThreadLocals locals, OutputStream output, List<Object> model) {
+	private RenderCtxImpl doRenderMulti(RapidoidThreadLocals locals, List<Object> model) {
 		RenderCtxImpl renderCtx = initRenderCtx(locals);
 
-		renderCtx.out(output).factory(factory).filename(filename).multiModel(model);
+		renderCtx.factory(factory).filename(filename).multiModel(model);
 
 		template.render(renderCtx);
 
-		renderCtx.reset();
+		return renderCtx;
 	}
 
-	void doRender(RapidoidThreadLocals locals, OutputStream output, Object model) {
+	private RenderCtxImpl doRender(RapidoidThreadLocals locals, Object model) {
 		RenderCtxImpl renderCtx = initRenderCtx(locals);
 
-		renderCtx.out(output).factory(factory).filename(filename).model(model);
+		renderCtx.factory(factory).filename(filename).model(model);
 
 		template.render(renderCtx);
 
-		renderCtx.reset();
+		return renderCtx;
 	}
 
 	private RenderCtxImpl initRenderCtx(RapidoidThreadLocals locals) {
@@ -75,27 +75,39 @@ public class RapidoidTemplate extends RapidoidThing implements Template {
 			locals.renderContext = renderCtx;
 		}
 
+		renderCtx.reset();
+
 		return renderCtx;
 	}
 
+	private static void flush(RenderCtxImpl renderCtx, OutputStream output) {
+		try {
+			renderCtx.writeTo(output);
+		} catch (IOException e) {
+			throw U.rte(e);
+		} finally {
+			renderCtx.reset();
+		}
+	}
+
 	public void renderMultiModel(OutputStream output, Object... model) {
-		doRenderMulti(Msc.locals(), output, U.list(model));
+		flush(doRenderMulti(Msc.locals(), U.list(model)), output);
 	}
 
 	@Override
 	public void renderTo(OutputStream output, Object model) {
-		doRender(Msc.locals(), output, model);
+		flush(doRender(Msc.locals(), model), output);
 	}
 
 	@Override
 	public byte[] renderToBytes(Object model) {
-		RapidoidThreadLocals locals = Msc.locals();
+		RenderCtxImpl renderCtx = doRender(Msc.locals(), model);
 
-		ByteArrayOutputStream out = locals.templateRenderingStream();
-
-		doRender(locals, out, model);
-
-		return out.toByteArray();
+		try {
+			return renderCtx.toBytes();
+		} finally {
+			renderCtx.reset();
+		}
 	}
 
 	@Override
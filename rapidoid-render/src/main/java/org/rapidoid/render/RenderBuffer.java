@@ -0,0 +1,85 @@
+package org.rapidoid.render;
+
+/*
+ * #%L
+ * rapidoid-render
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An unsynchronized, growable byte buffer, reused by the (thread-local) render context for every render.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+class RenderBuffer extends OutputStream {
+
+	private static final int INITIAL_CAPACITY = 8 * 1024;
+
+	// bigger buffers are not kept for reuse, to avoid holding a lot of memory per thread
+	private static final int MAX_POOLED_CAPACITY = 1024 * 1024;
+
+	private byte[] bytes = new byte[INITIAL_CAPACITY];
+
+	private int size;
+
+	@Override
+	public void write(int b) {
+		if (size == bytes.length) {
+			grow(size + 1);
+		}
+
+		bytes[size++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] src, int off, int len) {
+		if (size + len > bytes.length) {
+			grow(size + len);
+		}
+
+		System.arraycopy(src, off, bytes, size, len);
+		size += len;
+	}
+
+	private void grow(int minCapacity) {
+		bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, minCapacity));
+	}
+
+	void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, size);
+	}
+
+	byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	void reset() {
+		size = 0;
+
+		if (bytes.length > MAX_POOLED_CAPACITY) {
+			bytes = new byte[INITIAL_CAPACITY];
+		}
+	}
+
+}
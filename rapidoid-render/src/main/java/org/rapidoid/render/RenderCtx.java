@@ -31,6 +31,8 @@ import java.util.List;
 @Since("5.1.0")
 public interface RenderCtx {
 
+	void printBytes(byte[] bytes) throws IOException;
+
 	void printAscii(String s) throws IOException;
 
 	void printUTF8(String s) throws IOException;
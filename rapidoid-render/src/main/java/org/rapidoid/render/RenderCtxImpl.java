@@ -43,10 +43,16 @@ public class RenderCtxImpl extends RapidoidThing implements RenderCtx {
 
 	private final List<Object> model = U.list();
 
-	private volatile OutputStream out;
+	private final RenderBuffer out = new RenderBuffer();
+
 	private volatile String ext;
 	private volatile TemplateFactory factory;
 
+	@Override
+	public void printBytes(byte[] bytes) {
+		out.write(bytes, 0, bytes.length);
+	}
+
 	@Override
 	public void printAscii(String s) throws IOException {
 		StreamUtils.writeAscii(out, s);
@@ -153,11 +159,6 @@ public class RenderCtxImpl extends RapidoidThing implements RenderCtx {
 		return GenericValueRetriever.propOf(name, model);
 	}
 
-	public RenderCtxImpl out(OutputStream out) {
-		this.out = out;
-		return this;
-	}
-
 	public RenderCtxImpl multiModel(List<Object> model) {
 		Coll.assign(this.model, model);
 		return this;
@@ -188,8 +189,17 @@ public class RenderCtxImpl extends RapidoidThing implements RenderCtx {
 		return this;
 	}
 
+	void writeTo(OutputStream output) throws IOException {
+		out.writeTo(output);
+	}
+
+	byte[] toBytes() {
+		return out.toByteArray();
+	}
+
 	public void reset() {
 		this.model.clear();
+		this.out.reset();
 	}
 
 }
@@ -6,6 +6,7 @@ import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
 import org.rapidoid.u.U;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -38,8 +39,9 @@ public class TemplateCompiler extends RapidoidThing {
 	public static TemplateRenderer compile(XNode node) {
 		try {
 			Map<String, String> expressions = U.map();
-			String source = TemplateToCode.generate(node, expressions);
-			return tryToCompile(source, expressions);
+			Map<String, String> literals = U.map();
+			String source = TemplateToCode.generate(node, expressions, literals);
+			return tryToCompile(source, expressions, literals);
 
 		} catch (NotFoundException e) {
 			throw U.rte(e);
@@ -50,8 +52,8 @@ public class TemplateCompiler extends RapidoidThing {
 		}
 	}
 
-	private static TemplateRenderer tryToCompile(String source, Map<String, String> expressions) throws NotFoundException, CannotCompileException,
-		InstantiationException, IllegalAccessException {
+	private static TemplateRenderer tryToCompile(String source, Map<String, String> expressions, Map<String, String> literals)
+		throws NotFoundException, CannotCompileException, InstantiationException, IllegalAccessException {
 
 		ClassPool cp = ClassPool.getDefault();
 		CtClass sup = cp.get(Object.class.getCanonicalName());
@@ -71,6 +73,14 @@ public class TemplateCompiler extends RapidoidThing {
 			cls.addField(CtField.make(field, cls));
 		}
 
+		for (Map.Entry<String, String> literal : literals.entrySet()) {
+			String fld = "private static final byte[] %s = org.rapidoid.render.TemplateCompiler.utf8(%s);";
+
+			String field = U.frmt(fld, literal.getValue(), TemplateToCode.literal(literal.getKey()));
+
+			cls.addField(CtField.make(field, cls));
+		}
+
 		CtClass[] params = {cp.get(RenderCtx.class.getCanonicalName())};
 		CtClass clsVoid = cp.get(void.class.getCanonicalName());
 		cls.addMethod(CtNewMethod.make(Modifier.PUBLIC, clsVoid, "render", params, new CtClass[0], source, cls));
@@ -83,4 +93,12 @@ public class TemplateCompiler extends RapidoidThing {
 		return "_$_" + id + "_$_";
 	}
 
+	public static String literalId(int index) {
+		return "_$lit" + index;
+	}
+
+	public static byte[] utf8(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
 }
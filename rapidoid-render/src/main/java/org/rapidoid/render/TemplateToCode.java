@@ -6,7 +6,6 @@ import org.rapidoid.annotation.Since;
 import org.rapidoid.commons.Err;
 import org.rapidoid.commons.Str;
 import org.rapidoid.u.U;
-import org.rapidoid.util.Msc;
 
 import java.util.List;
 import java.util.Map;
@@ -40,15 +39,15 @@ public class TemplateToCode extends RapidoidThing {
 
 	public static final String Q = "\"";
 
-	public static String generate(XNode x, Map<String, String> expressions) {
+	public static String generate(XNode x, Map<String, String> expressions, Map<String, String> literals) {
 		String body;
 
 		switch (x.op) {
 			case OP_ROOT:
-				return "{" + join("", x.children, expressions) + "}";
+				return "{" + join("", x.children, expressions, literals) + "}";
 
 			case OP_TEXT:
-				return U.notEmpty(x.text) ? print(literal(x.text)) : "";
+				return U.notEmpty(x.text) ? printBytes(literals, x.text) : "";
 
 			case OP_PRINT:
 				return val(x.text, true, expressions);
@@ -57,18 +56,18 @@ public class TemplateToCode extends RapidoidThing {
 				return val(x.text, false, expressions);
 
 			case OP_IF_NOT:
-				body = join("", x.children, expressions);
+				body = join("", x.children, expressions, literals);
 				return U.frmt("if (!$1.cond(%s)) { %s }", literal(x.text), body);
 
 			case OP_IF:
-				body = join("", x.children, expressions);
+				body = join("", x.children, expressions, literals);
 				return U.frmt("if ($1.cond(%s)) { %s }", literal(x.text), body);
 
 			case OP_INCLUDE:
 				return U.frmt("$1.call(%s);", literal(x.text));
 
 			case OP_FOREACH:
-				body = join("", x.children, expressions);
+				body = join("", x.children, expressions, literals);
 				String retrId = expr(expressions, x.text);
 
 				return iterList(body, retrId);
@@ -117,7 +116,8 @@ public class TemplateToCode extends RapidoidThing {
 		return U.frmt(code, it, retrId, ind, it, var, it, ind, insideBody);
 	}
 
-	private static String join(String separator, List<XNode> nodes, Map<String, String> expressions) {
+	private static String join(String separator, List<XNode> nodes, Map<String, String> expressions,
+	                           Map<String, String> literals) {
 		StringBuilder sb = new StringBuilder();
 
 		for (int i = 0; i < nodes.size(); i++) {
@@ -125,7 +125,7 @@ public class TemplateToCode extends RapidoidThing {
 				sb.append(separator);
 			}
 
-			String code = TemplateToCode.generate(nodes.get(i), expressions);
+			String code = TemplateToCode.generate(nodes.get(i), expressions, literals);
 			sb.append(code);
 		}
 
@@ -146,16 +146,18 @@ public class TemplateToCode extends RapidoidThing {
 		return U.frmt("$1.push(%s, %s); try { %s } finally { $1.pop(%s, %s); }", ind, var, code, ind, var);
 	}
 
-	static String print(String s) {
-		if (s.isEmpty()) {
-			return "";
-		}
+	/**
+	 * The literal text is pre-encoded (as UTF-8) into a static field of the generated class, and written in bulk.
+	 */
+	static String printBytes(Map<String, String> literals, String text) {
+		String id = literals.get(text);
 
-		if (Msc.isAscii(s)) {
-			return U.frmt("$1.printAscii(%s);\n", s);
-		} else {
-			return U.frmt("$1.printUTF8(%s);\n", s);
+		if (id == null) {
+			id = TemplateCompiler.literalId(literals.size());
+			literals.put(text, id);
 		}
+
+		return U.frmt("$1.printBytes(%s);\n", id);
 	}
 
 	static String val(String s, boolean escape, Map<String, String> expressions) {
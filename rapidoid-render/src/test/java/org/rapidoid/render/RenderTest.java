@@ -151,6 +151,12 @@ public class RenderTest extends AbstractRenderTest {
 		eq(Render.template("${x}:" + wrongOrder + ":${x}").model(U.map("x", wrongOrder)), "??:??:??");
 	}
 
+	@Test
+	public void testRepeatedLiterals() {
+		String template = "<b>{{#items}}<b>${.}</b>{{/items}}</b>";
+		eq(Render.template(template).model(U.map("items", U.list(1, 2))), "<b><b>1</b><b>2</b></b>");
+	}
+
 	private String view(Object x) {
 		return U.or(x, "N/A").toString();
 	}
@@ -0,0 +1,89 @@
+package org.rapidoid.render;
+
+/*
+ * #%L
+ * rapidoid-render
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+import org.rapidoid.util.NullOutputStream;
+
+import java.util.Map;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class TemplateRenderPerfTest {
+
+	public static void main(String[] args) {
+		final Map<String, Object> model = U.map("title", "Dashboard", "user", "joe",
+			"items", U.list("first", "second", "third"));
+
+		benchmark("5 KB layout", layout(5 * 1024), model, 100000);
+		benchmark("50 KB layout", layout(50 * 1024), model, 10000);
+	}
+
+	private static void benchmark(String name, String source, final Object model, int count) {
+		final Template template = Templates.compile(source);
+		final NullOutputStream out = new NullOutputStream();
+
+		System.out.println(name + ": " + template.renderToBytes(model).length + " bytes");
+
+		for (int round = 0; round < 3; round++) {
+			Msc.benchmark(name + " (bytes)", count, new Runnable() {
+				@Override
+				public void run() {
+					template.renderToBytes(model);
+				}
+			});
+
+			Msc.benchmark(name + " (stream)", count, new Runnable() {
+				@Override
+				public void run() {
+					template.renderTo(out, model);
+				}
+			});
+		}
+	}
+
+	private static String layout(int size) {
+		StringBuilder sb = new StringBuilder();
+
+		sb.append("<!DOCTYPE html>\n<html>\n<head>\n<title>${title}</title>\n</head>\n<body>\n");
+		sb.append("<div class=\"header\">Welcome, ${user}! – café</div>\n");
+
+		for (int i = 0; sb.length() < size; i++) {
+			sb.append("<div class=\"row\">\n");
+			sb.append("  <div class=\"col-md-4 panel panel-default\"><span class=\"label\">Section ").append(i);
+			sb.append("</span> Lorem ipsum dolor sit amet, consectetur adipiscing elit.</div>\n");
+
+			if (i % 10 == 0) {
+				sb.append("  <ul>{{#items}}<li>${.}</li>{{/items}}</ul>\n");
+			}
+
+			sb.append("</div>\n");
+		}
+
+		sb.append("</body>\n</html>\n");
+
+		return sb.toString();
+	}
+
+}
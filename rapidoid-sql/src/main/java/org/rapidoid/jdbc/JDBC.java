@@ -1,5 +1,8 @@
 package org.rapidoid.jdbc;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
@@ -8,6 +11,9 @@ import org.rapidoid.beany.Prop;
 import org.rapidoid.cls.Cls;
 import org.rapidoid.u.U;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
@@ -110,6 +116,14 @@ public class JDBC extends RapidoidThing {
 		return defaultApi().query(sql, args);
 	}
 
+	public static long queryJSON(OutputStream out, String sql, Object... args) {
+		return defaultApi().queryJSON(out, sql, args);
+	}
+
+	public static long queryJSON(ObjectMapper mapper, OutputStream out, String sql, Object... args) {
+		return defaultApi().queryJSON(mapper, out, sql, args);
+	}
+
 	public static Connection getConnection() {
 		return defaultApi().getConnection();
 	}
@@ -188,4 +202,102 @@ public class JDBC extends RapidoidThing {
 		return row;
 	}
 
+	/**
+	 * Writes the rows as a JSON array of objects, one row at a time. The column labels and types are resolved once, and
+	 * the common column types are read and written without boxing (the other values are written by the mapper).
+	 * Returns the number of rows.
+	 */
+	public static long rowsToJSON(ResultSet rs, ObjectMapper mapper, OutputStream out) throws SQLException {
+		ResultSetMetaData meta = rs.getMetaData();
+		int columnsN = meta.getColumnCount();
+
+		SerializedString[] names = new SerializedString[columnsN];
+		int[] types = new int[columnsN];
+
+		for (int i = 0; i < columnsN; i++) {
+			names[i] = new SerializedString(meta.getColumnLabel(i + 1));
+			types[i] = meta.getColumnType(i + 1);
+		}
+
+		long count = 0;
+
+		try {
+			JsonGenerator gen = mapper.getFactory().createGenerator(out);
+			gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+			gen.writeStartArray();
+
+			while (rs.next()) {
+				gen.writeStartObject();
+
+				for (int i = 0; i < columnsN; i++) {
+					gen.writeFieldName(names[i]);
+					writeValue(gen, rs, i + 1, types[i]);
+				}
+
+				gen.writeEndObject();
+				count++;
+			}
+
+			gen.writeEndArray();
+			gen.close();
+
+		} catch (IOException e) {
+			throw U.rte("Error occurred while writing the JSON results!", e);
+		}
+
+		return count;
+	}
+
+	private static void writeValue(JsonGenerator gen, ResultSet rs, int column, int type) throws SQLException, IOException {
+		switch (type) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				int n = rs.getInt(column);
+				if (rs.wasNull()) gen.writeNull();
+				else gen.writeNumber(n);
+				break;
+
+			case Types.BIGINT:
+				long l = rs.getLong(column);
+				if (rs.wasNull()) gen.writeNull();
+				else gen.writeNumber(l);
+				break;
+
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				double d = rs.getDouble(column);
+				if (rs.wasNull()) gen.writeNull();
+				else gen.writeNumber(d);
+				break;
+
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				BigDecimal dec = rs.getBigDecimal(column);
+				if (dec == null) gen.writeNull();
+				else gen.writeNumber(dec);
+				break;
+
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+				String s = rs.getString(column);
+				if (s == null) gen.writeNull();
+				else gen.writeString(s);
+				break;
+
+			case Types.BOOLEAN:
+				boolean b = rs.getBoolean(column);
+				if (rs.wasNull()) gen.writeNull();
+				else gen.writeBoolean(b);
+				break;
+
+			default:
+				gen.writeObject(rs.getObject(column));
+		}
+	}
+
 }
@@ -38,6 +38,7 @@ public class JDBCConfig extends RapidoidThing {
 	private static final Value<String> DRIVER = JDBC.entry("driver").str();
 	private static final Value<String> USERNAME = JDBC.entry("username").str();
 	private static final Value<String> PASSWORD = JDBC.entry("password").str();
+	private static final Value<Long> FETCH_SIZE = JDBC.entry("fetchSize").num();
 
 	public static String url() {
 		return URL.getOrNull();
@@ -61,6 +62,10 @@ public class JDBCConfig extends RapidoidThing {
 		return PASSWORD.getOrNull();
 	}
 
+	public static int fetchSize() {
+		return FETCH_SIZE.or(1000L).intValue();
+	}
+
 	public static String inferDriverFromUrl(String url) {
 		if (url.startsWith("jdbc:mysql:")) {
 			return "com.mysql.jdbc.Driver";
@@ -1,11 +1,14 @@
 package org.rapidoid.jdbc;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.rapidoid.RapidoidThing;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.data.JSON;
 import org.rapidoid.log.Log;
 import org.rapidoid.u.U;
 
+import java.io.OutputStream;
 import java.sql.*;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +43,7 @@ public class JdbcClient extends RapidoidThing {
 	private String password;
 	private String driver;
 	private String url;
+	private Integer fetchSize;
 
 	private volatile ConnectionPool pool = new NoConnectionPool();
 
@@ -73,6 +77,11 @@ public class JdbcClient extends RapidoidThing {
 		return this;
 	}
 
+	public synchronized JdbcClient fetchSize(Integer fetchSize) {
+		this.fetchSize = fetchSize;
+		return this;
+	}
+
 	public JdbcClient mysql(String host, int port, String databaseName) {
 		return driver("com.mysql.jdbc.Driver").url(U.frmt("jdbc:mysql://%s:%s/%s", host, port, databaseName));
 	}
@@ -230,6 +239,54 @@ public class JdbcClient extends RapidoidThing {
 		return U.cast(query(Map.class, sql, args));
 	}
 
+	public long queryJSON(OutputStream out, String sql, Object... args) {
+		return queryJSON(JSON.MAPPER, out, sql, args);
+	}
+
+	/**
+	 * Streams the query results as a JSON array of objects (the same as the JSON of {@link #query(String, Object...)})
+	 * into the specified output stream, without holding all the rows in memory. The rows are fetched in batches of
+	 * {@link #fetchSize()} rows. Returns the number of rows. The output stream is not closed.
+	 */
+	public long queryJSON(ObjectMapper mapper, OutputStream out, String sql, Object... args) {
+		ensureIsInitialized();
+
+		Log.debug("SQL", "sql", sql, "args", args);
+
+		Connection conn = provideConnection();
+		PreparedStatement stmt = null;
+		ResultSet rs = null;
+		boolean autoCommit = false;
+
+		try {
+			// some drivers (e.g. PostgreSQL) use a cursor for the fetch size only outside of auto-commit mode
+			autoCommit = conn.getAutoCommit();
+			if (autoCommit) conn.setAutoCommit(false);
+
+			stmt = JDBC.prepare(conn, sql, args);
+			stmt.setFetchSize(fetchSize());
+
+			rs = stmt.executeQuery();
+
+			return JDBC.rowsToJSON(rs, mapper, out);
+
+		} catch (SQLException e) {
+			throw U.rte(e);
+
+		} finally {
+			close(rs);
+			close(stmt);
+
+			try {
+				if (autoCommit) conn.setAutoCommit(true);
+			} catch (SQLException e) {
+				Log.error("Error while restoring the auto-commit mode of a JDBC connection!", e);
+			}
+
+			close(conn);
+		}
+	}
+
 	private Connection provideConnection() {
 		try {
 			Connection conn;
@@ -280,6 +337,10 @@ public class JdbcClient extends RapidoidThing {
 		return url;
 	}
 
+	public synchronized int fetchSize() {
+		return fetchSize != null ? fetchSize : JDBCConfig.fetchSize();
+	}
+
 	public ConnectionPool pool() {
 		return pool;
 	}
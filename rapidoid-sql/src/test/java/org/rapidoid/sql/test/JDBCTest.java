@@ -24,12 +24,16 @@ import com.mysql.jdbc.exceptions.jdbc4.CommunicationsException;
 import org.junit.Test;
 import org.rapidoid.annotation.Authors;
 import org.rapidoid.annotation.Since;
+import org.rapidoid.data.JSON;
 import org.rapidoid.jdbc.JDBC;
 import org.rapidoid.jdbc.JdbcClient;
 import org.rapidoid.jdbc.C3P0ConnectionPool;
 import org.rapidoid.u.U;
 import org.rapidoid.util.Msc;
 
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 
@@ -82,6 +86,40 @@ public class JDBCTest extends SQLTestCommons {
 		insertAndCheckData(client2);
 	}
 
+	@Test
+	public void testQueryJSON() {
+		checkQueryJSON(JDBC.newApi().h2("test"));
+		checkQueryJSON(JDBC.newApi().hsql("test"));
+		checkQueryJSON(JDBC.newApi().h2("test").pooled());
+	}
+
+	private void checkQueryJSON(JdbcClient client) {
+		client.tryToExecute("DROP TABLE item");
+		client.execute("CREATE TABLE item (id int, code bigint, price decimal(10, 2), rate double, name varchar(99), " +
+			"active boolean, created timestamp)");
+
+		client.execute("INSERT INTO item VALUES (?, ?, ?, ?, ?, ?, ?)", 1, 1234567890123L, new BigDecimal("12.50"),
+			0.75, "x\"y\n", true, new Timestamp(1000000));
+
+		client.execute("INSERT INTO item VALUES (?, ?, ?, ?, ?, ?, ?)", 2, null, null, null, null, null, null);
+
+		for (int i = 3; i <= 100; i++) {
+			client.execute("INSERT INTO item (id, name) VALUES (?, ?)", i, "item" + i);
+		}
+
+		client.fetchSize(10);
+
+		String sql = "SELECT * FROM item WHERE id > ? ORDER BY id";
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		eq(client.queryJSON(out, sql, 0), 100);
+		eq(new String(out.toByteArray()), JSON.stringify(client.query(sql, 0)));
+
+		out.reset();
+		eq(client.queryJSON(out, sql, 1000), 0);
+		eq(new String(out.toByteArray()), "[]");
+	}
+
 	private void insertAndCheckData(JdbcClient client) {
 		client.tryToExecute("DROP TABLE movie");
 		client.execute("CREATE TABLE movie (id int, title varchar(99))");
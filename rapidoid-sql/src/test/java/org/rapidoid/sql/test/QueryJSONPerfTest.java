@@ -0,0 +1,66 @@
+package org.rapidoid.sql.test;
+
+/*
+ * #%L
+ * rapidoid-sql
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.data.JSON;
+import org.rapidoid.jdbc.JDBC;
+import org.rapidoid.jdbc.JdbcClient;
+import org.rapidoid.util.Msc;
+import org.rapidoid.util.NullOutputStream;
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class QueryJSONPerfTest {
+
+	private static final int ROWS = 1000000;
+
+	public static void main(String[] args) {
+		final JdbcClient client = JDBC.newApi().h2("perf");
+
+		client.tryToExecute("DROP TABLE export");
+		client.execute("CREATE TABLE export (id int, code bigint, price decimal(10, 2), name varchar(50))");
+		client.execute("INSERT INTO export SELECT x, x * 1000, x / 100.0, 'item' || x FROM SYSTEM_RANGE(1, " + ROWS + ")");
+
+		final String sql = "SELECT * FROM export";
+		final NullOutputStream out = new NullOutputStream();
+
+		for (int round = 0; round < 5; round++) {
+			System.gc();
+			Msc.benchmark("queryJSON", 1, new Runnable() {
+				@Override
+				public void run() {
+					client.queryJSON(out, sql);
+				}
+			});
+
+			System.gc();
+			Msc.benchmark("query + stringify", 1, new Runnable() {
+				@Override
+				public void run() {
+					JSON.stringify(client.query(sql), out);
+				}
+			});
+		}
+	}
+
+}
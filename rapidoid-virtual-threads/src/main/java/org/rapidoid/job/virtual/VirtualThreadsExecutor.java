@@ -0,0 +1,214 @@
+package org.rapidoid.job.virtual;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * #%L
+ * rapidoid-virtual-threads
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Executes each job on a new virtual thread, so the jobs that block (e.g. on JDBC calls or outbound HTTP requests)
+ * don't hold a platform thread. There is no queue and no limit, so the jobs are never rejected (until shutdown). The
+ * number of running jobs can be limited with a view of the executor, see {@link #limitedTo(int)}.
+ * <p>
+ * Selected with <code>jobs.executor.type: virtual</code>, on Java 21+.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class VirtualThreadsExecutor extends AbstractExecutorService {
+
+	private final String name;
+
+	private final ThreadFactory threadFactory;
+
+	private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+
+	private final AtomicInteger active = new AtomicInteger();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private volatile boolean shutdown;
+
+	public VirtualThreadsExecutor(String name) {
+		this(name, Thread.ofVirtual().name(name, 1).factory());
+	}
+
+	VirtualThreadsExecutor(String name, ThreadFactory threadFactory) {
+		this.name = name;
+		this.threadFactory = threadFactory;
+	}
+
+	@Override
+	public void execute(final Runnable job) {
+		if (shutdown) {
+			throw new RejectedExecutionException("The executor was shut down!");
+		}
+
+		active.incrementAndGet();
+
+		Thread thread = null;
+
+		try {
+			thread = threadFactory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						job.run();
+					} finally {
+						finished(Thread.currentThread());
+					}
+				}
+			});
+
+			running.add(thread);
+			thread.start();
+
+		} catch (Throwable e) {
+			// the job won't be executed
+			if (thread != null) {
+				running.remove(thread);
+			}
+
+			active.decrementAndGet();
+			throw e;
+		}
+	}
+
+	private void finished(Thread thread) {
+		running.remove(thread);
+		active.decrementAndGet();
+
+		if (shutdown && isTerminated()) {
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		shutdown = true;
+
+		for (Thread thread : running) {
+			thread.interrupt();
+		}
+
+		// the jobs are never queued, so there are no jobs waiting to be executed
+		return new ArrayList<Runnable>();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return shutdown && activeCount() == 0;
+	}
+
+	@Override
+	public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		while (!isTerminated()) {
+			long remaining = deadline - System.nanoTime();
+
+			if (remaining <= 0) {
+				return false;
+			}
+
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns a view of this executor, which rejects the jobs (with {@link RejectedExecutionException}) when
+	 * <code>maxJobs</code> of the jobs submitted through it are already running. The jobs submitted directly to this
+	 * executor aren't limited.
+	 */
+	public Executor limitedTo(final int maxJobs) {
+		if (maxJobs <= 0) {
+			return this;
+		}
+
+		final Semaphore permits = new Semaphore(maxJobs);
+
+		return new Executor() {
+			@Override
+			public void execute(final Runnable job) {
+				if (!permits.tryAcquire()) {
+					rejected.incrementAndGet();
+					throw new RejectedExecutionException("Too many jobs are running: " + maxJobs);
+				}
+
+				try {
+					VirtualThreadsExecutor.this.execute(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								job.run();
+							} finally {
+								permits.release();
+							}
+						}
+					});
+
+				} catch (Throwable e) {
+					// the job won't be executed, so its permit must be released
+					permits.release();
+					throw e;
+				}
+			}
+		};
+	}
+
+	public String name() {
+		return name;
+	}
+
+	public int activeCount() {
+		return active.get();
+	}
+
+	public long rejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "VirtualThreadsExecutor [name=" + name + ", active=" + activeCount() + ", rejected=" + rejectedCount() + "]";
+	}
+
+}
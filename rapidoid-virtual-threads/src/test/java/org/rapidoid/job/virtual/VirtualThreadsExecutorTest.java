@@ -0,0 +1,208 @@
+package org.rapidoid.job.virtual;
+
+import org.junit.Test;
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.config.Conf;
+import org.rapidoid.ctx.Ctxs;
+import org.rapidoid.ctx.UserInfo;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.test.TestCommons;
+import org.rapidoid.u.U;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * #%L
+ * rapidoid-virtual-threads
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class VirtualThreadsExecutorTest extends TestCommons {
+
+	@Test(timeout = 30000)
+	public void testContextPropagation() throws Exception {
+		Conf.JOBS.sub("executor").set("type", "virtual");
+		Jobs.shutdownNow();
+
+		isTrue(Jobs.executor() instanceof VirtualThreadsExecutor);
+
+		int total = 10000;
+		final CountDownLatch done = new CountDownLatch(total);
+		final AtomicInteger correct = new AtomicInteger();
+
+		for (int i = 0; i < total; i++) {
+			final UserInfo user = new UserInfo("user" + i, U.set("role1"), null);
+
+			Ctxs.open("test-job");
+			Ctxs.required().setUser(user);
+
+			Jobs.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (Thread.currentThread().isVirtual() && Ctxs.required().user() == user) {
+						correct.incrementAndGet();
+					}
+
+					done.countDown();
+				}
+			});
+
+			Ctxs.close();
+		}
+
+		done.await();
+		eq(correct.get(), total);
+
+		Conf.JOBS.sub("executor").set("type", "platform");
+		Jobs.shutdownNow();
+	}
+
+	@Test(timeout = 10000)
+	public void testRejection() throws Exception {
+		VirtualThreadsExecutor executor = new VirtualThreadsExecutor("virtual-test");
+		Executor limited = executor.limitedTo(2);
+
+		final CountDownLatch release = new CountDownLatch(1);
+
+		Runnable job = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+
+		limited.execute(job);
+		limited.execute(job);
+		eq(executor.activeCount(), 2);
+
+		try {
+			limited.execute(job);
+			fail("The job should have been rejected!");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+
+		eq(executor.rejectedCount(), 1);
+
+		// the jobs submitted directly to the executor aren't limited
+		for (int i = 0; i < 10; i++) {
+			executor.execute(job);
+		}
+
+		eq(executor.activeCount(), 12);
+		eq(executor.rejectedCount(), 1);
+
+		release.countDown();
+		executor.shutdown();
+
+		isTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+		eq(executor.activeCount(), 0);
+	}
+
+	@Test(timeout = 10000)
+	public void testSharedExecutorIsNotLimited() throws Exception {
+		Conf.JOBS.sub("executor").set("type", "virtual");
+		Conf.JOBS.sub("executor").set("maxVirtualThreads", 2);
+		Jobs.shutdownNow();
+
+		int total = 10;
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch started = new CountDownLatch(total);
+		final CountDownLatch finished = new CountDownLatch(total);
+
+		for (int i = 0; i < total; i++) {
+			Jobs.execute(new Runnable() {
+				@Override
+				public void run() {
+					started.countDown();
+
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					}
+
+					finished.countDown();
+				}
+			});
+		}
+
+		started.await();
+
+		Runnable noop = new Runnable() {
+			@Override
+			public void run() {
+			}
+		};
+
+		// the handlers are limited separately from the other jobs
+		Executor handlers = Jobs.handlerExecutor();
+		handlers.execute(noop);
+		handlers.execute(noop);
+
+		release.countDown();
+		finished.await();
+
+		Conf.JOBS.sub("executor").set("type", "platform");
+		Conf.JOBS.sub("executor").set("maxVirtualThreads", 100000);
+		Jobs.shutdownNow();
+	}
+
+	@Test
+	public void testPermitIsReleasedIfThreadCantBeStarted() {
+		ThreadFactory failing = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable job) {
+				throw new IllegalStateException("Can't create thread!");
+			}
+		};
+
+		VirtualThreadsExecutor executor = new VirtualThreadsExecutor("failing-test", failing);
+		Executor limited = executor.limitedTo(1);
+
+		for (int i = 0; i < 3; i++) {
+			try {
+				limited.execute(new Runnable() {
+					@Override
+					public void run() {
+					}
+				});
+
+				fail("The thread creation should have failed!");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+
+			eq(executor.activeCount(), 0);
+		}
+
+		eq(executor.rejectedCount(), 0);
+	}
+
+}
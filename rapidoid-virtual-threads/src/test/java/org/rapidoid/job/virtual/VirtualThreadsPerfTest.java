@@ -0,0 +1,79 @@
+package org.rapidoid.job.virtual;
+
+import org.rapidoid.annotation.Authors;
+import org.rapidoid.annotation.Since;
+import org.rapidoid.ctx.Ctxs;
+import org.rapidoid.job.BoundedExecutor;
+import org.rapidoid.job.Jobs;
+import org.rapidoid.u.U;
+import org.rapidoid.util.Msc;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * #%L
+ * rapidoid-virtual-threads
+ * %%
+ * Copyright (C) 2014 - 2016 Nikolche Mihajlovski and contributors
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/**
+ * Simulates 10K concurrent slow requests (each blocking for 100 ms, e.g. on a JDBC call), executed in their context
+ * by the default pool of platform threads and by the virtual threads.
+ */
+@Authors("Nikolche Mihajlovski")
+@Since("5.3.0")
+public class VirtualThreadsPerfTest {
+
+	private static final int REQUESTS = 10000;
+
+	private static final long BLOCKING_MS = 100;
+
+	public static void main(String[] args) throws Exception {
+		for (int round = 0; round < 2; round++) {
+			benchmark("platform threads (256)", new BoundedExecutor("platform", 256, REQUESTS));
+			benchmark("virtual threads", new VirtualThreadsExecutor("virtual"));
+		}
+	}
+
+	private static void benchmark(String name, ExecutorService executor) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(REQUESTS);
+		long start = U.time();
+
+		Ctxs.open("perf");
+
+		for (int i = 0; i < REQUESTS; i++) {
+			executor.execute(Jobs.wrap(new Runnable() {
+				@Override
+				public void run() {
+					U.sleep(BLOCKING_MS);
+					done.countDown();
+				}
+			}));
+		}
+
+		Ctxs.close();
+
+		done.await();
+		Msc.benchmarkComplete(name, REQUESTS, start);
+
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	}
+
+}